@@ -0,0 +1,104 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.bench;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.bind.CompositeBinder;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+
+/**
+ * BinderBenchmark
+ *
+ * Compares binding a small record through CompositeBinder against a hand-written chain of
+ * getters and against GSON's reflective binding of the same tree.  The binder reads through
+ * keys, so it is measured both over a parsed document, where keys read layout slots, and over
+ * a wrapped JsonObject, where they fall back to lookups by name.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BinderBenchmark {
+	public record Item(long id, String name, int quantity, BigDecimal price, boolean active) {}
+
+	private JsonObject object;
+	private Composite composite;
+	private Composite parsed;
+	private CompositeBinder<Item> binder;
+	private Gson gson;
+
+	@Setup
+	public void setup() throws SchemaException {
+		String text= "{\"id\":1234,\"name\":\"widget\",\"quantity\":3,\"price\":9.95,\"active\":true}";
+		object= JsonParser.parseString(text).getAsJsonObject();
+
+		composite= JsonComposite.Create(object);
+		parsed= JsonComposite.Parse(text);
+		binder= CompositeBinder.Create(Item.class);
+		gson= new Gson();
+	}
+
+	@Benchmark
+	public Item handWritten() throws SchemaException {
+		return new Item(
+				composite.getRequiredLong("id"),
+				composite.getRequiredString("name"),
+				composite.getRequiredInteger("quantity"),
+				composite.getRequiredBigDecimal("price"),
+				composite.getRequiredBoolean("active"));
+	}
+
+	@Benchmark
+	public Item binder() throws SchemaException {
+		return binder.bind(composite);
+	}
+
+	@Benchmark
+	public Item handWrittenParsed() throws SchemaException {
+		return new Item(
+				parsed.getRequiredLong("id"),
+				parsed.getRequiredString("name"),
+				parsed.getRequiredInteger("quantity"),
+				parsed.getRequiredBigDecimal("price"),
+				parsed.getRequiredBoolean("active"));
+	}
+
+	@Benchmark
+	public Item binderParsed() throws SchemaException {
+		return binder.bind(parsed);
+	}
+
+	@Benchmark
+	public Item gson() {
+		return gson.fromJson(object, Item.class);
+	}
+}
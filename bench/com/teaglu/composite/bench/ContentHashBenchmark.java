@@ -0,0 +1,76 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.ContentHash;
+import com.teaglu.composite.convert.ContentHasher;
+
+/**
+ * ContentHashBenchmark
+ *
+ * Compares hashing the text from toString() against the canonical streaming hash, which does
+ * more work - sorting members and normalizing - but never builds the text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentHashBenchmark {
+	private JsonObject object;
+
+	@Setup
+	public void setup() {
+		StringBuilder text= new StringBuilder("{\"items\":[");
+		for (int i= 0; i < 500; i++) {
+			if (i > 0) {
+				text.append(',');
+			}
+			text.append("{\"id\":").append(i)
+					.append(",\"name\":\"item ").append(i)
+					.append("\",\"price\":").append(i).append(".95")
+					.append(",\"active\":true,\"tags\":[\"red\",\"green\",\"blue\"]}");
+		}
+		text.append("]}");
+
+		object= JsonParser.parseString(text.toString()).getAsJsonObject();
+	}
+
+	@Benchmark
+	public byte[] toStringDigest() throws NoSuchAlgorithmException {
+		MessageDigest digest= MessageDigest.getInstance("SHA-256");
+		return digest.digest(object.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public ContentHash canonicalHash() {
+		return ContentHasher.hash(object);
+	}
+}
@@ -0,0 +1,92 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.map.JsonMapSerializer;
+
+/**
+ * JsonMapSerializerBenchmark
+ *
+ * Compares turning a map tree like the one YAML parsing produces into JSON bytes or a GSON
+ * tree, going through GSON's text output and a re-parse, against the JSON map serializer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonMapSerializerBenchmark {
+	private Map<String, Object> tree;
+	private JsonMapSerializer serializer;
+	private Gson gson;
+
+	@Setup
+	public void setup() {
+		List<Object> items= new ArrayList<>();
+		for (int i= 0; i < 500; i++) {
+			Map<String, Object> item= new LinkedHashMap<>();
+			item.put("id", i);
+			item.put("name", "item " + i);
+			item.put("price", i + 0.95);
+			item.put("active", true);
+			item.put("tags", List.of("red", "green", "blue"));
+			items.add(item);
+		}
+
+		tree= new LinkedHashMap<>();
+		tree.put("items", items);
+
+		serializer= new JsonMapSerializer();
+		gson= new Gson();
+	}
+
+	@Benchmark
+	public byte[] gsonBytes() {
+		return gson.toJson(tree).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public byte[] serializerBytes() {
+		return serializer.serialize(tree, byte[].class);
+	}
+
+	@Benchmark
+	public JsonObject gsonReparse() {
+		return JsonParser.parseString(gson.toJson(tree)).getAsJsonObject();
+	}
+
+	@Benchmark
+	public JsonObject serializerObject() {
+		return serializer.serialize(tree, JsonObject.class);
+	}
+}
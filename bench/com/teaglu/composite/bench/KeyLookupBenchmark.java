@@ -0,0 +1,164 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+
+package com.teaglu.composite.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositeKey;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+
+/**
+ * KeyLookupBenchmark
+ *
+ * Compares reading the same five members from a batch of same-shaped documents straight from
+ * the GSON tree, through the composite by name, and through the composite by key - both on
+ * documents parsed up front, and parsing each document before reading it, which includes
+ * assigning shapes as the parser goes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeyLookupBenchmark {
+	private static final int DOCUMENTS= 1000;
+
+	private static final CompositeKey ID= CompositeKey.of("id");
+	private static final CompositeKey QUANTITY= CompositeKey.of("quantity");
+	private static final CompositeKey PRICE= CompositeKey.of("price");
+	private static final CompositeKey ACTIVE= CompositeKey.of("active");
+	private static final CompositeKey WAREHOUSE= CompositeKey.of("warehouse");
+
+	private String[] texts;
+	private JsonObject[] objects;
+	private Composite[] composites;
+
+	@Setup
+	public void setup() throws SchemaException {
+		texts= new String[DOCUMENTS];
+		objects= new JsonObject[DOCUMENTS];
+		composites= new Composite[DOCUMENTS];
+
+		for (int i= 0; i < DOCUMENTS; i++) {
+			texts[i]= "{\"id\":" + i + ",\"sku\":\"W-" + i + "\",\"name\":\"widget\"," +
+					"\"description\":\"A widget\",\"quantity\":" + (i % 17) + "," +
+					"\"price\":9.95,\"currency\":\"USD\",\"active\":true,\"weight\":1.5," +
+					"\"color\":\"red\",\"warehouse\":\"east\",\"updated\":\"2023-01-01\"}";
+
+			objects[i]= JsonParser.parseString(texts[i]).getAsJsonObject();
+			composites[i]= JsonComposite.Parse(texts[i]);
+		}
+	}
+
+	@Benchmark
+	public long tree() {
+		long rval= 0;
+		for (JsonObject object : objects) {
+			rval+= object.get("id").getAsLong();
+			rval+= object.get("quantity").getAsInt();
+			rval+= (long)object.get("price").getAsDouble();
+			rval+= object.get("active").getAsBoolean() ? 1 : 0;
+			rval+= object.get("warehouse").getAsString().length();
+		}
+
+		return rval;
+	}
+
+	@Benchmark
+	public long byName() throws SchemaException {
+		long rval= 0;
+		for (Composite composite : composites) {
+			rval+= read(composite);
+		}
+
+		return rval;
+	}
+
+	@Benchmark
+	public long byKey() throws SchemaException {
+		long rval= 0;
+		for (Composite composite : composites) {
+			rval+= readKeys(composite);
+		}
+
+		return rval;
+	}
+
+	@Benchmark
+	public long parseTree() {
+		long rval= 0;
+		for (String text : texts) {
+			JsonObject object= JsonParser.parseString(text).getAsJsonObject();
+
+			rval+= object.get("id").getAsLong();
+			rval+= object.get("quantity").getAsInt();
+			rval+= (long)object.get("price").getAsDouble();
+			rval+= object.get("active").getAsBoolean() ? 1 : 0;
+			rval+= object.get("warehouse").getAsString().length();
+		}
+
+		return rval;
+	}
+
+	@Benchmark
+	public long parseByName() throws SchemaException {
+		long rval= 0;
+		for (String text : texts) {
+			rval+= read(JsonComposite.Parse(text));
+		}
+
+		return rval;
+	}
+
+	@Benchmark
+	public long parseByKey() throws SchemaException {
+		long rval= 0;
+		for (String text : texts) {
+			rval+= readKeys(JsonComposite.Parse(text));
+		}
+
+		return rval;
+	}
+
+	private static long read(Composite composite) throws SchemaException {
+		return composite.getRequiredLong("id") +
+				composite.getRequiredInteger("quantity") +
+				(long)composite.getRequiredDouble("price") +
+				(composite.getRequiredBoolean("active") ? 1 : 0) +
+				composite.getRequiredString("warehouse").length();
+	}
+
+	private static long readKeys(Composite composite) throws SchemaException {
+		return composite.getRequiredLong(ID) +
+				composite.getRequiredInteger(QUANTITY) +
+				(long)composite.getRequiredDouble(PRICE) +
+				(composite.getRequiredBoolean(ACTIVE) ? 1 : 0) +
+				composite.getRequiredString(WAREHOUSE).length();
+	}
+}
@@ -0,0 +1,90 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.bench;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.convert.DecodedNumber;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+
+/**
+ * NumberDecodeBenchmark
+ *
+ * Compares the old two-parse integer check on a GSON primitive against decoding the number
+ * once, both directly and through the Composite accessors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NumberDecodeBenchmark {
+	@Param({"42", "1234567890123", "3.25"})
+	public String text;
+
+	private JsonPrimitive primitive;
+	private Composite composite;
+
+	@Setup
+	public void setup() throws SchemaException {
+		JsonObject object= JsonParser.parseString("{\"value\":" + text + "}").getAsJsonObject();
+
+		primitive= object.getAsJsonPrimitive("value");
+		composite= JsonComposite.Create(object);
+	}
+
+	@Benchmark
+	public long legacyLong() {
+		long l= primitive.getAsLong();
+		double d= primitive.getAsDouble();
+		return (d == (double)l) ? l : -1;
+	}
+
+	@Benchmark
+	public long decodedLong() {
+		DecodedNumber number= DecodedNumber.of(primitive.getAsNumber());
+		return number.isExactLong() ? number.longValue() : -1;
+	}
+
+	@Benchmark
+	public BigDecimal legacyBigDecimal() {
+		return primitive.getAsBigDecimal();
+	}
+
+	@Benchmark
+	public BigDecimal decodedBigDecimal() {
+		return DecodedNumber.of(primitive.getAsNumber()).toBigDecimal();
+	}
+
+	@Benchmark
+	public BigDecimal compositeBigDecimal() throws SchemaException {
+		return composite.getRequiredBigDecimal("value");
+	}
+}
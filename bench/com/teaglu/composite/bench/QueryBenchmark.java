@@ -0,0 +1,88 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.bench;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.json.JsonQuery;
+
+/**
+ * QueryBenchmark
+ *
+ * Compares picking a few percent of records out of a document by parsing the whole tree and
+ * filtering it, against streaming the same document through a JsonQuery.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+	private String document;
+	private JsonQuery query;
+
+	@Setup
+	public void setup() {
+		StringBuilder json= new StringBuilder("{\"orders\":[");
+		for (int i= 0; i < 10000; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(i)
+					.append(",\"status\":\"").append((i % 50 == 0) ? "OPEN" : "CLOSED")
+					.append("\",\"total\":").append(i * 1.25)
+					.append(",\"customer\":{\"name\":\"Customer ").append(i)
+					.append("\",\"address\":{\"street\":\"1 Main St\",\"city\":\"Springfield\"}}")
+					.append(",\"lines\":[{\"sku\":\"A1\",\"quantity\":2},{\"sku\":\"B2\",\"quantity\":1}]}");
+		}
+		json.append("]}");
+
+		document= json.toString();
+		query= JsonQuery.Compile("select orders[*] where status == 'OPEN' project id, total");
+	}
+
+	@Benchmark
+	public double fullTree() throws SchemaException {
+		double sum= 0;
+		for (Composite order : JsonComposite.Parse(document).getRequiredObjectArray("orders")) {
+			if (order.getRequiredString("status").equals("OPEN")) {
+				sum+= order.getRequiredDouble("total");
+			}
+		}
+
+		return sum;
+	}
+
+	@Benchmark
+	public double streamingQuery() throws SchemaException {
+		double[] sum= new double[1];
+		query.execute(new StringReader(document), result -> sum[0]+= result.getRequiredDouble("total"));
+
+		return sum[0];
+	}
+}
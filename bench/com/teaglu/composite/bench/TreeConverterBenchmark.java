@@ -0,0 +1,92 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.convert.TreeConverter;
+
+/**
+ * TreeConverterBenchmark
+ *
+ * Compares converting between a map tree and a GSON tree directly against printing one as
+ * JSON text and parsing the text back as the other.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TreeConverterBenchmark {
+	private Map<String, Object> tree;
+	private JsonObject object;
+	private Gson gson;
+
+	@Setup
+	public void setup() {
+		List<Object> items= new ArrayList<>();
+		for (int i= 0; i < 500; i++) {
+			Map<String, Object> item= new LinkedHashMap<>();
+			item.put("id", i);
+			item.put("name", "item " + i);
+			item.put("price", i + 0.95);
+			item.put("active", true);
+			item.put("created", "2023-01-01T12:00:00Z");
+			item.put("tags", List.of("red", "green", "blue"));
+			items.add(item);
+		}
+
+		tree= new LinkedHashMap<>();
+		tree.put("items", items);
+
+		gson= new Gson();
+		object= JsonParser.parseString(gson.toJson(tree)).getAsJsonObject();
+	}
+
+	@Benchmark
+	public JsonObject mapToJsonText() {
+		return JsonParser.parseString(gson.toJson(tree)).getAsJsonObject();
+	}
+
+	@Benchmark
+	public JsonObject mapToJsonDirect() {
+		return TreeConverter.toJsonObject(tree);
+	}
+
+	@Benchmark
+	public Map<?, ?> jsonToMapText() {
+		return gson.fromJson(object.toString(), Map.class);
+	}
+
+	@Benchmark
+	public Map<String, Object> jsonToMapDirect() {
+		return TreeConverter.toMap(object);
+	}
+}
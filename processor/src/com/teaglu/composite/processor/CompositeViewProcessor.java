@@ -0,0 +1,496 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.ModuleElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * CompositeViewProcessor
+ *
+ * Generates a final implementation class for each interface annotated with CompositeView.
+ * The generated constructor reads every value from a Composite using constant key strings,
+ * so building a view costs the same as the equivalent hand-written getter calls, and there
+ * is no reflection or MethodHandle lookup to warm up.
+ *
+ * The processor matches annotations by name, so it has no dependency on the library itself.
+ */
+@SupportedAnnotationTypes(CompositeViewProcessor.VIEW_ANNOTATION)
+public class CompositeViewProcessor extends AbstractProcessor {
+	static final String VIEW_ANNOTATION= "com.teaglu.composite.bind.CompositeView";
+	static final String FIELD_ANNOTATION= "com.teaglu.composite.bind.CompositeField";
+	static final String GENERATED_ANNOTATION= "javax.annotation.processing.Generated";
+
+	private static final String COMPOSITE= "com.teaglu.composite.Composite";
+	private static final String SCHEMA_EXCEPTION= "com.teaglu.composite.exception.SchemaException";
+	private static final String UNDEFINED_OPTION_EXCEPTION=
+			"com.teaglu.composite.exception.UndefinedOptionException";
+
+	// Composite accessor suffix for each supported scalar type
+	private static final Map<String, String> scalarAccessors= new HashMap<>();
+
+	// Composite accessor suffix and default value for each supported primitive type
+	private static final Map<TypeKind, String> primitiveAccessors= new HashMap<>();
+	private static final Map<TypeKind, String> primitiveDefaults= new HashMap<>();
+
+	// Composite array accessor suffix for each supported list element type
+	private static final Map<String, String> arrayAccessors= new HashMap<>();
+
+	static {
+		scalarAccessors.put("java.lang.Integer", "Integer");
+		scalarAccessors.put("java.lang.Long", "Long");
+		scalarAccessors.put("java.lang.Double", "Double");
+		scalarAccessors.put("java.lang.Boolean", "Boolean");
+		scalarAccessors.put("java.lang.String", "String");
+		scalarAccessors.put("java.math.BigDecimal", "BigDecimal");
+		scalarAccessors.put("java.math.BigInteger", "BigInteger");
+		scalarAccessors.put("java.time.LocalDate", "LocalDate");
+		scalarAccessors.put("java.sql.Timestamp", "Timestamp");
+		scalarAccessors.put("java.time.Instant", "Instant");
+		scalarAccessors.put("java.time.OffsetDateTime", "OffsetDateTime");
+		scalarAccessors.put("java.time.LocalDateTime", "LocalDateTime");
+		scalarAccessors.put(COMPOSITE, "Object");
+
+		primitiveAccessors.put(TypeKind.INT, "Integer");
+		primitiveAccessors.put(TypeKind.LONG, "Long");
+		primitiveAccessors.put(TypeKind.DOUBLE, "Double");
+		primitiveAccessors.put(TypeKind.BOOLEAN, "Boolean");
+
+		primitiveDefaults.put(TypeKind.INT, "0");
+		primitiveDefaults.put(TypeKind.LONG, "0L");
+		primitiveDefaults.put(TypeKind.DOUBLE, "0.0");
+		primitiveDefaults.put(TypeKind.BOOLEAN, "false");
+
+		arrayAccessors.put("java.lang.String", "StringArray");
+		arrayAccessors.put("java.lang.Integer", "IntegerArray");
+		arrayAccessors.put(COMPOSITE, "ObjectArray");
+	}
+
+	private static final class Member {
+		private final String method;
+		private final String type;
+		private final String read;
+
+		private Member(String method, String type, String read) {
+			this.method= method;
+			this.type= type;
+			this.read= read;
+		}
+	}
+
+	// Set while generating a view that reads an enum, so the view gets the option helper
+	private boolean optionsUsed;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(
+			Set<? extends TypeElement> annotations,
+			RoundEnvironment round)
+	{
+		for (TypeElement annotation : annotations) {
+			for (Element element : round.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() != ElementKind.INTERFACE) {
+					error(element, "CompositeView can only be applied to an interface");
+				} else {
+					generate((TypeElement)element);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private void generate(TypeElement type) {
+		if (!type.getTypeParameters().isEmpty()) {
+			error(type, "CompositeView interfaces cannot be generic");
+			return;
+		}
+
+		List<Member> members= new ArrayList<>();
+		boolean valid= true;
+		optionsUsed= false;
+
+		for (ExecutableElement method :
+				ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type)))
+		{
+			if ((method.getEnclosingElement().getKind() != ElementKind.INTERFACE) ||
+					!method.getModifiers().contains(Modifier.ABSTRACT))
+			{
+				continue;
+			}
+
+			if (!method.getParameters().isEmpty() || !method.getTypeParameters().isEmpty()) {
+				error(method, "CompositeView methods cannot take arguments");
+				valid= false;
+				continue;
+			}
+
+			String name= method.getSimpleName().toString();
+			String key= name;
+			boolean optional= false;
+
+			AnnotationMirror field= findAnnotation(method, FIELD_ANNOTATION);
+			if (field != null) {
+				for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+						field.getElementValues().entrySet())
+				{
+					String attribute= entry.getKey().getSimpleName().toString();
+					if (attribute.equals("name")) {
+						String value= (String)entry.getValue().getValue();
+						if (!value.isEmpty()) {
+							key= value;
+						}
+					} else if (attribute.equals("optional")) {
+						optional= (Boolean)entry.getValue().getValue();
+					}
+				}
+			}
+
+			TypeMirror returnType= method.getReturnType();
+			String read= createRead(name, returnType, key, optional);
+			if (read == null) {
+				error(method, "CompositeView method has unsupported type " + returnType);
+				valid= false;
+				continue;
+			}
+
+			members.add(new Member(name, returnType.toString(), read));
+		}
+
+		if (valid) {
+			try {
+				write(type, members);
+			} catch (IOException e) {
+				error(type, "Unable to write view for " + type + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private static AnnotationMirror findAnnotation(Element element, String name) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			TypeElement annotationType= (TypeElement)mirror.getAnnotationType().asElement();
+			if (annotationType.getQualifiedName().contentEquals(name)) {
+				return mirror;
+			}
+		}
+
+		return null;
+	}
+
+	private static String quote(String text) {
+		StringBuilder rval= new StringBuilder("\"");
+		for (int i= 0; i < text.length(); i++) {
+			char c= text.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				rval.append('\\').append(c);
+			} else if ((c < 0x20) || (c > 0x7E)) {
+				rval.append(String.format("\\u%04x", (int)c));
+			} else {
+				rval.append(c);
+			}
+		}
+
+		return rval.append('"').toString();
+	}
+
+	/**
+	 * createRead
+	 *
+	 * Create the constructor statements assigning one field, or null if the type isn't
+	 * supported.
+	 */
+	private String createRead(String field, TypeMirror type, String key, boolean optional) {
+		String target= "this." + field;
+		String quoted= quote(key);
+		String prefix= optional ? "composite.getOptional" : "composite.getRequired";
+
+		if (type.getKind().isPrimitive()) {
+			String accessor= primitiveAccessors.get(type.getKind());
+			if (accessor == null) {
+				return null;
+			}
+
+			if (!optional) {
+				return target + "= composite.getRequired" + accessor + "(" + quoted + ");";
+			} else if (type.getKind() == TypeKind.BOOLEAN) {
+				return target + "= composite.getOptionalBoolean(" + quoted + ", false);";
+			} else {
+				return "{\n" +
+						"\t\t\tjava.lang." + accessor + " value= composite.getOptional" +
+						accessor + "(" + quoted + ");\n" +
+						"\t\t\t" + target + "= (value == null) ? " +
+						primitiveDefaults.get(type.getKind()) + " : value;\n" +
+						"\t\t}";
+			}
+		}
+
+		if (type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+
+		DeclaredType declared= (DeclaredType)type;
+		TypeElement element= (TypeElement)declared.asElement();
+		String name= element.getQualifiedName().toString();
+
+		String accessor= scalarAccessors.get(name);
+		if (accessor != null) {
+			return target + "= " + prefix + accessor + "(" + quoted + ");";
+		}
+
+		if (element.getKind() == ElementKind.ENUM) {
+			optionsUsed= true;
+			if (!optional) {
+				return target + "= option(" + name + ".class, composite.getRequiredString(" +
+						quoted + "), " + quoted + ");";
+			} else {
+				return "{\n" +
+						"\t\t\tjava.lang.String value= composite.getOptionalString(" + quoted + ");\n" +
+						"\t\t\t" + target + "= (value == null) ? null : option(" + name +
+						".class, value, " + quoted + ");\n" +
+						"\t\t}";
+			}
+		}
+
+		String view= viewName(element);
+		if (view != null) {
+			if (!optional) {
+				return target + "= new " + view + "(composite.getRequiredObject(" + quoted + "));";
+			} else {
+				return "{\n" +
+						"\t\t\t" + COMPOSITE + " value= composite.getOptionalObject(" + quoted + ");\n" +
+						"\t\t\t" + target + "= (value == null) ? null : new " + view + "(value);\n" +
+						"\t\t}";
+			}
+		}
+
+		if ((name.equals("java.util.List") || name.equals("java.util.Collection") ||
+				name.equals("java.lang.Iterable")) && (declared.getTypeArguments().size() == 1))
+		{
+			TypeMirror elementType= declared.getTypeArguments().get(0);
+			if (elementType.getKind() != TypeKind.DECLARED) {
+				return null;
+			}
+
+			TypeElement elementElement= (TypeElement)((DeclaredType)elementType).asElement();
+			String elementName= elementElement.getQualifiedName().toString();
+
+			String arrayAccessor= arrayAccessors.get(elementName);
+			String sourceType= elementName;
+			String convert= "element";
+			boolean indexed= false;
+
+			if (elementElement.getKind() == ElementKind.ENUM) {
+				optionsUsed= true;
+				arrayAccessor= "StringArray";
+				sourceType= "java.lang.String";
+				convert= "option(" + elementName + ".class, element, " + quoted +
+						" + \"[\" + index + \"]\")";
+				indexed= true;
+			} else if (arrayAccessor == null) {
+				String elementView= viewName(elementElement);
+				if (elementView == null) {
+					return null;
+				}
+
+				arrayAccessor= "ObjectArray";
+				sourceType= COMPOSITE;
+				convert= "new " + elementView + "(element)";
+			}
+
+			StringBuilder rval= new StringBuilder();
+			rval.append("{\n");
+			rval.append("\t\t\tjava.lang.Iterable<" + sourceType + "> source= " +
+					prefix + arrayAccessor + "(" + quoted + ");\n");
+
+			String indent= "\t\t\t";
+			if (optional) {
+				rval.append("\t\t\tif (source == null) {\n");
+				rval.append("\t\t\t\t" + target + "= null;\n");
+				rval.append("\t\t\t} else {\n");
+				indent= "\t\t\t\t";
+			}
+
+			rval.append(indent + "java.util.List<" + elementName + "> list= new java.util.ArrayList<>();\n");
+			if (indexed) {
+				rval.append(indent + "int index= 0;\n");
+			}
+			rval.append(indent + "for (" + sourceType + " element : source) {\n");
+			rval.append(indent + "\tlist.add(" + convert + ");\n");
+			if (indexed) {
+				rval.append(indent + "\tindex++;\n");
+			}
+			rval.append(indent + "}\n");
+			rval.append(indent + target + "= java.util.Collections.unmodifiableList(list);\n");
+
+			if (optional) {
+				rval.append("\t\t\t}\n");
+			}
+			rval.append("\t\t}");
+
+			return rval.toString();
+		}
+
+		return null;
+	}
+
+	/**
+	 * viewName
+	 *
+	 * Return the qualified name of the class generated for a view interface, or null if the
+	 * type isn't a view interface.
+	 */
+	private String viewName(TypeElement element) {
+		if ((element.getKind() != ElementKind.INTERFACE) ||
+				(findAnnotation(element, VIEW_ANNOTATION) == null))
+		{
+			return null;
+		}
+
+		PackageElement pkg= processingEnv.getElementUtils().getPackageOf(element);
+		String simple= simpleViewName(element);
+
+		return pkg.isUnnamed() ? simple : pkg.getQualifiedName() + "." + simple;
+	}
+
+	private static String simpleViewName(TypeElement element) {
+		StringBuilder rval= new StringBuilder(element.getSimpleName());
+		for (Element at= element.getEnclosingElement();
+				(at != null) && (at instanceof TypeElement);
+				at= at.getEnclosingElement())
+		{
+			rval.insert(0, '_').insert(0, at.getSimpleName());
+		}
+
+		return rval.append("View").toString();
+	}
+
+	/**
+	 * Return whether the Generated annotation can be put on the view for a type.  It lives in
+	 * the java.compiler module, which a modular consumer can only see if it requires it, so
+	 * the annotation is left off rather than forcing that requirement on every consumer.
+	 */
+	private boolean canAnnotateGenerated(TypeElement type) {
+		if (processingEnv.getElementUtils().getTypeElement(GENERATED_ANNOTATION) == null) {
+			return false;
+		}
+
+		ModuleElement module= processingEnv.getElementUtils().getModuleOf(type);
+		if ((module == null) || module.isUnnamed()) {
+			return true;
+		}
+
+		for (ModuleElement.RequiresDirective requires :
+				ElementFilter.requiresIn(module.getDirectives()))
+		{
+			if (requires.getDependency().getQualifiedName().contentEquals("java.compiler")) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void write(TypeElement type, List<Member> members) throws IOException {
+		PackageElement pkg= processingEnv.getElementUtils().getPackageOf(type);
+		String simple= simpleViewName(type);
+		String qualified= pkg.isUnnamed() ? simple : pkg.getQualifiedName() + "." + simple;
+
+		try (Writer out= processingEnv.getFiler().createSourceFile(qualified, type).openWriter()) {
+			if (!pkg.isUnnamed()) {
+				out.write("package " + pkg.getQualifiedName() + ";\n\n");
+			}
+
+			if (canAnnotateGenerated(type)) {
+				out.write("@" + GENERATED_ANNOTATION + "(\"" + getClass().getName() + "\")\n");
+			}
+			out.write("public final class " + simple + " implements " + type.getQualifiedName() + " {\n");
+
+			for (Member member : members) {
+				out.write("\tprivate final " + member.type + " " + member.method + ";\n");
+			}
+
+			out.write("\n");
+			out.write("\tpublic " + simple + "(\n");
+			out.write("\t\t\t" + COMPOSITE + " composite) throws " + SCHEMA_EXCEPTION + "\n");
+			out.write("\t{\n");
+			for (Member member : members) {
+				out.write("\t\t" + member.read + "\n");
+			}
+			out.write("\t}\n");
+
+			if (optionsUsed) {
+				// Reports a bad enum value the same way CompositeBinder does
+				out.write("\n");
+				out.write("\tprivate static <E extends java.lang.Enum<E>> E option(\n");
+				out.write("\t\t\tjava.lang.Class<E> type,\n");
+				out.write("\t\t\tjava.lang.String value,\n");
+				out.write("\t\t\tjava.lang.String parameter) throws " + UNDEFINED_OPTION_EXCEPTION + "\n");
+				out.write("\t{\n");
+				out.write("\t\ttry {\n");
+				out.write("\t\t\treturn java.lang.Enum.valueOf(type, value);\n");
+				out.write("\t\t} catch (java.lang.IllegalArgumentException e) {\n");
+				out.write("\t\t\tthrow new " + UNDEFINED_OPTION_EXCEPTION + "(\n");
+				out.write("\t\t\t\t\t\"Parameter \" + parameter + \" has undefined option \" + value);\n");
+				out.write("\t\t}\n");
+				out.write("\t}\n");
+			}
+
+			for (Member member : members) {
+				out.write("\n");
+				out.write("\t@Override\n");
+				out.write("\tpublic " + member.type + " " + member.method + "() {\n");
+				out.write("\t\treturn " + member.method + ";\n");
+				out.write("\t}\n");
+			}
+
+			out.write("}\n");
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.teaglu.composite.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.UndefinedOptionException;
+import com.teaglu.composite.json.JsonComposite;
+
+public class CompositeViewProcessorTest {
+	private static final String ORDER=
+			"package test;\n" +
+			"import java.math.BigDecimal;\n" +
+			"import java.time.Instant;\n" +
+			"import java.util.List;\n" +
+			"import com.teaglu.composite.bind.CompositeField;\n" +
+			"import com.teaglu.composite.bind.CompositeView;\n" +
+			"@CompositeView\n" +
+			"public interface Order {\n" +
+			"	enum Status { OPEN, SHIPPED }\n" +
+			"	@CompositeView\n" +
+			"	interface Line {\n" +
+			"		String sku();\n" +
+			"		BigDecimal price();\n" +
+			"	}\n" +
+			"	long id();\n" +
+			"	Instant placed();\n" +
+			"	@CompositeField(name= \"customer_name\") String customer();\n" +
+			"	@CompositeField(optional= true) String note();\n" +
+			"	@CompositeField(optional= true) int priority();\n" +
+			"	List<Line> lines();\n" +
+			"	List<String> tags();\n" +
+			"	@CompositeField(optional= true) Status status();\n" +
+			"	@CompositeField(optional= true) List<Status> history();\n" +
+			"	default boolean rush() { return tags().contains(\"rush\"); }\n" +
+			"}\n";
+	
+	private static class Source extends SimpleJavaFileObject {
+		private final String code;
+		
+		private Source(String name, String code) {
+			super(URI.create("string:///" + name.replace('.', '/') + ".java"), Kind.SOURCE);
+			this.code= code;
+		}
+		
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+	
+	private static boolean compile(
+			Path output,
+			String name,
+			String code,
+			DiagnosticCollector<JavaFileObject> diagnostics)
+	{
+		JavaCompiler compiler= ToolProvider.getSystemJavaCompiler();
+		
+		List<String> options= new ArrayList<>();
+		options.add("-classpath");
+		options.add(System.getProperty("java.class.path"));
+		options.add("-d");
+		options.add(output.toString());
+		options.add("-s");
+		options.add(output.toString());
+		
+		JavaCompiler.CompilationTask task= compiler.getTask(
+				null, null, diagnostics, options, null, List.of(new Source(name, code)));
+		task.setProcessors(List.of(new CompositeViewProcessor()));
+		
+		return task.call();
+	}
+	
+	@Test
+	public void testGeneratedView(@TempDir Path output) throws Exception {
+		DiagnosticCollector<JavaFileObject> diagnostics= new DiagnosticCollector<>();
+		assertTrue(compile(output, "test.Order", ORDER, diagnostics),
+				diagnostics.getDiagnostics().toString());
+		
+		// Outside a named module the Generated annotation is always visible
+		assertTrue(Files.readString(output.resolve("test/OrderView.java")).contains(
+				"@javax.annotation.processing.Generated("));
+		
+		try (URLClassLoader loader= new URLClassLoader(
+				new URL[] { output.toUri().toURL() }, getClass().getClassLoader()))
+		{
+			Class<?> view= loader.loadClass("test.OrderView");
+			Class<?> order= loader.loadClass("test.Order");
+			
+			Composite composite= JsonComposite.Parse(
+					"{\"id\":12,\"placed\":\"2023-01-01T12:00:00Z\",\"customer_name\":\"Bob\"," +
+					"\"lines\":[{\"sku\":\"A1\",\"price\":1.25}],\"tags\":[\"rush\"]," +
+					"\"status\":\"SHIPPED\",\"history\":[\"OPEN\",\"SHIPPED\"]}");
+			
+			Object instance= view.getConstructor(Composite.class).newInstance(composite);
+			
+			assertEquals(12L, order.getMethod("id").invoke(instance));
+			assertEquals(Instant.parse("2023-01-01T12:00:00Z"), order.getMethod("placed").invoke(instance));
+			assertEquals("Bob", order.getMethod("customer").invoke(instance));
+			assertNull(order.getMethod("note").invoke(instance));
+			assertEquals(0, order.getMethod("priority").invoke(instance));
+			assertEquals(List.of("rush"), order.getMethod("tags").invoke(instance));
+			assertEquals(true, order.getMethod("rush").invoke(instance));
+			
+			Class<?> status= loader.loadClass("test.Order$Status");
+			assertEquals(status.getEnumConstants()[1], order.getMethod("status").invoke(instance));
+			assertEquals(List.of(status.getEnumConstants()), order.getMethod("history").invoke(instance));
+			
+			List<?> lines= (List<?>)order.getMethod("lines").invoke(instance);
+			assertEquals(1, lines.size());
+			
+			Class<?> line= loader.loadClass("test.Order$Line");
+			assertEquals("A1", line.getMethod("sku").invoke(lines.get(0)));
+			assertEquals(new BigDecimal("1.25"), line.getMethod("price").invoke(lines.get(0)));
+			
+			// Errors carry the same nested path as the hand-written accessors
+			Composite missing= JsonComposite.Parse(
+					"{\"id\":12,\"placed\":\"2023-01-01T12:00:00Z\",\"customer_name\":\"Bob\"," +
+					"\"lines\":[{\"sku\":\"A1\"}],\"tags\":[]}");
+			
+			InvocationTargetException e= assertThrows(InvocationTargetException.class,
+					() -> view.getConstructor(Composite.class).newInstance(missing));
+			assertInstanceOf(MissingValueException.class, e.getCause());
+			assertTrue(e.getCause().getMessage().contains("lines[0].price"), e.getCause().getMessage());
+			
+			// Enum values that aren't constants are reported as undefined options
+			Composite undefined= JsonComposite.Parse(
+					"{\"id\":12,\"placed\":\"2023-01-01T12:00:00Z\",\"customer_name\":\"Bob\"," +
+					"\"lines\":[],\"tags\":[],\"history\":[\"OPEN\",\"LOST\"]}");
+			
+			e= assertThrows(InvocationTargetException.class,
+					() -> view.getConstructor(Composite.class).newInstance(undefined));
+			assertInstanceOf(UndefinedOptionException.class, e.getCause());
+			assertTrue(e.getCause().getMessage().contains("history[1]"), e.getCause().getMessage());
+		}
+	}
+	
+	@Test
+	public void testUnsupportedType(@TempDir Path output) {
+		String code=
+				"package test;\n" +
+				"@com.teaglu.composite.bind.CompositeView\n" +
+				"public interface Broken {\n" +
+				"	java.util.Map<String, String> values();\n" +
+				"}\n";
+		
+		DiagnosticCollector<JavaFileObject> diagnostics= new DiagnosticCollector<>();
+		assertFalse(compile(output, "test.Broken", code, diagnostics));
+		assertTrue(diagnostics.getDiagnostics().toString().contains("unsupported type"),
+				diagnostics.getDiagnostics().toString());
+	}
+}
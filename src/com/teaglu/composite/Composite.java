@@ -16,8 +16,15 @@
 
 package com.teaglu.composite;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -82,6 +89,36 @@ public interface Composite {
 	public double getRequiredDouble(
 			@NonNull String name) throws MissingValueException, WrongTypeException;
 	
+	/**
+	 * getRequiredBigDecimal
+	 * 
+	 * Retrieve a required decimal number from the composite, exactly as written.
+	 *
+	 * @param name						Name of value to retrieve
+	 * 
+	 * @return							Decimal value
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not a number
+	 */
+	public @NonNull BigDecimal getRequiredBigDecimal(
+			@NonNull String name) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredBigInteger
+	 * 
+	 * Retrieve a required integer of any size from the composite.
+	 *
+	 * @param name						Name of value to retrieve
+	 * 
+	 * @return							Integer value
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not an integer number
+	 */
+	public @NonNull BigInteger getRequiredBigInteger(
+			@NonNull String name) throws MissingValueException, WrongTypeException;
+	
 	/**
 	 * getRequiredString
 	 * 
@@ -143,6 +180,55 @@ public interface Composite {
 	public @NonNull Timestamp getRequiredTimestamp(
 			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException;
 	
+	/**
+	 * getRequiredInstant
+	 * 
+	 * Retrieve a point in time from the composite.  Strings without an offset are interpreted
+	 * using the timezone passed in during creation, and numbers are taken as milliseconds since
+	 * the epoch.
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							Instant
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not a type that can be interpreted as an instant
+	 * @throws FormatException			Value cannot be interpreted as an instant
+	 */
+	public @NonNull Instant getRequiredInstant(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException;
+	
+	/**
+	 * getRequiredOffsetDateTime
+	 * 
+	 * Retrieve a date and time with offset from the composite.  An offset in the value is kept,
+	 * otherwise the offset of the creation timezone at that time is used.
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							Date and time with offset
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not a type that can be interpreted as a date time
+	 * @throws FormatException			Value cannot be interpreted as a date time
+	 */
+	public @NonNull OffsetDateTime getRequiredOffsetDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException;
+	
+	/**
+	 * getRequiredLocalDateTime
+	 * 
+	 * Retrieve a date and time as local time in the creation timezone.  Values with an offset
+	 * are converted to that timezone.
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							Local date and time
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not a type that can be interpreted as a date time
+	 * @throws FormatException			Value cannot be interpreted as a date time
+	 */
+	public @NonNull LocalDateTime getRequiredLocalDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException;
+	
 	/**
 	 * getRequiredObject
 	 * 
@@ -242,6 +328,32 @@ public interface Composite {
 	 */
 	public Double getOptionalDouble(@NonNull String name) throws WrongTypeException;
 	
+	/**
+	 * getOptionalBigDecimal
+	 * 
+	 * Retrieve an optional decimal number by name from the composite.  Return null if the
+	 * value is not defined
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							Decimal value
+	 * 
+	 * @throws WrongTypeException		Value is not a number
+	 */
+	public BigDecimal getOptionalBigDecimal(@NonNull String name) throws WrongTypeException;
+	
+	/**
+	 * getOptionalBigInteger
+	 * 
+	 * Retrieve an optional integer of any size by name from the composite.  Return null if the
+	 * value is not defined
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							Integer value
+	 * 
+	 * @throws WrongTypeException		Value is not an integer number
+	 */
+	public BigInteger getOptionalBigInteger(@NonNull String name) throws WrongTypeException;
+	
 	/**
 	 * getOptionalString
 	 * 
@@ -314,6 +426,51 @@ public interface Composite {
 	public Timestamp getOptionalTimestamp(
 			@NonNull String name) throws WrongTypeException, FormatException;
 	
+	/**
+	 * getOptionalInstant
+	 * 
+	 * Retrieve an optional point in time by name from the composite.  Return null if the value
+	 * is not defined
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							Instant value
+	 * 
+	 * @throws WrongTypeException		Value is not a type that can be interpreted as an instant
+	 * @throws FormatException			Value cannot be interpreted as an instant
+	 */
+	public Instant getOptionalInstant(
+			@NonNull String name) throws WrongTypeException, FormatException;
+	
+	/**
+	 * getOptionalOffsetDateTime
+	 * 
+	 * Retrieve an optional date and time with offset by name from the composite.  Return null
+	 * if the value is not defined
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							OffsetDateTime value
+	 * 
+	 * @throws WrongTypeException		Value is not a type that can be interpreted as a date time
+	 * @throws FormatException			Value cannot be interpreted as a date time
+	 */
+	public OffsetDateTime getOptionalOffsetDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException;
+	
+	/**
+	 * getOptionalLocalDateTime
+	 * 
+	 * Retrieve an optional local date and time by name from the composite.  Return null if the
+	 * value is not defined
+	 *
+	 * @param name						Name of value to retrieve
+	 * @return							LocalDateTime value
+	 * 
+	 * @throws WrongTypeException		Value is not a type that can be interpreted as a date time
+	 * @throws FormatException			Value cannot be interpreted as a date time
+	 */
+	public LocalDateTime getOptionalLocalDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException;
+	
 	/**
 	 * getOptionalObject
 	 * 
@@ -369,6 +526,354 @@ public interface Composite {
 	public Iterable<@NonNull Integer> getOptionalIntegerArray(
 			@NonNull String name) throws WrongTypeException;
 	
+	/**
+	 * getRequiredString
+	 * 
+	 * Retrieve a string from the composite by path, without creating a composite for each
+	 * step of the path.
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * 
+	 * @return							String value
+	 * 
+	 * @throws MissingValueException	Value or a step of the path is not present
+	 * @throws WrongTypeException		Value is not string, or a step of the path is the wrong type
+	 */
+	public @NonNull String getRequiredString(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredInteger
+	 * 
+	 * Retrieve an integer from the composite by path, without creating a composite for each
+	 * step of the path.
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * 
+	 * @return							Integer value
+	 * 
+	 * @throws MissingValueException	Value or a step of the path is not present
+	 * @throws WrongTypeException		Value is not an integer number, or a step of the path is the wrong type
+	 */
+	public int getRequiredInteger(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredLong
+	 * 
+	 * Retrieve a long from the composite by path, without creating a composite for each
+	 * step of the path.
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * 
+	 * @return							Long value
+	 * 
+	 * @throws MissingValueException	Value or a step of the path is not present
+	 * @throws WrongTypeException		Value is not an integer number, or a step of the path is the wrong type
+	 */
+	public long getRequiredLong(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredDouble
+	 * 
+	 * Retrieve a double from the composite by path, without creating a composite for each
+	 * step of the path.
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * 
+	 * @return							Double value
+	 * 
+	 * @throws MissingValueException	Value or a step of the path is not present
+	 * @throws WrongTypeException		Value is not a number, or a step of the path is the wrong type
+	 */
+	public double getRequiredDouble(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredBoolean
+	 * 
+	 * Retrieve a boolean from the composite by path, without creating a composite for each
+	 * step of the path.
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * 
+	 * @return							Boolean value
+	 * 
+	 * @throws MissingValueException	Value or a step of the path is not present
+	 * @throws WrongTypeException		Value is not boolean, or a step of the path is the wrong type
+	 */
+	public boolean getRequiredBoolean(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredObject
+	 * 
+	 * Retrieve a sub-object from the composite by path, without creating a composite for each
+	 * step of the path.
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * 
+	 * @return							Sub-object value as composite
+	 * 
+	 * @throws MissingValueException	Value or a step of the path is not present
+	 * @throws WrongTypeException		Value is not an object, or a step of the path is the wrong type
+	 */
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getOptionalString
+	 * 
+	 * Retrieve a string from the composite by path.  Return null if the value or any step of
+	 * the path is not defined
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * @return							String value
+	 * 
+	 * @throws WrongTypeException		Value is not string, or a step of the path is the wrong type
+	 */
+	public String getOptionalString(@NonNull CompositePath path) throws WrongTypeException;
+	
+	/**
+	 * getOptionalInteger
+	 * 
+	 * Retrieve an integer from the composite by path.  Return null if the value or any step of
+	 * the path is not defined
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * @return							Integer value
+	 * 
+	 * @throws WrongTypeException		Value is not an integer number, or a step of the path is the wrong type
+	 */
+	public Integer getOptionalInteger(@NonNull CompositePath path) throws WrongTypeException;
+	
+	/**
+	 * getOptionalLong
+	 * 
+	 * Retrieve a long from the composite by path.  Return null if the value or any step of
+	 * the path is not defined
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * @return							Long value
+	 * 
+	 * @throws WrongTypeException		Value is not an integer number, or a step of the path is the wrong type
+	 */
+	public Long getOptionalLong(@NonNull CompositePath path) throws WrongTypeException;
+	
+	/**
+	 * getOptionalDouble
+	 * 
+	 * Retrieve a double from the composite by path.  Return null if the value or any step of
+	 * the path is not defined
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * @return							Double value
+	 * 
+	 * @throws WrongTypeException		Value is not a number, or a step of the path is the wrong type
+	 */
+	public Double getOptionalDouble(@NonNull CompositePath path) throws WrongTypeException;
+	
+	/**
+	 * getOptionalBoolean
+	 * 
+	 * Retrieve a boolean from the composite by path.  Return null if the value or any step of
+	 * the path is not defined
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * @return							Boolean value
+	 * 
+	 * @throws WrongTypeException		Value is not boolean, or a step of the path is the wrong type
+	 */
+	public Boolean getOptionalBoolean(@NonNull CompositePath path) throws WrongTypeException;
+	
+	/**
+	 * getOptionalObject
+	 * 
+	 * Retrieve a sub-object from the composite by path.  Return null if the value or any step of
+	 * the path is not defined
+	 *
+	 * @param path						Compiled path of value to retrieve
+	 * @return							Sub-object value as composite
+	 * 
+	 * @throws WrongTypeException		Value is not an object, or a step of the path is the wrong type
+	 */
+	public Composite getOptionalObject(@NonNull CompositePath path) throws WrongTypeException;
+	
+	/**
+	 * getRequiredString
+	 * 
+	 * Retrieve a string from the composite by key.  This is the same as passing the name of
+	 * the key, but skips work that would otherwise be repeated when the same member is read
+	 * from a large number of composites.
+	 *
+	 * @param key						Key of value to retrieve
+	 * 
+	 * @return							String value
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not string
+	 */
+	public @NonNull String getRequiredString(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredInteger
+	 * 
+	 * Retrieve an integer from the composite by key.  This is the same as passing the name of
+	 * the key, but skips work that would otherwise be repeated when the same member is read
+	 * from a large number of composites.
+	 *
+	 * @param key						Key of value to retrieve
+	 * 
+	 * @return							Integer value
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not an integer number
+	 */
+	public int getRequiredInteger(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredLong
+	 * 
+	 * Retrieve a long from the composite by key.  This is the same as passing the name of
+	 * the key, but skips work that would otherwise be repeated when the same member is read
+	 * from a large number of composites.
+	 *
+	 * @param key						Key of value to retrieve
+	 * 
+	 * @return							Long value
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not an integer number
+	 */
+	public long getRequiredLong(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredDouble
+	 * 
+	 * Retrieve a double from the composite by key.  This is the same as passing the name of
+	 * the key, but skips work that would otherwise be repeated when the same member is read
+	 * from a large number of composites.
+	 *
+	 * @param key						Key of value to retrieve
+	 * 
+	 * @return							Double value
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not a number
+	 */
+	public double getRequiredDouble(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredBoolean
+	 * 
+	 * Retrieve a boolean from the composite by key.  This is the same as passing the name of
+	 * the key, but skips work that would otherwise be repeated when the same member is read
+	 * from a large number of composites.
+	 *
+	 * @param key						Key of value to retrieve
+	 * 
+	 * @return							Boolean value
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not boolean
+	 */
+	public boolean getRequiredBoolean(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getRequiredObject
+	 * 
+	 * Retrieve a sub-object from the composite by key.  This is the same as passing the name of
+	 * the key, but skips work that would otherwise be repeated when the same member is read
+	 * from a large number of composites.
+	 *
+	 * @param key						Key of value to retrieve
+	 * 
+	 * @return							Sub-object value as composite
+	 * 
+	 * @throws MissingValueException	Value is not present
+	 * @throws WrongTypeException		Value is not an object
+	 */
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException;
+	
+	/**
+	 * getOptionalString
+	 * 
+	 * Retrieve a string from the composite by key.  Return null if the value is not defined
+	 *
+	 * @param key						Key of value to retrieve
+	 * @return							String value
+	 * 
+	 * @throws WrongTypeException		Value is not string
+	 */
+	public String getOptionalString(@NonNull CompositeKey key) throws WrongTypeException;
+	
+	/**
+	 * getOptionalInteger
+	 * 
+	 * Retrieve an integer from the composite by key.  Return null if the value is not defined
+	 *
+	 * @param key						Key of value to retrieve
+	 * @return							Integer value
+	 * 
+	 * @throws WrongTypeException		Value is not an integer number
+	 */
+	public Integer getOptionalInteger(@NonNull CompositeKey key) throws WrongTypeException;
+	
+	/**
+	 * getOptionalLong
+	 * 
+	 * Retrieve a long from the composite by key.  Return null if the value is not defined
+	 *
+	 * @param key						Key of value to retrieve
+	 * @return							Long value
+	 * 
+	 * @throws WrongTypeException		Value is not an integer number
+	 */
+	public Long getOptionalLong(@NonNull CompositeKey key) throws WrongTypeException;
+	
+	/**
+	 * getOptionalDouble
+	 * 
+	 * Retrieve a double from the composite by key.  Return null if the value is not defined
+	 *
+	 * @param key						Key of value to retrieve
+	 * @return							Double value
+	 * 
+	 * @throws WrongTypeException		Value is not a number
+	 */
+	public Double getOptionalDouble(@NonNull CompositeKey key) throws WrongTypeException;
+	
+	/**
+	 * getOptionalBoolean
+	 * 
+	 * Retrieve a boolean from the composite by key.  Return null if the value is not defined
+	 *
+	 * @param key						Key of value to retrieve
+	 * @return							Boolean value
+	 * 
+	 * @throws WrongTypeException		Value is not boolean
+	 */
+	public Boolean getOptionalBoolean(@NonNull CompositeKey key) throws WrongTypeException;
+	
+	/**
+	 * getOptionalObject
+	 * 
+	 * Retrieve a sub-object from the composite by key.  Return null if the value is not defined
+	 *
+	 * @param key						Key of value to retrieve
+	 * @return							Sub-object value as composite
+	 * 
+	 * @throws WrongTypeException		Value is not an object
+	 */
+	public Composite getOptionalObject(@NonNull CompositeKey key) throws WrongTypeException;
+	
 	/**
 	 * getObjectMap
 	 * 
@@ -382,6 +887,36 @@ public interface Composite {
 	public @NonNull Iterable<Map.Entry<@NonNull String, @NonNull Composite>> getObjectMap(
 			) throws WrongTypeException;
 	
+	/**
+	 * contentHash
+	 * 
+	 * Get a SHA-256 digest of the canonical form of the composite - members sorted by name,
+	 * strings in Unicode NFC, and numbers in a normal form - so the same content gives the same
+	 * hash whether it was read from JSON, from YAML, or built as a map tree.
+	 * 
+	 * The hash is computed in one pass over the underlying tree the first time it's asked for
+	 * and remembered after that, so changing the underlying tree after that isn't reflected.
+	 *
+	 * @return							Content hash
+	 */
+	public @NonNull ContentHash contentHash();
+	
+	/**
+	 * writeTo
+	 * 
+	 * Write the composite to a stream in the given format, directly from the underlying tree
+	 * without building a string first.  Timestamps are written in the timezone the composite
+	 * was created with.  The stream is flushed but not closed.
+	 *
+	 * @param stream					Output stream
+	 * @param format					Output format
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public void writeTo(
+			@NonNull OutputStream stream,
+			@NonNull Format format) throws IOException;
+	
 	/**
 	 * serialize
 	 * 
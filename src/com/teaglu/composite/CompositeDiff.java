@@ -0,0 +1,443 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.teaglu.composite.convert.DecodedNumber;
+import com.teaglu.composite.convert.TreeConverter;
+import com.teaglu.composite.exception.UnsupportedSerializationException;
+
+/**
+ * CompositeDiff
+ * 
+ * The structural differences between two composites, as a list of changes that can be
+ * written out as an RFC 6902 JSON Patch.  Applying the patch to the first composite gives the
+ * second.
+ * 
+ * Both backing trees are walked together, and a subtree that is the same object on both
+ * sides is skipped without looking inside - so comparing a document against an edited copy
+ * that shares the unchanged parts costs in proportion to the edit.  Two independently parsed
+ * documents still have to be compared member by member.
+ * 
+ * Values compare the same way content hashes do - 3 and 3.0 are equal, and a date object in
+ * a map tree equals its ISO-8601 string.  Arrays are compared by position, so inserting an
+ * element near the front shows up as a run of replacements followed by an add.
+ */
+public final class CompositeDiff {
+	/**
+	 * Operation
+	 * 
+	 * JSON Patch operations produced by a diff.
+	 */
+	public enum Operation {
+		ADD("add"),
+		REMOVE("remove"),
+		REPLACE("replace");
+		
+		private final @NonNull String patchName;
+		
+		private Operation(@NonNull String patchName) {
+			this.patchName= patchName;
+		}
+		
+		/**
+		 * getPatchName
+		 * 
+		 * @return						Name of the operation in a JSON Patch
+		 */
+		public @NonNull String getPatchName() {
+			return patchName;
+		}
+	}
+	
+	/**
+	 * Change
+	 * 
+	 * A single change - an operation, the JSON Pointer it applies to, and for an add or a
+	 * replace the new value.
+	 */
+	public static final class Change {
+		private final @NonNull Operation operation;
+		private final @NonNull String path;
+		private final @Nullable JsonElement value;
+		
+		private Change(
+				@NonNull Operation operation,
+				@NonNull String path,
+				@Nullable JsonElement value)
+		{
+			this.operation= operation;
+			this.path= path;
+			this.value= value;
+		}
+		
+		public @NonNull Operation getOperation() {
+			return operation;
+		}
+		
+		/**
+		 * getPath
+		 * 
+		 * @return						RFC 6901 JSON Pointer to the changed member
+		 */
+		public @NonNull String getPath() {
+			return path;
+		}
+		
+		/**
+		 * getValue
+		 * 
+		 * @return						New value, or null for a remove
+		 */
+		public @Nullable JsonElement getValue() {
+			return value;
+		}
+		
+		@Override
+		public String toString() {
+			return operation.getPatchName() + " " + path + ((value == null) ? "" : " " + value);
+		}
+	}
+	
+	private final @NonNull List<@NonNull Change> changes;
+	
+	private CompositeDiff(@NonNull List<@NonNull Change> changes) {
+		this.changes= changes;
+	}
+	
+	/**
+	 * between
+	 * 
+	 * Compute the changes that turn one composite into another.
+	 *
+	 * @param before					Original composite
+	 * @param after						Changed composite
+	 * 
+	 * @return							Differences
+	 * 
+	 * @throws UnsupportedSerializationException	A composite doesn't expose a tree to compare
+	 */
+	public static @NonNull CompositeDiff between(
+			@NonNull Composite before,
+			@NonNull Composite after) throws UnsupportedSerializationException
+	{
+		List<@NonNull Change> changes= new ArrayList<>();
+		if (before != after) {
+			new Walker(changes).compare(
+					TreeConverter.treeOf(before), TreeConverter.treeOf(after));
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull List<@NonNull Change> rval= Collections.unmodifiableList(changes);
+		return new CompositeDiff(rval);
+	}
+	
+	/**
+	 * isEmpty
+	 * 
+	 * @return							Whether the composites have the same content
+	 */
+	public boolean isEmpty() {
+		return changes.isEmpty();
+	}
+	
+	/**
+	 * getChanges
+	 * 
+	 * @return							Changes in patch order
+	 */
+	public @NonNull List<@NonNull Change> getChanges() {
+		return changes;
+	}
+	
+	/**
+	 * toJsonPatch
+	 * 
+	 * @return							Changes as an RFC 6902 JSON Patch document
+	 */
+	public @NonNull JsonArray toJsonPatch() {
+		JsonArray rval= new JsonArray(changes.size());
+		for (Change change : changes) {
+			JsonObject operation= new JsonObject();
+			operation.addProperty("op", change.operation.getPatchName());
+			operation.addProperty("path", change.path);
+			
+			JsonElement value= change.value;
+			if (value != null) {
+				operation.add("value", value);
+			}
+			
+			rval.add(operation);
+		}
+		
+		return rval;
+	}
+	
+	@Override
+	public String toString() {
+		return toJsonPatch().toString();
+	}
+	
+	private static final class Walker {
+		private final @NonNull List<@NonNull Change> changes;
+		
+		// JSON Pointer of the node being compared, trimmed back as the walk returns
+		private final @NonNull StringBuilder path= new StringBuilder();
+		
+		private Walker(@NonNull List<@NonNull Change> changes) {
+			this.changes= changes;
+		}
+		
+		private void compare(
+				@Nullable Object before,
+				@Nullable Object after)
+		{
+			if (before == after) {
+				return;
+			}
+			
+			Map<String, ?> beforeMembers= members(before);
+			Map<String, ?> afterMembers= members(after);
+			if ((beforeMembers != null) && (afterMembers != null)) {
+				compareObjects(beforeMembers, afterMembers);
+				return;
+			}
+			
+			List<?> beforeItems= items(before);
+			List<?> afterItems= items(after);
+			if ((beforeItems != null) && (afterItems != null)) {
+				compareArrays(beforeItems, afterItems);
+				return;
+			}
+			
+			if ((beforeMembers != null) || (afterMembers != null) ||
+					(beforeItems != null) || (afterItems != null) ||
+					!scalarEquals(before, after))
+			{
+				add(Operation.REPLACE, after);
+			}
+		}
+		
+		private void compareObjects(
+				@NonNull Map<String, ?> before,
+				@NonNull Map<String, ?> after)
+		{
+			int length= path.length();
+			
+			for (Map.Entry<String, ?> entry : before.entrySet()) {
+				@SuppressWarnings("null")
+				@NonNull String name= entry.getKey();
+				appendName(name);
+				
+				if (!after.containsKey(name)) {
+					add(Operation.REMOVE, null);
+				} else {
+					compare(entry.getValue(), after.get(name));
+				}
+				
+				path.setLength(length);
+			}
+			
+			for (Map.Entry<String, ?> entry : after.entrySet()) {
+				@SuppressWarnings("null")
+				@NonNull String name= entry.getKey();
+				if (!before.containsKey(name)) {
+					appendName(name);
+					add(Operation.ADD, entry.getValue());
+					path.setLength(length);
+				}
+			}
+		}
+		
+		private void compareArrays(
+				@NonNull List<?> before,
+				@NonNull List<?> after)
+		{
+			int length= path.length();
+			int common= Math.min(before.size(), after.size());
+			
+			for (int i= 0; i < common; i++) {
+				path.append('/').append(i);
+				compare(before.get(i), after.get(i));
+				path.setLength(length);
+			}
+			
+			for (int i= common; i < after.size(); i++) {
+				path.append('/').append(i);
+				add(Operation.ADD, after.get(i));
+				path.setLength(length);
+			}
+			
+			// Remove from the end, so each index is still valid when its turn comes
+			for (int i= before.size() - 1; i >= common; i--) {
+				path.append('/').append(i);
+				add(Operation.REMOVE, null);
+				path.setLength(length);
+			}
+		}
+		
+		private void appendName(
+				@NonNull String name)
+		{
+			path.append('/');
+			
+			int length= name.length();
+			for (int i= 0; i < length; i++) {
+				char c= name.charAt(i);
+				if (c == '~') {
+					path.append("~0");
+				} else if (c == '/') {
+					path.append("~1");
+				} else {
+					path.append(c);
+				}
+			}
+		}
+		
+		private void add(
+				@NonNull Operation operation,
+				@Nullable Object value)
+		{
+			JsonElement element= null;
+			if (operation != Operation.REMOVE) {
+				element= toElement(value).deepCopy();
+			}
+			
+			@SuppressWarnings("null")
+			@NonNull String pointer= path.toString();
+			changes.add(new Change(operation, pointer, element));
+		}
+	}
+	
+	private static @NonNull JsonElement toElement(
+			@Nullable Object value)
+	{
+		if (value == null) {
+			return JsonNull.INSTANCE;
+		} else if (value instanceof JsonElement) {
+			return (JsonElement)value;
+		}
+		
+		return TreeConverter.toJsonElement(value);
+	}
+	
+	private static @Nullable Map<String, ?> members(
+			@Nullable Object node)
+	{
+		if (node instanceof JsonObject) {
+			return ((JsonObject)node).asMap();
+		} else if (node instanceof Map) {
+			Map<?, ?> map= (Map<?, ?>)node;
+			for (Object key : map.keySet()) {
+				if (!(key instanceof String)) {
+					// YAML allows keys that aren't strings, which a composite reads by name
+					Map<String, Object> rval= new LinkedHashMap<>();
+					for (Map.Entry<?, ?> entry : map.entrySet()) {
+						rval.put(String.valueOf(entry.getKey()), entry.getValue());
+					}
+					return rval;
+				}
+			}
+			
+			@SuppressWarnings("unchecked")
+			Map<String, ?> rval= (Map<String, ?>)map;
+			return rval;
+		}
+		
+		return null;
+	}
+	
+	private static @Nullable List<?> items(
+			@Nullable Object node)
+	{
+		if (node instanceof JsonArray) {
+			return ((JsonArray)node).asList();
+		} else if (node instanceof List) {
+			return (List<?>)node;
+		} else if ((node instanceof Iterable) && !(node instanceof JsonElement)) {
+			List<Object> rval= new ArrayList<>();
+			for (Object item : (Iterable<?>)node) {
+				rval.add(item);
+			}
+			return rval;
+		}
+		
+		return null;
+	}
+	
+	private static boolean scalarEquals(
+			@Nullable Object before,
+			@Nullable Object after)
+	{
+		JsonElement left= toElement(before);
+		JsonElement right= toElement(after);
+		
+		if (left.isJsonNull() || right.isJsonNull()) {
+			return left.isJsonNull() && right.isJsonNull();
+		}
+		
+		JsonPrimitive leftPrimitive= left.getAsJsonPrimitive();
+		JsonPrimitive rightPrimitive= right.getAsJsonPrimitive();
+		
+		if (leftPrimitive.isNumber() && rightPrimitive.isNumber()) {
+			@SuppressWarnings("null")
+			@NonNull Number leftNumber= leftPrimitive.getAsNumber();
+			@SuppressWarnings("null")
+			@NonNull Number rightNumber= rightPrimitive.getAsNumber();
+			
+			return numberEquals(leftNumber, rightNumber);
+		}
+		
+		return leftPrimitive.equals(rightPrimitive);
+	}
+	
+	private static boolean numberEquals(
+			@NonNull Number left,
+			@NonNull Number right)
+	{
+		double leftDouble= left.doubleValue();
+		double rightDouble= right.doubleValue();
+		if (Double.isNaN(leftDouble) || Double.isInfinite(leftDouble) ||
+				Double.isNaN(rightDouble) || Double.isInfinite(rightDouble))
+		{
+			return Double.compare(leftDouble, rightDouble) == 0;
+		}
+		
+		DecodedNumber leftDecoded= DecodedNumber.of(left);
+		DecodedNumber rightDecoded= DecodedNumber.of(right);
+		if (leftDecoded.isExactLong() && rightDecoded.isExactLong()) {
+			return leftDecoded.longValue() == rightDecoded.longValue();
+		}
+		
+		BigDecimal leftDecimal= leftDecoded.toBigDecimal();
+		return leftDecimal.compareTo(rightDecoded.toBigDecimal()) == 0;
+	}
+}
@@ -0,0 +1,204 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * CompositeKey
+ *
+ * A handle for a member name, for code that reads the same members from a large number of
+ * composites.  Passing a key to the key versions of the Composite accessors behaves exactly
+ * like passing its name, but lets the implementation skip work it would otherwise repeat on
+ * every call.
+ *
+ * The name held by a cached key is interned, so hash lookups against maps built with literal
+ * keys match on identity instead of comparing characters.  Keys are cached by name, so
+ * calling of with a literal at the point of use is cheap, and holding the result in a static
+ * final field is cheaper still.  Once the cache is full, names that aren't in it get a fresh
+ * key that isn't interned.
+ *
+ * A key also carries a small inline cache for implementations that store members in slots
+ * laid out by a shared shape, as JavaScript engines do with hidden classes.  The four shapes
+ * a key has seen most recently remember which slot the member is in, so reading the same
+ * member from same-shaped composites is an identity check and an array read.  A new shape
+ * pushes out the one seen longest ago.  The cache belongs to the key rather than to a call
+ * site, and keys are shared by name, so code reading the same name from more than four
+ * layouts in turn keeps replacing entries and falls back to a lookup by name.
+ */
+public final class CompositeKey {
+	// Keys usually come from literals, but cap the cache in case they're built dynamically
+	private static final int MAX_CACHED= 1024;
+
+	private static final ConcurrentHashMap<String, CompositeKey> cache= new ConcurrentHashMap<>();
+
+	// Documents overwhelmingly share a few layouts, so a handful of shapes covers a call site
+	private static final int MAX_SHAPES= 4;
+
+	/**
+	 * NOT_CACHED
+	 *
+	 * Returned by getSlot for a shape the key hasn't seen.
+	 */
+	public static final int NOT_CACHED= -2;
+
+	private static final class Hint {
+		private final @NonNull Object shape;
+		private final int slot;
+
+		private Hint(
+				@NonNull Object shape,
+				int slot)
+		{
+			this.shape= shape;
+			this.slot= slot;
+		}
+	}
+
+	private static final Hint[] NO_HINTS= new Hint[0];
+
+	private final @NonNull String name;
+
+	// Replaced rather than modified, so readers never see a partly filled table
+	private volatile Hint[] hints= NO_HINTS;
+
+	private CompositeKey(
+			@NonNull String name)
+	{
+		this.name= name;
+	}
+
+	/**
+	 * of
+	 *
+	 * Return the key for a member name, creating it if it isn't cached.
+	 *
+	 * @param name						Member name
+	 *
+	 * @return							Key for the name
+	 */
+	public static @NonNull CompositeKey of(
+			@NonNull String name)
+	{
+		CompositeKey rval= cache.get(name);
+		if (rval == null) {
+			if (cache.size() < MAX_CACHED) {
+				@SuppressWarnings("null")
+				@NonNull String interned= name.intern();
+
+				rval= new CompositeKey(interned);
+				CompositeKey existing= cache.putIfAbsent(interned, rval);
+				if (existing != null) {
+					rval= existing;
+				}
+			} else {
+				// Not worth a permanent entry in the string table either
+				rval= new CompositeKey(name);
+			}
+		}
+
+		return rval;
+	}
+
+	/**
+	 * getName
+	 *
+	 * @return							Member name, interned if the key is cached
+	 */
+	public @NonNull String getName() {
+		return name;
+	}
+
+	/**
+	 * getSlot
+	 *
+	 * Return the slot remembered for a shape.  This is meant for Composite implementations,
+	 * which decide what a shape is and what the slot number means - by convention -1 means the
+	 * shape has no such member.
+	 *
+	 * @param shape						Shape of the composite being read
+	 *
+	 * @return							Remembered slot, or NOT_CACHED
+	 */
+	public int getSlot(
+			@NonNull Object shape)
+	{
+		for (Hint hint : hints) {
+			if (hint.shape == shape) {
+				return hint.slot;
+			}
+		}
+
+		return NOT_CACHED;
+	}
+
+	/**
+	 * setSlot
+	 *
+	 * Remember the slot for a shape, pushing out the shape remembered longest ago if the cache
+	 * is full.  Nothing changes if the shape is already remembered with the same slot.  Two
+	 * threads racing here can drop one of the entries, which only costs a lookup the next time.
+	 *
+	 * @param shape						Shape of the composite being read
+	 * @param slot						Slot of the member in that shape
+	 */
+	public void setSlot(
+			@NonNull Object shape,
+			int slot)
+	{
+		Hint[] current= hints;
+		for (Hint hint : current) {
+			if ((hint.shape == shape) && (hint.slot == slot)) {
+				return;
+			}
+		}
+
+		int kept= Math.min(current.length, MAX_SHAPES - 1);
+
+		Hint[] next= new Hint[kept + 1];
+		next[0]= new Hint(shape, slot);
+		System.arraycopy(current, 0, next, 1, kept);
+
+		hints= next;
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public boolean equals(@Nullable Object other) {
+		if (other == this) {
+			return true;
+		}
+		if (!(other instanceof CompositeKey)) {
+			return false;
+		}
+
+		CompositeKey key= (CompositeKey)other;
+		return key.name.equals(name);
+	}
+
+	@Override
+	public @NonNull String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,235 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * CompositePath
+ *
+ * A compiled path expression such as car.doors[3].latch, made of member names separated by
+ * dots and zero-based array indexes in brackets.  Passing a path to the path versions of the
+ * Composite accessors walks the underlying tree directly instead of creating a Composite for
+ * every step, and errors report the same dotted path the chained calls would.
+ *
+ * Compiled paths are immutable and cached by their text, so calling Compile with a literal at
+ * the point of use is cheap.  Holding the result in a static final field is cheaper still.
+ */
+public final class CompositePath {
+	// Paths usually come from literals, but cap the cache in case they're built dynamically
+	private static final int MAX_CACHED= 1024;
+
+	private static final ConcurrentHashMap<String, CompositePath> cache= new ConcurrentHashMap<>();
+
+	private final @NonNull String text;
+
+	// Member name of each segment, or null for an array index
+	private final @Nullable String[] names;
+	private final int[] indexes;
+
+	// Text of the path up to and including each segment, for error messages
+	private final @NonNull String[] texts;
+
+	private CompositePath(
+			@NonNull String text,
+			@Nullable String[] names,
+			int[] indexes,
+			@NonNull String[] texts)
+	{
+		this.text= text;
+		this.names= names;
+		this.indexes= indexes;
+		this.texts= texts;
+	}
+
+	/**
+	 * Compile
+	 *
+	 * Compile a path expression, or return the cached compiled form.  Throws
+	 * IllegalArgumentException if the expression is not valid.  The first segment must be a
+	 * member name.
+	 *
+	 * @param text						Path expression
+	 *
+	 * @return							Compiled path
+	 */
+	public static @NonNull CompositePath Compile(
+			@NonNull String text)
+	{
+		CompositePath rval= cache.get(text);
+		if (rval == null) {
+			rval= parse(text);
+			if (cache.size() < MAX_CACHED) {
+				cache.putIfAbsent(text, rval);
+			}
+		}
+
+		return rval;
+	}
+
+	private static @NonNull CompositePath parse(
+			@NonNull String text)
+	{
+		List<@Nullable String> names= new ArrayList<>();
+		List<Integer> indexes= new ArrayList<>();
+		List<@NonNull String> texts= new ArrayList<>();
+
+		int length= text.length();
+		int pos= 0;
+
+		while (true) {
+			int start= pos;
+			while ((pos < length) && (text.charAt(pos) != '.') && (text.charAt(pos) != '[')) {
+				if (text.charAt(pos) == ']') {
+					throw new IllegalArgumentException("Unexpected ] in path " + text);
+				}
+				pos++;
+			}
+			if (pos == start) {
+				throw new IllegalArgumentException("Empty member name in path " + text);
+			}
+
+			names.add(text.substring(start, pos));
+			indexes.add(-1);
+			texts.add(text.substring(0, pos));
+
+			while ((pos < length) && (text.charAt(pos) == '[')) {
+				int close= text.indexOf(']', pos);
+				if (close < 0) {
+					throw new IllegalArgumentException("Unclosed [ in path " + text);
+				}
+
+				int index;
+				try {
+					index= Integer.parseInt(text.substring(pos + 1, close));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid array index in path " + text);
+				}
+				if (index < 0) {
+					throw new IllegalArgumentException("Negative array index in path " + text);
+				}
+
+				pos= close + 1;
+
+				names.add(null);
+				indexes.add(index);
+				texts.add(text.substring(0, pos));
+			}
+
+			if (pos == length) {
+				break;
+			}
+			if (text.charAt(pos) != '.') {
+				throw new IllegalArgumentException("Expected . after ] in path " + text);
+			}
+			pos++;
+		}
+
+		int size= names.size();
+		int[] indexArray= new int[size];
+		for (int i= 0; i < size; i++) {
+			indexArray[i]= indexes.get(i);
+		}
+
+		return new CompositePath(
+				text,
+				names.toArray(new String[size]),
+				indexArray,
+				texts.toArray(new String[size]));
+	}
+
+	/**
+	 * size
+	 *
+	 * @return							Number of segments in the path
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * isIndex
+	 *
+	 * @param segment					Segment number
+	 *
+	 * @return							Whether the segment is an array index
+	 */
+	public boolean isIndex(int segment) {
+		return names[segment] == null;
+	}
+
+	/**
+	 * getName
+	 *
+	 * @param segment					Segment number
+	 *
+	 * @return							Member name of the segment, or null for an index
+	 */
+	public @Nullable String getName(int segment) {
+		return names[segment];
+	}
+
+	/**
+	 * getIndex
+	 *
+	 * @param segment					Segment number
+	 *
+	 * @return							Array index of the segment, or -1 for a name
+	 */
+	public int getIndex(int segment) {
+		return indexes[segment];
+	}
+
+	/**
+	 * getText
+	 *
+	 * @param segment					Segment number
+	 *
+	 * @return							Path text up to and including the segment
+	 */
+	public @NonNull String getText(int segment) {
+		return texts[segment];
+	}
+
+	/**
+	 * getLeafName
+	 *
+	 * Return the member name of the last segment, which a path to a value other than an
+	 * object must end with.  Throws IllegalArgumentException if the path ends with an index.
+	 *
+	 * @return							Member name of the last segment
+	 */
+	public @NonNull String getLeafName() {
+		String rval= names[names.length - 1];
+		if (rval == null) {
+			throw new IllegalArgumentException("Path " + text + " must end with a member name");
+		}
+
+		return rval;
+	}
+
+	@Override
+	public @NonNull String toString() {
+		return text;
+	}
+}
@@ -0,0 +1,380 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.yaml.YamlComposite;
+
+/**
+ * CompositeSource
+ * 
+ * A composite loaded from a file and reloaded when the file changes, for configuration that
+ * should be picked up without a restart.
+ * 
+ * A background thread watches the file's directory, waits for changes to settle, and parses
+ * the new contents.  Each parse produces a complete new composite which is published through
+ * an atomic reference, so get() is a single volatile read - callers never block and never see
+ * a half-loaded document.  Callers that need several values to agree should call get() once
+ * and read them all from that snapshot.
+ * 
+ * If the new contents fail to load for any reason the previous snapshot stays in place, the
+ * failure is logged, and listeners are told about it.  Listeners run on the watching thread,
+ * and are only called when the content actually changed.  A listener that throws is logged
+ * and skipped, so it can't stop the others or the watcher.
+ */
+public final class CompositeSource implements Closeable {
+	private static final long DEFAULT_DEBOUNCE_MILLIS= 250;
+	
+	private static final System.Logger logger= System.getLogger(CompositeSource.class.getName());
+	
+	/**
+	 * Loader
+	 * 
+	 * Reads the watched file into a composite.
+	 */
+	@FunctionalInterface
+	interface Loader {
+		@NonNull Composite load(@NonNull Path path) throws IOException, SchemaException;
+	}
+	
+	/**
+	 * Listener
+	 * 
+	 * Receives notification of reloads.
+	 */
+	public interface Listener {
+		/**
+		 * changed
+		 * 
+		 * The file was reloaded and its content changed.
+		 *
+		 * @param previous				Snapshot being replaced
+		 * @param current				New snapshot, already published
+		 * @param diff					What changed, with a JSON Pointer for each change
+		 */
+		public void changed(
+				@NonNull Composite previous,
+				@NonNull Composite current,
+				@NonNull CompositeDiff diff);
+		
+		/**
+		 * failed
+		 * 
+		 * The file changed but could not be read or parsed, so the previous snapshot is
+		 * still in place.
+		 *
+		 * @param path					File being watched
+		 * @param cause					Reason for the failure
+		 */
+		public default void failed(
+				@NonNull Path path,
+				@NonNull Exception cause)
+		{
+		}
+	}
+	
+	private final @NonNull Path path;
+	private final @NonNull Loader loader;
+	private final long debounceNanos;
+	
+	private final @NonNull AtomicReference<@NonNull Composite> current;
+	private final @NonNull List<@NonNull Listener> listeners= new CopyOnWriteArrayList<>();
+	
+	private final @NonNull WatchService watcher;
+	private final @NonNull Thread thread;
+	
+	// Serializes reloads from the watching thread with explicit calls to reload()
+	private final @NonNull Object reloadLock= new Object();
+	
+	private volatile boolean closed;
+	
+	private CompositeSource(
+			@NonNull Path path,
+			@NonNull Loader loader,
+			long debounceMillis) throws IOException, SchemaException
+	{
+		this.path= path;
+		this.loader= loader;
+		this.debounceNanos= TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+		
+		this.current= new AtomicReference<>(loader.load(path));
+		
+		Path directory= path.toAbsolutePath().getParent();
+		if (directory == null) {
+			throw new IOException("Unable to find directory of " + path);
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull WatchService tmp= directory.getFileSystem().newWatchService();
+		this.watcher= tmp;
+		
+		try {
+			directory.register(watcher,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			watcher.close();
+			throw e;
+		}
+		
+		this.thread= new Thread(this::watch, "CompositeSource " + path.getFileName());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Load a file and start watching it for changes.
+	 *
+	 * @param path						File to load
+	 * @param format					Format of the file
+	 * @param timezone					Timezone for interpretation
+	 * @param debounceMillis			Quiet time after the last change before reloading
+	 * 
+	 * @return							New source
+	 * 
+	 * @throws IOException				Unable to read or watch the file
+	 * @throws SchemaException			Unable to parse the file
+	 */
+	public static @NonNull CompositeSource Create(
+			@NonNull Path path,
+			@NonNull Format format,
+			@NonNull TimeZone timezone,
+			long debounceMillis) throws IOException, SchemaException
+	{
+		return new CompositeSource(path, (p) -> load(p, format, timezone), debounceMillis);
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Load a file and start watching it for changes, with the default quiet time.
+	 *
+	 * @param path						File to load
+	 * @param format					Format of the file
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New source
+	 * 
+	 * @throws IOException				Unable to read or watch the file
+	 * @throws SchemaException			Unable to parse the file
+	 */
+	public static @NonNull CompositeSource Create(
+			@NonNull Path path,
+			@NonNull Format format,
+			@NonNull TimeZone timezone) throws IOException, SchemaException
+	{
+		return new CompositeSource(path, (p) -> load(p, format, timezone), DEFAULT_DEBOUNCE_MILLIS);
+	}
+	
+	// Lets tests substitute a loader that fails in ways a real file can't be made to
+	static @NonNull CompositeSource Create(
+			@NonNull Path path,
+			@NonNull Loader loader,
+			long debounceMillis) throws IOException, SchemaException
+	{
+		return new CompositeSource(path, loader, debounceMillis);
+	}
+	
+	/**
+	 * get
+	 * 
+	 * Get the current snapshot.
+	 *
+	 * @return							Most recently loaded composite
+	 */
+	public @NonNull Composite get() {
+		@SuppressWarnings("null")
+		@NonNull Composite rval= current.get();
+		return rval;
+	}
+	
+	/**
+	 * addListener
+	 * 
+	 * @param listener					Listener to notify of reloads
+	 */
+	public void addListener(@NonNull Listener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * removeListener
+	 * 
+	 * @param listener					Listener to stop notifying
+	 */
+	public void removeListener(@NonNull Listener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * reload
+	 * 
+	 * Reload the file now, without waiting for the watcher.  Listeners are notified before
+	 * this returns if the content changed.  If the file can't be loaded the exception is
+	 * thrown to the caller and the previous snapshot stays in place.
+	 *
+	 * @return							Whether the content changed
+	 * 
+	 * @throws IOException				Unable to read the file
+	 * @throws SchemaException			Unable to parse the file
+	 */
+	public boolean reload() throws IOException, SchemaException {
+		synchronized (reloadLock) {
+			Composite next= loader.load(path);
+			
+			@SuppressWarnings("null")
+			@NonNull Composite previous= current.get();
+			
+			CompositeDiff diff= CompositeDiff.between(previous, next);
+			if (diff.isEmpty()) {
+				return false;
+			}
+			
+			current.set(next);
+			
+			for (Listener listener : listeners) {
+				try {
+					listener.changed(previous, next, diff);
+				} catch (RuntimeException e) {
+					// One broken listener shouldn't stop the others or kill the watcher
+					logger.log(System.Logger.Level.WARNING,
+							"Listener failed handling reload of " + path, e);
+				}
+			}
+			
+			return true;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		closed= true;
+		watcher.close();
+		thread.interrupt();
+	}
+	
+	private static @NonNull Composite load(
+			@NonNull Path path,
+			@NonNull Format format,
+			@NonNull TimeZone timezone) throws IOException, SchemaException
+	{
+		try (InputStream stream= Files.newInputStream(path);
+				InputStreamReader reader= new InputStreamReader(stream, StandardCharsets.UTF_8))
+		{
+			switch (format) {
+			case JSON:
+				return JsonComposite.Parse(reader, timezone);
+			case YAML:
+				return YamlComposite.Parse(reader, timezone);
+			default:
+				throw new RuntimeException("Unhandled format " + format);
+			}
+		}
+	}
+	
+	private void watch() {
+		Path name= path.getFileName();
+		
+		boolean pending= false;
+		long deadline= 0;
+		
+		try {
+			while (!closed) {
+				WatchKey key= null;
+				if (pending) {
+					long wait= deadline - System.nanoTime();
+					if (wait <= 0) {
+						pending= false;
+						reloadQuietly();
+						continue;
+					}
+					
+					key= watcher.poll(wait, TimeUnit.NANOSECONDS);
+				} else {
+					key= watcher.take();
+				}
+				
+				if (key == null) {
+					continue;
+				}
+				
+				for (WatchEvent<?> event : key.pollEvents()) {
+					// Editors often write a new file and rename it over the old one, so
+					// creation counts as much as modification
+					if ((event.kind() == StandardWatchEventKinds.OVERFLOW) ||
+							name.equals(event.context()))
+					{
+						pending= true;
+						deadline= System.nanoTime() + debounceNanos;
+					}
+				}
+				
+				key.reset();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Closed
+		}
+	}
+	
+	// Anything escaping here would end the watching thread and with it all future reloads,
+	// so runtime exceptions from parsing or diffing are reported the same as a bad file
+	private void reloadQuietly() {
+		Exception failure= null;
+		try {
+			reload();
+		} catch (IOException | SchemaException | RuntimeException e) {
+			failure= e;
+		}
+		
+		if (failure != null) {
+			logger.log(System.Logger.Level.WARNING,
+					"Unable to reload " + path + ", keeping the previous snapshot", failure);
+			
+			for (Listener listener : listeners) {
+				try {
+					listener.failed(path, failure);
+				} catch (RuntimeException e) {
+					logger.log(System.Logger.Level.WARNING,
+							"Listener failed handling reload failure of " + path, e);
+				}
+			}
+		}
+	}
+}
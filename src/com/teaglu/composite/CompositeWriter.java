@@ -0,0 +1,274 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * CompositeWriter
+ * 
+ * A streaming writer producing a structured document directly to its output, without building
+ * a tree or a string first.  Objects and arrays are opened and closed explicitly, and each
+ * value inside an object is preceded by a call to name().
+ * 
+ * Dates and times are written as ISO-8601 strings.  A Timestamp is written with the offset of
+ * the timezone the writer was created with, so that reading it back with the same timezone
+ * gives the same instant.
+ * 
+ * Calls out of order, such as a value inside an object without a name, throw
+ * IllegalStateException.  Closing the writer closes the underlying output, and throws
+ * IOException if the document was left incomplete.
+ * 
+ */
+public interface CompositeWriter extends Closeable, Flushable {
+	/**
+	 * beginObject
+	 * 
+	 * Start a new object.
+	 *
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter beginObject() throws IOException;
+	
+	/**
+	 * endObject
+	 * 
+	 * Close the current object.
+	 *
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter endObject() throws IOException;
+	
+	/**
+	 * beginArray
+	 * 
+	 * Start a new array.
+	 *
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter beginArray() throws IOException;
+	
+	/**
+	 * endArray
+	 * 
+	 * Close the current array.
+	 *
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter endArray() throws IOException;
+	
+	/**
+	 * name
+	 * 
+	 * Write the name of the next value in the current object.
+	 *
+	 * @param name						Member name
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter name(
+			@NonNull String name) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write a string value, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable String value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write an integer value.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			long value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write a floating point value.  Throws IllegalArgumentException if the format can't
+	 * represent the value, such as NaN in JSON.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			double value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write a boolean value.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			boolean value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write an exact decimal value, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable BigDecimal value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write an integer value of any size, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable BigInteger value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write a date as YYYY-MM-DD, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable LocalDate value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write a timestamp with the offset of the writer's timezone, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable Timestamp value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write an instant in UTC, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable Instant value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write a date and time with its own offset, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable OffsetDateTime value) throws IOException;
+	
+	/**
+	 * value
+	 * 
+	 * Write a date and time without an offset, or null.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter value(
+			@Nullable LocalDateTime value) throws IOException;
+	
+	/**
+	 * nullValue
+	 * 
+	 * Write a null value.
+	 *
+	 * @return							This writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter nullValue() throws IOException;
+}
@@ -0,0 +1,98 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * ContentHash
+ * 
+ * A SHA-256 digest of the canonical form of a composite.  Two composites with the same
+ * content have equal hashes no matter which format or backend they came from, so a hash can
+ * be used for change detection, deduplication, or as a cache key.
+ * 
+ * Hashes compare by value, and toString() gives the digest as lower case hex.
+ */
+public final class ContentHash {
+	private static final char[] HEX= "0123456789abcdef".toCharArray();
+	
+	private final byte @NonNull [] digest;
+	
+	/**
+	 * ContentHash
+	 * 
+	 * Wrap a digest.  The array is copied.
+	 *
+	 * @param digest					Digest bytes
+	 */
+	public ContentHash(byte @NonNull [] digest) {
+		@SuppressWarnings("null")
+		byte @NonNull [] tmp= digest.clone();
+		this.digest= tmp;
+	}
+	
+	/**
+	 * getBytes
+	 * 
+	 * @return							Copy of the digest bytes
+	 */
+	public byte @NonNull [] getBytes() {
+		@SuppressWarnings("null")
+		byte @NonNull [] rval= digest.clone();
+		return rval;
+	}
+	
+	/**
+	 * getPrefix
+	 * 
+	 * Get the first 64 bits of the digest, for use where a full digest isn't needed.
+	 *
+	 * @return							First eight bytes as a big-endian long
+	 */
+	public long getPrefix() {
+		long rval= 0;
+		for (int i= 0; i < 8; i++) {
+			rval= (rval << 8) | (digest[i] & 0xFF);
+		}
+		
+		return rval;
+	}
+	
+	@Override
+	public boolean equals(@Nullable Object other) {
+		return (other instanceof ContentHash) && Arrays.equals(digest, ((ContentHash)other).digest);
+	}
+	
+	@Override
+	public int hashCode() {
+		return (int)getPrefix();
+	}
+	
+	@Override
+	public String toString() {
+		char[] text= new char[digest.length * 2];
+		for (int i= 0; i < digest.length; i++) {
+			text[i * 2]= HEX[(digest[i] >> 4) & 0xF];
+			text[i * 2 + 1]= HEX[digest[i] & 0xF];
+		}
+		
+		return new String(text);
+	}
+}
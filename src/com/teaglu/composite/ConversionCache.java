@@ -0,0 +1,135 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * ConversionCache
+ *
+ * An opt-in cache of string conversions for a single document, so that reading the same
+ * date, timestamp, or string-encoded number more than once doesn't parse it again.  Pass one
+ * in when creating a composite and every composite derived from it shares the same cache.
+ *
+ * The cache is a fixed-size direct-mapped table - a new entry simply replaces whatever was in
+ * its slot.  Entries are immutable, so readers on other threads either see a complete entry or
+ * the previous one, and no locking is needed.  Only immutable values should be stored.
+ *
+ * Since a conversion depends on the timezone of the document, a cache should not be shared
+ * between documents created with different timezones.
+ */
+public final class ConversionCache {
+	private static final int DEFAULT_CAPACITY= 256;
+
+	private static final class Entry {
+		private final @NonNull Class<?> type;
+		private final @NonNull String text;
+		private final @NonNull Object value;
+
+		private Entry(
+				@NonNull Class<?> type,
+				@NonNull String text,
+				@NonNull Object value)
+		{
+			this.type= type;
+			this.text= text;
+			this.value= value;
+		}
+	}
+
+	private final Entry[] slots;
+	private final int mask;
+
+	/**
+	 * ConversionCache
+	 *
+	 * Create a cache with the default number of slots.
+	 */
+	public ConversionCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * ConversionCache
+	 *
+	 * Create a cache with at least the given number of slots, rounded up to a power of two.
+	 *
+	 * @param capacity					Minimum number of slots
+	 */
+	public ConversionCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Cache capacity must be positive");
+		}
+
+		int size= Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+
+		slots= new Entry[size];
+		mask= size - 1;
+	}
+
+	private int slotFor(
+			@NonNull Class<?> type,
+			@NonNull String text)
+	{
+		int hash= text.hashCode() * 31 + System.identityHashCode(type);
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * get
+	 *
+	 * Retrieve a previously converted value.
+	 *
+	 * @param type						Type the text was converted to
+	 * @param text						Original text
+	 *
+	 * @return							Converted value, or null if not cached
+	 */
+	public <T> @Nullable T get(
+			@NonNull Class<T> type,
+			@NonNull String text)
+	{
+		Entry entry= slots[slotFor(type, text)];
+		if ((entry != null) && (entry.type == type) && entry.text.equals(text)) {
+			return type.cast(entry.value);
+		}
+
+		return null;
+	}
+
+	/**
+	 * put
+	 *
+	 * Store a converted value.  Failed conversions should not be stored, so that the error
+	 * is reported on every attempt.
+	 *
+	 * @param type						Type the text was converted to
+	 * @param text						Original text
+	 * @param value						Converted value, which must be immutable
+	 */
+	public <T> void put(
+			@NonNull Class<T> type,
+			@NonNull String text,
+			@NonNull T value)
+	{
+		slots[slotFor(type, text)]= new Entry(type, text, value);
+	}
+}
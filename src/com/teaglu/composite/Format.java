@@ -0,0 +1,62 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.yaml.YamlComposite;
+
+/**
+ * Format
+ * 
+ * A text format a composite can be written in.
+ */
+public enum Format {
+	JSON,
+	YAML;
+	
+	/**
+	 * createWriter
+	 * 
+	 * Create a streaming writer for this format.
+	 *
+	 * @param stream					Output stream, closed when the writer is closed
+	 * @param timezone					Timezone for timestamps
+	 * 
+	 * @return							New writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CompositeWriter createWriter(
+			@NonNull OutputStream stream,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		switch (this) {
+		case JSON:
+			return JsonComposite.CreateWriter(stream, timezone);
+		case YAML:
+			return YamlComposite.CreateWriter(stream, timezone);
+		default:
+			throw new RuntimeException("Unhandled format " + this);
+		}
+	}
+}
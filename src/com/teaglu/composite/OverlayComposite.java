@@ -0,0 +1,960 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.teaglu.composite.convert.ContentHasher;
+import com.teaglu.composite.convert.TreeConverter;
+import com.teaglu.composite.convert.TreeWriter;
+import com.teaglu.composite.exception.FormatException;
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.UnsupportedSerializationException;
+import com.teaglu.composite.exception.WrongTypeException;
+
+/**
+ * OverlayComposite
+ * 
+ * A composite that layers other composites on top of each other without copying them - for
+ * example defaults, then an environment-specific file, then runtime overrides.  Each value
+ * comes from the topmost layer that defines it, and an object defined in more than one layer
+ * is merged the same way member by member.  Arrays are not merged; the topmost one wins.
+ * 
+ * A member that is null counts as not defined, the same as for the accessors, so a null in
+ * an upper layer doesn't hide a value below it.  An upper-layer value that isn't an object
+ * does hide an object below it.
+ * 
+ * Which layer a name resolves to is worked out the first time the name is asked for and
+ * remembered, along with the merged composite for a nested object, so repeated lookups cost a
+ * hash probe instead of a search through the layers.  The accessor itself is then called on
+ * the layer that owns the value, so conversions and error messages are exactly what that
+ * layer would give.  Since the resolution is remembered, the layers shouldn't be changed
+ * after the overlay is built.
+ */
+public final class OverlayComposite implements Composite {
+	private static final class Resolution {
+		// Index into layers of the topmost layer defining the name, or 0 if none does
+		private final int layer;
+		
+		// Merged object if more than one layer defines the name as an object
+		private final @Nullable OverlayComposite merged;
+		
+		private Resolution(
+				int layer,
+				@Nullable OverlayComposite merged)
+		{
+			this.layer= layer;
+			this.merged= merged;
+		}
+	}
+	
+	private static final class Located {
+		private final @NonNull Composite target;
+		
+		// Remaining path to hand to the target, or null to look up the leaf name
+		private final @Nullable CompositePath rest;
+		
+		private Located(
+				@NonNull Composite target,
+				@Nullable CompositePath rest)
+		{
+			this.target= target;
+			this.rest= rest;
+		}
+	}
+	
+	private static final @NonNull Resolution UNDEFINED= new Resolution(0, null);
+	
+	// Topmost layer first
+	private final @NonNull Composite @NonNull [] layers;
+	private final @NonNull Object @NonNull [] trees;
+	private final @NonNull TimeZone timezone;
+	
+	private final @NonNull Map<String, Resolution> resolutions= new ConcurrentHashMap<>();
+	
+	private volatile @Nullable Map<String, Object> mergedTree;
+	private volatile @Nullable ContentHash contentHash;
+	
+	private OverlayComposite(
+			@NonNull Composite @NonNull [] layers,
+			@NonNull TimeZone timezone)
+	{
+		this.layers= layers;
+		this.timezone= timezone;
+		
+		trees= new Object[layers.length];
+		for (int i= 0; i < layers.length; i++) {
+			trees[i]= TreeConverter.treeOf(layers[i]);
+		}
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create an overlay of composites.  Layers are given from the bottom up, so each layer
+	 * overrides the ones before it.  The timezone is used when writing the merged content.
+	 *
+	 * @param timezone					Timezone for writing dates and times
+	 * @param layers					Layers, lowest priority first
+	 * 
+	 * @return							Overlay composite
+	 * 
+	 * @throws UnsupportedSerializationException	A layer doesn't expose its tree
+	 */
+	public static @NonNull Composite Create(
+			@NonNull TimeZone timezone,
+			@NonNull Composite... layers) throws UnsupportedSerializationException
+	{
+		if (layers.length == 0) {
+			throw new IllegalArgumentException("An overlay needs at least one layer");
+		}
+		
+		@NonNull Composite[] topFirst= new @NonNull Composite[layers.length];
+		for (int i= 0; i < layers.length; i++) {
+			topFirst[i]= layers[layers.length - 1 - i];
+		}
+		
+		return new OverlayComposite(topFirst, timezone);
+	}
+	
+	private static @Nullable Object member(
+			@NonNull Object tree,
+			@NonNull String name)
+	{
+		if (tree instanceof JsonObject) {
+			JsonElement el= ((JsonObject)tree).get(name);
+			return ((el == null) || el.isJsonNull()) ? null : el;
+		}
+		
+		return ((Map<?, ?>)tree).get(name);
+	}
+	
+	private static boolean isObject(
+			@NonNull Object node)
+	{
+		return (node instanceof JsonObject) || (node instanceof Map);
+	}
+	
+	private @NonNull Resolution resolve(
+			@NonNull String name)
+	{
+		Resolution rval= resolutions.get(name);
+		if (rval == null) {
+			rval= computeResolution(name);
+			
+			// Two threads racing here compute the same thing, so either answer is fine
+			Resolution existing= resolutions.putIfAbsent(name, rval);
+			if (existing != null) {
+				rval= existing;
+			}
+		}
+		
+		return rval;
+	}
+	
+	private @NonNull Resolution computeResolution(
+			@NonNull String name)
+	{
+		int top= 0;
+		Object node= null;
+		while ((top < trees.length) && ((node= member(trees[top], name)) == null)) {
+			top++;
+		}
+		
+		if (node == null) {
+			return UNDEFINED;
+		}
+		if (!isObject(node)) {
+			return new Resolution(top, null);
+		}
+		
+		// Collect the object from each layer down to the first one that hides the rest
+		List<@NonNull Composite> children= new ArrayList<>();
+		for (int i= top; i < trees.length; i++) {
+			Object value= member(trees[i], name);
+			if (value != null) {
+				if (!isObject(value)) {
+					break;
+				}
+				
+				try {
+					children.add(layers[i].getRequiredObject(name));
+				} catch (MissingValueException | WrongTypeException e) {
+					throw new RuntimeException("Layer disagrees with its own tree", e);
+				}
+			}
+		}
+		
+		if (children.size() == 1) {
+			return new Resolution(top, null);
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull Composite @NonNull [] childLayers= children.toArray(new @NonNull Composite[0]);
+		return new Resolution(top, new OverlayComposite(childLayers, timezone));
+	}
+	
+	// The layer that owns a name.  For a name no layer defines this is the top layer, which
+	// reports it missing the same way it would on its own.
+	private @NonNull Composite layerFor(
+			@NonNull String name)
+	{
+		return layers[resolve(name).layer];
+	}
+	
+	// Walk the leading member names through the overlay, merging as we go.  Once the path
+	// reaches an array, or an object only one layer defines, everything below comes from a
+	// single layer, so the rest of the path is handed to that layer.
+	private @NonNull Located locateRequired(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Composite node= this;
+		int last= path.size() - 1;
+		
+		for (int segment= 0; segment < last; segment++) {
+			String name= path.getName(segment);
+			if (!isMerged(node, name, path, segment)) {
+				return handOff(node, name, path, segment);
+			}
+			
+			@SuppressWarnings("null")
+			@NonNull String member= name;
+			node= node.getRequiredObject(member);
+		}
+		
+		return finish(node, path, last);
+	}
+	
+	// The same walk, returning null instead of throwing if a step isn't there
+	private @Nullable Located locateOptional(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		Composite node= this;
+		int last= path.size() - 1;
+		
+		for (int segment= 0; segment < last; segment++) {
+			String name= path.getName(segment);
+			if (!isMerged(node, name, path, segment)) {
+				return handOff(node, name, path, segment);
+			}
+			
+			@SuppressWarnings("null")
+			@NonNull String member= name;
+			node= node.getOptionalObject(member);
+			if (node == null) {
+				return null;
+			}
+		}
+		
+		return finish(node, path, last);
+	}
+	
+	// Whether a step can still be merged across the layers
+	private static boolean isMerged(
+			@NonNull Composite node,
+			@Nullable String name,
+			@NonNull CompositePath path,
+			int segment)
+	{
+		return (node instanceof OverlayComposite) && (name != null) && !path.isIndex(segment + 1);
+	}
+	
+	// Hand the rest of the path to the single layer a step that can't be merged comes from
+	private static @NonNull Located handOff(
+			@NonNull Composite node,
+			@Nullable String name,
+			@NonNull CompositePath path,
+			int segment)
+	{
+		if ((node instanceof OverlayComposite) && (name != null)) {
+			node= ((OverlayComposite)node).layerFor(name);
+		}
+		
+		return new Located(node, restOf(path, segment));
+	}
+	
+	// Locate the leaf once every step before it has been merged
+	private static @NonNull Located finish(
+			@NonNull Composite node,
+			@NonNull CompositePath path,
+			int last)
+	{
+		if (node instanceof OverlayComposite) {
+			return new Located(node, null);
+		}
+		
+		return new Located(node, restOf(path, last));
+	}
+	
+	private static @NonNull CompositePath restOf(
+			@NonNull CompositePath path,
+			int segment)
+	{
+		if (segment == 0) {
+			return path;
+		}
+		
+		// Skip the text of the earlier segments and the dot before the member name
+		String text= path.toString();
+		
+		@SuppressWarnings("null")
+		@NonNull String rest= text.substring(path.getText(segment - 1).length() + 1);
+		return CompositePath.Compile(rest);
+	}
+	
+	@Override
+	public int getRequiredInteger(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredInteger(name);
+	}
+	
+	@Override
+	public long getRequiredLong(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredLong(name);
+	}
+	
+	@Override
+	public double getRequiredDouble(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredDouble(name);
+	}
+	
+	@Override
+	public @NonNull BigDecimal getRequiredBigDecimal(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredBigDecimal(name);
+	}
+	
+	@Override
+	public @NonNull BigInteger getRequiredBigInteger(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredBigInteger(name);
+	}
+	
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredString(name);
+	}
+	
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredBoolean(name);
+	}
+	
+	@Override
+	public @NonNull LocalDate getRequiredLocalDate(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		return layerFor(name).getRequiredLocalDate(name);
+	}
+	
+	@Override
+	public @NonNull Timestamp getRequiredTimestamp(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		return layerFor(name).getRequiredTimestamp(name);
+	}
+	
+	@Override
+	public @NonNull Instant getRequiredInstant(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		return layerFor(name).getRequiredInstant(name);
+	}
+	
+	@Override
+	public @NonNull OffsetDateTime getRequiredOffsetDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		return layerFor(name).getRequiredOffsetDateTime(name);
+	}
+	
+	@Override
+	public @NonNull LocalDateTime getRequiredLocalDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		return layerFor(name).getRequiredLocalDateTime(name);
+	}
+	
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		OverlayComposite merged= resolve(name).merged;
+		if (merged != null) {
+			return merged;
+		}
+		
+		return layerFor(name).getRequiredObject(name);
+	}
+	
+	@Override
+	public @NonNull Iterable<@NonNull Composite> getRequiredObjectArray(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredObjectArray(name);
+	}
+	
+	@Override
+	public @NonNull Iterable<@NonNull String> getRequiredStringArray(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredStringArray(name);
+	}
+	
+	@Override
+	public @NonNull Iterable<@NonNull Integer> getRequiredIntegerArray(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		return layerFor(name).getRequiredIntegerArray(name);
+	}
+	
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalInteger(name);
+	}
+	
+	@Override
+	public Long getOptionalLong(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalLong(name);
+	}
+	
+	@Override
+	public Double getOptionalDouble(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalDouble(name);
+	}
+	
+	@Override
+	public BigDecimal getOptionalBigDecimal(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalBigDecimal(name);
+	}
+	
+	@Override
+	public BigInteger getOptionalBigInteger(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalBigInteger(name);
+	}
+	
+	@Override
+	public String getOptionalString(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalString(name);
+	}
+	
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalBoolean(name);
+	}
+	
+	@Override
+	public boolean getOptionalBoolean(
+			@NonNull String name,
+			boolean defaultVal) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalBoolean(name, defaultVal);
+	}
+	
+	@Override
+	public LocalDate getOptionalLocalDate(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return layerFor(name).getOptionalLocalDate(name);
+	}
+	
+	@Override
+	public Timestamp getOptionalTimestamp(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return layerFor(name).getOptionalTimestamp(name);
+	}
+	
+	@Override
+	public Instant getOptionalInstant(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return layerFor(name).getOptionalInstant(name);
+	}
+	
+	@Override
+	public OffsetDateTime getOptionalOffsetDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return layerFor(name).getOptionalOffsetDateTime(name);
+	}
+	
+	@Override
+	public LocalDateTime getOptionalLocalDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return layerFor(name).getOptionalLocalDateTime(name);
+	}
+	
+	@Override
+	public Composite getOptionalObject(
+			@NonNull String name) throws WrongTypeException
+	{
+		OverlayComposite merged= resolve(name).merged;
+		if (merged != null) {
+			return merged;
+		}
+		
+		return layerFor(name).getOptionalObject(name);
+	}
+	
+	@Override
+	public Iterable<@NonNull Composite> getOptionalObjectArray(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalObjectArray(name);
+	}
+	
+	@Override
+	public Iterable<@NonNull String> getOptionalStringArray(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalStringArray(name);
+	}
+	
+	@Override
+	public Iterable<@NonNull Integer> getOptionalIntegerArray(
+			@NonNull String name) throws WrongTypeException
+	{
+		return layerFor(name).getOptionalIntegerArray(name);
+	}
+	
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Located located= locateRequired(path);
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getRequiredString(path.getLeafName())
+				: located.target.getRequiredString(rest);
+	}
+	
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Located located= locateRequired(path);
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getRequiredInteger(path.getLeafName())
+				: located.target.getRequiredInteger(rest);
+	}
+	
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Located located= locateRequired(path);
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getRequiredLong(path.getLeafName())
+				: located.target.getRequiredLong(rest);
+	}
+	
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Located located= locateRequired(path);
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getRequiredDouble(path.getLeafName())
+				: located.target.getRequiredDouble(rest);
+	}
+	
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Located located= locateRequired(path);
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getRequiredBoolean(path.getLeafName())
+				: located.target.getRequiredBoolean(rest);
+	}
+	
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Located located= locateRequired(path);
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getRequiredObject(path.getLeafName())
+				: located.target.getRequiredObject(rest);
+	}
+	
+	@Override
+	public String getOptionalString(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		Located located= locateOptional(path);
+		if (located == null) {
+			return null;
+		}
+		
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getOptionalString(path.getLeafName())
+				: located.target.getOptionalString(rest);
+	}
+	
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		Located located= locateOptional(path);
+		if (located == null) {
+			return null;
+		}
+		
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getOptionalInteger(path.getLeafName())
+				: located.target.getOptionalInteger(rest);
+	}
+	
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		Located located= locateOptional(path);
+		if (located == null) {
+			return null;
+		}
+		
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getOptionalLong(path.getLeafName())
+				: located.target.getOptionalLong(rest);
+	}
+	
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		Located located= locateOptional(path);
+		if (located == null) {
+			return null;
+		}
+		
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getOptionalDouble(path.getLeafName())
+				: located.target.getOptionalDouble(rest);
+	}
+	
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		Located located= locateOptional(path);
+		if (located == null) {
+			return null;
+		}
+		
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getOptionalBoolean(path.getLeafName())
+				: located.target.getOptionalBoolean(rest);
+	}
+	
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		Located located= locateOptional(path);
+		if (located == null) {
+			return null;
+		}
+		
+		CompositePath rest= located.rest;
+		
+		return (rest == null)
+				? located.target.getOptionalObject(path.getLeafName())
+				: located.target.getOptionalObject(rest);
+	}
+
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredString(key.getName());
+	}
+	
+	@Override
+	public String getOptionalString(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalString(key.getName());
+	}
+	
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredInteger(key.getName());
+	}
+	
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalInteger(key.getName());
+	}
+	
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredLong(key.getName());
+	}
+	
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalLong(key.getName());
+	}
+	
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredDouble(key.getName());
+	}
+	
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalDouble(key.getName());
+	}
+	
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredBoolean(key.getName());
+	}
+	
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalBoolean(key.getName());
+	}
+	
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredObject(key.getName());
+	}
+	
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalObject(key.getName());
+	}
+	
+	@Override
+	public @NonNull Iterable<Map.Entry<@NonNull String, @NonNull Composite>> getObjectMap(
+			) throws WrongTypeException
+	{
+		// Names from the bottom layer up, so members keep the order they were first defined in
+		Set<@NonNull String> names= new LinkedHashSet<>();
+		for (int i= trees.length - 1; i >= 0; i--) {
+			Object tree= trees[i];
+			if (tree instanceof JsonObject) {
+				for (Map.Entry<String, JsonElement> entry : ((JsonObject)tree).entrySet()) {
+					if (!entry.getValue().isJsonNull()) {
+						names.add(entry.getKey());
+					}
+				}
+			} else {
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>)tree).entrySet()) {
+					if (entry.getValue() != null) {
+						names.add(String.valueOf(entry.getKey()));
+					}
+				}
+			}
+		}
+		
+		List<Map.Entry<@NonNull String, @NonNull Composite>> rval= new ArrayList<>(names.size());
+		for (@NonNull String name : names) {
+			Composite value;
+			try {
+				value= getRequiredObject(name);
+			} catch (MissingValueException e) {
+				throw new RuntimeException("Member vanished while building object map", e);
+			}
+			
+			rval.add(new AbstractMap.SimpleImmutableEntry<>(name, value));
+		}
+		
+		return rval;
+	}
+	
+	// The layers merged into one map tree, built the first time it's needed.  Nested maps are
+	// always fresh copies, so merging into them never touches a layer.
+	private @NonNull Map<String, Object> getMergedTree() {
+		Map<String, Object> rval= mergedTree;
+		if (rval == null) {
+			rval= new LinkedHashMap<>();
+			for (int i= trees.length - 1; i >= 0; i--) {
+				Object tree= trees[i];
+				if (tree instanceof JsonObject) {
+					merge(rval, TreeConverter.toMap((JsonObject)tree));
+				} else {
+					merge(rval, (Map<?, ?>)tree);
+				}
+			}
+			
+			mergedTree= rval;
+		}
+		
+		return rval;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void merge(
+			@NonNull Map<String, Object> target,
+			@NonNull Map<?, ?> source)
+	{
+		for (Map.Entry<?, ?> entry : source.entrySet()) {
+			Object value= entry.getValue();
+			if (value == null) {
+				continue;
+			}
+			
+			String name= String.valueOf(entry.getKey());
+			if (value instanceof Map) {
+				Object existing= target.get(name);
+				
+				Map<String, Object> child= (existing instanceof Map)
+						? (Map<String, Object>)existing
+						: new LinkedHashMap<>();
+				
+				merge(child, (Map<?, ?>)value);
+				target.put(name, child);
+			} else {
+				target.put(name, value);
+			}
+		}
+	}
+	
+	@Override
+	public @NonNull ContentHash contentHash() {
+		ContentHash rval= contentHash;
+		if (rval == null) {
+			rval= ContentHasher.hash(getMergedTree());
+			contentHash= rval;
+		}
+		
+		return rval;
+	}
+	
+	@Override
+	public void writeTo(
+			@NonNull OutputStream stream,
+			@NonNull Format format) throws IOException
+	{
+		TreeWriter.write(getMergedTree(), stream, format, timezone);
+	}
+	
+	@Override
+	public @NonNull <Representation extends Object> Representation serialize(
+			@NonNull Class<? extends Representation> representationClass)
+	{
+		Object value= null;
+		
+		if (representationClass.isAssignableFrom(Map.class)) {
+			value= getMergedTree();
+		} else if (representationClass.isAssignableFrom(JsonObject.class)) {
+			value= TreeConverter.toJsonObject(getMergedTree());
+		} else {
+			throw new UnsupportedSerializationException(representationClass);
+		}
+		
+		@SuppressWarnings("unchecked")
+		Representation rval= (Representation)value;
+		
+		return rval;
+	}
+}
@@ -0,0 +1,420 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.teaglu.composite.convert.RetainedOutputStream;
+import com.teaglu.composite.exception.ParseException;
+
+/**
+ * Transcoder
+ * 
+ * Converts a document from one format to another as a stream - JSON tokens from a GSON
+ * JsonReader or YAML events from the SnakeYAML parser are fed straight to a CompositeWriter,
+ * without building a tree in between.  Memory use depends on how deeply the document is
+ * nested, not on its size.
+ * 
+ * Numbers are carried over from their text, so a long stays a long, an integer too big for a
+ * long is written in full, and a decimal keeps all of its digits.  Dates are left as strings,
+ * the same way a composite reads them; writing YAML quotes them, so that a YAML loader
+ * doesn't turn them into timestamps in its own timezone.
+ * 
+ * YAML input is resolved with the YAML 1.1 rules SnakeYAML uses elsewhere in the library, so
+ * plain yes, on, and 0x1F are a boolean, a boolean, and a number.  Aliases, complex keys, and
+ * streams with more than one document have no JSON equivalent and are rejected, and merge
+ * keys are not expanded.
+ */
+public final class Transcoder {
+	private static final @NonNull TimeZone utc;
+	
+	static {
+		TimeZone tmp= TimeZone.getTimeZone("UTC");
+		if (tmp == null) {
+			throw new RuntimeException("Unable to resolve UTC for transcoding");
+		}
+		
+		utc= tmp;
+	}
+	
+	private Transcoder() {}
+	
+	/**
+	 * Transcode
+	 * 
+	 * Read a document and write it to a stream in another format.  The output stream is
+	 * flushed but not closed, and neither is the input.
+	 *
+	 * @param input						Input document
+	 * @param inputFormat				Format of input
+	 * @param output					Output stream
+	 * @param outputFormat				Format to write
+	 * 
+	 * @throws IOException				Error reading input or writing output
+	 * @throws ParseException			Input is not valid, or can't be represented
+	 */
+	public static void Transcode(
+			@NonNull Reader input,
+			@NonNull Format inputFormat,
+			@NonNull OutputStream output,
+			@NonNull Format outputFormat) throws IOException, ParseException
+	{
+		try (CompositeWriter writer= outputFormat.createWriter(new RetainedOutputStream(output), utc)) {
+			Transcode(input, inputFormat, writer);
+		}
+	}
+	
+	/**
+	 * Transcode
+	 * 
+	 * Read a document and feed it to a writer.  The writer is left open.
+	 *
+	 * @param input						Input document
+	 * @param inputFormat				Format of input
+	 * @param output					Writer
+	 * 
+	 * @throws IOException				Error reading input or writing output
+	 * @throws ParseException			Input is not valid, or can't be represented
+	 */
+	public static void Transcode(
+			@NonNull Reader input,
+			@NonNull Format inputFormat,
+			@NonNull CompositeWriter output) throws IOException, ParseException
+	{
+		switch (inputFormat) {
+		case JSON:
+			transcodeJson(input, output);
+			break;
+			
+		case YAML:
+			transcodeYaml(input, output);
+			break;
+			
+		default:
+			throw new RuntimeException("Unhandled format " + inputFormat);
+		}
+	}
+	
+	private static void transcodeJson(
+			@NonNull Reader input,
+			@NonNull CompositeWriter output) throws IOException, ParseException
+	{
+		JsonReader reader= new JsonReader(input);
+		
+		try {
+			int depth= 0;
+			do {
+				JsonToken token= reader.peek();
+				switch (token) {
+				case BEGIN_OBJECT:
+					reader.beginObject();
+					output.beginObject();
+					depth++;
+					break;
+					
+				case END_OBJECT:
+					reader.endObject();
+					output.endObject();
+					depth--;
+					break;
+					
+				case BEGIN_ARRAY:
+					reader.beginArray();
+					output.beginArray();
+					depth++;
+					break;
+					
+				case END_ARRAY:
+					reader.endArray();
+					output.endArray();
+					depth--;
+					break;
+					
+				case NAME:
+					output.name(reader.nextName());
+					break;
+					
+				case STRING:
+					output.value(reader.nextString());
+					break;
+					
+				case NUMBER:
+					@SuppressWarnings("null")
+					@NonNull String text= reader.nextString();
+					writeNumber(output, text, 10);
+					break;
+					
+				case BOOLEAN:
+					output.value(reader.nextBoolean());
+					break;
+					
+				case NULL:
+					reader.nextNull();
+					output.nullValue();
+					break;
+					
+				default:
+					throw new ParseException("Unexpected end of JSON input");
+				}
+			} while (depth > 0);
+			
+			if (reader.peek() != JsonToken.END_DOCUMENT) {
+				throw new ParseException("Unexpected data after JSON document");
+			}
+		} catch (MalformedJsonException | EOFException e) {
+			throw new ParseException("Error parsing JSON input", e);
+		}
+	}
+	
+	private static void transcodeYaml(
+			@NonNull Reader input,
+			@NonNull CompositeWriter output) throws IOException, ParseException
+	{
+		Yaml yaml= new Yaml(new LoaderOptions());
+		Resolver resolver= new Resolver();
+		
+		// For each open collection, whether it's a mapping and whether a key comes next
+		boolean[] mapping= new boolean[16];
+		boolean[] keyNext= new boolean[16];
+		int depth= 0;
+		
+		int documents= 0;
+		
+		try {
+			Iterator<Event> events= yaml.parse(input).iterator();
+			while (events.hasNext()) {
+				Event event= events.next();
+				
+				switch (event.getEventId()) {
+				case DocumentStart:
+					if (++documents > 1) {
+						throw new ParseException("Multiple YAML documents are not supported");
+					}
+					break;
+					
+				case Alias:
+					throw new ParseException("YAML aliases are not supported");
+					
+				case MappingStart:
+				case SequenceStart:
+					if ((depth > 0) && keyNext[depth - 1]) {
+						throw new ParseException("YAML keys must be scalars");
+					}
+					if ((depth > 0) && mapping[depth - 1]) {
+						keyNext[depth - 1]= true;
+					}
+					
+					if (depth == mapping.length) {
+						mapping= Arrays.copyOf(mapping, depth * 2);
+						keyNext= Arrays.copyOf(keyNext, depth * 2);
+					}
+					
+					boolean isMapping= event.is(Event.ID.MappingStart);
+					mapping[depth]= isMapping;
+					keyNext[depth]= isMapping;
+					depth++;
+					
+					if (isMapping) {
+						output.beginObject();
+					} else {
+						output.beginArray();
+					}
+					break;
+					
+				case MappingEnd:
+					depth--;
+					output.endObject();
+					break;
+					
+				case SequenceEnd:
+					depth--;
+					output.endArray();
+					break;
+					
+				case Scalar:
+					ScalarEvent scalar= (ScalarEvent)event;
+					if ((depth > 0) && keyNext[depth - 1]) {
+						output.name(scalar.getValue());
+						keyNext[depth - 1]= false;
+					} else {
+						writeScalar(output, scalar, resolver);
+						if ((depth > 0) && mapping[depth - 1]) {
+							keyNext[depth - 1]= true;
+						}
+					}
+					break;
+					
+				default:
+					// Stream start and end, document end, and comments
+					break;
+				}
+			}
+		} catch (YAMLException e) {
+			throw new ParseException("Error parsing YAML input", e);
+		}
+	}
+	
+	private static void writeScalar(
+			@NonNull CompositeWriter output,
+			@NonNull ScalarEvent scalar,
+			@NonNull Resolver resolver) throws IOException, ParseException
+	{
+		@SuppressWarnings("null")
+		@NonNull String value= scalar.getValue();
+		
+		String tagText= scalar.getTag();
+		Tag tag= null;
+		if ((tagText != null) && !tagText.equals("!")) {
+			tag= new Tag(tagText);
+		} else if (scalar.isPlain()) {
+			tag= resolver.resolve(NodeId.scalar, value, true);
+		} else {
+			tag= Tag.STR;
+		}
+		
+		try {
+			if (Tag.NULL.equals(tag)) {
+				output.nullValue();
+			} else if (Tag.BOOL.equals(tag)) {
+				String lower= value.toLowerCase();
+				output.value(lower.equals("true") || lower.equals("yes") || lower.equals("on"));
+			} else if (Tag.INT.equals(tag)) {
+				writeYamlInteger(output, value);
+			} else if (Tag.FLOAT.equals(tag)) {
+				writeYamlFloat(output, value);
+			} else {
+				// Strings, timestamps, binary, and anything with an application tag
+				output.value(value);
+			}
+		} catch (NumberFormatException e) {
+			throw new ParseException("Invalid YAML number " + value, e);
+		}
+	}
+	
+	private static void writeYamlInteger(
+			@NonNull CompositeWriter output,
+			@NonNull String value) throws IOException, NumberFormatException
+	{
+		String text= value.replace("_", "");
+		
+		boolean negative= false;
+		if (text.startsWith("-")) {
+			negative= true;
+			text= text.substring(1);
+		} else if (text.startsWith("+")) {
+			text= text.substring(1);
+		}
+		
+		if (text.contains(":")) {
+			// Base 60, as in 1:30:00
+			long total= 0;
+			for (String part : text.split(":")) {
+				total= Math.addExact(Math.multiplyExact(total, 60), Long.parseLong(part));
+			}
+			output.value(negative ? -total : total);
+			return;
+		}
+		
+		int radix= 10;
+		if (text.startsWith("0x")) {
+			radix= 16;
+			text= text.substring(2);
+		} else if (text.startsWith("0b")) {
+			radix= 2;
+			text= text.substring(2);
+		} else if (text.startsWith("0") && (text.length() > 1)) {
+			radix= 8;
+			text= text.substring(1);
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull String digits= negative ? "-" + text : text;
+		writeNumber(output, digits, radix);
+	}
+	
+	private static void writeYamlFloat(
+			@NonNull CompositeWriter output,
+			@NonNull String value) throws IOException, NumberFormatException
+	{
+		String text= value.replace("_", "");
+		String lower= text.toLowerCase();
+		
+		if (lower.endsWith(".nan")) {
+			output.value(Double.NaN);
+		} else if (lower.endsWith(".inf")) {
+			output.value(lower.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+		} else if (text.contains(":")) {
+			// Base 60, as in 1:30.5
+			boolean negative= text.startsWith("-");
+			double total= 0;
+			for (String part : text.replaceFirst("^[-+]", "").split(":")) {
+				total= total * 60 + Double.parseDouble(part);
+			}
+			output.value(negative ? -total : total);
+		} else {
+			output.value(new BigDecimal(text));
+		}
+	}
+	
+	// Write the text of a number so that nothing is lost - integers as a long when they fit
+	// and a BigInteger when they don't, and anything with a fraction or exponent as a
+	// BigDecimal with all of its digits.
+	private static void writeNumber(
+			@NonNull CompositeWriter output,
+			@NonNull String text,
+			int radix) throws IOException, NumberFormatException
+	{
+		if ((radix == 10) &&
+				((text.indexOf('.') >= 0) || (text.indexOf('e') >= 0) || (text.indexOf('E') >= 0)))
+		{
+			output.value(new BigDecimal(text));
+			return;
+		}
+		
+		long parsed= 0;
+		try {
+			parsed= Long.parseLong(text, radix);
+		} catch (NumberFormatException e) {
+			// Too big for a long, or not a number at all
+			output.value(new BigInteger(text, radix));
+			return;
+		}
+		
+		output.value(parsed);
+	}
+}
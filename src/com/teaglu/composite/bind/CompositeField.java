@@ -0,0 +1,50 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.bind;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * CompositeField
+ *
+ * Marks a field or record component to be filled by a CompositeBinder.  Every component of a
+ * record is bound whether or not it is annotated, while a regular class only has its annotated
+ * fields bound.
+ *
+ * On a method of a CompositeView interface it overrides the name or marks the value optional.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT, ElementType.METHOD})
+public @interface CompositeField {
+	/**
+	 * name
+	 *
+	 * @return							Name of the value, or empty to use the field name
+	 */
+	String name() default "";
+
+	/**
+	 * optional
+	 *
+	 * @return							Whether the value may be missing
+	 */
+	boolean optional() default false;
+}
@@ -0,0 +1,43 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.bind;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * CompositeView
+ *
+ * Marks an interface for the composite view annotation processor, which generates a final
+ * class named after the interface with a "View" suffix.  The generated class reads every
+ * method's value from a Composite in its constructor, using the method name as the key, and
+ * uses no reflection at runtime.
+ *
+ * For an interface nested in another type the generated name joins the enclosing names with
+ * an underscore, so Order.Line becomes Order_LineView.
+ *
+ * Methods take no arguments and may return the same types CompositeBinder supports, with
+ * nested CompositeView interfaces in place of nested records.  A method can be annotated with
+ * CompositeField to change its key or to mark it optional.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface CompositeView {
+}
@@ -0,0 +1,126 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.cache;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * ChildCache
+ *
+ * A small open-addressed slot table used by composite implementations to remember the
+ * wrapper objects they hand out for named children, so that walking the same path over and
+ * over doesn't allocate a new wrapper and a new path string every time.
+ *
+ * Each entry remembers the backing node the wrapper was built from, and a lookup only hits
+ * if the caller presents the same node.  If somebody replaces a member in the underlying tree
+ * the stale entry simply misses and gets overwritten.
+ *
+ * The table is lock-free - entries are immutable and published through compare-and-set.  If
+ * the table fills up new children just aren't cached, which keeps the memory cost fixed.
+ */
+public final class ChildCache {
+	private static final int SLOTS= 8;
+	private static final int MASK= SLOTS - 1;
+
+	private static final class Entry {
+		private final @NonNull String name;
+		private final @NonNull Object backing;
+		private final @NonNull Object view;
+
+		private Entry(
+				@NonNull String name,
+				@NonNull Object backing,
+				@NonNull Object view)
+		{
+			this.name= name;
+			this.backing= backing;
+			this.view= view;
+		}
+	}
+
+	private final @NonNull AtomicReferenceArray<Entry> slots= new AtomicReferenceArray<>(SLOTS);
+
+	/**
+	 * get
+	 *
+	 * Look up the cached view for a child.
+	 *
+	 * @param name						Name of the child
+	 * @param backing					Node currently stored under that name
+	 *
+	 * @return							Cached view, or null if there is none for that node
+	 */
+	public @Nullable Object get(
+			@NonNull String name,
+			@NonNull Object backing)
+	{
+		int start= name.hashCode() & MASK;
+		for (int probe= 0; probe < SLOTS; probe++) {
+			Entry entry= slots.get((start + probe) & MASK);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.name.equals(name)) {
+				return (entry.backing == backing) ? entry.view : null;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * put
+	 *
+	 * Remember the view built for a child.  If another thread got there first the existing
+	 * entry is left alone, since either one is a valid answer.
+	 *
+	 * @param name						Name of the child
+	 * @param backing					Node the view was built from
+	 * @param view						View to hand out on later calls
+	 */
+	public void put(
+			@NonNull String name,
+			@NonNull Object backing,
+			@NonNull Object view)
+	{
+		Entry created= new Entry(name, backing, view);
+
+		int start= name.hashCode() & MASK;
+		for (int probe= 0; probe < SLOTS; probe++) {
+			int slot= (start + probe) & MASK;
+
+			Entry entry= slots.get(slot);
+			if (entry == null) {
+				if (slots.compareAndSet(slot, null, created)) {
+					return;
+				}
+				entry= slots.get(slot);
+			}
+
+			if (entry.name.equals(name)) {
+				if (entry.backing != backing) {
+					// The member was replaced in the underlying tree
+					slots.compareAndSet(slot, entry, created);
+				}
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.cache;
+
+/**
+ * OwnedTree
+ *
+ * Marks a tree the library built itself - parsed from text, or converted from another
+ * representation - which no caller holds a reference to.  Composites over an owned tree can
+ * remember what they work out from it, such as its content hash, since nothing can change it
+ * underneath them.  Composites over a tree the caller passed in can't, and work it out again
+ * every time.
+ *
+ * Handing the tree itself out, as serialize does for an implementation's own representation,
+ * gives the caller a reference to it.  That releases the whole document, and from then on
+ * every composite over it behaves as if it wrapped a caller's tree.
+ */
+public class OwnedTree {
+	private volatile boolean released;
+
+	/**
+	 * isOwned
+	 *
+	 * @return							Whether the tree is still only reachable through composites
+	 */
+	public final boolean isOwned() {
+		return !released;
+	}
+
+	/**
+	 * release
+	 *
+	 * Note that a caller now holds a reference to the tree.
+	 */
+	public final void release() {
+		released= true;
+	}
+}
@@ -0,0 +1,38 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.cache;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * TreeHolder
+ *
+ * Implemented by composites that can lend their own tree to the rest of the library, so
+ * internal readers such as diffs and overlays can walk it without copying.  Unlike handing the
+ * tree out through serialize, lending it doesn't release an OwnedTree, so the caller must only
+ * read it and must not pass it on.
+ */
+public interface TreeHolder {
+	/**
+	 * peekTree
+	 *
+	 * Get the tree behind the composite without giving up ownership of it.
+	 *
+	 * @return							JsonObject or map tree
+	 */
+	public @NonNull Object peekTree();
+}
@@ -0,0 +1,383 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.convert;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.teaglu.composite.ContentHash;
+
+/**
+ * ContentHasher
+ * 
+ * Computes a ContentHash by feeding the canonical form of a tree to SHA-256 as it walks the
+ * tree, through a small buffer, so the canonical text is never built.
+ * 
+ * The canonical form is compact JSON with:
+ * 
+ * Object members sorted by name, comparing UTF-16 code units
+ * Names and strings in Unicode NFC, escaping only quote, backslash, and control characters
+ * Whole numbers as plain integers, so 3, 3.0, and 3e0 are the same
+ * Other numbers as the digits without trailing zeros, "e", and the exponent, so 0.50 is 5e-1
+ * Non-finite doubles as NaN, Infinity, and -Infinity
+ * Dates and times in a map tree as the ISO-8601 strings a JSON document would hold
+ * 
+ * This means the same content read from JSON, from YAML, or built as a map tree hashes the
+ * same, as long as the backend didn't lose anything - SnakeYAML reads decimals as doubles, so
+ * a YAML decimal with more digits than a double holds won't match the JSON text.
+ */
+public final class ContentHasher {
+	private static final int BUFFER_SIZE= 512;
+	
+	// Every character below the first combining mark is already in NFC
+	private static final char FIRST_COMBINING= '\u0300';
+	
+	private static final byte[] HEX= "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	
+	private static final class Member {
+		private final @NonNull String name;
+		private final @Nullable Object value;
+		
+		private Member(
+				@NonNull String name,
+				@Nullable Object value)
+		{
+			this.name= name;
+			this.value= value;
+		}
+	}
+	
+	private static final @NonNull Comparator<Member> byName= (a, b) -> a.name.compareTo(b.name);
+	
+	private final @NonNull MessageDigest digest;
+	private final byte[] buffer= new byte[BUFFER_SIZE];
+	private int count;
+	
+	private ContentHasher() {
+		try {
+			@SuppressWarnings("null")
+			@NonNull MessageDigest tmp= MessageDigest.getInstance("SHA-256");
+			digest= tmp;
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 is not available", e);
+		}
+	}
+	
+	/**
+	 * hash
+	 * 
+	 * Hash a GSON object.
+	 *
+	 * @param object					Object to hash
+	 * 
+	 * @return							Content hash
+	 */
+	public static @NonNull ContentHash hash(
+			@NonNull JsonObject object)
+	{
+		ContentHasher hasher= new ContentHasher();
+		hasher.element(object);
+		return hasher.finish();
+	}
+	
+	/**
+	 * hash
+	 * 
+	 * Hash a map tree.
+	 *
+	 * @param tree						Tree to hash
+	 * 
+	 * @return							Content hash
+	 */
+	public static @NonNull ContentHash hash(
+			@NonNull Map<String, Object> tree)
+	{
+		ContentHasher hasher= new ContentHasher();
+		hasher.value(tree);
+		return hasher.finish();
+	}
+	
+	private @NonNull ContentHash finish() {
+		digest.update(buffer, 0, count);
+		count= 0;
+		
+		@SuppressWarnings("null")
+		byte @NonNull [] bytes= digest.digest();
+		return new ContentHash(bytes);
+	}
+	
+	private void element(
+			@Nullable JsonElement element)
+	{
+		if ((element == null) || element.isJsonNull()) {
+			ascii("null");
+		} else if (element.isJsonObject()) {
+			JsonObject object= (JsonObject)element;
+			
+			Member[] members= new Member[object.size()];
+			int index= 0;
+			for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+				@SuppressWarnings("null")
+				@NonNull String name= entry.getKey();
+				members[index++]= new Member(normalize(name), entry.getValue());
+			}
+			Arrays.sort(members, byName);
+			
+			write('{');
+			for (int i= 0; i < members.length; i++) {
+				if (i > 0) {
+					write(',');
+				}
+				string(members[i].name);
+				write(':');
+				element((JsonElement)members[i].value);
+			}
+			write('}');
+		} else if (element.isJsonArray()) {
+			write('[');
+			boolean first= true;
+			for (JsonElement item : (JsonArray)element) {
+				if (!first) {
+					write(',');
+				}
+				first= false;
+				element(item);
+			}
+			write(']');
+		} else {
+			JsonPrimitive primitive= (JsonPrimitive)element;
+			if (primitive.isString()) {
+				@SuppressWarnings("null")
+				@NonNull String text= primitive.getAsString();
+				string(normalize(text));
+			} else if (primitive.isBoolean()) {
+				ascii(primitive.getAsBoolean() ? "true" : "false");
+			} else {
+				@SuppressWarnings("null")
+				@NonNull Number number= primitive.getAsNumber();
+				number(number);
+			}
+		}
+	}
+	
+	private void value(
+			@Nullable Object value)
+	{
+		if (value == null) {
+			ascii("null");
+		} else if (value instanceof String) {
+			string(normalize((String)value));
+		} else if (value instanceof Boolean) {
+			ascii(((Boolean)value).booleanValue() ? "true" : "false");
+		} else if (value instanceof Number) {
+			number((Number)value);
+		} else if (value instanceof Map) {
+			Map<?, ?> map= (Map<?, ?>)value;
+			
+			Member[] members= new Member[map.size()];
+			int index= 0;
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				@SuppressWarnings("null")
+				@NonNull String name= String.valueOf(entry.getKey());
+				members[index++]= new Member(normalize(name), entry.getValue());
+			}
+			Arrays.sort(members, byName);
+			
+			write('{');
+			for (int i= 0; i < members.length; i++) {
+				if (i > 0) {
+					write(',');
+				}
+				string(members[i].name);
+				write(':');
+				value(members[i].value);
+			}
+			write('}');
+		} else if (value instanceof Iterable) {
+			write('[');
+			boolean first= true;
+			for (Object item : (Iterable<?>)value) {
+				if (!first) {
+					write(',');
+				}
+				first= false;
+				value(item);
+			}
+			write(']');
+		} else if (value instanceof Date) {
+			// java.sql.Date refuses toInstant(), so go through the millisecond value
+			Instant instant= (value instanceof Timestamp)
+					? ((Timestamp)value).toInstant()
+					: Instant.ofEpochMilli(((Date)value).getTime());
+			
+			formatted(DateTimeFormatter.ISO_INSTANT.format(instant));
+		} else if (value instanceof LocalDate) {
+			formatted(DateTimeFormatter.ISO_LOCAL_DATE.format((LocalDate)value));
+		} else if (value instanceof LocalDateTime) {
+			formatted(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format((LocalDateTime)value));
+		} else if (value instanceof OffsetDateTime) {
+			formatted(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format((OffsetDateTime)value));
+		} else if (value instanceof Instant) {
+			formatted(DateTimeFormatter.ISO_INSTANT.format((Instant)value));
+		} else if (value instanceof byte[]) {
+			formatted(Base64.getEncoder().encodeToString((byte[])value));
+		} else {
+			string(normalize(value.toString()));
+		}
+	}
+	
+	private void formatted(
+			@Nullable String text)
+	{
+		if (text == null) {
+			throw new RuntimeException("Formatting returned null");
+		}
+		
+		string(text);
+	}
+	
+	private void number(
+			@NonNull Number number)
+	{
+		if ((number instanceof Double) || (number instanceof Float)) {
+			double d= number.doubleValue();
+			if (Double.isNaN(d)) {
+				ascii("NaN");
+				return;
+			} else if (Double.isInfinite(d)) {
+				ascii((d > 0) ? "Infinity" : "-Infinity");
+				return;
+			}
+		}
+		
+		DecodedNumber decoded= DecodedNumber.of(number);
+		if (decoded.isExactLong()) {
+			@SuppressWarnings("null")
+			@NonNull String text= Long.toString(decoded.longValue());
+			ascii(text);
+		} else if (decoded.isWholeNumber()) {
+			@SuppressWarnings("null")
+			@NonNull String text= decoded.toBigInteger().toString();
+			ascii(text);
+		} else {
+			BigDecimal normal= decoded.toBigDecimal().stripTrailingZeros();
+			ascii(normal.unscaledValue().toString() + "e" + (-normal.scale()));
+		}
+	}
+	
+	private static @NonNull String normalize(
+			@NonNull String text)
+	{
+		int length= text.length();
+		for (int i= 0; i < length; i++) {
+			if (text.charAt(i) >= FIRST_COMBINING) {
+				@SuppressWarnings("null")
+				@NonNull String rval= Normalizer.normalize(text, Normalizer.Form.NFC);
+				return rval;
+			}
+		}
+		
+		return text;
+	}
+	
+	private void string(
+			@NonNull String text)
+	{
+		write('"');
+		
+		int length= text.length();
+		for (int i= 0; i < length; i++) {
+			char c= text.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				write('\\');
+				write(c);
+			} else if (c < 0x20) {
+				escape(c);
+			} else if (c < 0x80) {
+				write(c);
+			} else if (c < 0x800) {
+				write(0xC0 | (c >> 6));
+				write(0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && (i + 1 < length) &&
+					Character.isLowSurrogate(text.charAt(i + 1)))
+			{
+				int cp= Character.toCodePoint(c, text.charAt(++i));
+				write(0xF0 | (cp >> 18));
+				write(0x80 | ((cp >> 12) & 0x3F));
+				write(0x80 | ((cp >> 6) & 0x3F));
+				write(0x80 | (cp & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				// A lone surrogate has no UTF-8 form
+				escape(c);
+			} else {
+				write(0xE0 | (c >> 12));
+				write(0x80 | ((c >> 6) & 0x3F));
+				write(0x80 | (c & 0x3F));
+			}
+		}
+		
+		write('"');
+	}
+	
+	private void escape(char c) {
+		write('\\');
+		write('u');
+		write(HEX[(c >> 12) & 0xF]);
+		write(HEX[(c >> 8) & 0xF]);
+		write(HEX[(c >> 4) & 0xF]);
+		write(HEX[c & 0xF]);
+	}
+	
+	private void ascii(
+			@NonNull String text)
+	{
+		int length= text.length();
+		for (int i= 0; i < length; i++) {
+			write(text.charAt(i));
+		}
+	}
+	
+	private void write(int b) {
+		if (count == BUFFER_SIZE) {
+			digest.update(buffer, 0, count);
+			count= 0;
+		}
+		
+		buffer[count++]= (byte)b;
+	}
+}
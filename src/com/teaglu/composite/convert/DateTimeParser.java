@@ -0,0 +1,573 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.convert;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.zone.ZoneRules;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * DateTimeParser
+ *
+ * Date and time parsing shared by the composite implementations.
+ *
+ * The common RFC 3339 forms - a date, optionally followed by a time and an offset - are
+ * handled by a hand-written scanner that doesn't go through DateTimeFormatter at all.  Anything
+ * the scanner doesn't recognize, such as a zone region or the space-separated forms YAML
+ * allows, falls back to the java.time parsers.
+ *
+ * Values without an offset are interpreted in the zone passed in, which is the timezone the
+ * composite was created with.  A value with only a date is taken as the start of that day.
+ */
+public final class DateTimeParser {
+	private DateTimeParser() {}
+
+	private static final @NonNull DateTimeFormatter fallbackFormatter;
+
+	static {
+		// Covers the YAML timestamp forms: single digit month, day and hour, a space instead
+		// of the T, and a space before a short offset like "-5".
+		@SuppressWarnings("null")
+		@NonNull DateTimeFormatter formatter= new DateTimeFormatterBuilder()
+				.parseCaseInsensitive()
+				.appendValue(ChronoField.YEAR, 4, 10, SignStyle.NORMAL)
+				.appendLiteral('-')
+				.appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+				.appendLiteral('-')
+				.appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+				.optionalStart()
+					.optionalStart().appendLiteral('T').optionalEnd()
+					.optionalStart().appendLiteral(' ').optionalEnd()
+					.appendValue(ChronoField.HOUR_OF_DAY, 1, 2, SignStyle.NOT_NEGATIVE)
+					.appendLiteral(':')
+					.appendValue(ChronoField.MINUTE_OF_HOUR, 2)
+					.appendLiteral(':')
+					.appendValue(ChronoField.SECOND_OF_MINUTE, 2)
+					.optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+					.optionalStart().appendLiteral(' ').optionalEnd()
+					.optionalStart().parseLenient().appendOffset("+H:mm", "Z").parseStrict().optionalEnd()
+				.optionalEnd()
+				.toFormatter()
+				.withResolverStyle(ResolverStyle.STRICT);
+
+		fallbackFormatter= formatter;
+	}
+
+	/**
+	 * Fields
+	 *
+	 * The pieces picked out by the scanner.  This never leaves the parser, so in practice the
+	 * JIT usually does away with the allocation.
+	 */
+	private static final class Fields {
+		private int year;
+		private int month;
+		private int day;
+		private boolean hasTime;
+		private int hour;
+		private int minute;
+		private int second;
+		private int nano;
+		private boolean hasOffset;
+		private int offsetSeconds;
+	}
+
+	/**
+	 * parseLocalDate
+	 *
+	 * Parse a date without a time.
+	 *
+	 * @param text						Text to parse
+	 *
+	 * @return							Local date
+	 *
+	 * @throws DateTimeException		Text is not a valid date
+	 */
+	public static @NonNull LocalDate parseLocalDate(
+			@NonNull String text) throws DateTimeException
+	{
+		Fields fields= scan(text);
+		if (fields != null) {
+			if (!fields.hasTime) {
+				@SuppressWarnings("null")
+				@NonNull LocalDate rval= LocalDate.of(fields.year, fields.month, fields.day);
+				return rval;
+			}
+		}
+
+		@SuppressWarnings("null")
+		@NonNull LocalDate rval= LocalDate.parse(text);
+		return rval;
+	}
+
+	/**
+	 * parseInstant
+	 *
+	 * Parse a date and time into an instant.
+	 *
+	 * @param text						Text to parse
+	 * @param zone						Zone for values without an offset
+	 *
+	 * @return							Instant
+	 *
+	 * @throws DateTimeException		Text is not a valid date or date and time
+	 */
+	public static @NonNull Instant parseInstant(
+			@NonNull String text,
+			@NonNull ZoneId zone) throws DateTimeException
+	{
+		Fields fields= scan(text);
+		if (fields != null) {
+			long local= localEpochSecond(fields);
+			int offset= fields.hasOffset ? fields.offsetSeconds : fixedOffset(zone);
+
+			if (offset != Integer.MIN_VALUE) {
+				@SuppressWarnings("null")
+				@NonNull Instant rval= Instant.ofEpochSecond(local - offset, fields.nano);
+				return rval;
+			}
+
+			@SuppressWarnings("null")
+			@NonNull Instant rval= toLocalDateTime(fields).atZone(zone).toInstant();
+			return rval;
+		}
+
+		@SuppressWarnings("null")
+		@NonNull Instant rval= fallback(text, zone).toInstant();
+		return rval;
+	}
+
+	/**
+	 * parseOffsetDateTime
+	 *
+	 * Parse a date and time, keeping the offset if one was given.  Values without an offset get
+	 * the offset of the zone at that point in time.
+	 *
+	 * @param text						Text to parse
+	 * @param zone						Zone for values without an offset
+	 *
+	 * @return							Date and time with offset
+	 *
+	 * @throws DateTimeException		Text is not a valid date or date and time
+	 */
+	public static @NonNull OffsetDateTime parseOffsetDateTime(
+			@NonNull String text,
+			@NonNull ZoneId zone) throws DateTimeException
+	{
+		Fields fields= scan(text);
+		if (fields != null) {
+			LocalDateTime local= toLocalDateTime(fields);
+
+			if (fields.hasOffset) {
+				@SuppressWarnings("null")
+				@NonNull OffsetDateTime rval= OffsetDateTime.of(
+						local, ZoneOffset.ofTotalSeconds(fields.offsetSeconds));
+				return rval;
+			}
+
+			@SuppressWarnings("null")
+			@NonNull OffsetDateTime rval= local.atZone(zone).toOffsetDateTime();
+			return rval;
+		}
+
+		@SuppressWarnings("null")
+		@NonNull OffsetDateTime rval= fallback(text, zone).toOffsetDateTime();
+		return rval;
+	}
+
+	/**
+	 * parseLocalDateTime
+	 *
+	 * Parse a date and time as local time in the zone.  Values with an offset are converted to
+	 * the zone, and values without one are taken as they are.
+	 *
+	 * @param text						Text to parse
+	 * @param zone						Zone to express the result in
+	 *
+	 * @return							Local date and time
+	 *
+	 * @throws DateTimeException		Text is not a valid date or date and time
+	 */
+	public static @NonNull LocalDateTime parseLocalDateTime(
+			@NonNull String text,
+			@NonNull ZoneId zone) throws DateTimeException
+	{
+		Fields fields= scan(text);
+		if (fields != null) {
+			LocalDateTime local= toLocalDateTime(fields);
+
+			if (fields.hasOffset) {
+				@SuppressWarnings("null")
+				@NonNull LocalDateTime rval= local
+						.atOffset(ZoneOffset.ofTotalSeconds(fields.offsetSeconds))
+						.atZoneSameInstant(zone)
+						.toLocalDateTime();
+				return rval;
+			}
+
+			return local;
+		}
+
+		@SuppressWarnings("null")
+		@NonNull LocalDateTime rval= fallback(text, zone).withZoneSameInstant(zone).toLocalDateTime();
+		return rval;
+	}
+
+	/**
+	 * fromEpochMillis
+	 *
+	 * Convert a numeric timestamp in milliseconds since 1970-01-01T00:00:00Z to the requested
+	 * type, using the zone for types that need one.
+	 *
+	 * @param millis					Milliseconds since the epoch
+	 * @param type						Instant, OffsetDateTime, or LocalDateTime
+	 * @param zone						Zone to express the result in
+	 *
+	 * @return							Converted value
+	 */
+	public static <T> @NonNull T fromEpochMillis(
+			long millis,
+			@NonNull Class<T> type,
+			@NonNull ZoneId zone)
+	{
+		Instant instant= Instant.ofEpochMilli(millis);
+
+		Object rval;
+		if (type == Instant.class) {
+			rval= instant;
+		} else if (type == OffsetDateTime.class) {
+			rval= OffsetDateTime.ofInstant(instant, zone);
+		} else if (type == LocalDateTime.class) {
+			rval= LocalDateTime.ofInstant(instant, zone);
+		} else {
+			throw new IllegalArgumentException(
+					"Unable to convert epoch time to " + type.getName());
+		}
+
+		@SuppressWarnings("null")
+		@NonNull T cast= type.cast(rval);
+		return cast;
+	}
+
+	/**
+	 * parse
+	 *
+	 * Parse text into the requested type.
+	 *
+	 * @param text						Text to parse
+	 * @param type						LocalDate, Instant, OffsetDateTime, or LocalDateTime
+	 * @param zone						Zone for values without an offset
+	 *
+	 * @return							Parsed value
+	 *
+	 * @throws DateTimeException		Text is not valid for the type
+	 */
+	public static <T> @NonNull T parse(
+			@NonNull String text,
+			@NonNull Class<T> type,
+			@NonNull ZoneId zone) throws DateTimeException
+	{
+		Object rval;
+		if (type == Instant.class) {
+			rval= parseInstant(text, zone);
+		} else if (type == OffsetDateTime.class) {
+			rval= parseOffsetDateTime(text, zone);
+		} else if (type == LocalDateTime.class) {
+			rval= parseLocalDateTime(text, zone);
+		} else if (type == LocalDate.class) {
+			rval= parseLocalDate(text);
+		} else {
+			throw new IllegalArgumentException("Unable to parse date into " + type.getName());
+		}
+
+		@SuppressWarnings("null")
+		@NonNull T cast= type.cast(rval);
+		return cast;
+	}
+
+	private static @NonNull ZonedDateTime fallback(
+			@NonNull String text,
+			@NonNull ZoneId zone) throws DateTimeException
+	{
+		TemporalAccessor parsed;
+		try {
+			parsed= DateTimeFormatter.ISO_DATE_TIME.parse(text);
+		} catch (DateTimeParseException isoException) {
+			parsed= fallbackFormatter.parse(text);
+		}
+
+		ZonedDateTime rval;
+		if (parsed.isSupported(ChronoField.HOUR_OF_DAY)) {
+			LocalDateTime local= LocalDateTime.from(parsed);
+
+			if (parsed.isSupported(ChronoField.OFFSET_SECONDS)) {
+				ZoneId parsedZone= ZoneId.from(parsed);
+				rval= ZonedDateTime.ofLocal(local, parsedZone, null);
+			} else {
+				rval= local.atZone(zone);
+			}
+		} else {
+			// If we get a string without a time part, use 00:00:00 in timezone passed in
+			rval= LocalDate.from(parsed).atStartOfDay(zone);
+		}
+
+		@SuppressWarnings("null")
+		@NonNull ZonedDateTime cast= rval;
+		return cast;
+	}
+
+	/**
+	 * scan
+	 *
+	 * Pick apart YYYY-MM-DD[(T|t| )HH:MM[:SS[.fffffffff]][Z|z|(+|-)HH[[:]MM]]].  Returns null
+	 * if the text is anything else, so the caller can fall back to the java.time parsers and
+	 * get their error messages.
+	 */
+	private static Fields scan(@NonNull String text) {
+		int length= text.length();
+		if (length < 10) {
+			return null;
+		}
+
+		int year= digits(text, 0, 4);
+		int month= digits(text, 5, 2);
+		int day= digits(text, 8, 2);
+		if ((year < 0) || (month < 1) || (day < 1) || (text.charAt(4) != '-') || (text.charAt(7) != '-')) {
+			return null;
+		}
+		if ((month > 12) || (day > lengthOfMonth(year, month))) {
+			return null;
+		}
+
+		Fields fields= new Fields();
+		fields.year= year;
+		fields.month= month;
+		fields.day= day;
+
+		if (length == 10) {
+			return fields;
+		}
+
+		char separator= text.charAt(10);
+		if ((separator != 'T') && (separator != 't') && (separator != ' ')) {
+			return null;
+		}
+		if (length < 16) {
+			return null;
+		}
+
+		int hour= digits(text, 11, 2);
+		int minute= digits(text, 14, 2);
+		if ((hour < 0) || (hour > 23) || (text.charAt(13) != ':') || (minute < 0) || (minute > 59)) {
+			return null;
+		}
+
+		fields.hasTime= true;
+		fields.hour= hour;
+		fields.minute= minute;
+
+		int pos= 16;
+		if ((pos < length) && (text.charAt(pos) == ':')) {
+			int second= digits(text, pos + 1, 2);
+			if ((second < 0) || (second > 59)) {
+				return null;
+			}
+			fields.second= second;
+			pos+= 3;
+
+			if ((pos < length) && (text.charAt(pos) == '.')) {
+				pos++;
+
+				int nano= 0;
+				int count= 0;
+				while ((pos < length) && (count < 9)) {
+					char c= text.charAt(pos);
+					if ((c < '0') || (c > '9')) {
+						break;
+					}
+					nano= nano * 10 + (c - '0');
+					count++;
+					pos++;
+				}
+				if (count == 0) {
+					return null;
+				}
+				for (int scale= count; scale < 9; scale++) {
+					nano*= 10;
+				}
+				fields.nano= nano;
+			}
+		}
+
+		if (pos == length) {
+			return fields;
+		}
+
+		char zone= text.charAt(pos);
+		if ((zone == 'Z') || (zone == 'z')) {
+			if (pos + 1 != length) {
+				return null;
+			}
+
+			fields.hasOffset= true;
+			return fields;
+		}
+
+		if ((zone != '+') && (zone != '-')) {
+			return null;
+		}
+
+		int offsetHours= digits(text, pos + 1, 2);
+		if ((offsetHours < 0) || (offsetHours > 18)) {
+			return null;
+		}
+		pos+= 3;
+
+		int offsetMinutes= 0;
+		if (pos < length) {
+			if (text.charAt(pos) == ':') {
+				pos++;
+			}
+			offsetMinutes= digits(text, pos, 2);
+			if ((offsetMinutes < 0) || (offsetMinutes > 59)) {
+				return null;
+			}
+			pos+= 2;
+		}
+		if (pos != length) {
+			return null;
+		}
+
+		int offset= offsetHours * 3600 + offsetMinutes * 60;
+		if (offset > 18 * 3600) {
+			return null;
+		}
+
+		fields.hasOffset= true;
+		fields.offsetSeconds= (zone == '-') ? -offset : offset;
+
+		return fields;
+	}
+
+	/**
+	 * digits
+	 *
+	 * Read a fixed number of decimal digits, or return -1 if there aren't that many there.
+	 */
+	private static int digits(@NonNull String text, int start, int count) {
+		if (start + count > text.length()) {
+			return -1;
+		}
+
+		int value= 0;
+		for (int i= start; i < start + count; i++) {
+			char c= text.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return -1;
+			}
+			value= value * 10 + (c - '0');
+		}
+
+		return value;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			boolean leap= ((year & 3) == 0) && (((year % 100) != 0) || ((year % 400) == 0));
+			return leap ? 29 : 28;
+
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * localEpochSecond
+	 *
+	 * Seconds since the epoch as if the local date and time were in UTC.  This is the same
+	 * civil-to-days computation LocalDate.toEpochDay uses.
+	 */
+	private static long localEpochSecond(@NonNull Fields fields) {
+		long y= fields.year;
+		long m= fields.month;
+
+		long total= 365 * y;
+		total+= (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+		total+= (367 * m - 362) / 12;
+		total+= fields.day - 1;
+		if (m > 2) {
+			total--;
+			if (lengthOfMonth(fields.year, 2) == 28) {
+				total--;
+			}
+		}
+
+		// Days from year 0 to 1970
+		long epochDay= total - 719528;
+
+		return epochDay * 86400 + fields.hour * 3600 + fields.minute * 60 + fields.second;
+	}
+
+	/**
+	 * fixedOffset
+	 *
+	 * Offset of the zone in seconds if it never changes, otherwise Integer.MIN_VALUE.
+	 */
+	private static int fixedOffset(@NonNull ZoneId zone) {
+		if (zone instanceof ZoneOffset) {
+			return ((ZoneOffset)zone).getTotalSeconds();
+		}
+
+		ZoneRules rules= zone.getRules();
+		if (rules.isFixedOffset()) {
+			return rules.getOffset(Instant.EPOCH).getTotalSeconds();
+		}
+
+		return Integer.MIN_VALUE;
+	}
+
+	private static @NonNull LocalDateTime toLocalDateTime(@NonNull Fields fields) {
+		@SuppressWarnings("null")
+		@NonNull LocalDateTime rval= LocalDateTime.of(
+				fields.year, fields.month, fields.day,
+				fields.hour, fields.minute, fields.second, fields.nano);
+
+		return rval;
+	}
+}
@@ -0,0 +1,294 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * DecodedNumber
+ *
+ * A number decoded once into the narrowest exact form, with a flag saying whether it is an
+ * integer that fits in a long.
+ *
+ * GSON hands back parsed numbers as a LazilyParsedNumber, which re-parses its text on every
+ * getAsInt() or getAsDouble() call, and comparing the two to detect a fraction loses precision
+ * above 2^53.  Decoding scans plain integers by hand - including a fraction of all zeros like
+ * "3.0" - and only falls back to BigDecimal for exponents or more than 18 digits.
+ */
+public final class DecodedNumber {
+	private final boolean exactLong;
+	private final boolean wholeNumber;
+	private final long longValue;
+	private final double doubleValue;
+
+	// Decimal text for values that aren't an exact long, used to build BigDecimal on demand
+	private final @Nullable String text;
+
+	private DecodedNumber(long value) {
+		this.exactLong= true;
+		this.wholeNumber= true;
+		this.longValue= value;
+		this.doubleValue= value;
+		this.text= null;
+	}
+
+	private DecodedNumber(
+			boolean wholeNumber,
+			double doubleValue,
+			@Nullable String text)
+	{
+		this.exactLong= false;
+		this.wholeNumber= wholeNumber;
+		this.longValue= (long)doubleValue;
+		this.doubleValue= doubleValue;
+		this.text= text;
+	}
+
+	/**
+	 * of
+	 *
+	 * Decode a number as stored in a GSON primitive or a parsed YAML tree.
+	 *
+	 * @param number					Number to decode
+	 *
+	 * @return							Decoded number
+	 *
+	 * @throws NumberFormatException	Number has a string form that isn't a valid number
+	 */
+	public static @NonNull DecodedNumber of(
+			@NonNull Number number) throws NumberFormatException
+	{
+		if ((number instanceof Integer) || (number instanceof Long) ||
+				(number instanceof Short) || (number instanceof Byte))
+		{
+			return new DecodedNumber(number.longValue());
+		} else if (number instanceof Double) {
+			double d= number.doubleValue();
+			return fromDouble(d, Double.toString(d));
+		} else if (number instanceof Float) {
+			// Use the float's own shortest form, so 3.4F is 3.4 and not 3.4000000953...
+			float f= number.floatValue();
+			return fromDouble(f, Float.toString(f));
+		} else if (number instanceof BigInteger) {
+			BigInteger big= (BigInteger)number;
+			if (big.bitLength() < 64) {
+				return new DecodedNumber(big.longValue());
+			}
+			return new DecodedNumber(true, big.doubleValue(), big.toString());
+		} else {
+			// LazilyParsedNumber, BigDecimal, and anything else with a decimal toString()
+			@SuppressWarnings("null")
+			@NonNull String text= number.toString();
+			return parse(text);
+		}
+	}
+
+	/**
+	 * parse
+	 *
+	 * Decode the text of a JSON number.
+	 *
+	 * @param text						Text of number
+	 *
+	 * @return							Decoded number
+	 *
+	 * @throws NumberFormatException	Text is not a valid number
+	 */
+	public static @NonNull DecodedNumber parse(
+			@NonNull String text) throws NumberFormatException
+	{
+		int length= text.length();
+		int pos= 0;
+
+		boolean negative= false;
+		if ((length > 0) && (text.charAt(0) == '-')) {
+			negative= true;
+			pos++;
+		}
+
+		int start= pos;
+		long value= 0;
+		while (pos < length) {
+			char c= text.charAt(pos);
+			if ((c < '0') || (c > '9')) {
+				break;
+			}
+			if (pos - start == 18) {
+				// Might not fit in a long
+				return parseSlow(text);
+			}
+			value= value * 10 + (c - '0');
+			pos++;
+		}
+		if (pos == start) {
+			return parseSlow(text);
+		}
+
+		if ((pos < length) && (text.charAt(pos) == '.')) {
+			pos++;
+
+			int fractionStart= pos;
+			while ((pos < length) && (text.charAt(pos) == '0')) {
+				pos++;
+			}
+
+			if (pos < length) {
+				// A fraction that isn't all zeros - plain decimals don't need BigDecimal
+				while (pos < length) {
+					char c= text.charAt(pos);
+					if ((c < '0') || (c > '9')) {
+						return parseSlow(text);
+					}
+					pos++;
+				}
+
+				return new DecodedNumber(false, Double.parseDouble(text), text);
+			}
+			if (pos == fractionStart) {
+				return parseSlow(text);
+			}
+		}
+
+		if (pos != length) {
+			return parseSlow(text);
+		}
+
+		return new DecodedNumber(negative ? -value : value);
+	}
+
+	private static @NonNull DecodedNumber parseSlow(
+			@NonNull String text) throws NumberFormatException
+	{
+		BigDecimal decimal= new BigDecimal(text);
+
+		boolean whole= (decimal.signum() == 0) || (decimal.stripTrailingZeros().scale() <= 0);
+		if (whole) {
+			try {
+				return new DecodedNumber(decimal.longValueExact());
+			} catch (ArithmeticException e) {
+				// Integer too big for a long
+			}
+		}
+
+		return new DecodedNumber(whole, Double.parseDouble(text), text);
+	}
+
+	private static @NonNull DecodedNumber fromDouble(
+			double d,
+			@NonNull String text)
+	{
+		if ((d == Math.rint(d)) && (d >= -0x1p63) && (d < 0x1p63)) {
+			return new DecodedNumber((long)d);
+		}
+
+		boolean whole= !Double.isNaN(d) && !Double.isInfinite(d) && (d == Math.rint(d));
+		return new DecodedNumber(whole, d, text);
+	}
+
+	/**
+	 * isExactLong
+	 *
+	 * @return							Whether the number is an integer that fits in a long
+	 */
+	public boolean isExactLong() {
+		return exactLong;
+	}
+
+	/**
+	 * isExactInteger
+	 *
+	 * @return							Whether the number is an integer that fits in an int
+	 */
+	public boolean isExactInteger() {
+		return exactLong && (longValue >= Integer.MIN_VALUE) && (longValue <= Integer.MAX_VALUE);
+	}
+
+	/**
+	 * isWholeNumber
+	 *
+	 * @return							Whether the number is an integer of any size
+	 */
+	public boolean isWholeNumber() {
+		return wholeNumber;
+	}
+
+	/**
+	 * longValue
+	 *
+	 * @return							Value as a long, only meaningful if isExactLong()
+	 */
+	public long longValue() {
+		return longValue;
+	}
+
+	/**
+	 * doubleValue
+	 *
+	 * @return							Nearest double to the value
+	 */
+	public double doubleValue() {
+		return doubleValue;
+	}
+
+	/**
+	 * toBigDecimal
+	 *
+	 * @return							Exact value as a BigDecimal
+	 *
+	 * @throws NumberFormatException	Value is not finite
+	 */
+	public @NonNull BigDecimal toBigDecimal() throws NumberFormatException {
+		if (exactLong) {
+			@SuppressWarnings("null")
+			@NonNull BigDecimal rval= BigDecimal.valueOf(longValue);
+			return rval;
+		}
+
+		if (text == null) {
+			throw new NumberFormatException("Number has no decimal form");
+		}
+
+		return new BigDecimal(text);
+	}
+
+	/**
+	 * toBigInteger
+	 *
+	 * @return							Exact value as a BigInteger
+	 *
+	 * @throws ArithmeticException		Value is not a whole number
+	 */
+	public @NonNull BigInteger toBigInteger() throws ArithmeticException {
+		if (exactLong) {
+			@SuppressWarnings("null")
+			@NonNull BigInteger rval= BigInteger.valueOf(longValue);
+			return rval;
+		}
+
+		if (!wholeNumber) {
+			throw new ArithmeticException("Number is not a whole number");
+		}
+
+		@SuppressWarnings("null")
+		@NonNull BigInteger rval= toBigDecimal().toBigIntegerExact();
+		return rval;
+	}
+}
@@ -0,0 +1,45 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.convert;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * RetainedOutputStream
+ * 
+ * Writers close their output when they're closed, but when a library call writes to a stream
+ * the caller passed in, the caller still owns it - closing this wrapper only flushes.
+ */
+public final class RetainedOutputStream extends FilterOutputStream {
+	public RetainedOutputStream(@NonNull OutputStream stream) {
+		super(stream);
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		out.flush();
+	}
+}
@@ -0,0 +1,174 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.convert;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Shape
+ *
+ * The ordered list of member names of an object, shared by every object with the same names
+ * in the same order.  Shapes form a tree of transitions from the empty shape, each adding one
+ * member, so assigning a shape while walking an object's members costs one step per member -
+ * and since same-shaped documents take the same path every time, each step usually only
+ * checks the transition taken last.
+ *
+ * Objects with dynamic member names, such as ids or timestamps used as names, would grow the
+ * tree without bound.  So the number of members in a shape is capped, and so is the number
+ * of shapes grown from one root.  When a tree reaches that cap it's dropped and a new root
+ * takes its place, so a caller with dynamic names only costs everyone a fresh start now and
+ * then instead of switching shapes off for good.  Shapes from a dropped tree stay valid for
+ * the objects that already have them.  An object that runs past a cap gets no shape, and
+ * callers fall back to looking members up by name.
+ */
+public final class Shape {
+	private static final int MAX_SHAPES= 4096;
+	private static final int MAX_MEMBERS= 64;
+
+	private static final AtomicReference<Shape> root= new AtomicReference<>(newRoot());
+
+	private final @NonNull String[] names;
+	private final @NonNull Map<String, Integer> slots;
+
+	// Number of shapes in the tree this one belongs to, shared by every shape in it
+	private final @NonNull AtomicInteger shapeCount;
+
+	private final ConcurrentHashMap<String, Shape> transitions= new ConcurrentHashMap<>();
+
+	// Transition taken most recently - a race just means an extra trip to the table
+	private volatile @Nullable Shape last;
+
+	private Shape(
+			@NonNull String[] names,
+			@NonNull Map<String, Integer> slots,
+			@NonNull AtomicInteger shapeCount)
+	{
+		this.names= names;
+		this.slots= slots;
+		this.shapeCount= shapeCount;
+	}
+
+	private static @NonNull Shape newRoot() {
+		return new Shape(new String[0], new HashMap<>(), new AtomicInteger(1));
+	}
+
+	/**
+	 * root
+	 *
+	 * Return the shape with no members, where every object's transitions start.
+	 *
+	 * @return							Current root shape
+	 */
+	public static @NonNull Shape root() {
+		@SuppressWarnings("null")
+		@NonNull Shape rval= root.get();
+		return rval;
+	}
+
+	/**
+	 * with
+	 *
+	 * Return the shape with one more member added at the end.
+	 *
+	 * @param name						Name of the added member
+	 *
+	 * @return							Resulting shape, or null if a limit was reached
+	 */
+	public @Nullable Shape with(
+			@NonNull String name)
+	{
+		Shape rval= last;
+		if ((rval != null) && rval.names[names.length].equals(name)) {
+			return rval;
+		}
+
+		rval= transitions.get(name);
+		if (rval == null) {
+			if (names.length == MAX_MEMBERS) {
+				return null;
+			}
+			if (shapeCount.get() >= MAX_SHAPES) {
+				// Only the first to notice replaces the root of this tree
+				Shape current= root.get();
+				if (current.shapeCount == shapeCount) {
+					root.compareAndSet(current, newRoot());
+				}
+				return null;
+			}
+
+			String[] childNames= new String[names.length + 1];
+			System.arraycopy(names, 0, childNames, 0, names.length);
+			childNames[names.length]= name;
+
+			Map<String, Integer> childSlots= new HashMap<>(slots);
+			childSlots.put(name, names.length);
+
+			rval= new Shape(childNames, childSlots, shapeCount);
+
+			Shape existing= transitions.putIfAbsent(name, rval);
+			if (existing != null) {
+				rval= existing;
+			} else {
+				shapeCount.incrementAndGet();
+			}
+		}
+
+		last= rval;
+		return rval;
+	}
+
+	/**
+	 * size
+	 *
+	 * @return							Number of members
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * getName
+	 *
+	 * @param slot						Slot number
+	 *
+	 * @return							Name of the member in the slot
+	 */
+	public @NonNull String getName(int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * slotOf
+	 *
+	 * @param name						Member name
+	 *
+	 * @return							Slot of the member, or -1 if the shape has no such member
+	 */
+	public int slotOf(
+			@NonNull String name)
+	{
+		Integer rval= slots.get(name);
+		return (rval == null) ? -1 : rval;
+	}
+}
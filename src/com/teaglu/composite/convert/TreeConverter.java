@@ -0,0 +1,442 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.convert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.OverlayComposite;
+import com.teaglu.composite.cache.TreeHolder;
+import com.teaglu.composite.exception.UnsupportedSerializationException;
+
+/**
+ * TreeConverter
+ * 
+ * Converts between the two trees that back a composite - a GSON tree and a tree of maps and
+ * lists - in a single pass, without printing one and parsing it back as the other.
+ * 
+ * The walk keeps its own stack of open containers instead of recursing, so a very deeply
+ * nested document can't overflow the thread stack.
+ * 
+ * Numbers keep their types where the other tree can hold them.  A number GSON parsed lazily
+ * becomes an Integer, Long, or BigInteger if it's whole, a Double if it has few enough digits
+ * to survive the trip, and a BigDecimal otherwise.  A Float going into a GSON tree keeps its
+ * decimal form.  Nulls are kept as nulls, and dates and times in a map tree become the same
+ * ISO-8601 strings the composite accessors parse.
+ */
+public final class TreeConverter {
+	private TreeConverter() {}
+	
+	// Any decimal with this many significant digits or fewer survives a trip through a double
+	private static final int DOUBLE_SAFE_DIGITS= 15;
+	
+	private static final class JsonFrame {
+		private final @NonNull Iterator<?> iterator;
+		private final @Nullable JsonObject object;
+		private final @Nullable JsonArray array;
+		
+		private JsonFrame(
+				@NonNull Iterator<?> iterator,
+				@Nullable JsonObject object,
+				@Nullable JsonArray array)
+		{
+			this.iterator= iterator;
+			this.object= object;
+			this.array= array;
+		}
+	}
+	
+	private static final class MapFrame {
+		private final @NonNull Iterator<?> iterator;
+		private final @Nullable Map<String, Object> map;
+		private final @Nullable List<Object> list;
+		
+		private MapFrame(
+				@NonNull Iterator<?> iterator,
+				@Nullable Map<String, Object> map,
+				@Nullable List<Object> list)
+		{
+			this.iterator= iterator;
+			this.map= map;
+			this.list= list;
+		}
+	}
+	
+	/**
+	 * toJsonObject
+	 * 
+	 * Convert a map tree to a GSON tree.
+	 *
+	 * @param tree						Map tree
+	 * 
+	 * @return							Equivalent GSON object
+	 */
+	public static @NonNull JsonObject toJsonObject(
+			@NonNull Map<String, Object> tree)
+	{
+		JsonObject rval= new JsonObject();
+		
+		ArrayDeque<JsonFrame> stack= new ArrayDeque<>();
+		stack.push(new JsonFrame(iterator(tree.entrySet()), rval, null));
+		
+		while (!stack.isEmpty()) {
+			JsonFrame frame= stack.peek();
+			if (!frame.iterator.hasNext()) {
+				stack.pop();
+				continue;
+			}
+			
+			Object next= frame.iterator.next();
+			
+			String name= null;
+			Object value= next;
+			
+			JsonObject parentObject= frame.object;
+			if (parentObject != null) {
+				Map.Entry<?, ?> entry= (Map.Entry<?, ?>)next;
+				name= String.valueOf(entry.getKey());
+				value= entry.getValue();
+			}
+			
+			// Check the common final scalar classes first - an interface check like Map or
+			// Iterable against a String is much slower than a class check
+			JsonElement element= null;
+			if ((value instanceof String) || (value instanceof Integer) || (value instanceof Long) ||
+					(value instanceof Double) || (value instanceof Boolean))
+			{
+				element= toJsonScalar(value);
+			} else if (value instanceof Map) {
+				JsonObject object= new JsonObject();
+				stack.push(new JsonFrame(iterator(((Map<?, ?>)value).entrySet()), object, null));
+				element= object;
+			} else if (value instanceof Iterable) {
+				JsonArray array= new JsonArray();
+				stack.push(new JsonFrame(iterator((Iterable<?>)value), null, array));
+				element= array;
+			} else {
+				element= toJsonScalar(value);
+			}
+			
+			if (parentObject != null) {
+				parentObject.add(name, element);
+			} else {
+				JsonArray parentArray= frame.array;
+				if (parentArray == null) {
+					throw new RuntimeException("Conversion frame has no container");
+				}
+				parentArray.add(element);
+			}
+		}
+		
+		return rval;
+	}
+	
+	/**
+	 * toJsonElement
+	 * 
+	 * Convert any value from a map tree - a map, a list, or a scalar - to a GSON element.
+	 *
+	 * @param value						Value from a map tree
+	 * 
+	 * @return							Equivalent GSON element
+	 */
+	public static @NonNull JsonElement toJsonElement(
+			@Nullable Object value)
+	{
+		if (value instanceof Map) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> map= (Map<String, Object>)value;
+			return toJsonObject(map);
+		} else if (value instanceof Iterable) {
+			// Let the walk handle the list as the only member of a wrapper
+			@SuppressWarnings("null")
+			@NonNull Map<String, Object> wrapper= Collections.singletonMap("", value);
+			
+			@SuppressWarnings("null")
+			@NonNull JsonElement rval= toJsonObject(wrapper).get("");
+			return rval;
+		}
+		
+		return toJsonScalar(value);
+	}
+	
+	/**
+	 * toMap
+	 * 
+	 * Convert a GSON tree to a map tree of LinkedHashMap and ArrayList, keeping member order.
+	 *
+	 * @param object					GSON object
+	 * 
+	 * @return							Equivalent map tree
+	 */
+	public static @NonNull Map<String, Object> toMap(
+			@NonNull JsonObject object)
+	{
+		Map<String, Object> rval= new LinkedHashMap<>();
+		
+		ArrayDeque<MapFrame> stack= new ArrayDeque<>();
+		stack.push(new MapFrame(iterator(object.entrySet()), rval, null));
+		
+		while (!stack.isEmpty()) {
+			MapFrame frame= stack.peek();
+			if (!frame.iterator.hasNext()) {
+				stack.pop();
+				continue;
+			}
+			
+			Object next= frame.iterator.next();
+			
+			String name= null;
+			JsonElement element= null;
+			
+			Map<String, Object> parentMap= frame.map;
+			if (parentMap != null) {
+				@SuppressWarnings("unchecked")
+				Map.Entry<String, JsonElement> entry= (Map.Entry<String, JsonElement>)next;
+				name= entry.getKey();
+				element= entry.getValue();
+			} else {
+				element= (JsonElement)next;
+			}
+			
+			Object value= null;
+			if ((element == null) || element.isJsonNull()) {
+				value= null;
+			} else if (element.isJsonObject()) {
+				Map<String, Object> map= new LinkedHashMap<>();
+				stack.push(new MapFrame(iterator(element.getAsJsonObject().entrySet()), map, null));
+				value= map;
+			} else if (element.isJsonArray()) {
+				JsonArray array= element.getAsJsonArray();
+				List<Object> list= new ArrayList<>(array.size());
+				stack.push(new MapFrame(iterator(array), null, list));
+				value= list;
+			} else {
+				value= toMapScalar((JsonPrimitive)element);
+			}
+			
+			if (parentMap != null) {
+				parentMap.put(name, value);
+			} else {
+				List<Object> parentList= frame.list;
+				if (parentList == null) {
+					throw new RuntimeException("Conversion frame has no container");
+				}
+				parentList.add(value);
+			}
+		}
+		
+		return rval;
+	}
+	
+	private static @NonNull Iterator<?> iterator(
+			@NonNull Iterable<?> iterable)
+	{
+		@SuppressWarnings("null")
+		@NonNull Iterator<?> rval= iterable.iterator();
+		return rval;
+	}
+	
+	private static @NonNull JsonElement toJsonScalar(
+			@Nullable Object value)
+	{
+		JsonElement rval= null;
+		
+		if (value == null) {
+			rval= JsonNull.INSTANCE;
+		} else if (value instanceof String) {
+			rval= new JsonPrimitive((String)value);
+		} else if (value instanceof Boolean) {
+			rval= new JsonPrimitive((Boolean)value);
+		} else if (value instanceof Float) {
+			// Keep the float's own shortest form, so 3.4F is 3.4 and not 3.4000000953...
+			float f= ((Float)value).floatValue();
+			if (Float.isNaN(f) || Float.isInfinite(f)) {
+				rval= new JsonPrimitive(f);
+			} else {
+				rval= new JsonPrimitive(new BigDecimal(Float.toString(f)));
+			}
+		} else if (value instanceof Number) {
+			rval= new JsonPrimitive((Number)value);
+		} else if (value instanceof Date) {
+			// java.sql.Date refuses toInstant(), so go through the millisecond value
+			Instant instant= (value instanceof Timestamp)
+					? ((Timestamp)value).toInstant()
+					: Instant.ofEpochMilli(((Date)value).getTime());
+			
+			rval= formatted(instant, DateTimeFormatter.ISO_INSTANT);
+		} else if (value instanceof LocalDate) {
+			rval= formatted((LocalDate)value, DateTimeFormatter.ISO_LOCAL_DATE);
+		} else if (value instanceof LocalDateTime) {
+			rval= formatted((LocalDateTime)value, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+		} else if (value instanceof OffsetDateTime) {
+			rval= formatted((OffsetDateTime)value, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+		} else if (value instanceof Instant) {
+			rval= formatted((Instant)value, DateTimeFormatter.ISO_INSTANT);
+		} else if (value instanceof byte[]) {
+			// YAML binary scalars load as byte arrays
+			rval= new JsonPrimitive(Base64.getEncoder().encodeToString((byte[])value));
+		} else {
+			rval= new JsonPrimitive(value.toString());
+		}
+		
+		return rval;
+	}
+	
+	private static @NonNull JsonElement formatted(
+			@NonNull TemporalAccessor value,
+			@NonNull DateTimeFormatter formatter)
+	{
+		return new JsonPrimitive(formatter.format(value));
+	}
+	
+	private static @NonNull Object toMapScalar(
+			@NonNull JsonPrimitive primitive)
+	{
+		if (primitive.isString()) {
+			@SuppressWarnings("null")
+			@NonNull String rval= primitive.getAsString();
+			return rval;
+		} else if (primitive.isBoolean()) {
+			return Boolean.valueOf(primitive.getAsBoolean());
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull Number number= primitive.getAsNumber();
+		return toMapNumber(number);
+	}
+	
+	// Numbers put into a GSON tree as Java types are kept as they are - only lazily parsed
+	// numbers from JSON text need a type chosen.  The type follows how the number was written
+	// rather than its value, so 1.0 stays a decimal and is written back out as one.
+	private static @NonNull Number toMapNumber(
+			@NonNull Number number)
+	{
+		if ((number instanceof Integer) || (number instanceof Long) ||
+				(number instanceof Double) || (number instanceof Float) ||
+				(number instanceof Short) || (number instanceof Byte) ||
+				(number instanceof BigDecimal) || (number instanceof BigInteger))
+		{
+			return number;
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull String text= number.toString();
+		DecodedNumber decoded= DecodedNumber.parse(text);
+		
+		if (isDecimal(text)) {
+			if (significantDigits(text) <= DOUBLE_SAFE_DIGITS) {
+				return Double.valueOf(decoded.doubleValue());
+			} else {
+				return decoded.toBigDecimal();
+			}
+		} else if (decoded.isExactInteger()) {
+			return Integer.valueOf((int)decoded.longValue());
+		} else if (decoded.isExactLong()) {
+			return Long.valueOf(decoded.longValue());
+		} else {
+			return decoded.toBigInteger();
+		}
+	}
+	
+	private static boolean isDecimal(
+			@NonNull String text)
+	{
+		int length= text.length();
+		for (int pos= 0; pos < length; pos++) {
+			char c= text.charAt(pos);
+			if ((c == '.') || (c == 'e') || (c == 'E')) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private static int significantDigits(
+			@NonNull String text)
+	{
+		int rval= 0;
+		boolean leading= true;
+		
+		int length= text.length();
+		for (int pos= 0; pos < length; pos++) {
+			char c= text.charAt(pos);
+			if ((c == 'e') || (c == 'E')) {
+				break;
+			} else if ((c >= '1') && (c <= '9')) {
+				leading= false;
+				rval++;
+			} else if ((c == '0') && !leading) {
+				rval++;
+			}
+		}
+		
+		return rval;
+	}
+
+	/**
+	 * treeOf
+	 * 
+	 * Get the tree behind a composite, without copying it when the implementation can lend
+	 * its own - a JsonObject for the JSON implementation, and a map tree for the map
+	 * implementation or an overlay.  A lent tree is still owned by its composite, so it must
+	 * only be read, and never handed on to a caller.
+	 *
+	 * @param composite					Composite
+	 * 
+	 * @return							JsonObject or map tree
+	 * 
+	 * @throws UnsupportedSerializationException	Composite can't produce either tree
+	 */
+	public static @NonNull Object treeOf(
+			@NonNull Composite composite) throws UnsupportedSerializationException
+	{
+		if (composite instanceof TreeHolder) {
+			return ((TreeHolder)composite).peekTree();
+		} else if (composite instanceof OverlayComposite) {
+			return composite.serialize(Map.class);
+		}
+		
+		return composite.serialize(JsonObject.class);
+	}
+}
@@ -0,0 +1,248 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.convert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.teaglu.composite.CompositeWriter;
+import com.teaglu.composite.Format;
+
+/**
+ * TreeWriter
+ * 
+ * Walks the tree backing a composite - either a GSON tree or a tree of maps and lists - and
+ * feeds it to a CompositeWriter, so a composite can be written to a stream in any format
+ * without first being rendered to a string.
+ * 
+ * Numbers keep their exact form: longs are written as longs, and a Float or a number GSON
+ * parsed lazily is written from its decimal text, so 3.4F comes out as 3.4 and not as the
+ * nearest double.
+ */
+public final class TreeWriter {
+	private TreeWriter() {}
+	
+	/**
+	 * write
+	 * 
+	 * Write a GSON object to a stream.  The stream is flushed but not closed.
+	 *
+	 * @param object					Object to write
+	 * @param stream					Output stream
+	 * @param format					Output format
+	 * @param timezone					Timezone for timestamps
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static void write(
+			@NonNull JsonObject object,
+			@NonNull OutputStream stream,
+			@NonNull Format format,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		try (CompositeWriter writer= format.createWriter(new RetainedOutputStream(stream), timezone)) {
+			writeElement(writer, object);
+		}
+	}
+	
+	/**
+	 * write
+	 * 
+	 * Write a map tree to a stream.  The stream is flushed but not closed.
+	 *
+	 * @param tree						Tree to write
+	 * @param stream					Output stream
+	 * @param format					Output format
+	 * @param timezone					Timezone for timestamps
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static void write(
+			@NonNull Map<String, Object> tree,
+			@NonNull OutputStream stream,
+			@NonNull Format format,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		try (CompositeWriter writer= format.createWriter(new RetainedOutputStream(stream), timezone)) {
+			writeValue(writer, tree);
+		}
+	}
+	
+	/**
+	 * writeElement
+	 * 
+	 * Write a GSON element and everything under it.
+	 *
+	 * @param writer					Writer
+	 * @param element					Element to write
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static void writeElement(
+			@NonNull CompositeWriter writer,
+			@Nullable JsonElement element) throws IOException
+	{
+		if ((element == null) || element.isJsonNull()) {
+			writer.nullValue();
+		} else if (element.isJsonObject()) {
+			writer.beginObject();
+			for (Map.Entry<String, JsonElement> entry : ((JsonObject)element).entrySet()) {
+				@SuppressWarnings("null")
+				@NonNull String name= entry.getKey();
+				writer.name(name);
+				writeElement(writer, entry.getValue());
+			}
+			writer.endObject();
+		} else if (element.isJsonArray()) {
+			writer.beginArray();
+			for (JsonElement item : (JsonArray)element) {
+				writeElement(writer, item);
+			}
+			writer.endArray();
+		} else {
+			JsonPrimitive primitive= (JsonPrimitive)element;
+			if (primitive.isString()) {
+				writer.value(primitive.getAsString());
+			} else if (primitive.isBoolean()) {
+				writer.value(primitive.getAsBoolean());
+			} else {
+				@SuppressWarnings("null")
+				@NonNull Number number= primitive.getAsNumber();
+				writeNumber(writer, number);
+			}
+		}
+	}
+	
+	/**
+	 * writeValue
+	 * 
+	 * Write a value from a map tree and everything under it.  Maps are written as objects,
+	 * iterables as arrays, and values of types a composite doesn't know as their string form.
+	 *
+	 * @param writer					Writer
+	 * @param value						Value to write
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static void writeValue(
+			@NonNull CompositeWriter writer,
+			@Nullable Object value) throws IOException
+	{
+		if (value == null) {
+			writer.nullValue();
+		} else if (value instanceof String) {
+			writer.value((String)value);
+		} else if (value instanceof Boolean) {
+			writer.value(((Boolean)value).booleanValue());
+		} else if (value instanceof Number) {
+			writeNumber(writer, (Number)value);
+		} else if (value instanceof Map) {
+			writer.beginObject();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				@SuppressWarnings("null")
+				@NonNull String name= String.valueOf(entry.getKey());
+				writer.name(name);
+				writeValue(writer, entry.getValue());
+			}
+			writer.endObject();
+		} else if (value instanceof Iterable) {
+			writer.beginArray();
+			for (Object item : (Iterable<?>)value) {
+				writeValue(writer, item);
+			}
+			writer.endArray();
+		} else if (value instanceof Timestamp) {
+			writer.value((Timestamp)value);
+		} else if (value instanceof Date) {
+			// java.sql.Date refuses toInstant(), so go through the millisecond value
+			writer.value(Instant.ofEpochMilli(((Date)value).getTime()));
+		} else if (value instanceof Instant) {
+			writer.value((Instant)value);
+		} else if (value instanceof LocalDate) {
+			writer.value((LocalDate)value);
+		} else if (value instanceof LocalDateTime) {
+			writer.value((LocalDateTime)value);
+		} else if (value instanceof OffsetDateTime) {
+			writer.value((OffsetDateTime)value);
+		} else if (value instanceof byte[]) {
+			// YAML binary scalars load as byte arrays
+			writer.value(Base64.getEncoder().encodeToString((byte[])value));
+		} else {
+			writer.value(value.toString());
+		}
+	}
+	
+	/**
+	 * writeNumber
+	 * 
+	 * Write a number in its exact form.
+	 *
+	 * @param writer					Writer
+	 * @param number					Number to write
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static void writeNumber(
+			@NonNull CompositeWriter writer,
+			@NonNull Number number) throws IOException
+	{
+		if ((number instanceof Integer) || (number instanceof Long) ||
+				(number instanceof Short) || (number instanceof Byte))
+		{
+			writer.value(number.longValue());
+		} else if (number instanceof Double) {
+			writer.value(number.doubleValue());
+		} else if (number instanceof BigInteger) {
+			writer.value((BigInteger)number);
+		} else if (number instanceof BigDecimal) {
+			writer.value((BigDecimal)number);
+		} else if (number instanceof Float) {
+			float f= number.floatValue();
+			if (Float.isNaN(f) || Float.isInfinite(f)) {
+				writer.value((double)f);
+			} else {
+				writer.value(new BigDecimal(Float.toString(f)));
+			}
+		} else {
+			// LazilyParsedNumber and anything else with a decimal toString()
+			DecodedNumber decoded= DecodedNumber.of(number);
+			if (decoded.isExactLong()) {
+				writer.value(decoded.longValue());
+			} else {
+				writer.value(decoded.toBigDecimal());
+			}
+		}
+	}
+}
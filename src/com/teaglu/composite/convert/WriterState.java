@@ -0,0 +1,179 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.convert;
+
+import java.util.Arrays;
+
+/**
+ * WriterState
+ * 
+ * Tracks the nesting of a streaming writer, so that each format only has to decide how to
+ * write separators and can share the checks for calls made out of order.  Memory use depends
+ * only on the nesting depth, never on the number of values written.
+ */
+public final class WriterState {
+	private static final byte EMPTY_DOCUMENT= 0;
+	private static final byte NONEMPTY_DOCUMENT= 1;
+	private static final byte EMPTY_OBJECT= 2;
+	private static final byte DANGLING_NAME= 3;
+	private static final byte NONEMPTY_OBJECT= 4;
+	private static final byte EMPTY_ARRAY= 5;
+	private static final byte NONEMPTY_ARRAY= 6;
+	
+	private byte[] stack= new byte[16];
+	private int depth= 1;
+	
+	public WriterState() {
+		stack[0]= EMPTY_DOCUMENT;
+	}
+	
+	/**
+	 * beforeValue
+	 * 
+	 * Record that a value is about to be written.
+	 * 
+	 * @return							Whether a separator from the previous array entry is needed
+	 */
+	public boolean beforeValue() {
+		switch (stack[depth - 1]) {
+		case EMPTY_DOCUMENT:
+			stack[depth - 1]= NONEMPTY_DOCUMENT;
+			return false;
+		case EMPTY_ARRAY:
+			stack[depth - 1]= NONEMPTY_ARRAY;
+			return false;
+		case NONEMPTY_ARRAY:
+			return true;
+		case DANGLING_NAME:
+			stack[depth - 1]= NONEMPTY_OBJECT;
+			return false;
+		case NONEMPTY_DOCUMENT:
+			throw new IllegalStateException("Document already has a top-level value");
+		default:
+			throw new IllegalStateException("Value in an object written without a name");
+		}
+	}
+	
+	/**
+	 * beforeName
+	 * 
+	 * Record that a name is about to be written.
+	 * 
+	 * @return							Whether a separator from the previous member is needed
+	 */
+	public boolean beforeName() {
+		switch (stack[depth - 1]) {
+		case EMPTY_OBJECT:
+			stack[depth - 1]= DANGLING_NAME;
+			return false;
+		case NONEMPTY_OBJECT:
+			stack[depth - 1]= DANGLING_NAME;
+			return true;
+		case DANGLING_NAME:
+			throw new IllegalStateException("Name written twice without a value");
+		default:
+			throw new IllegalStateException("Name written outside of an object");
+		}
+	}
+	
+	/**
+	 * beginObject
+	 * 
+	 * Enter an object, after beforeValue() has been called.
+	 */
+	public void beginObject() {
+		push(EMPTY_OBJECT);
+	}
+	
+	/**
+	 * beginArray
+	 * 
+	 * Enter an array, after beforeValue() has been called.
+	 */
+	public void beginArray() {
+		push(EMPTY_ARRAY);
+	}
+	
+	/**
+	 * endObject
+	 * 
+	 * Leave the current object.
+	 * 
+	 * @return							Whether the object had any members
+	 */
+	public boolean endObject() {
+		byte top= stack[depth - 1];
+		if ((top != EMPTY_OBJECT) && (top != NONEMPTY_OBJECT)) {
+			throw new IllegalStateException("Not in an object, or a name is missing its value");
+		}
+		
+		depth--;
+		return (top == NONEMPTY_OBJECT);
+	}
+	
+	/**
+	 * endArray
+	 * 
+	 * Leave the current array.
+	 * 
+	 * @return							Whether the array had any entries
+	 */
+	public boolean endArray() {
+		byte top= stack[depth - 1];
+		if ((top != EMPTY_ARRAY) && (top != NONEMPTY_ARRAY)) {
+			throw new IllegalStateException("Not in an array");
+		}
+		
+		depth--;
+		return (top == NONEMPTY_ARRAY);
+	}
+	
+	/**
+	 * getDepth
+	 * 
+	 * @return							Number of open objects and arrays
+	 */
+	public int getDepth() {
+		return depth - 1;
+	}
+	
+	/**
+	 * isStarted
+	 * 
+	 * @return							Whether anything has been written
+	 */
+	public boolean isStarted() {
+		return (depth > 1) || (stack[0] != EMPTY_DOCUMENT);
+	}
+	
+	/**
+	 * isComplete
+	 * 
+	 * @return							Whether exactly one complete top-level value was written
+	 */
+	public boolean isComplete() {
+		return (depth == 1) && (stack[0] == NONEMPTY_DOCUMENT);
+	}
+	
+	private void push(byte context) {
+		if (depth == stack.length) {
+			stack= Arrays.copyOf(stack, depth * 2);
+		}
+		stack[depth++]= context;
+	}
+}
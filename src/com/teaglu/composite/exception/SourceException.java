@@ -0,0 +1,34 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.exception;
+
+/**
+ * SourceException
+ *
+ * Exception thrown when the source behind a composite fails while a value is being read,
+ * such as a database connection dropping while a row is being read.  The composite accessors
+ * only declare schema problems, so this is unchecked and carries the underlying error as its
+ * cause.
+ */
+public class SourceException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public SourceException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,645 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.Format;
+
+/**
+ * CopyEncoder
+ * 
+ * Encodes rows for a PostgreSQL COPY FROM STDIN in text or binary format, with composites
+ * going into json or jsonb columns.  A composite is written straight from its backing tree
+ * into the COPY data, without building a string or a PGobject for it, and scalar columns
+ * are written the same way.
+ * 
+ * Each row starts with beginRow() giving the number of columns, followed by one write call
+ * per column in the order of the COPY column list, and ends with endRow().  In binary format
+ * the write call has to match the column type - writeInteger() for int4, writeLong() for
+ * int8, writeDouble() for float8, writeInstant() for timestamptz, writeBytes() for bytea,
+ * and writeComposite() for jsonb.  Text format is more forgiving, since the server parses
+ * every value.  Passing null to any of the object versions writes a NULL.
+ * 
+ * With the Postgres driver the output is typically a PGCopyOutputStream opened with the
+ * matching COPY statement.  Closing the encoder finishes the data and closes the output.
+ */
+public final class CopyEncoder implements Closeable {
+	private static final byte[] BINARY_SIGNATURE= {
+			'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0 };
+	
+	private static final byte[] TEXT_NULL= { '\\', 'N' };
+	
+	// Version byte at the start of a binary jsonb value
+	private static final int JSONB_VERSION= 1;
+	
+	// Binary timestamps count microseconds from 2000-01-01
+	private static final Instant POSTGRES_EPOCH= Instant.parse("2000-01-01T00:00:00Z");
+	
+	/**
+	 * FieldBuffer
+	 * 
+	 * Reused buffer for a binary value whose length has to be written before it.
+	 */
+	private static final class FieldBuffer extends ByteArrayOutputStream {
+		private FieldBuffer() {
+			super(1024);
+		}
+		
+		private void copyTo(
+				@NonNull CopyEncoder encoder) throws IOException
+		{
+			encoder.writeInt32(count);
+			encoder.writeRaw(buf, 0, count);
+		}
+	}
+	
+	/**
+	 * TextEscaper
+	 * 
+	 * Escapes bytes on their way into a text format value.  The characters COPY treats
+	 * specially are all ASCII, and UTF-8 never uses ASCII bytes inside a multi-byte
+	 * character, so escaping works on the encoded bytes.  Flushing is ignored, so that
+	 * writing a composite doesn't flush the COPY stream for every row.
+	 */
+	private static final class TextEscaper extends FilterOutputStream {
+		private final @NonNull CopyEncoder encoder;
+		
+		private TextEscaper(
+				@NonNull CopyEncoder encoder)
+		{
+			super(OutputStream.nullOutputStream());
+			this.encoder= encoder;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			encoder.writeEscaped((byte)b);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			for (int i= off; i < off + len; i++) {
+				encoder.writeEscaped(b[i]);
+			}
+		}
+		
+		@Override
+		public void flush() {
+		}
+		
+		@Override
+		public void close() {
+		}
+	}
+	
+	private final @NonNull OutputStream stream;
+	private final @NonNull CopyFormat format;
+	
+	private final byte @NonNull [] buffer= new byte[8192];
+	private int position;
+	
+	private final @NonNull FieldBuffer fieldBuffer= new FieldBuffer();
+	private final @NonNull TextEscaper escaper= new TextEscaper(this);
+	
+	private int columns= -1;
+	private int column;
+	private boolean closed;
+	
+	private CopyEncoder(
+			@NonNull OutputStream stream,
+			@NonNull CopyFormat format) throws IOException
+	{
+		this.stream= stream;
+		this.format= format;
+		
+		if (format == CopyFormat.BINARY) {
+			writeRaw(BINARY_SIGNATURE, 0, BINARY_SIGNATURE.length);
+			writeInt32(0);		// Flags
+			writeInt32(0);		// Header extension length
+		}
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create an encoder writing COPY data to a stream.  In binary format the file header is
+	 * written right away.
+	 *
+	 * @param stream					Output stream, closed when the encoder is closed
+	 * @param format					COPY format
+	 * 
+	 * @return							Encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static @NonNull CopyEncoder Create(
+			@NonNull OutputStream stream,
+			@NonNull CopyFormat format) throws IOException
+	{
+		return new CopyEncoder(stream, format);
+	}
+	
+	private void writeRaw(
+			byte @NonNull [] data,
+			int offset,
+			int length) throws IOException
+	{
+		if (length > buffer.length - position) {
+			flushBuffer();
+			if (length > buffer.length) {
+				stream.write(data, offset, length);
+				return;
+			}
+		}
+		
+		System.arraycopy(data, offset, buffer, position, length);
+		position+= length;
+	}
+	
+	private void writeByte(
+			int b) throws IOException
+	{
+		if (position == buffer.length) {
+			flushBuffer();
+		}
+		
+		buffer[position++]= (byte)b;
+	}
+	
+	private void writeInt16(
+			int value) throws IOException
+	{
+		writeByte(value >>> 8);
+		writeByte(value);
+	}
+	
+	private void writeInt32(
+			int value) throws IOException
+	{
+		writeByte(value >>> 24);
+		writeByte(value >>> 16);
+		writeByte(value >>> 8);
+		writeByte(value);
+	}
+	
+	private void writeInt64(
+			long value) throws IOException
+	{
+		writeInt32((int)(value >>> 32));
+		writeInt32((int)value);
+	}
+	
+	private void writeAscii(
+			@NonNull String text) throws IOException
+	{
+		for (int i= 0; i < text.length(); i++) {
+			writeByte(text.charAt(i));
+		}
+	}
+	
+	private void writeEscaped(
+			byte b) throws IOException
+	{
+		switch (b) {
+		case '\\':
+			writeByte('\\');
+			writeByte('\\');
+			break;
+			
+		case '\t':
+			writeByte('\\');
+			writeByte('t');
+			break;
+			
+		case '\n':
+			writeByte('\\');
+			writeByte('n');
+			break;
+			
+		case '\r':
+			writeByte('\\');
+			writeByte('r');
+			break;
+			
+		default:
+			writeByte(b);
+			break;
+		}
+	}
+	
+	private void flushBuffer() throws IOException {
+		if (position > 0) {
+			stream.write(buffer, 0, position);
+			position= 0;
+		}
+	}
+	
+	/**
+	 * beginField
+	 * 
+	 * Count a field against the row and write the separator before it in text format.
+	 */
+	private void beginField() throws IOException {
+		if (columns < 0) {
+			throw new IllegalStateException("Value written outside of a row");
+		} else if (column == columns) {
+			throw new IllegalStateException("More values than the " + columns + " columns of the row");
+		}
+		
+		if ((format == CopyFormat.TEXT) && (column > 0)) {
+			writeByte('\t');
+		}
+		column++;
+	}
+	
+	/**
+	 * beginRow
+	 * 
+	 * Start a row.
+	 *
+	 * @param columns					Number of columns in the row
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder beginRow(
+			int columns) throws IOException
+	{
+		if (closed) {
+			throw new IllegalStateException("Encoder is closed");
+		} else if (this.columns >= 0) {
+			throw new IllegalStateException("Previous row was not ended");
+		} else if ((columns < 1) || (columns > Short.MAX_VALUE)) {
+			throw new IllegalArgumentException("Invalid number of columns " + columns);
+		}
+		
+		this.columns= columns;
+		column= 0;
+		
+		if (format == CopyFormat.BINARY) {
+			writeInt16(columns);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * endRow
+	 * 
+	 * End a row, which must have a value for every column.
+	 *
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder endRow() throws IOException {
+		if (columns < 0) {
+			throw new IllegalStateException("No row to end");
+		} else if (column != columns) {
+			throw new IllegalStateException(
+					"Row has " + column + " values for " + columns + " columns");
+		}
+		
+		if (format == CopyFormat.TEXT) {
+			writeByte('\n');
+		}
+		
+		columns= -1;
+		return this;
+	}
+	
+	/**
+	 * writeNull
+	 * 
+	 * Write a NULL.
+	 *
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeNull() throws IOException {
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			writeRaw(TEXT_NULL, 0, TEXT_NULL.length);
+		} else {
+			writeInt32(-1);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeInteger
+	 * 
+	 * Write an int4 column.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeInteger(
+			int value) throws IOException
+	{
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			writeAscii(Integer.toString(value));
+		} else {
+			writeInt32(4);
+			writeInt32(value);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeLong
+	 * 
+	 * Write an int8 column.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeLong(
+			long value) throws IOException
+	{
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			writeAscii(Long.toString(value));
+		} else {
+			writeInt32(8);
+			writeInt64(value);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeDouble
+	 * 
+	 * Write a float8 column.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeDouble(
+			double value) throws IOException
+	{
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			// Java and Postgres spell NaN and Infinity the same way
+			writeAscii(Double.toString(value));
+		} else {
+			writeInt32(8);
+			writeInt64(Double.doubleToLongBits(value));
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeBoolean
+	 * 
+	 * Write a bool column.
+	 *
+	 * @param value						Value
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeBoolean(
+			boolean value) throws IOException
+	{
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			writeByte(value ? 't' : 'f');
+		} else {
+			writeInt32(1);
+			writeByte(value ? 1 : 0);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeString
+	 * 
+	 * Write a text or varchar column.
+	 *
+	 * @param value						Value, or null for NULL
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeString(
+			@Nullable String value) throws IOException
+	{
+		if (value == null) {
+			return writeNull();
+		}
+		
+		beginField();
+		
+		byte[] encoded= value.getBytes(StandardCharsets.UTF_8);
+		if (format == CopyFormat.TEXT) {
+			escaper.write(encoded, 0, encoded.length);
+		} else {
+			writeInt32(encoded.length);
+			writeRaw(encoded, 0, encoded.length);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeBytes
+	 * 
+	 * Write a bytea column.
+	 *
+	 * @param value						Value, or null for NULL
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeBytes(
+			byte @Nullable [] value) throws IOException
+	{
+		if (value == null) {
+			return writeNull();
+		}
+		
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			// Hex format, with the backslash escaped for COPY
+			writeAscii("\\\\x");
+			for (byte b : value) {
+				writeByte(Character.forDigit((b >> 4) & 0xF, 16));
+				writeByte(Character.forDigit(b & 0xF, 16));
+			}
+		} else {
+			writeInt32(value.length);
+			writeRaw(value, 0, value.length);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeInstant
+	 * 
+	 * Write a timestamptz column.  In binary format the value is truncated to microseconds,
+	 * the precision Postgres keeps.
+	 *
+	 * @param value						Value, or null for NULL
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeInstant(
+			@Nullable Instant value) throws IOException
+	{
+		if (value == null) {
+			return writeNull();
+		}
+		
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			@SuppressWarnings("null")
+			@NonNull String text= DateTimeFormatter.ISO_INSTANT.format(value);
+			writeAscii(text);
+		} else {
+			Duration offset= Duration.between(POSTGRES_EPOCH, value);
+			long micros= Math.addExact(
+					Math.multiplyExact(offset.getSeconds(), 1_000_000L),
+					offset.getNano() / 1000);
+			
+			writeInt32(8);
+			writeInt64(micros);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * writeComposite
+	 * 
+	 * Write a composite as JSON into a json or jsonb column - jsonb in binary format.  The
+	 * JSON is written from the composite's backing tree directly into the COPY data.
+	 *
+	 * @param value						Value, or null for NULL
+	 * 
+	 * @return							This encoder
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public @NonNull CopyEncoder writeComposite(
+			@Nullable Composite value) throws IOException
+	{
+		if (value == null) {
+			return writeNull();
+		}
+		
+		beginField();
+		
+		if (format == CopyFormat.TEXT) {
+			value.writeTo(escaper, Format.JSON);
+		} else {
+			// The length comes first, so the value goes through the reused field buffer
+			fieldBuffer.reset();
+			fieldBuffer.write(JSONB_VERSION);
+			value.writeTo(fieldBuffer, Format.JSON);
+			fieldBuffer.copyTo(this);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * flush
+	 * 
+	 * Send buffered rows to the output.
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public void flush() throws IOException {
+		flushBuffer();
+		stream.flush();
+	}
+	
+	/**
+	 * close
+	 * 
+	 * Finish the COPY data and close the output.  Throws IOException if a row was left
+	 * incomplete.
+	 * 
+	 * @throws IOException				Error writing output, or incomplete row
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed= true;
+		
+		try {
+			if (columns >= 0) {
+				throw new IOException("COPY data closed in the middle of a row");
+			}
+			
+			if (format == CopyFormat.BINARY) {
+				writeInt16(-1);
+			}
+			
+			flushBuffer();
+		} finally {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.jdbc;
+
+/**
+ * CopyFormat
+ * 
+ * Formats of PostgreSQL COPY data a CopyEncoder can produce.  The same format has to be
+ * given in the COPY statement.
+ */
+public enum CopyFormat {
+	/**
+	 * Tab-separated text, the default for COPY
+	 */
+	TEXT,
+	
+	/**
+	 * Binary format, selected with FORMAT binary
+	 */
+	BINARY
+}
@@ -0,0 +1,275 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.jdbc;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonComposite;
+
+/**
+ * JsonColumnDecoder
+ * 
+ * Reads a JSON or JSONB column from every row of a result set and parses the values on an
+ * executor, so that parsing one row overlaps with fetching the next ones.  Rows come back in
+ * result set order, and it works like a cursor - call next() and then getComposite() and
+ * getValue() for each row.
+ * 
+ * Only the calling thread touches the result set.  Each call to next() reads ahead until a
+ * fixed number of rows are waiting to be parsed or handed back, so memory stays bounded when
+ * parsing falls behind or the caller stops to do its own work.  Because the result set runs
+ * ahead of the rows being handed back, anything else the caller needs from a row has to be
+ * read by a RowReader when the row is fetched.
+ * 
+ * Closing the decoder drops any rows read ahead, but doesn't close the result set.
+ *
+ * @param <T>							Type of the value read from each row along with the column
+ */
+public final class JsonColumnDecoder<T> implements Closeable {
+	/**
+	 * RowReader
+	 * 
+	 * Reads whatever the caller needs from a row besides the JSON column, while the result
+	 * set is still on that row.
+	 *
+	 * @param <T>						Type of value read
+	 */
+	public interface RowReader<T> {
+		/**
+		 * read
+		 * 
+		 * @param resultSet				Result set positioned on the row
+		 * 
+		 * @return						Value for the row
+		 * 
+		 * @throws SQLException			Unable to read the row
+		 */
+		public T read(
+				@NonNull ResultSet resultSet) throws SQLException;
+	}
+	
+	private static final class Pending<T> {
+		private final T value;
+		
+		// Null for a NULL column, which doesn't need parsing
+		private final @Nullable CompletableFuture<Composite> composite;
+		
+		private Pending(
+				T value,
+				@Nullable CompletableFuture<Composite> composite)
+		{
+			this.value= value;
+			this.composite= composite;
+		}
+	}
+	
+	private static final int DEFAULT_WINDOW= 256;
+	
+	private final @NonNull ResultSet resultSet;
+	private final int column;
+	private final @Nullable RowReader<T> rowReader;
+	private final @NonNull TimeZone timezone;
+	private final @NonNull Executor executor;
+	private final int window;
+	
+	private final @NonNull ArrayDeque<Pending<T>> pending;
+	private boolean exhausted;
+	
+	private @Nullable Composite currentComposite;
+	private @Nullable T currentValue;
+	
+	private JsonColumnDecoder(
+			@NonNull ResultSet resultSet,
+			int column,
+			@Nullable RowReader<T> rowReader,
+			@NonNull TimeZone timezone,
+			@NonNull Executor executor,
+			int window)
+	{
+		if (window < 1) {
+			throw new IllegalArgumentException("Decoder window must be positive");
+		}
+		
+		this.resultSet= resultSet;
+		this.column= column;
+		this.rowReader= rowReader;
+		this.timezone= timezone;
+		this.executor= executor;
+		this.window= window;
+		
+		pending= new ArrayDeque<>(window);
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a decoder that also reads a value from each row with a row reader.
+	 *
+	 * @param resultSet					Result set, positioned before the first row to decode
+	 * @param column					JSON column number, starting from 1
+	 * @param rowReader					Reader for the rest of each row
+	 * @param timezone					Timezone for interpretation
+	 * @param executor					Executor to parse on
+	 * @param window					Most rows read ahead of the caller
+	 * 
+	 * @return							Decoder
+	 */
+	public static <T> @NonNull JsonColumnDecoder<T> Create(
+			@NonNull ResultSet resultSet,
+			int column,
+			@NonNull RowReader<T> rowReader,
+			@NonNull TimeZone timezone,
+			@NonNull Executor executor,
+			int window)
+	{
+		return new JsonColumnDecoder<>(resultSet, column, rowReader, timezone, executor, window);
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a decoder for a column alone, parsing on the common fork-join pool with the
+	 * default read-ahead.
+	 *
+	 * @param resultSet					Result set, positioned before the first row to decode
+	 * @param column					JSON column number, starting from 1
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							Decoder
+	 */
+	public static @NonNull JsonColumnDecoder<Void> Create(
+			@NonNull ResultSet resultSet,
+			int column,
+			@NonNull TimeZone timezone)
+	{
+		@SuppressWarnings("null")
+		@NonNull Executor executor= ForkJoinPool.commonPool();
+		
+		return new JsonColumnDecoder<>(resultSet, column, null, timezone, executor, DEFAULT_WINDOW);
+	}
+	
+	/**
+	 * next
+	 * 
+	 * Move to the next row, reading ahead in the result set as far as the window allows and
+	 * waiting for the row to be parsed.
+	 *
+	 * @return							Whether there was another row
+	 * 
+	 * @throws SQLException				Unable to read the result set
+	 * @throws ParseException			Column of the row does not contain valid JSON
+	 * @throws WrongTypeException		Column of the row does not contain a JSON object
+	 */
+	public boolean next() throws SQLException, ParseException, WrongTypeException {
+		currentComposite= null;
+		currentValue= null;
+		
+		while (!exhausted && (pending.size() < window)) {
+			if (!resultSet.next()) {
+				exhausted= true;
+				break;
+			}
+			
+			T value= (rowReader == null) ? null : rowReader.read(resultSet);
+			
+			String text= resultSet.getString(column);
+			if ((text == null) || text.equals("null")) {
+				pending.add(new Pending<>(value, null));
+			} else {
+				pending.add(new Pending<>(value,
+						CompletableFuture.supplyAsync(() -> parse(text), executor)));
+			}
+		}
+		
+		Pending<T> head= pending.poll();
+		if (head == null) {
+			return false;
+		}
+		
+		currentValue= head.value;
+		if (head.composite != null) {
+			try {
+				currentComposite= head.composite.join();
+			} catch (CompletionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof ParseException) {
+					throw (ParseException)cause;
+				} else if (cause instanceof WrongTypeException) {
+					throw (WrongTypeException)cause;
+				}
+				
+				throw e;
+			}
+		}
+		
+		return true;
+	}
+	
+	private @NonNull Composite parse(
+			@NonNull String text)
+	{
+		try {
+			return JsonComposite.Parse(text, timezone);
+		} catch (ParseException | WrongTypeException e) {
+			throw new CompletionException(e);
+		}
+	}
+	
+	/**
+	 * getComposite
+	 * 
+	 * @return							Parsed column of the current row, or null if it was NULL
+	 */
+	public @Nullable Composite getComposite() {
+		return currentComposite;
+	}
+	
+	/**
+	 * getValue
+	 * 
+	 * @return							Value the row reader read from the current row
+	 */
+	public @Nullable T getValue() {
+		return currentValue;
+	}
+	
+	@Override
+	public void close() {
+		for (Pending<T> dropped : pending) {
+			if (dropped.composite != null) {
+				dropped.composite.cancel(false);
+			}
+		}
+		
+		pending.clear();
+		exhausted= true;
+	}
+}
@@ -0,0 +1,305 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.postgresql.util.PGobject;
+
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositePath;
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonComposite;
+
+/**
+ * JsonbProjection
+ * 
+ * A SQL expression that selects only some paths out of a jsonb column, so a query reading a
+ * few fields of a large document doesn't transfer and parse the whole thing.  The expression
+ * rebuilds the same nesting around the selected values, so the composite read back answers
+ * the declared paths exactly as the full document would - a missing value is still missing,
+ * and a value of the wrong type, at the end of a path or along the way, is still the wrong
+ * type.  Other members are not included.
+ * 
+ * Array elements can't be picked out without changing their positions, so a path going
+ * through an array selects the whole array - for items[2].name, the items array.
+ * 
+ * Paths are written into the SQL as quoted literals, so the expression can be built once and
+ * kept in a static field.  The column is inserted as is.
+ * 
+ *   SELECT id, [expression] AS document FROM item
+ */
+public final class JsonbProjection {
+	// jsonb_build_object takes at most 100 arguments
+	private static final int MEMBERS_PER_CALL= 50;
+	
+	private static final class Node {
+		// Selected as a whole, so members below don't matter
+		private boolean whole;
+		
+		private final @NonNull Map<String, Node> members= new LinkedHashMap<>();
+	}
+	
+	private final @NonNull String expression;
+	
+	private JsonbProjection(
+			@NonNull String expression)
+	{
+		this.expression= expression;
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a projection of compiled paths.
+	 *
+	 * @param column					Column or expression holding the document, inserted
+	 * 									into the SQL as is
+	 * @param paths						Paths to select
+	 * 
+	 * @return							Projection
+	 */
+	public static @NonNull JsonbProjection Create(
+			@NonNull String column,
+			@NonNull CompositePath @NonNull ... paths)
+	{
+		if (paths.length == 0) {
+			throw new IllegalArgumentException("A projection needs at least one path");
+		}
+		
+		Node root= new Node();
+		for (CompositePath path : paths) {
+			Node node= root;
+			for (int segment= 0; segment < path.size(); segment++) {
+				String name= path.getName(segment);
+				if (name == null) {
+					break;
+				}
+				
+				node= node.members.computeIfAbsent(name, key -> new Node());
+				if (node.whole) {
+					break;
+				}
+				
+				if ((segment + 1 == path.size()) || path.isIndex(segment + 1)) {
+					node.whole= true;
+					node.members.clear();
+				}
+			}
+		}
+		
+		StringBuilder sql= new StringBuilder();
+		appendNode(sql, column, new ArrayList<>(), root);
+		
+		@SuppressWarnings("null")
+		@NonNull String expression= sql.toString();
+		return new JsonbProjection(expression);
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a projection of path expressions such as car.doors[3].latch.
+	 *
+	 * @param column					Column or expression holding the document, inserted
+	 * 									into the SQL as is
+	 * @param paths						Path expressions to select
+	 * 
+	 * @return							Projection
+	 */
+	public static @NonNull JsonbProjection Create(
+			@NonNull String column,
+			@NonNull String @NonNull ... paths)
+	{
+		@NonNull CompositePath[] compiled= new @NonNull CompositePath[paths.length];
+		for (int i= 0; i < paths.length; i++) {
+			compiled[i]= CompositePath.Compile(paths[i]);
+		}
+		
+		return Create(column, compiled);
+	}
+	
+	/**
+	 * appendNode
+	 * 
+	 * Write the expression for an object on the path, which is only rebuilt if the document
+	 * really has an object there - otherwise the value itself comes through, so that NULL
+	 * stays missing and anything else stays the wrong type.
+	 */
+	private static void appendNode(
+			@NonNull StringBuilder sql,
+			@NonNull String column,
+			@NonNull List<@NonNull String> path,
+			@NonNull Node node)
+	{
+		sql.append("CASE WHEN jsonb_typeof(");
+		appendValue(sql, column, path);
+		sql.append(")='object' THEN ");
+		
+		int count= 0;
+		for (Map.Entry<String, Node> entry : node.members.entrySet()) {
+			if (count % MEMBERS_PER_CALL == 0) {
+				sql.append((count == 0) ? "jsonb_build_object(" : ")||jsonb_build_object(");
+			} else {
+				sql.append(',');
+			}
+			count++;
+			
+			@SuppressWarnings("null")
+			@NonNull String name= entry.getKey();
+			appendLiteral(sql, name);
+			sql.append(',');
+			
+			path.add(name);
+			Node member= entry.getValue();
+			if (member.whole) {
+				appendValue(sql, column, path);
+			} else {
+				appendNode(sql, column, path, member);
+			}
+			path.remove(path.size() - 1);
+		}
+		
+		sql.append(") ELSE ");
+		appendValue(sql, column, path);
+		sql.append(" END");
+	}
+	
+	private static void appendValue(
+			@NonNull StringBuilder sql,
+			@NonNull String column,
+			@NonNull List<@NonNull String> path)
+	{
+		if (path.isEmpty()) {
+			sql.append(column);
+		} else if (path.size() == 1) {
+			sql.append('(').append(column).append("->");
+			appendLiteral(sql, path.get(0));
+			sql.append(')');
+		} else {
+			// Text array literal inside a string literal, with each element quoted
+			StringBuilder array= new StringBuilder("{");
+			for (int i= 0; i < path.size(); i++) {
+				if (i > 0) {
+					array.append(',');
+				}
+				
+				array.append('"');
+				String segment= path.get(i);
+				for (int j= 0; j < segment.length(); j++) {
+					char c= segment.charAt(j);
+					if ((c == '"') || (c == '\\')) {
+						array.append('\\');
+					}
+					array.append(c);
+				}
+				array.append('"');
+			}
+			array.append('}');
+			
+			sql.append('(').append(column).append("#>");
+			
+			@SuppressWarnings("null")
+			@NonNull String literal= array.toString();
+			appendLiteral(sql, literal);
+			sql.append(')');
+		}
+	}
+	
+	private static void appendLiteral(
+			@NonNull StringBuilder sql,
+			@NonNull String text)
+	{
+		// Standard-conforming strings, so only quotes need doubling
+		sql.append('\'');
+		for (int i= 0; i < text.length(); i++) {
+			char c= text.charAt(i);
+			if (c == '\'') {
+				sql.append('\'');
+			}
+			sql.append(c);
+		}
+		sql.append('\'');
+	}
+	
+	/**
+	 * getExpression
+	 * 
+	 * @return							SQL expression giving the projected jsonb
+	 */
+	public @NonNull String getExpression() {
+		return expression;
+	}
+	
+	/**
+	 * read
+	 * 
+	 * Read the projected document from a result set column, streaming it into the parser.
+	 *
+	 * @param resultSet					Result set positioned on a row
+	 * @param column					Column number of the projection, starting from 1
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							Projected document, or null if the column was NULL
+	 * 
+	 * @throws SQLException				Unable to read the column
+	 * @throws ParseException			Column does not contain valid JSON
+	 * @throws WrongTypeException		Document is not an object
+	 */
+	public @Nullable Composite read(
+			@NonNull ResultSet resultSet,
+			int column,
+			@NonNull TimeZone timezone) throws SQLException, ParseException, WrongTypeException
+	{
+		return JsonComposite.Parse(resultSet, column, timezone);
+	}
+	
+	/**
+	 * read
+	 * 
+	 * Read the projected document from the PGobject returned by getObject().
+	 *
+	 * @param pgObject					Object from JDBC getObject()
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							Projected document, or null if the column was NULL
+	 * 
+	 * @throws ParseException			Column does not contain valid JSON
+	 * @throws WrongTypeException		Document is not an object
+	 */
+	public @Nullable Composite read(
+			@Nullable PGobject pgObject,
+			@NonNull TimeZone timezone) throws ParseException, WrongTypeException
+	{
+		return JsonComposite.ParseObject(pgObject, timezone);
+	}
+	
+	@Override
+	public @NonNull String toString() {
+		return expression;
+	}
+}
@@ -0,0 +1,286 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.postgresql.util.PGobject;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositeDiff;
+import com.teaglu.composite.exception.UnsupportedSerializationException;
+
+/**
+ * JsonbUpdate
+ * 
+ * A parameterized SQL expression that applies the changes between two composites to a jsonb
+ * column in place, so an UPDATE only sends the parts that changed instead of the whole
+ * document.
+ * 
+ * Changes to top-level members are merged into one object and applied with ||, changes
+ * further down use jsonb_set, and removals use #-.  Paths are passed as text[] parameters and
+ * values as jsonb PGobject parameters, so nothing from the documents is put into the SQL
+ * text.  The expression goes wherever the new value is wanted:
+ * 
+ *   UPDATE item SET document= [expression] WHERE id= ?
+ * 
+ * Like the functions it uses, the expression gives NULL if the column is NULL.
+ */
+public final class JsonbUpdate {
+	private final @NonNull String expression;
+	private final @NonNull List<@NonNull Object> parameters;
+	
+	private JsonbUpdate(
+			@NonNull String expression,
+			@NonNull List<@NonNull Object> parameters)
+	{
+		this.expression= expression;
+		this.parameters= parameters;
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create an update from the changes of a diff.
+	 *
+	 * @param column					Column or expression holding the original document,
+	 * 									inserted into the SQL as is
+	 * @param diff						Changes to apply
+	 * 
+	 * @return							Update expression
+	 * 
+	 * @throws SQLException				Unable to create a jsonb parameter
+	 */
+	public static @NonNull JsonbUpdate Create(
+			@NonNull String column,
+			@NonNull CompositeDiff diff) throws SQLException
+	{
+		StringBuilder sql= new StringBuilder(column);
+		List<@NonNull Object> parameters= new ArrayList<>();
+		
+		// Top-level adds and replaces touch distinct members that nothing else in the diff
+		// touches, so they can all go in one merge ahead of the rest
+		JsonObject merge= new JsonObject();
+		for (CompositeDiff.Change change : diff.getChanges()) {
+			JsonElement value= change.getValue();
+			List<@NonNull String> path= parsePointer(change.getPath());
+			
+			if ((value != null) && (path.size() == 1)) {
+				merge.add(path.get(0), value);
+			}
+		}
+		
+		if (merge.size() > 0) {
+			sql.insert(0, '(').append(" || ?)");
+			parameters.add(jsonb(merge));
+		}
+		
+		for (CompositeDiff.Change change : diff.getChanges()) {
+			JsonElement value= change.getValue();
+			List<@NonNull String> path= parsePointer(change.getPath());
+			
+			if (value == null) {
+				sql.insert(0, '(').append(" #- ?::text[])");
+				parameters.add(arrayLiteral(path));
+			} else if (path.isEmpty()) {
+				// Replacing the whole document
+				sql.setLength(0);
+				sql.append('?');
+				parameters.clear();
+				parameters.add(jsonb(value));
+			} else if (path.size() > 1) {
+				sql.insert(0, "jsonb_set(").append(", ?::text[], ?, true)");
+				parameters.add(arrayLiteral(path));
+				parameters.add(jsonb(value));
+			}
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull String expression= sql.toString();
+		
+		@SuppressWarnings("null")
+		@NonNull List<@NonNull Object> readOnly= Collections.unmodifiableList(parameters);
+		
+		return new JsonbUpdate(expression, readOnly);
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create an update that turns one composite into another.
+	 *
+	 * @param column					Column or expression holding the original document,
+	 * 									inserted into the SQL as is
+	 * @param before					Document as stored
+	 * @param after						Document as it should be
+	 * 
+	 * @return							Update expression
+	 * 
+	 * @throws SQLException				Unable to create a jsonb parameter
+	 * @throws UnsupportedSerializationException	A composite doesn't expose a tree to compare
+	 */
+	public static @NonNull JsonbUpdate Create(
+			@NonNull String column,
+			@NonNull Composite before,
+			@NonNull Composite after) throws SQLException, UnsupportedSerializationException
+	{
+		return Create(column, CompositeDiff.between(before, after));
+	}
+	
+	private static @NonNull PGobject jsonb(
+			@NonNull JsonElement value) throws SQLException
+	{
+		PGobject rval= new PGobject();
+		rval.setType("jsonb");
+		rval.setValue(value.toString());
+		
+		return rval;
+	}
+	
+	/**
+	 * parsePointer
+	 * 
+	 * Split an RFC 6901 JSON Pointer into its unescaped segments.
+	 */
+	private static @NonNull List<@NonNull String> parsePointer(
+			@NonNull String pointer)
+	{
+		List<@NonNull String> rval= new ArrayList<>();
+		if (pointer.isEmpty()) {
+			return rval;
+		}
+		
+		StringBuilder segment= new StringBuilder();
+		int length= pointer.length();
+		
+		// The pointer starts with a slash, which the first pass through the loop consumes
+		for (int i= 1; i <= length; i++) {
+			char c= (i < length) ? pointer.charAt(i) : '/';
+			if (c == '/') {
+				@SuppressWarnings("null")
+				@NonNull String name= segment.toString();
+				rval.add(name);
+				segment.setLength(0);
+			} else if ((c == '~') && (i + 1 < length)) {
+				segment.append((pointer.charAt(++i) == '1') ? '/' : '~');
+			} else {
+				segment.append(c);
+			}
+		}
+		
+		return rval;
+	}
+	
+	/**
+	 * arrayLiteral
+	 * 
+	 * Write path segments as a Postgres array literal, with every element quoted.
+	 */
+	private static @NonNull String arrayLiteral(
+			@NonNull List<@NonNull String> path)
+	{
+		StringBuilder rval= new StringBuilder("{");
+		for (int i= 0; i < path.size(); i++) {
+			if (i > 0) {
+				rval.append(',');
+			}
+			
+			rval.append('"');
+			String segment= path.get(i);
+			for (int j= 0; j < segment.length(); j++) {
+				char c= segment.charAt(j);
+				if ((c == '"') || (c == '\\')) {
+					rval.append('\\');
+				}
+				rval.append(c);
+			}
+			rval.append('"');
+		}
+		rval.append('}');
+		
+		@SuppressWarnings("null")
+		@NonNull String literal= rval.toString();
+		return literal;
+	}
+	
+	/**
+	 * isEmpty
+	 * 
+	 * @return							Whether there are no changes, so the expression is just
+	 * 									the column
+	 */
+	public boolean isEmpty() {
+		return parameters.isEmpty();
+	}
+	
+	/**
+	 * getExpression
+	 * 
+	 * @return							SQL expression with a ? for each parameter
+	 */
+	public @NonNull String getExpression() {
+		return expression;
+	}
+	
+	/**
+	 * getParameters
+	 * 
+	 * @return							Parameters in the order of the placeholders - text[]
+	 * 									literals as strings and jsonb values as PGobjects
+	 */
+	public @NonNull List<@NonNull Object> getParameters() {
+		return parameters;
+	}
+	
+	/**
+	 * bind
+	 * 
+	 * Set the parameters on a statement whose SQL contains the expression.
+	 *
+	 * @param statement					Prepared statement
+	 * @param firstIndex				Index of the first placeholder of the expression
+	 * 
+	 * @return							Index of the placeholder after the expression
+	 * 
+	 * @throws SQLException				Unable to set a parameter
+	 */
+	public int bind(
+			@NonNull PreparedStatement statement,
+			int firstIndex) throws SQLException
+	{
+		int index= firstIndex;
+		for (Object parameter : parameters) {
+			statement.setObject(index++, parameter);
+		}
+		
+		return index;
+	}
+	
+	@Override
+	public @NonNull String toString() {
+		return expression;
+	}
+}
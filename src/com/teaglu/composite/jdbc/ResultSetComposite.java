@@ -0,0 +1,1429 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.jdbc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonObject;
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositeKey;
+import com.teaglu.composite.CompositePath;
+import com.teaglu.composite.ContentHash;
+import com.teaglu.composite.Format;
+import com.teaglu.composite.convert.ContentHasher;
+import com.teaglu.composite.convert.DateTimeParser;
+import com.teaglu.composite.convert.DecodedNumber;
+import com.teaglu.composite.convert.TreeConverter;
+import com.teaglu.composite.convert.TreeWriter;
+import com.teaglu.composite.exception.FormatException;
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.SourceException;
+import com.teaglu.composite.exception.UnsupportedSerializationException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonComposite;
+
+/**
+ * ResultSetComposite
+ * 
+ * A view of the current row of a JDBC result set as a composite, without copying the row
+ * into a map.  Members are the column labels, and a SQL NULL is the same as a missing value.
+ * Create one view when the query returns and read through it after each call to next().
+ * 
+ * The column labels and types are looked up once when the view is created, so an accessor
+ * is a hash probe followed by the matching typed getter - getInt() for an integer column,
+ * getTimestamp() for a timestamp, and so on.  Type mismatches are reported the same way as
+ * for the other composites, and timestamps without a zone are read in the timezone of the
+ * view.
+ * 
+ * JSON and JSONB columns are parsed the first time they're read on a row, streaming from the
+ * driver the same way as JsonComposite.Parse, and nested paths such as payload.items[0].name
+ * go through the parsed value.  The parse is remembered until the result set moves to a
+ * different row, going by getRow() - a driver that can't report the row number parses the
+ * column again on every read.
+ * 
+ * Like the result set itself, a view is meant to be used from one thread.  A failure
+ * reported by the driver while reading a value is thrown as an unchecked SourceException.
+ */
+public final class ResultSetComposite implements Composite {
+	private enum Kind {
+		INTEGER,
+		BIGINT,
+		DECIMAL,
+		FLOAT,
+		BOOLEAN,
+		STRING,
+		DATE,
+		TIMESTAMP,
+		TIMESTAMP_ZONED,
+		JSON,
+		ARRAY,
+		BINARY
+	}
+	
+	private static final class Column {
+		private final int index;
+		private final @NonNull String label;
+		private final @NonNull Kind kind;
+		
+		// Row the column was last parsed on and the composite parsed from it
+		private int jsonRow;
+		private @Nullable Composite jsonValue;
+		
+		private Column(
+				int index,
+				@NonNull String label,
+				@NonNull Kind kind)
+		{
+			this.index= index;
+			this.label= label;
+			this.kind= kind;
+		}
+	}
+	
+	private final @NonNull ResultSet resultSet;
+	private final @NonNull TimeZone timezone;
+	private final @NonNull ZoneId zone;
+	private final @NonNull Calendar calendar;
+	
+	private final @NonNull Column @NonNull [] columns;
+	private final @NonNull Map<String, Column> columnsByLabel;
+	
+	private ResultSetComposite(
+			@NonNull ResultSet resultSet,
+			@NonNull TimeZone timezone) throws SQLException
+	{
+		this.resultSet= resultSet;
+		this.timezone= timezone;
+		
+		@SuppressWarnings("null")
+		@NonNull ZoneId tmpZone= timezone.toZoneId();
+		this.zone= tmpZone;
+		
+		@SuppressWarnings("null")
+		@NonNull Calendar tmpCalendar= Calendar.getInstance(timezone);
+		this.calendar= tmpCalendar;
+		
+		ResultSetMetaData metadata= resultSet.getMetaData();
+		int count= metadata.getColumnCount();
+		
+		columns= new Column[count];
+		columnsByLabel= new HashMap<>(count * 2);
+		
+		for (int i= 0; i < count; i++) {
+			@SuppressWarnings("null")
+			@NonNull String label= metadata.getColumnLabel(i + 1);
+			
+			Column column= new Column(i + 1, label,
+					kindOf(metadata.getColumnType(i + 1), metadata.getColumnTypeName(i + 1)));
+			
+			columns[i]= column;
+			
+			// Like a map built from the row, a repeated label refers to the first column
+			columnsByLabel.putIfAbsent(label, column);
+		}
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a view of the current row of a result set.  The view follows the result set as
+	 * it moves, so one view serves every row.
+	 *
+	 * @param resultSet					Result set
+	 * @param timezone					Timezone for timestamps without a zone
+	 * 
+	 * @return							Row view
+	 * 
+	 * @throws SQLException				Unable to read the result set metadata
+	 */
+	public static @NonNull Composite Create(
+			@NonNull ResultSet resultSet,
+			@NonNull TimeZone timezone) throws SQLException
+	{
+		return new ResultSetComposite(resultSet, timezone);
+	}
+	
+	private static @NonNull Kind kindOf(
+			int sqlType,
+			@Nullable String typeName)
+	{
+		switch (sqlType) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return Kind.INTEGER;
+			
+		case Types.BIGINT:
+			return Kind.BIGINT;
+			
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			return Kind.DECIMAL;
+			
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return Kind.FLOAT;
+			
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return Kind.BOOLEAN;
+			
+		case Types.DATE:
+			return Kind.DATE;
+			
+		case Types.TIMESTAMP:
+			// The Postgres driver reports timestamptz as TIMESTAMP, so go by the name
+			return "timestamptz".equalsIgnoreCase(typeName) ? Kind.TIMESTAMP_ZONED : Kind.TIMESTAMP;
+			
+		case Types.TIMESTAMP_WITH_TIMEZONE:
+			return Kind.TIMESTAMP_ZONED;
+			
+		case Types.ARRAY:
+			return Kind.ARRAY;
+			
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+			return Kind.BINARY;
+			
+		default:
+			// Postgres reports json and jsonb as OTHER, along with uuid and enums which read
+			// fine as strings
+			if ("json".equalsIgnoreCase(typeName) || "jsonb".equalsIgnoreCase(typeName)) {
+				return Kind.JSON;
+			}
+			
+			return Kind.STRING;
+		}
+	}
+	
+	private @NonNull SourceException sourceException(
+			@NonNull Column column,
+			@NonNull SQLException cause)
+	{
+		return new SourceException("Unable to read column " + column.label, cause);
+	}
+	
+	/**
+	 * json
+	 * 
+	 * Parse a JSON column into a composite holding the value under the column label, so
+	 * that the accessors and paths of the JSON composite apply to it unchanged - a NULL
+	 * column reads as a missing member.
+	 */
+	private @NonNull Composite json(
+			@NonNull Column column) throws WrongTypeException
+	{
+		try {
+			// Zero means no row number is available, so nothing can be reused
+			int row= resultSet.getRow();
+			
+			Composite rval= column.jsonValue;
+			if ((rval == null) || (row == 0) || (row != column.jsonRow)) {
+				rval= JsonComposite.ParseColumn(resultSet, column.index, column.label, timezone);
+				column.jsonRow= row;
+				column.jsonValue= rval;
+			}
+			
+			return rval;
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		} catch (ParseException e) {
+			throw new WrongTypeException(column.label, "JSON");
+		}
+	}
+	
+	/**
+	 * number
+	 * 
+	 * Read a numeric column as whatever Number the kind calls for, or null for SQL NULL.
+	 */
+	private @Nullable Number number(
+			@NonNull Column column) throws WrongTypeException, SQLException
+	{
+		Number rval;
+		switch (column.kind) {
+		case INTEGER:
+			rval= resultSet.getInt(column.index);
+			break;
+			
+		case BIGINT:
+			rval= resultSet.getLong(column.index);
+			break;
+			
+		case DECIMAL:
+			return resultSet.getBigDecimal(column.index);
+			
+		case FLOAT:
+			rval= resultSet.getDouble(column.index);
+			break;
+			
+		default:
+			throw new WrongTypeException(column.label, "number");
+		}
+		
+		return resultSet.wasNull() ? null : rval;
+	}
+	
+	private @NonNull DecodedNumber decode(
+			@NonNull Column column,
+			@NonNull Number value,
+			@NonNull String typeName) throws WrongTypeException
+	{
+		try {
+			return DecodedNumber.of(value);
+		} catch (NumberFormatException e) {
+			throw new WrongTypeException(column.label, typeName);
+		}
+	}
+	
+	@Override
+	public int getRequiredInteger(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Integer value= getOptionalInteger(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public long getRequiredLong(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Long value= getOptionalLong(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public double getRequiredDouble(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Double value= getOptionalDouble(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull BigDecimal getRequiredBigDecimal(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		BigDecimal value= getOptionalBigDecimal(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull BigInteger getRequiredBigInteger(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		BigInteger value= getOptionalBigInteger(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		String value= getOptionalString(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Boolean value= getOptionalBoolean(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull LocalDate getRequiredLocalDate(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		LocalDate value= getOptionalLocalDate(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull Timestamp getRequiredTimestamp(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		Timestamp value= getOptionalTimestamp(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull Instant getRequiredInstant(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		Instant value= getOptionalInstant(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull OffsetDateTime getRequiredOffsetDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		OffsetDateTime value= getOptionalOffsetDateTime(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull LocalDateTime getRequiredLocalDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		LocalDateTime value= getOptionalLocalDateTime(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Composite value= getOptionalObject(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull Iterable<@NonNull Composite> getRequiredObjectArray(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Iterable<@NonNull Composite> value= getOptionalObjectArray(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull Iterable<@NonNull String> getRequiredStringArray(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Iterable<@NonNull String> value= getOptionalStringArray(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public @NonNull Iterable<@NonNull Integer> getRequiredIntegerArray(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		Iterable<@NonNull Integer> value= getOptionalIntegerArray(name);
+		if (value == null) {
+			throw new MissingValueException(name);
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalInteger(column.label);
+		}
+		
+		try {
+			if (column.kind == Kind.INTEGER) {
+				int value= resultSet.getInt(column.index);
+				return resultSet.wasNull() ? null : value;
+			}
+			
+			Number value= number(column);
+			if (value == null) {
+				return null;
+			}
+			
+			DecodedNumber decoded= decode(column, value, "integer");
+			if (!decoded.isExactInteger()) {
+				throw new WrongTypeException(column.label, "integer");
+			}
+			
+			return (int)decoded.longValue();
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public Long getOptionalLong(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalLong(column.label);
+		}
+		
+		try {
+			if ((column.kind == Kind.INTEGER) || (column.kind == Kind.BIGINT)) {
+				long value= resultSet.getLong(column.index);
+				return resultSet.wasNull() ? null : value;
+			}
+			
+			Number value= number(column);
+			if (value == null) {
+				return null;
+			}
+			
+			DecodedNumber decoded= decode(column, value, "integer");
+			if (!decoded.isExactLong()) {
+				throw new WrongTypeException(column.label, "integer");
+			}
+			
+			return decoded.longValue();
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public Double getOptionalDouble(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalDouble(column.label);
+		}
+		
+		try {
+			switch (column.kind) {
+			case INTEGER:
+			case BIGINT:
+			case DECIMAL:
+			case FLOAT:
+				double value= resultSet.getDouble(column.index);
+				return resultSet.wasNull() ? null : value;
+				
+			default:
+				throw new WrongTypeException(column.label, "number");
+			}
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public BigDecimal getOptionalBigDecimal(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalBigDecimal(column.label);
+		}
+		
+		try {
+			Number value= number(column);
+			if (value == null) {
+				return null;
+			} else if (value instanceof BigDecimal) {
+				return (BigDecimal)value;
+			}
+			
+			try {
+				return decode(column, value, "decimal").toBigDecimal();
+			} catch (NumberFormatException e) {
+				throw new WrongTypeException(column.label, "decimal");
+			}
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public BigInteger getOptionalBigInteger(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalBigInteger(column.label);
+		}
+		
+		try {
+			Number value= number(column);
+			if (value == null) {
+				return null;
+			}
+			
+			try {
+				return decode(column, value, "integer").toBigInteger();
+			} catch (ArithmeticException e) {
+				throw new WrongTypeException(column.label, "integer");
+			}
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public String getOptionalString(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalString(column.label);
+		} else if (column.kind != Kind.STRING) {
+			throw new WrongTypeException(column.label, "string");
+		}
+		
+		try {
+			return resultSet.getString(column.index);
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalBoolean(column.label);
+		}
+		
+		try {
+			if (column.kind == Kind.BOOLEAN) {
+				boolean value= resultSet.getBoolean(column.index);
+				return resultSet.wasNull() ? null : value;
+			} else if (column.kind != Kind.STRING) {
+				throw new WrongTypeException(column.label, "boolean");
+			}
+			
+			String value= resultSet.getString(column.index);
+			if (value == null) {
+				return null;
+			}
+			
+			switch (value) {
+			case "0":
+			case "false":
+			case "no":
+				return false;
+				
+			case "1":
+			case "true":
+			case "yes":
+				return true;
+				
+			default:
+				throw new WrongTypeException(column.label, "boolean");
+			}
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public boolean getOptionalBoolean(
+			@NonNull String name,
+			boolean defaultVal) throws WrongTypeException
+	{
+		Boolean value= getOptionalBoolean(name);
+		if (value == null) {
+			return defaultVal;
+		} else {
+			return value;
+		}
+	}
+	
+	/**
+	 * getOptionalTemporal
+	 * 
+	 * Common code for the date and time accessors on columns that aren't JSON.  Date and
+	 * timestamp columns are converted through the timezone of the view, strings are parsed,
+	 * and integers are taken as milliseconds since the epoch for the types that represent a
+	 * point in time.
+	 */
+	private <T> @Nullable T getOptionalTemporal(
+			@NonNull Column column,
+			@NonNull Class<T> type,
+			@NonNull String typeName) throws WrongTypeException, FormatException, SQLException
+	{
+		ZonedDateTime zoned;
+		
+		switch (column.kind) {
+		case DATE:
+			LocalDate date= resultSet.getObject(column.index, LocalDate.class);
+			if ((date == null) || (type == LocalDate.class)) {
+				return type.cast(date);
+			}
+			
+			zoned= date.atStartOfDay(zone);
+			break;
+			
+		case TIMESTAMP:
+		case TIMESTAMP_ZONED:
+			Timestamp timestamp= resultSet.getTimestamp(column.index, calendar);
+			if (timestamp == null) {
+				return null;
+			}
+			
+			zoned= timestamp.toInstant().atZone(zone);
+			break;
+			
+		case STRING:
+			String text= resultSet.getString(column.index);
+			if (text == null) {
+				return null;
+			}
+			
+			try {
+				return DateTimeParser.parse(text, type, zone);
+			} catch (DateTimeException e) {
+				throw new FormatException("Unable to parse " +
+						column.label + " value '" + text + "' to a " + typeName);
+			}
+			
+		case INTEGER:
+		case BIGINT:
+			if (type == LocalDate.class) {
+				throw new WrongTypeException(column.label, typeName);
+			}
+			
+			long millis= resultSet.getLong(column.index);
+			return resultSet.wasNull() ? null : DateTimeParser.fromEpochMillis(millis, type, zone);
+			
+		default:
+			throw new WrongTypeException(column.label, typeName);
+		}
+		
+		Object rval;
+		if (type == Instant.class) {
+			rval= zoned.toInstant();
+		} else if (type == OffsetDateTime.class) {
+			rval= zoned.toOffsetDateTime();
+		} else if (type == LocalDateTime.class) {
+			rval= zoned.toLocalDateTime();
+		} else {
+			rval= zoned.toLocalDate();
+		}
+		
+		return type.cast(rval);
+	}
+	
+	@Override
+	public LocalDate getOptionalLocalDate(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalLocalDate(column.label);
+		}
+		
+		try {
+			return getOptionalTemporal(column, LocalDate.class, "LocalDate");
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public Timestamp getOptionalTimestamp(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalTimestamp(column.label);
+		}
+		
+		try {
+			if ((column.kind == Kind.TIMESTAMP) || (column.kind == Kind.TIMESTAMP_ZONED)) {
+				return resultSet.getTimestamp(column.index, calendar);
+			}
+			
+			Instant instant= getOptionalTemporal(column, Instant.class, "Timestamp");
+			return (instant == null) ? null : Timestamp.from(instant);
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public Instant getOptionalInstant(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalInstant(column.label);
+		}
+		
+		try {
+			return getOptionalTemporal(column, Instant.class, "Instant");
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public OffsetDateTime getOptionalOffsetDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalOffsetDateTime(column.label);
+		}
+		
+		try {
+			return getOptionalTemporal(column, OffsetDateTime.class, "OffsetDateTime");
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public LocalDateTime getOptionalLocalDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalLocalDateTime(column.label);
+		}
+		
+		try {
+			return getOptionalTemporal(column, LocalDateTime.class, "LocalDateTime");
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public Composite getOptionalObject(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind != Kind.JSON) {
+			throw new WrongTypeException(column.label, "object");
+		}
+		
+		return json(column).getOptionalObject(column.label);
+	}
+	
+	@Override
+	public Iterable<@NonNull Composite> getOptionalObjectArray(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind != Kind.JSON) {
+			throw new WrongTypeException(column.label, "iterable");
+		}
+		
+		return json(column).getOptionalObjectArray(column.label);
+	}
+	
+	/**
+	 * array
+	 * 
+	 * Read a SQL array column as a Java array, or null for SQL NULL.
+	 */
+	private @Nullable Object @Nullable [] array(
+			@NonNull Column column) throws WrongTypeException, SQLException
+	{
+		if (column.kind != Kind.ARRAY) {
+			throw new WrongTypeException(column.label, "iterable");
+		}
+		
+		Array array= resultSet.getArray(column.index);
+		if (array == null) {
+			return null;
+		}
+		
+		Object value= array.getArray();
+		if (!(value instanceof Object[])) {
+			throw new WrongTypeException(column.label, "iterable");
+		}
+		
+		return (Object[])value;
+	}
+	
+	@Override
+	public Iterable<@NonNull String> getOptionalStringArray(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalStringArray(column.label);
+		}
+		
+		try {
+			Object[] values= array(column);
+			if (values == null) {
+				return null;
+			}
+			
+			List<@NonNull String> rval= new ArrayList<>(values.length);
+			for (int index= 0; index < values.length; index++) {
+				Object object= values[index];
+				if (!(object instanceof String)) {
+					throw new WrongTypeException(column.label + "[" + index + "]", "string");
+				}
+				
+				rval.add((String)object);
+			}
+			
+			return rval;
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	@Override
+	public Iterable<@NonNull Integer> getOptionalIntegerArray(
+			@NonNull String name) throws WrongTypeException
+	{
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind == Kind.JSON) {
+			return json(column).getOptionalIntegerArray(column.label);
+		}
+		
+		try {
+			Object[] values= array(column);
+			if (values == null) {
+				return null;
+			}
+			
+			List<@NonNull Integer> rval= new ArrayList<>(values.length);
+			for (int index= 0; index < values.length; index++) {
+				Object object= values[index];
+				if (!(object instanceof Integer)) {
+					throw new WrongTypeException(column.label + "[" + index + "]", "integer");
+				}
+				
+				rval.add((Integer)object);
+			}
+			
+			return rval;
+		} catch (SQLException e) {
+			throw sourceException(column, e);
+		}
+	}
+	
+	/**
+	 * getOptionalPathJson
+	 * 
+	 * A path longer than one segment has to start with a JSON column, and the rest of it
+	 * is walked through the parsed value.  Returns null if there is no such column.
+	 */
+	private @Nullable Composite getOptionalPathJson(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		@SuppressWarnings("null")
+		@NonNull String name= path.getName(0);
+		
+		Column column= columnsByLabel.get(name);
+		if (column == null) {
+			return null;
+		} else if (column.kind != Kind.JSON) {
+			throw new WrongTypeException(name, path.isIndex(1) ? "array" : "object");
+		}
+		
+		return json(column);
+	}
+	
+	private @NonNull Composite getRequiredPathJson(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		Composite rval= getOptionalPathJson(path);
+		if (rval == null) {
+			throw new MissingValueException(path.getName(0));
+		}
+		
+		return rval;
+	}
+	
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getRequiredString(path.getLeafName());
+		}
+		
+		return getRequiredPathJson(path).getRequiredString(path);
+	}
+	
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getRequiredInteger(path.getLeafName());
+		}
+		
+		return getRequiredPathJson(path).getRequiredInteger(path);
+	}
+	
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getRequiredLong(path.getLeafName());
+		}
+		
+		return getRequiredPathJson(path).getRequiredLong(path);
+	}
+	
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getRequiredDouble(path.getLeafName());
+		}
+		
+		return getRequiredPathJson(path).getRequiredDouble(path);
+	}
+	
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getRequiredBoolean(path.getLeafName());
+		}
+		
+		return getRequiredPathJson(path).getRequiredBoolean(path);
+	}
+	
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getRequiredObject(path.getLeafName());
+		}
+		
+		return getRequiredPathJson(path).getRequiredObject(path);
+	}
+	
+	@Override
+	public String getOptionalString(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getOptionalString(path.getLeafName());
+		}
+		
+		Composite json= getOptionalPathJson(path);
+		return (json == null) ? null : json.getOptionalString(path);
+	}
+	
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getOptionalInteger(path.getLeafName());
+		}
+		
+		Composite json= getOptionalPathJson(path);
+		return (json == null) ? null : json.getOptionalInteger(path);
+	}
+	
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getOptionalLong(path.getLeafName());
+		}
+		
+		Composite json= getOptionalPathJson(path);
+		return (json == null) ? null : json.getOptionalLong(path);
+	}
+	
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getOptionalDouble(path.getLeafName());
+		}
+		
+		Composite json= getOptionalPathJson(path);
+		return (json == null) ? null : json.getOptionalDouble(path);
+	}
+	
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getOptionalBoolean(path.getLeafName());
+		}
+		
+		Composite json= getOptionalPathJson(path);
+		return (json == null) ? null : json.getOptionalBoolean(path);
+	}
+	
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		if (path.size() == 1) {
+			return getOptionalObject(path.getLeafName());
+		}
+		
+		Composite json= getOptionalPathJson(path);
+		return (json == null) ? null : json.getOptionalObject(path);
+	}
+	
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredString(key.getName());
+	}
+	
+	@Override
+	public String getOptionalString(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalString(key.getName());
+	}
+	
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredInteger(key.getName());
+	}
+	
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalInteger(key.getName());
+	}
+	
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredLong(key.getName());
+	}
+	
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalLong(key.getName());
+	}
+	
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredDouble(key.getName());
+	}
+	
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalDouble(key.getName());
+	}
+	
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredBoolean(key.getName());
+	}
+	
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalBoolean(key.getName());
+	}
+	
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredObject(key.getName());
+	}
+	
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalObject(key.getName());
+	}
+	
+	@Override
+	public @NonNull Iterable<Map.Entry<@NonNull String, @NonNull Composite>> getObjectMap(
+			) throws WrongTypeException
+	{
+		List<Map.Entry<@NonNull String, @NonNull Composite>> rval= new ArrayList<>(columns.length);
+		for (Column column : columns) {
+			Composite value= getOptionalObject(column.label);
+			if (value != null) {
+				rval.add(new AbstractMap.SimpleImmutableEntry<>(column.label, value));
+			}
+		}
+		
+		return rval;
+	}
+	
+	/**
+	 * toMap
+	 * 
+	 * Copy the current row into a map tree, for the operations that need the whole row at
+	 * once.  SQL NULL is kept as a null member.
+	 */
+	private @NonNull Map<String, Object> toMap() throws SQLException {
+		Map<String, Object> rval= new LinkedHashMap<>();
+		for (Column column : columns) {
+			if (rval.containsKey(column.label)) {
+				continue;
+			}
+			
+			Object value;
+			switch (column.kind) {
+			case INTEGER:
+			case BIGINT:
+			case DECIMAL:
+			case FLOAT:
+				try {
+					value= number(column);
+				} catch (WrongTypeException e) {
+					throw new RuntimeException("Numeric column rejected as a number", e);
+				}
+				break;
+				
+			case BOOLEAN:
+				value= resultSet.getBoolean(column.index);
+				if (resultSet.wasNull()) {
+					value= null;
+				}
+				break;
+				
+			case DATE:
+				value= resultSet.getObject(column.index, LocalDate.class);
+				break;
+				
+			case TIMESTAMP:
+			case TIMESTAMP_ZONED:
+				Timestamp timestamp= resultSet.getTimestamp(column.index, calendar);
+				if (timestamp == null) {
+					value= null;
+				} else if (column.kind == Kind.TIMESTAMP) {
+					value= LocalDateTime.ofInstant(timestamp.toInstant(), zone);
+				} else {
+					value= OffsetDateTime.ofInstant(timestamp.toInstant(), zone);
+				}
+				break;
+				
+			case JSON:
+				try {
+					Map<?, ?> wrapper= json(column).serialize(Map.class);
+					value= wrapper.get(column.label);
+				} catch (WrongTypeException e) {
+					throw new SourceException("Column " + column.label + " is not valid JSON", e);
+				}
+				break;
+				
+			case ARRAY:
+				Array array= resultSet.getArray(column.index);
+				if (array == null) {
+					value= null;
+				} else {
+					Object elements= array.getArray();
+					value= (elements instanceof Object[])
+							? Arrays.asList((Object[])elements)
+							: resultSet.getString(column.index);
+				}
+				break;
+				
+			case BINARY:
+				value= resultSet.getBytes(column.index);
+				break;
+				
+			default:
+				value= resultSet.getString(column.index);
+				break;
+			}
+			
+			rval.put(column.label, value);
+		}
+		
+		return rval;
+	}
+	
+	private @NonNull Map<String, Object> getRow() {
+		try {
+			return toMap();
+		} catch (SQLException e) {
+			throw new SourceException("Unable to read row", e);
+		}
+	}
+	
+	@Override
+	public @NonNull ContentHash contentHash() {
+		// Not remembered, since the row changes under the view
+		return ContentHasher.hash(getRow());
+	}
+	
+	@Override
+	public void writeTo(
+			@NonNull OutputStream stream,
+			@NonNull Format format) throws IOException
+	{
+		TreeWriter.write(getRow(), stream, format, timezone);
+	}
+	
+	@Override
+	public @NonNull <Representation extends Object> Representation serialize(
+			@NonNull Class<? extends Representation> representationClass)
+	{
+		Object value= null;
+		
+		if (representationClass.isAssignableFrom(Map.class)) {
+			value= getRow();
+		} else if (representationClass.isAssignableFrom(JsonObject.class)) {
+			value= TreeConverter.toJsonObject(getRow());
+		} else {
+			throw new UnsupportedSerializationException(representationClass);
+		}
+		
+		@SuppressWarnings("unchecked")
+		Representation rval= (Representation)value;
+		
+		return rval;
+	}
+}
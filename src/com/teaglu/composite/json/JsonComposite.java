@@ -16,9 +16,21 @@
 
 package com.teaglu.composite.json;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -26,11 +38,14 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.postgresql.util.PGobject;
 
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositeWriter;
+import com.teaglu.composite.ConversionCache;
+import com.teaglu.composite.convert.TreeConverter;
 import com.teaglu.composite.exception.ParseException;
 import com.teaglu.composite.exception.WrongTypeException;
 
@@ -65,11 +80,12 @@ public final class JsonComposite {
 	/**
 	 * Create
 	 * 
-	 * Create a Composite from a JsonElement.  Throws WrongTypeException if the underlying
-	 * JSON element is not an object.
+	 * Create a Composite from a JsonElement, remembering string conversions in the supplied
+	 * cache.  Throws WrongTypeException if the underlying JSON element is not an object.
 	 *
 	 * @param element					JSON element
 	 * @param timezone					Timezone for interpretation
+	 * @param conversions				Conversion cache for this document, or null for none
 	 * 
 	 * @return							New Composite
 	 * 
@@ -77,7 +93,17 @@ public final class JsonComposite {
 	 */
 	public static @NonNull Composite Create(
 			@NonNull JsonElement element,
-			@NonNull TimeZone timezone) throws WrongTypeException
+			@NonNull TimeZone timezone,
+			@Nullable ConversionCache conversions) throws WrongTypeException
+	{
+		return Create(element, timezone, conversions, null);
+	}
+	
+	private static @NonNull Composite Create(
+			@NonNull JsonElement element,
+			@NonNull TimeZone timezone,
+			@Nullable ConversionCache conversions,
+			@Nullable JsonDocument document) throws WrongTypeException
 	{
 		if (!element.isJsonObject()) {
 			throw new WrongTypeException("root", "Object");
@@ -86,7 +112,27 @@ public final class JsonComposite {
 		@SuppressWarnings("null")
 		@NonNull JsonObject object= element.getAsJsonObject();
 		
-		return new JsonCompositeImpl(object, timezone, null);
+		return new JsonCompositeImpl(object, timezone, null, conversions, document);
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a Composite from a JsonElement.  Throws WrongTypeException if the underlying
+	 * JSON element is not an object.
+	 *
+	 * @param element					JSON element
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite
+	 * 
+	 * @throws WrongTypeException		Element is not an object
+	 */
+	public static @NonNull Composite Create(
+			@NonNull JsonElement element,
+			@NonNull TimeZone timezone) throws WrongTypeException
+	{
+		return Create(element, timezone, null);
 	}
 	
 	/**
@@ -107,13 +153,49 @@ public final class JsonComposite {
 		return Create(element, defaultTimezone);
 	}
 	
+	/**
+	 * Create
+	 * 
+	 * Create a Composite from a map tree, such as one read from YAML.  The tree is converted
+	 * to a GSON tree in a single pass, keeping number types and nulls.
+	 *
+	 * @param tree						Map tree
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite
+	 */
+	public static @NonNull Composite Create(
+			@NonNull Map<String, Object> tree,
+			@NonNull TimeZone timezone)
+	{
+		JsonObject object= TreeConverter.toJsonObject(tree);
+		return new JsonCompositeImpl(object, timezone, null, null, JsonDocument.Built(object));
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a Composite from a map tree using the UTC timezone.
+	 *
+	 * @param tree						Map tree
+	 * 
+	 * @return							New Composite
+	 */
+	public static @NonNull Composite Create(
+			@NonNull Map<String, Object> tree)
+	{
+		return Create(tree, defaultTimezone);
+	}
+	
 	/**
 	 * Parse
 	 * 
-	 * Parse a Composite from a string in JSON format.
+	 * Parse a Composite from a string in JSON format, remembering string conversions in the
+	 * supplied cache.
 	 *
 	 * @param data						String in JSON format
 	 * @param timezone					Timezone for interpretation
+	 * @param conversions				Conversion cache for this document, or null for none
 	 * 
 	 * @return							New Composite
 	 * 
@@ -122,20 +204,37 @@ public final class JsonComposite {
 	 */
 	public static @NonNull Composite Parse(
 			@NonNull String data,
-			@NonNull TimeZone timezone) throws ParseException, WrongTypeException
+			@NonNull TimeZone timezone,
+			@Nullable ConversionCache conversions) throws ParseException, WrongTypeException
 	{
 		try {
-			JsonElement element= JsonParser.parseString(data);
-			if (element == null) {
-				throw new JsonSyntaxException("Unable to parse JSON data");
-			}
-	
-			return Create(element, timezone);
+			JsonDocument document= JsonDocument.Parse(new StringReader(data));
+			return Create(document.getRoot(), timezone, conversions, document);
 		} catch (JsonParseException parseException) {
 			throw new ParseException("Error parsing JSON input", parseException);
 		}
 	}
 	
+	/**
+	 * Parse
+	 * 
+	 * Parse a Composite from a string in JSON format.
+	 *
+	 * @param data						String in JSON format
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite
+	 * 
+	 * @throws WrongTypeException		Input does not represent and object
+	 * @throws JsonSyntaxException		Unable to parse input
+	 */
+	public static @NonNull Composite Parse(
+			@NonNull String data,
+			@NonNull TimeZone timezone) throws ParseException, WrongTypeException
+	{
+		return Parse(data, timezone, null);
+	}
+	
 	/**
 	 * Parse
 	 * 
@@ -172,12 +271,8 @@ public final class JsonComposite {
 			@NonNull TimeZone timezone) throws ParseException, WrongTypeException
 	{
 		try {
-			JsonElement element= JsonParser.parseReader(reader);
-			if (element == null) {
-				throw new JsonSyntaxException("Unable to parse JSON data");
-			}
-	
-			return Create(element, timezone);
+			JsonDocument document= JsonDocument.Parse(reader);
+			return Create(document.getRoot(), timezone, null, document);
 		} catch (JsonParseException parseException) {
 			throw new ParseException("Error parsing JSON input", parseException);
 		}
@@ -202,6 +297,176 @@ public final class JsonComposite {
 		return Parse(reader, defaultTimezone);
 	}
 	
+	// Version byte a jsonb value starts with when the driver transfers it in binary
+	private static final int JSONB_VERSION= 1;
+	
+	/**
+	 * Parse
+	 * 
+	 * Parse a Composite from a JSON or JSONB column of the current row of a result set.  The
+	 * column is read as a byte stream and parsed as it arrives, instead of being read into a
+	 * String and parsed from there, so a large value is only held once as the parsed tree.
+	 *
+	 * @param resultSet					Result set positioned on a row
+	 * @param column					Column number, starting from 1
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite, or null if the column is NULL or null
+	 * 
+	 * @throws SQLException				Unable to read the column
+	 * @throws ParseException			Column does not contain valid JSON
+	 * @throws WrongTypeException		Column does not contain a JSON object
+	 */
+	public static @Nullable Composite Parse(
+			@NonNull ResultSet resultSet,
+			int column,
+			@NonNull TimeZone timezone) throws SQLException, ParseException, WrongTypeException
+	{
+		Reader reader= openColumn(resultSet, column);
+		if (reader == null) {
+			return null;
+		}
+		
+		try (reader) {
+			JsonDocument document= JsonDocument.Parse(reader);
+			
+			JsonElement element= document.getRoot();
+			if (element.isJsonNull()) {
+				return null;
+			}
+			
+			return Create(element, timezone, null, document);
+		} catch (JsonParseException parseException) {
+			throw new ParseException("Error parsing JSON column", parseException);
+		} catch (IOException ioException) {
+			throw new ParseException("Error reading JSON column", ioException);
+		}
+	}
+	
+	/**
+	 * ParseColumn
+	 * 
+	 * Parse a JSON or JSONB column of the current row of a result set the same way as Parse,
+	 * but hold the value as the only member of a new object instead of requiring it to be an
+	 * object itself.  That lets a column holding an array, a scalar, or NULL be read through
+	 * the accessors of the returned composite by member name - a NULL column reads as a
+	 * missing member.
+	 *
+	 * @param resultSet					Result set positioned on a row
+	 * @param column					Column number, starting from 1
+	 * @param name						Name to hold the value under
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite
+	 * 
+	 * @throws SQLException				Unable to read the column
+	 * @throws ParseException			Column does not contain valid JSON
+	 */
+	public static @NonNull Composite ParseColumn(
+			@NonNull ResultSet resultSet,
+			int column,
+			@NonNull String name,
+			@NonNull TimeZone timezone) throws SQLException, ParseException
+	{
+		JsonObject wrapper= new JsonObject();
+		JsonDocument document;
+		
+		Reader reader= openColumn(resultSet, column);
+		if (reader == null) {
+			wrapper.add(name, JsonNull.INSTANCE);
+			document= JsonDocument.Built(wrapper);
+		} else {
+			try (reader) {
+				document= JsonDocument.Parse(reader);
+				wrapper.add(name, document.getRoot());
+			} catch (JsonParseException parseException) {
+				throw new ParseException("Error parsing JSON column", parseException);
+			} catch (IOException ioException) {
+				throw new ParseException("Error reading JSON column", ioException);
+			}
+		}
+		
+		return new JsonCompositeImpl(wrapper, timezone, null, null, document);
+	}
+	
+	/**
+	 * openColumn
+	 * 
+	 * Open a JSON or JSONB column as a character stream, decoding the bytes the driver sends
+	 * where it can.  Returns null if the column is NULL.
+	 */
+	private static @Nullable Reader openColumn(
+			@NonNull ResultSet resultSet,
+			int column) throws SQLException, ParseException
+	{
+		try {
+			InputStream stream= resultSet.getBinaryStream(column);
+			if (stream == null) {
+				return null;
+			}
+			
+			// Skip the version byte of binary jsonb, which can't start JSON text
+			PushbackInputStream pushback= new PushbackInputStream(stream, 1);
+			int first= pushback.read();
+			if ((first != -1) && (first != JSONB_VERSION)) {
+				pushback.unread(first);
+			}
+			
+			return new InputStreamReader(pushback, StandardCharsets.UTF_8);
+		} catch (SQLFeatureNotSupportedException notSupported) {
+			// Some drivers only stream text columns as characters
+			return resultSet.getCharacterStream(column);
+		} catch (IOException ioException) {
+			throw new ParseException("Error reading JSON column", ioException);
+		}
+	}
+	
+	/**
+	 * Parse
+	 * 
+	 * Parse a Composite from a JSON or JSONB column of the current row of a result set,
+	 * finding the column by label.
+	 *
+	 * @param resultSet					Result set positioned on a row
+	 * @param label						Column label
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite, or null if the column is NULL or null
+	 * 
+	 * @throws SQLException				Unable to find or read the column
+	 * @throws ParseException			Column does not contain valid JSON
+	 * @throws WrongTypeException		Column does not contain a JSON object
+	 */
+	public static @Nullable Composite Parse(
+			@NonNull ResultSet resultSet,
+			@NonNull String label,
+			@NonNull TimeZone timezone) throws SQLException, ParseException, WrongTypeException
+	{
+		return Parse(resultSet, resultSet.findColumn(label), timezone);
+	}
+	
+	/**
+	 * Parse
+	 * 
+	 * Parse a Composite from a JSON or JSONB column of the current row of a result set,
+	 * assuming UTC as the timezone for interpretation.
+	 *
+	 * @param resultSet					Result set positioned on a row
+	 * @param column					Column number, starting from 1
+	 * 
+	 * @return							New Composite, or null if the column is NULL or null
+	 * 
+	 * @throws SQLException				Unable to read the column
+	 * @throws ParseException			Column does not contain valid JSON
+	 * @throws WrongTypeException		Column does not contain a JSON object
+	 */
+	public static @Nullable Composite Parse(
+			@NonNull ResultSet resultSet,
+			int column) throws SQLException, ParseException, WrongTypeException
+	{
+		return Parse(resultSet, column, defaultTimezone);
+	}
+	
 	/**
 	 * ParseObject
 	 * 
@@ -269,16 +534,17 @@ public final class JsonComposite {
 			if (pgObject != null) {
 				String value= pgObject.getValue();
 				if ((value != null) && !value.equals("null")) {
-					JsonElement element= JsonParser.parseString(pgObject.getValue());
+					JsonDocument document= JsonDocument.Parse(new StringReader(value));
+					JsonElement element= document.getRoot();
 					
 					if (element.isJsonObject()) {
-						rval.add(Create(element, timezone));
+						rval.add(Create(element, timezone, null, document));
 					} else if (element.isJsonArray()) {
 						for (JsonElement subElement : element.getAsJsonArray()) {
 							@SuppressWarnings("null")
 							@NonNull JsonElement requiredSubElement= subElement;
 							
-							rval.add(Create(requiredSubElement, timezone));
+							rval.add(Create(requiredSubElement, timezone, null, document));
 						}
 					}
 				}
@@ -306,4 +572,69 @@ public final class JsonComposite {
 	{
 		return ParseArray(pgObject, defaultTimezone);
 	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming JSON writer on an output stream, writing timestamps in the given
+	 * timezone.
+	 *
+	 * @param stream					Output stream, closed when the writer is closed
+	 * @param timezone					Timezone for timestamps
+	 * 
+	 * @return							New writer
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull OutputStream stream,
+			@NonNull TimeZone timezone)
+	{
+		return new JsonCompositeWriter(stream, timezone);
+	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming JSON writer on an output stream, writing timestamps in UTC.
+	 *
+	 * @param stream					Output stream, closed when the writer is closed
+	 * 
+	 * @return							New writer
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull OutputStream stream)
+	{
+		return CreateWriter(stream, defaultTimezone);
+	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming JSON writer on a channel, writing timestamps in the given timezone.
+	 *
+	 * @param channel					Output channel, closed when the writer is closed
+	 * @param timezone					Timezone for timestamps
+	 * 
+	 * @return							New writer
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull WritableByteChannel channel,
+			@NonNull TimeZone timezone)
+	{
+		return new JsonCompositeWriter(channel, timezone);
+	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming JSON writer on a channel, writing timestamps in UTC.
+	 *
+	 * @param channel					Output channel, closed when the writer is closed
+	 * 
+	 * @return							New writer
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull WritableByteChannel channel)
+	{
+		return CreateWriter(channel, defaultTimezone);
+	}
 }
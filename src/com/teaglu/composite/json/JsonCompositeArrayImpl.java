@@ -18,13 +18,16 @@ package com.teaglu.composite.json;
 
 import java.util.Iterator;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.ConversionCache;
 import com.teaglu.composite.exception.WrongTypeException;
 
 /**
@@ -60,23 +63,60 @@ public final class JsonCompositeArrayImpl implements Iterable<@NonNull Composite
 			
 			int position= index++;
 			
-			return new JsonCompositeImpl(ob, timezone, path + "[" + position + "]");
+			// Reuse the wrapper from an earlier pass as long as the slot still holds the
+			// same object - the array could have been modified underneath us.
+			if (position < elements.length()) {
+				JsonCompositeImpl cached= elements.get(position);
+				if ((cached != null) && (cached.getObject() == ob)) {
+					return cached;
+				}
+			}
+			
+			JsonCompositeImpl rval= new JsonCompositeImpl(
+					ob, timezone, path + "[" + position + "]", conversions, document);
+			if (position < elements.length()) {
+				elements.set(position, rval);
+			}
+			
+			return rval;
 		}
 	}
 	
+	private @NonNull String name;
 	private @NonNull JsonArray array;
 	private @NonNull String path;
 	private @NonNull TimeZone timezone;
+	private @Nullable ConversionCache conversions;
+	private @Nullable JsonDocument document;
+	private @NonNull AtomicReferenceArray<JsonCompositeImpl> elements;
 	
 	JsonCompositeArrayImpl(
 			@NonNull String name,
 			@NonNull JsonArray array,
 			@NonNull TimeZone timezone,
-			@NonNull String path) throws WrongTypeException
+			@NonNull String path,
+			@Nullable ConversionCache conversions,
+			@Nullable JsonDocument document) throws WrongTypeException
 	{
-		// Verify all the entries are objects.  We can't do that in the iterator because the
-		// iterator methods don't have any throw clauses.
+		this.name= name;
+		this.array= array;
+		this.timezone= timezone;
+		this.path= path;
+		this.conversions= conversions;
+		this.document= document;
+		this.elements= new AtomicReferenceArray<>(array.size());
 		
+		verify();
+	}
+	
+	/**
+	 * verify
+	 * 
+	 * Verify all the entries are objects.  We can't do that in the iterator because the
+	 * iterator methods don't have any throw clauses.  A view handed out again from the child
+	 * cache has to be checked again, since the array could have been modified since.
+	 */
+	void verify() throws WrongTypeException {
 		int entryNo= 0;
 		for (JsonElement el : array) {
 			if (!el.isJsonObject()) {
@@ -84,10 +124,6 @@ public final class JsonCompositeArrayImpl implements Iterable<@NonNull Composite
 			}
 			entryNo++;
 		}
-		
-		this.array= array;
-		this.timezone= timezone;
-		this.path= path;
 	}
 	
 	@Override
@@ -16,8 +16,15 @@
 
 package com.teaglu.composite.json;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +39,19 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositeKey;
+import com.teaglu.composite.CompositePath;
+import com.teaglu.composite.ContentHash;
+import com.teaglu.composite.ConversionCache;
+import com.teaglu.composite.Format;
+import com.teaglu.composite.cache.ChildCache;
+import com.teaglu.composite.cache.TreeHolder;
+import com.teaglu.composite.convert.ContentHasher;
+import com.teaglu.composite.convert.DateTimeParser;
+import com.teaglu.composite.convert.DecodedNumber;
+import com.teaglu.composite.convert.Shape;
+import com.teaglu.composite.convert.TreeConverter;
+import com.teaglu.composite.convert.TreeWriter;
 import com.teaglu.composite.exception.FormatException;
 import com.teaglu.composite.exception.MissingValueException;
 import com.teaglu.composite.exception.UnsupportedSerializationException;
@@ -44,14 +64,48 @@ import com.teaglu.composite.exception.WrongTypeException;
  * type safety checks we'd have to write otherwise collected in one place.
  *
  */
-public final class JsonCompositeImpl implements Composite {
+public final class JsonCompositeImpl implements Composite, TreeHolder {
 	private @NonNull String prefix;
 	private @NonNull TimeZone timezone;
 	private @NonNull JsonObject object;
+	private @Nullable ConversionCache conversions;
+	
+	// Wrappers handed out for sub-objects and object arrays, created on first use
+	private volatile @Nullable ChildCache children;
+	
+	// Computed on first use for an owned tree - a race just computes the same hash twice
+	private volatile @Nullable ContentHash contentHash;
+	
+	// Document the tree belongs to if the library built it, or null for a caller's tree
+	private final @Nullable JsonDocument document;
+	
+	// Members laid out by shape, looked up on the first read by key
+	private volatile JsonDocument.@Nullable Layout layout;
 
 	public JsonCompositeImpl(@NonNull JsonObject object, @NonNull TimeZone timezone, @Nullable String path) {
+		this(object, timezone, path, null);
+	}
+
+	public JsonCompositeImpl(
+			@NonNull JsonObject object,
+			@NonNull TimeZone timezone,
+			@Nullable String path,
+			@Nullable ConversionCache conversions)
+	{
+		this(object, timezone, path, conversions, null);
+	}
+
+	JsonCompositeImpl(
+			@NonNull JsonObject object,
+			@NonNull TimeZone timezone,
+			@Nullable String path,
+			@Nullable ConversionCache conversions,
+			@Nullable JsonDocument document)
+	{
 		this.object= object;
 		this.timezone= timezone;
+		this.conversions= conversions;
+		this.document= document;
 		
 		if (path == null) {
 			prefix= "";
@@ -60,10 +114,34 @@ public final class JsonCompositeImpl implements Composite {
 		}
 	}
 	
+	@NonNull JsonObject getObject() {
+		return object;
+	}
+	
+	private @NonNull ChildCache getChildren() {
+		// Two threads racing here can each create a table and one set of entries gets
+		// dropped, which only costs a few extra allocations.
+		ChildCache rval= children;
+		if (rval == null) {
+			rval= new ChildCache();
+			children= rval;
+		}
+		
+		return rval;
+	}
+	
 	@Deprecated
 	public JsonElement getElement(@NonNull String name) {
+		release();
 		return object.get(name);
 	}
+	
+	private void release() {
+		JsonDocument current= document;
+		if (current != null) {
+			current.release();
+		}
+	}
 
 	@Override
 	public int getRequiredInteger(
@@ -101,6 +179,30 @@ public final class JsonCompositeImpl implements Composite {
 		return value;
 	}
 
+	@Override
+	public @NonNull BigDecimal getRequiredBigDecimal(
+			@NonNull String name) throws WrongTypeException, MissingValueException
+	{
+		BigDecimal value= getOptionalBigDecimal(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+
+		return value;
+	}
+
+	@Override
+	public @NonNull BigInteger getRequiredBigInteger(
+			@NonNull String name) throws WrongTypeException, MissingValueException
+	{
+		BigInteger value= getOptionalBigInteger(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+
+		return value;
+	}
+
 	@Override
 	public @NonNull String getRequiredString(
 			@NonNull String name) throws WrongTypeException, MissingValueException
@@ -149,6 +251,42 @@ public final class JsonCompositeImpl implements Composite {
 		return value;
 	}
 
+	@Override
+	public @NonNull Instant getRequiredInstant(
+			@NonNull String name) throws WrongTypeException, MissingValueException, FormatException
+	{
+		Instant value= getOptionalInstant(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+
+		return value;
+	}
+
+	@Override
+	public @NonNull OffsetDateTime getRequiredOffsetDateTime(
+			@NonNull String name) throws WrongTypeException, MissingValueException, FormatException
+	{
+		OffsetDateTime value= getOptionalOffsetDateTime(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+
+		return value;
+	}
+
+	@Override
+	public @NonNull LocalDateTime getRequiredLocalDateTime(
+			@NonNull String name) throws WrongTypeException, MissingValueException, FormatException
+	{
+		LocalDateTime value= getOptionalLocalDateTime(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+
+		return value;
+	}
+
 	@Override
 	public @NonNull Composite getRequiredObject(
 			@NonNull String name) throws WrongTypeException, MissingValueException
@@ -199,10 +337,16 @@ public final class JsonCompositeImpl implements Composite {
 	
 	@Override
 	public Integer getOptionalInteger(@NonNull String name) throws WrongTypeException {
+		return asInteger(object.get(name), name);
+	}
+	
+	private @Nullable Integer asInteger(
+			@Nullable JsonElement el,
+			@NonNull String name) throws WrongTypeException
+	{
 		Integer rval= null;
 		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
+		if (el != null) {
 			if (!el.isJsonNull()) {
 				if (!el.isJsonPrimitive()) {
 					throw new WrongTypeException(prefix + name, "integer");
@@ -210,19 +354,26 @@ public final class JsonCompositeImpl implements Composite {
 				
 				JsonPrimitive pr= el.getAsJsonPrimitive();
 				if (pr.isNumber()) {
-					int i= pr.getAsInt();
-					double d= pr.getAsDouble();
-					
-					if (d != (double)i) {
+					DecodedNumber number= decode(pr, name, "integer");
+					if (!number.isExactInteger()) {
 						throw new WrongTypeException(prefix + name, "integer");
 					}
 					
-					rval= i;
+					rval= (int)number.longValue();
 				} else if (pr.isString()) {
-					try {
-						rval= Integer.parseInt(pr.getAsString());
-					} catch (NumberFormatException e) {
-						throw new WrongTypeException(prefix + name, "integer");
+					String value= pr.getAsString();
+					
+					rval= (conversions == null) ? null : conversions.get(Integer.class, value);
+					if (rval == null) {
+						try {
+							rval= Integer.parseInt(value);
+						} catch (NumberFormatException e) {
+							throw new WrongTypeException(prefix + name, "integer");
+						}
+						
+						if (conversions != null) {
+							conversions.put(Integer.class, value, rval);
+						}
 					}
 				} else {
 					throw new WrongTypeException(prefix + name, "integer");
@@ -235,29 +386,42 @@ public final class JsonCompositeImpl implements Composite {
 	
 	@Override
 	public Long getOptionalLong(@NonNull String name) throws WrongTypeException {
+		return asLong(object.get(name), name);
+	}
+	
+	private @Nullable Long asLong(
+			@Nullable JsonElement el,
+			@NonNull String name) throws WrongTypeException
+	{
 		Long rval= null;
 		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
+		if (el != null) {
 			if (!el.isJsonNull()) {
 				if (!el.isJsonPrimitive()) {
 					throw new WrongTypeException(prefix + name, "long");
 				}
 				JsonPrimitive pr= el.getAsJsonPrimitive();
 				if (pr.isNumber()) {
-					long l= pr.getAsLong();
-					double d= pr.getAsDouble();
-					
-					if (d != (double)l) {
+					DecodedNumber number= decode(pr, name, "long");
+					if (!number.isExactLong()) {
 						throw new WrongTypeException(prefix + name, "long");
 					}
 					
-					rval= l;
+					rval= number.longValue();
 				} else if (pr.isString()) {
-					try {
-						rval= Long.parseLong(pr.getAsString());
-					} catch (NumberFormatException e) {
-						throw new WrongTypeException(prefix + name, "long");
+					String value= pr.getAsString();
+					
+					rval= (conversions == null) ? null : conversions.get(Long.class, value);
+					if (rval == null) {
+						try {
+							rval= Long.parseLong(value);
+						} catch (NumberFormatException e) {
+							throw new WrongTypeException(prefix + name, "long");
+						}
+						
+						if (conversions != null) {
+							conversions.put(Long.class, value, rval);
+						}
 					}
 				} else {
 					throw new WrongTypeException(prefix + name, "long");
@@ -270,10 +434,16 @@ public final class JsonCompositeImpl implements Composite {
 	
 	@Override
 	public Double getOptionalDouble(@NonNull String name) throws WrongTypeException {
+		return asDouble(object.get(name), name);
+	}
+	
+	private @Nullable Double asDouble(
+			@Nullable JsonElement el,
+			@NonNull String name) throws WrongTypeException
+	{
 		Double rval= null;
 		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
+		if (el != null) {
 			if (!el.isJsonNull()) {
 				if (!el.isJsonPrimitive()) {
 					throw new WrongTypeException(prefix + name, "double");
@@ -282,10 +452,19 @@ public final class JsonCompositeImpl implements Composite {
 				if (pr.isNumber()) {
 					rval= pr.getAsDouble();
 				} else if (pr.isString()) {
-					try {
-						rval= Double.parseDouble(pr.getAsString());
-					} catch (NumberFormatException e) {
-						throw new WrongTypeException(prefix + name, "double");
+					String value= pr.getAsString();
+					
+					rval= (conversions == null) ? null : conversions.get(Double.class, value);
+					if (rval == null) {
+						try {
+							rval= Double.parseDouble(value);
+						} catch (NumberFormatException e) {
+							throw new WrongTypeException(prefix + name, "double");
+						}
+						
+						if (conversions != null) {
+							conversions.put(Double.class, value, rval);
+						}
 					}
 				} else {
 					throw new WrongTypeException(prefix + name, "double"); 
@@ -296,12 +475,92 @@ public final class JsonCompositeImpl implements Composite {
 		return rval;
 	}
 
+	/**
+	 * decode
+	 * 
+	 * Decode a numeric primitive once into its exact form.
+	 */
+	private @NonNull DecodedNumber decode(
+			@NonNull JsonPrimitive pr,
+			@NonNull String name,
+			@NonNull String typeName) throws WrongTypeException
+	{
+		@SuppressWarnings("null")
+		@NonNull Number value= pr.getAsNumber();
+		
+		try {
+			return DecodedNumber.of(value);
+		} catch (NumberFormatException e) {
+			throw new WrongTypeException(prefix + name, typeName);
+		}
+	}
+	
+	@Override
+	public BigDecimal getOptionalBigDecimal(@NonNull String name) throws WrongTypeException {
+		BigDecimal rval= null;
+		
+		JsonElement el= object.get(name);
+		if ((el != null) && !el.isJsonNull()) {
+			if (!el.isJsonPrimitive()) {
+				throw new WrongTypeException(prefix + name, "decimal");
+			}
+			JsonPrimitive pr= el.getAsJsonPrimitive();
+			
+			try {
+				if (pr.isNumber()) {
+					rval= decode(pr, name, "decimal").toBigDecimal();
+				} else if (pr.isString()) {
+					rval= new BigDecimal(pr.getAsString());
+				} else {
+					throw new WrongTypeException(prefix + name, "decimal");
+				}
+			} catch (NumberFormatException e) {
+				throw new WrongTypeException(prefix + name, "decimal");
+			}
+		}
+		
+		return rval;
+	}
+	
+	@Override
+	public BigInteger getOptionalBigInteger(@NonNull String name) throws WrongTypeException {
+		BigInteger rval= null;
+		
+		JsonElement el= object.get(name);
+		if ((el != null) && !el.isJsonNull()) {
+			if (!el.isJsonPrimitive()) {
+				throw new WrongTypeException(prefix + name, "integer");
+			}
+			JsonPrimitive pr= el.getAsJsonPrimitive();
+			
+			try {
+				if (pr.isNumber()) {
+					rval= decode(pr, name, "integer").toBigInteger();
+				} else if (pr.isString()) {
+					rval= new BigInteger(pr.getAsString());
+				} else {
+					throw new WrongTypeException(prefix + name, "integer");
+				}
+			} catch (NumberFormatException | ArithmeticException e) {
+				throw new WrongTypeException(prefix + name, "integer");
+			}
+		}
+		
+		return rval;
+	}
+
 	@Override
 	public String getOptionalString(@NonNull String name) throws WrongTypeException {
+		return asString(object.get(name), name);
+	}
+	
+	private @Nullable String asString(
+			@Nullable JsonElement el,
+			@NonNull String name) throws WrongTypeException
+	{
 		String rval= null;
 		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
+		if (el != null) {
 			if (!el.isJsonNull()) {
 				if (!el.isJsonPrimitive()) {
 					throw new WrongTypeException(prefix + name, "string");
@@ -321,10 +580,16 @@ public final class JsonCompositeImpl implements Composite {
 
 	@Override
 	public Boolean getOptionalBoolean(@NonNull String name) throws WrongTypeException {
+		return asBoolean(object.get(name), name);
+	}
+	
+	private @Nullable Boolean asBoolean(
+			@Nullable JsonElement el,
+			@NonNull String name) throws WrongTypeException
+	{
 		Boolean rval= null;
 		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
+		if (el != null) {
 			if (!el.isJsonNull()) {
 				if (!el.isJsonPrimitive()) {
 					throw new WrongTypeException(prefix + name, "boolean");
@@ -354,31 +619,53 @@ public final class JsonCompositeImpl implements Composite {
 		return value;
 	}
 
-	@Override
-	public LocalDate getOptionalLocalDate(
-			@NonNull String name) throws WrongTypeException, FormatException
+	/**
+	 * getOptionalTemporal
+	 * 
+	 * Common code for the date and time accessors.  Strings are parsed and remembered in the
+	 * conversion cache if there is one, and numbers are taken as milliseconds since the epoch
+	 * for the types that represent a point in time.
+	 */
+	private <T> @Nullable T getOptionalTemporal(
+			@NonNull String name,
+			@NonNull Class<T> type,
+			@NonNull String typeName) throws WrongTypeException, FormatException
 	{
-		LocalDate rval= null;
+		JsonElement el= object.get(name);
+		if ((el == null) || el.isJsonNull()) {
+			return null;
+		}
+		if (!el.isJsonPrimitive()) {
+			throw new WrongTypeException(prefix + name, typeName);
+		}
 		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
-			if (!el.isJsonNull()) {
-				if (!el.isJsonPrimitive()) {
-					throw new WrongTypeException(prefix + name, "date");
-				}
-				JsonPrimitive pr= el.getAsJsonPrimitive();
-				if (!pr.isString()) {
-					throw new WrongTypeException(prefix + name, "date");
-				}
-
-				String value= pr.getAsString();
-				
-				try {
-					rval= LocalDate.parse(value);
-				} catch (NumberFormatException e) {
-					throw new FormatException("Unable to parse " + name + " value '" +
-							value + "' into LocalDate");
-				}
+		JsonPrimitive pr= el.getAsJsonPrimitive();
+		if (pr.isNumber() && (type != LocalDate.class)) {
+			DecodedNumber millis= decode(pr, name, typeName);
+			if (!millis.isExactLong()) {
+				throw new WrongTypeException(prefix + name, typeName);
+			}
+			
+			return DateTimeParser.fromEpochMillis(millis.longValue(), type, timezone.toZoneId());
+		}
+		if (!pr.isString()) {
+			throw new WrongTypeException(prefix + name, typeName);
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull String value= pr.getAsString();
+		
+		T rval= (conversions == null) ? null : conversions.get(type, value);
+		if (rval == null) {
+			try {
+				rval= DateTimeParser.parse(value, type, timezone.toZoneId());
+			} catch (DateTimeException e) {
+				throw new FormatException("Unable to parse " + prefix + name + " value '" +
+						value + "' into " + typeName);
+			}
+			
+			if (conversions != null) {
+				conversions.put(type, value, rval);
 			}
 		}
 		
@@ -386,50 +673,55 @@ public final class JsonCompositeImpl implements Composite {
 	}
 
 	@Override
-	public Timestamp getOptionalTimestamp(
+	public LocalDate getOptionalLocalDate(
 			@NonNull String name) throws WrongTypeException, FormatException
 	{
-		Timestamp rval= null;
-		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
-			if (!el.isJsonNull()) {
-				if (!el.isJsonPrimitive()) {
-					throw new WrongTypeException(prefix + name, "timestamp");
-				}
-				JsonPrimitive pr= el.getAsJsonPrimitive();
-				if (!pr.isString()) {
-					throw new WrongTypeException(prefix + name, "timestamp");
-				}
+		return getOptionalTemporal(name, LocalDate.class, "date");
+	}
 
-				String value= pr.getAsString();
-				
-				try {
-					int timePart= value.indexOf('T');
-					if (timePart != -1) {
-						OffsetDateTime odt= OffsetDateTime.parse(value);
-						rval= Timestamp.from(odt.toInstant());
-					} else {
-						// If we get a string without a time part, use 00:00:00 in timezone passed on creation
-						LocalDate lt= LocalDate.parse(value);
-						rval= Timestamp.from(lt.atStartOfDay(timezone.toZoneId()).toInstant());
-					}
-				} catch (NumberFormatException e) {
-					throw new FormatException("Unable to parse " + name + " value '" +
-							value + "' into LocalDate");
-				}
-			}
-		}
+	@Override
+	public Timestamp getOptionalTimestamp(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		// Timestamp is mutable, so the cache holds the instant
+		Instant instant= getOptionalTemporal(name, Instant.class, "timestamp");
 		
-		return rval;
+		return (instant == null) ? null : Timestamp.from(instant);
+	}
+	
+	@Override
+	public Instant getOptionalInstant(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return getOptionalTemporal(name, Instant.class, "instant");
+	}
+	
+	@Override
+	public OffsetDateTime getOptionalOffsetDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return getOptionalTemporal(name, OffsetDateTime.class, "OffsetDateTime");
+	}
+	
+	@Override
+	public LocalDateTime getOptionalLocalDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return getOptionalTemporal(name, LocalDateTime.class, "LocalDateTime");
 	}
 
 	@Override
 	public Composite getOptionalObject(@NonNull String name) throws WrongTypeException {
+		return asObject(object.get(name), name);
+	}
+	
+	private @Nullable Composite asObject(
+			@Nullable JsonElement el,
+			@NonNull String name) throws WrongTypeException
+	{
 		Composite rval= null;
 		
-		if (object.has(name)) {
-			JsonElement el= object.get(name);
+		if (el != null) {
 			if (!el.isJsonNull()) {
 				if (!el.isJsonObject()) {
 					throw new WrongTypeException(name, "object");
@@ -438,18 +730,408 @@ public final class JsonCompositeImpl implements Composite {
 				@SuppressWarnings("null")
 				@NonNull JsonObject ob= el.getAsJsonObject();
 				
-				rval= new JsonCompositeImpl(ob, timezone, prefix + name);
+				ChildCache cache= getChildren();
+				rval= (Composite)cache.get(name, ob);
+				if (rval == null) {
+					rval= new JsonCompositeImpl(ob, timezone, prefix + name, conversions, document);
+					cache.put(name, ob, rval);
+				}
 			}
 		}
 		
 		return rval;
 	}
 
+	/**
+	 * step
+	 * 
+	 * Follow one segment of a path from a node of the underlying tree, returning null if the
+	 * value isn't there.  The following segment decides whether the value has to be an array
+	 * or an object.
+	 */
+	private @Nullable JsonElement step(
+			@NonNull JsonElement node,
+			@NonNull CompositePath path,
+			int segment,
+			int count) throws WrongTypeException
+	{
+		JsonElement next;
+		
+		String name= path.getName(segment);
+		if (name != null) {
+			next= ((JsonObject)node).get(name);
+		} else {
+			JsonArray array= (JsonArray)node;
+			int index= path.getIndex(segment);
+			
+			next= (index < array.size()) ? array.get(index) : null;
+		}
+		
+		if ((next == null) || next.isJsonNull()) {
+			return null;
+		}
+		
+		if ((segment + 1 < count) && path.isIndex(segment + 1)) {
+			if (!next.isJsonArray()) {
+				throw new WrongTypeException(prefix + path.getText(segment), "array");
+			}
+		} else if (!next.isJsonObject()) {
+			throw new WrongTypeException(prefix + path.getText(segment), "object");
+		}
+		
+		return next;
+	}
+	
+	/**
+	 * walkRequired
+	 * 
+	 * Follow the first count segments of a path and return the object they lead to, throwing
+	 * MissingValueException for the first step that isn't there.
+	 */
+	private @NonNull JsonObject walkRequired(
+			@NonNull CompositePath path,
+			int count) throws MissingValueException, WrongTypeException
+	{
+		JsonElement node= object;
+		for (int i= 0; i < count; i++) {
+			JsonElement next= step(node, path, i, count);
+			if (next == null) {
+				throw new MissingValueException(prefix + path.getText(i));
+			}
+			
+			node= next;
+		}
+		
+		return (JsonObject)node;
+	}
+	
+	/**
+	 * walkOptional
+	 * 
+	 * Follow the first count segments of a path and return the object they lead to, or null
+	 * if any step isn't there.
+	 */
+	private @Nullable JsonObject walkOptional(
+			@NonNull CompositePath path,
+			int count) throws WrongTypeException
+	{
+		JsonElement node= object;
+		for (int i= 0; i < count; i++) {
+			JsonElement next= step(node, path, i, count);
+			if (next == null) {
+				return null;
+			}
+			
+			node= next;
+		}
+		
+		return (JsonObject)node;
+	}
+	
+	// A short-lived wrapper for an object found on a path, so that its values go through the
+	// normal conversion and error handling
+	private @NonNull Composite wrap(
+			@NonNull JsonObject node,
+			@NonNull CompositePath path,
+			int segment)
+	{
+		return new JsonCompositeImpl(node, timezone, prefix + path.getText(segment), conversions, document);
+	}
+	
+	private @NonNull Composite getRequiredParent(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		int depth= path.size() - 1;
+		if (depth == 0) {
+			return this;
+		}
+		
+		return wrap(walkRequired(path, depth), path, depth - 1);
+	}
+	
+	private @Nullable Composite getOptionalParent(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		int depth= path.size() - 1;
+		if (depth == 0) {
+			return this;
+		}
+		
+		JsonObject parent= walkOptional(path, depth);
+		return (parent == null) ? null : wrap(parent, path, depth - 1);
+	}
+
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredString(name);
+	}
+
+	@Override
+	public String getOptionalString(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalString(name);
+	}
+
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredInteger(name);
+	}
+
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalInteger(name);
+	}
+
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredLong(name);
+	}
+
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalLong(name);
+	}
+
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredDouble(name);
+	}
+
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalDouble(name);
+	}
+
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredBoolean(name);
+	}
+
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalBoolean(name);
+	}
+
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		int size= path.size();
+		if ((size == 1) && !path.isIndex(0)) {
+			return getRequiredObject(path.getLeafName());
+		}
+		
+		return wrap(walkRequired(path, size), path, size - 1);
+	}
+
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		int size= path.size();
+		if ((size == 1) && !path.isIndex(0)) {
+			return getOptionalObject(path.getLeafName());
+		}
+		
+		JsonObject node= walkOptional(path, size);
+		return (node == null) ? null : wrap(node, path, size - 1);
+	}
+
+	/**
+	 * element
+	 * 
+	 * Look up the member for a key.  For a tree the library still owns, the key remembers
+	 * which slot the member is in for the shapes it has seen, so for same-shaped objects this
+	 * is an identity check and an array read instead of a search of the tree.  A caller's
+	 * tree could change at any time, so that's just looked up by name.
+	 */
+	private @Nullable JsonElement element(
+			@NonNull CompositeKey key)
+	{
+		JsonDocument current= document;
+		if ((current == null) || !current.isOwned()) {
+			return object.get(key.getName());
+		}
+		
+		JsonDocument.Layout objectLayout= layout;
+		if (objectLayout == null) {
+			// A race just looks up the same layout twice
+			objectLayout= current.layoutOf(object);
+			layout= objectLayout;
+		}
+		
+		Shape shape= objectLayout.getShape();
+		if (shape == null) {
+			return object.get(key.getName());
+		}
+		
+		int slot= key.getSlot(shape);
+		if (slot == CompositeKey.NOT_CACHED) {
+			slot= shape.slotOf(key.getName());
+			key.setSlot(shape, slot);
+		}
+		
+		return (slot < 0) ? null : objectLayout.getValue(slot);
+	}
+	
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		String value= getOptionalString(key);
+		if (value == null) {
+			throw new MissingValueException(prefix + key.getName());
+		}
+		
+		return value;
+	}
+
+	@Override
+	public String getOptionalString(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return asString(element(key), key.getName());
+	}
+
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		Integer value= getOptionalInteger(key);
+		if (value == null) {
+			throw new MissingValueException(prefix + key.getName());
+		}
+		
+		return value;
+	}
+
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return asInteger(element(key), key.getName());
+	}
+
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		Long value= getOptionalLong(key);
+		if (value == null) {
+			throw new MissingValueException(prefix + key.getName());
+		}
+		
+		return value;
+	}
+
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return asLong(element(key), key.getName());
+	}
+
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		Double value= getOptionalDouble(key);
+		if (value == null) {
+			throw new MissingValueException(prefix + key.getName());
+		}
+		
+		return value;
+	}
+
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return asDouble(element(key), key.getName());
+	}
+
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		Boolean value= getOptionalBoolean(key);
+		if (value == null) {
+			throw new MissingValueException(prefix + key.getName());
+		}
+		
+		return value;
+	}
+
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return asBoolean(element(key), key.getName());
+	}
+
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		Composite value= getOptionalObject(key);
+		if (value == null) {
+			throw new MissingValueException(prefix + key.getName());
+		}
+		
+		return value;
+	}
+
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return asObject(element(key), key.getName());
+	}
+
 	@Override
 	public @NonNull Iterable<Map.Entry<@NonNull String, @NonNull Composite>> getObjectMap(
 			) throws WrongTypeException
 	{
-		return new JsonCompositeMapImpl(object, timezone, prefix);
+		return new JsonCompositeMapImpl(object, timezone, prefix, conversions, document);
 	}
 	
 	@Override
@@ -468,8 +1150,15 @@ public final class JsonCompositeImpl implements Composite {
 				@SuppressWarnings("null")
 				@NonNull JsonArray array= el.getAsJsonArray();
 				
-				// The JsonCompositeArrayImpl construct validated each member is an object
-				rval= new JsonCompositeArrayImpl(name, array, timezone, prefix);
+				ChildCache cache= getChildren();
+				rval= (JsonCompositeArrayImpl)cache.get(name, array);
+				if (rval == null) {
+					// The JsonCompositeArrayImpl construct validated each member is an object
+					rval= new JsonCompositeArrayImpl(name, array, timezone, prefix + name, conversions, document);
+					cache.put(name, array, rval);
+				} else {
+					rval.verify();
+				}
 			}
 		}
 		
@@ -557,16 +1246,53 @@ public final class JsonCompositeImpl implements Composite {
 		return object.toString();
 	}
 	
+	@Override
+	public @NonNull Object peekTree() {
+		return object;
+	}
+	
+	@Override
+	public @NonNull ContentHash contentHash() {
+		// A caller's tree can change between calls, so only an owned tree's hash is kept
+		if ((document == null) || !document.isOwned()) {
+			return ContentHasher.hash(object);
+		}
+		
+		ContentHash rval= contentHash;
+		if (rval == null) {
+			rval= ContentHasher.hash(object);
+			contentHash= rval;
+		}
+		
+		return rval;
+	}
+	
+	@Override
+	public void writeTo(
+			@NonNull OutputStream stream,
+			@NonNull Format format) throws IOException
+	{
+		TreeWriter.write(object, stream, format, timezone);
+	}
+	
 	public @NonNull <Representation extends Object> Representation serialize(
 			@NonNull Class<? extends Representation> representationClass)
 	{
-		if (!representationClass.isAssignableFrom(JsonObject.class)) {
+		Object value= null;
+		
+		if (representationClass.isAssignableFrom(JsonObject.class)) {
+			// The caller gets the tree itself, so the library no longer owns it
+			release();
+			value= object;
+		} else if (representationClass.isAssignableFrom(Map.class)) {
+			value= TreeConverter.toMap(object);
+		} else {
 			throw new UnsupportedSerializationException(representationClass);
 		}
 		
 		@SuppressWarnings("unchecked")
-		Representation rval= (Representation)object;
+		Representation rval= (Representation)value;
 		
 		return rval;
 	}
-}
\ No newline at end of file
+}
@@ -21,10 +21,12 @@ import java.util.Map;
 import java.util.TimeZone;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.ConversionCache;
 import com.teaglu.composite.exception.WrongTypeException;
 
 /**
@@ -73,7 +75,8 @@ public final class JsonCompositeMapImpl implements Iterable<Map.Entry<@NonNull S
 
 				@Override
 				public @NonNull Composite getValue() {
-					return new JsonCompositeImpl(object, timezone, prefix + name);
+					return new JsonCompositeImpl(
+							object, timezone, prefix + name, conversions, document);
 				}
 
 				@Override
@@ -87,11 +90,15 @@ public final class JsonCompositeMapImpl implements Iterable<Map.Entry<@NonNull S
 	private @NonNull JsonObject object;
 	private @NonNull TimeZone timezone;
 	private @NonNull String prefix;
+	private @Nullable ConversionCache conversions;
+	private @Nullable JsonDocument document;
 	
 	JsonCompositeMapImpl(
 			@NonNull JsonObject object,
 			@NonNull TimeZone timezone,
-			@NonNull String prefix) throws WrongTypeException
+			@NonNull String prefix,
+			@Nullable ConversionCache conversions,
+			@Nullable JsonDocument document) throws WrongTypeException
 	{
 		// Verify all the entries are objects.  We can't do that in the iterator because the
 		// iterator methods don't have any throw clauses.
@@ -106,6 +113,8 @@ public final class JsonCompositeMapImpl implements Iterable<Map.Entry<@NonNull S
 		this.object= object;
 		this.timezone= timezone;
 		this.prefix= prefix;
+		this.conversions= conversions;
+		this.document= document;
 	}
 	
 	@Override
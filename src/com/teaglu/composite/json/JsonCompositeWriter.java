@@ -0,0 +1,480 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.teaglu.composite.CompositeWriter;
+import com.teaglu.composite.convert.WriterState;
+
+/**
+ * JsonCompositeWriter
+ * 
+ * Streaming JSON writer that encodes UTF-8 directly into a fixed-size byte buffer, which is
+ * handed to the output stream or channel each time it fills.  There is no intermediate
+ * character writer or string, and memory use doesn't grow with the size of the document.
+ * 
+ * Output is compact, with no whitespace between tokens.
+ */
+public final class JsonCompositeWriter implements CompositeWriter {
+	private static final int BUFFER_SIZE= 8192;
+	
+	// Longest encoding of a single character - a \\uXXXX escape
+	private static final int MAX_CHAR_BYTES= 6;
+	
+	private static final byte[] HEX= {
+			'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+	};
+	
+	private final @Nullable OutputStream stream;
+	private final @Nullable WritableByteChannel channel;
+	private final @NonNull ZoneId zone;
+	
+	private final byte[] buffer= new byte[BUFFER_SIZE];
+	private final @NonNull ByteBuffer wrapped;
+	private int count;
+	
+	// Digits of a long, which can be 19 digits plus a sign
+	private final byte[] digits= new byte[20];
+	
+	private final @NonNull WriterState state= new WriterState();
+	private boolean closed;
+	
+	/**
+	 * JsonCompositeWriter
+	 * 
+	 * Create a writer on an output stream.
+	 *
+	 * @param stream					Output stream
+	 * @param timezone					Timezone for writing timestamps
+	 */
+	public JsonCompositeWriter(
+			@NonNull OutputStream stream,
+			@NonNull TimeZone timezone)
+	{
+		this.stream= stream;
+		this.channel= null;
+		this.zone= timezone.toZoneId();
+		
+		@SuppressWarnings("null")
+		@NonNull ByteBuffer tmp= ByteBuffer.wrap(buffer);
+		this.wrapped= tmp;
+	}
+	
+	/**
+	 * JsonCompositeWriter
+	 * 
+	 * Create a writer on a channel.
+	 *
+	 * @param channel					Output channel
+	 * @param timezone					Timezone for writing timestamps
+	 */
+	public JsonCompositeWriter(
+			@NonNull WritableByteChannel channel,
+			@NonNull TimeZone timezone)
+	{
+		this.stream= null;
+		this.channel= channel;
+		this.zone= timezone.toZoneId();
+		
+		@SuppressWarnings("null")
+		@NonNull ByteBuffer tmp= ByteBuffer.wrap(buffer);
+		this.wrapped= tmp;
+	}
+	
+	private void drain() throws IOException {
+		if (count > 0) {
+			OutputStream out= stream;
+			WritableByteChannel target= channel;
+			
+			if (out != null) {
+				out.write(buffer, 0, count);
+			} else if (target != null) {
+				wrapped.clear();
+				wrapped.limit(count);
+				while (wrapped.hasRemaining()) {
+					target.write(wrapped);
+				}
+			} else {
+				throw new RuntimeException("Writer has no output");
+			}
+			
+			count= 0;
+		}
+	}
+	
+	private void write(int b) throws IOException {
+		if (count == buffer.length) {
+			drain();
+		}
+		buffer[count++]= (byte)b;
+	}
+	
+	private void writeAscii(@NonNull String text) throws IOException {
+		int length= text.length();
+		for (int i= 0; i < length; i++) {
+			write(text.charAt(i));
+		}
+	}
+	
+	private void writeEscape(int c) throws IOException {
+		if (count + MAX_CHAR_BYTES > buffer.length) {
+			drain();
+		}
+		
+		buffer[count++]= '\\';
+		buffer[count++]= 'u';
+		buffer[count++]= HEX[(c >> 12) & 0xF];
+		buffer[count++]= HEX[(c >> 8) & 0xF];
+		buffer[count++]= HEX[(c >> 4) & 0xF];
+		buffer[count++]= HEX[c & 0xF];
+	}
+	
+	private void writeString(@NonNull String text) throws IOException {
+		write('"');
+		
+		int length= text.length();
+		for (int i= 0; i < length; i++) {
+			char c= text.charAt(i);
+			
+			if (count + MAX_CHAR_BYTES > buffer.length) {
+				drain();
+			}
+			
+			if (c < 0x80) {
+				if (c == '"' || c == '\\') {
+					buffer[count++]= '\\';
+					buffer[count++]= (byte)c;
+				} else if (c >= 0x20) {
+					buffer[count++]= (byte)c;
+				} else if (c == '\n') {
+					buffer[count++]= '\\';
+					buffer[count++]= 'n';
+				} else if (c == '\r') {
+					buffer[count++]= '\\';
+					buffer[count++]= 'r';
+				} else if (c == '\t') {
+					buffer[count++]= '\\';
+					buffer[count++]= 't';
+				} else {
+					writeEscape(c);
+				}
+			} else if (c < 0x800) {
+				buffer[count++]= (byte)(0xC0 | (c >> 6));
+				buffer[count++]= (byte)(0x80 | (c & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				char low= (i + 1 < length) ? text.charAt(i + 1) : 0;
+				if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+					int cp= Character.toCodePoint(c, low);
+					buffer[count++]= (byte)(0xF0 | (cp >> 18));
+					buffer[count++]= (byte)(0x80 | ((cp >> 12) & 0x3F));
+					buffer[count++]= (byte)(0x80 | ((cp >> 6) & 0x3F));
+					buffer[count++]= (byte)(0x80 | (cp & 0x3F));
+					i++;
+				} else {
+					// A lone surrogate can't be encoded as UTF-8, but JSON can escape it
+					writeEscape(c);
+				}
+			} else {
+				buffer[count++]= (byte)(0xE0 | (c >> 12));
+				buffer[count++]= (byte)(0x80 | ((c >> 6) & 0x3F));
+				buffer[count++]= (byte)(0x80 | (c & 0x3F));
+			}
+		}
+		
+		write('"');
+	}
+	
+	private void beforeValue() {
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+		if (state.beforeValue()) {
+			// Only arrays need the separator here - objects get theirs before the name
+			buffer[count++]= ',';
+		}
+	}
+	
+	private void valueStart() throws IOException {
+		if (count == buffer.length) {
+			drain();
+		}
+		beforeValue();
+	}
+	
+	@Override
+	public @NonNull CompositeWriter beginObject() throws IOException {
+		valueStart();
+		state.beginObject();
+		write('{');
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter endObject() throws IOException {
+		state.endObject();
+		write('}');
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter beginArray() throws IOException {
+		valueStart();
+		state.beginArray();
+		write('[');
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter endArray() throws IOException {
+		state.endArray();
+		write(']');
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter name(
+			@NonNull String name) throws IOException
+	{
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+		if (state.beforeName()) {
+			write(',');
+		}
+		writeString(name);
+		write(':');
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable String value) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		valueStart();
+		writeString(value);
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			long value) throws IOException
+	{
+		valueStart();
+		
+		if (value == Long.MIN_VALUE) {
+			// Can't be negated
+			writeAscii("-9223372036854775808");
+			return this;
+		}
+		
+		if (count + digits.length > buffer.length) {
+			drain();
+		}
+		
+		long remaining= value;
+		if (remaining < 0) {
+			buffer[count++]= '-';
+			remaining= -remaining;
+		}
+		
+		int used= 0;
+		do {
+			digits[used++]= (byte)('0' + (int)(remaining % 10));
+			remaining/= 10;
+		} while (remaining != 0);
+		
+		while (used > 0) {
+			buffer[count++]= digits[--used];
+		}
+		
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			double value) throws IOException
+	{
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("JSON cannot represent " + value);
+		}
+		
+		valueStart();
+		writeAscii(Double.toString(value));
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			boolean value) throws IOException
+	{
+		valueStart();
+		writeAscii(value ? "true" : "false");
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable BigDecimal value) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		valueStart();
+		
+		@SuppressWarnings("null")
+		@NonNull String text= value.toString();
+		writeAscii(text);
+		
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable BigInteger value) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		valueStart();
+		
+		@SuppressWarnings("null")
+		@NonNull String text= value.toString();
+		writeAscii(text);
+		
+		return this;
+	}
+	
+	private @NonNull CompositeWriter formatted(
+			@Nullable TemporalAccessor value,
+			@NonNull DateTimeFormatter formatter) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		valueStart();
+		
+		write('"');
+		@SuppressWarnings("null")
+		@NonNull String text= formatter.format(value);
+		writeAscii(text);
+		write('"');
+		
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable LocalDate value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_LOCAL_DATE);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable Timestamp value) throws IOException
+	{
+		return formatted(
+				(value == null) ? null : OffsetDateTime.ofInstant(value.toInstant(), zone),
+				DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable Instant value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_INSTANT);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable OffsetDateTime value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable LocalDateTime value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter nullValue() throws IOException {
+		valueStart();
+		writeAscii("null");
+		return this;
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		drain();
+		
+		OutputStream out= stream;
+		if (out != null) {
+			out.flush();
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed= true;
+		
+		try {
+			drain();
+		} finally {
+			if (stream != null) {
+				stream.close();
+			} else if (channel != null) {
+				channel.close();
+			}
+		}
+		
+		if (state.isStarted() && !state.isComplete()) {
+			throw new IOException("Incomplete JSON document");
+		}
+	}
+}
@@ -0,0 +1,327 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.teaglu.composite.cache.OwnedTree;
+import com.teaglu.composite.convert.Shape;
+
+/**
+ * JsonDocument
+ *
+ * A GSON tree built by the library, along with the shape of each of its objects.  Parsing
+ * assigns an object its shape and copies its members into slots as the members are read, so
+ * reading a member by key is an identity check on the shape and an array read - as long as
+ * the document is still owned.  Objects that weren't laid out while parsing, such as those
+ * in a tree converted from a map, are laid out the first time they're read by key.
+ *
+ * Only library-built trees get a document.  A composite over a caller's JsonObject looks
+ * members up by name every time, since the caller could change the object at any point.
+ */
+final class JsonDocument extends OwnedTree {
+	/**
+	 * Layout
+	 *
+	 * The shape of one object and its members in shape order.
+	 */
+	static final class Layout {
+		private final @Nullable Shape shape;
+		private final JsonElement[] values;
+
+		private Layout(
+				@Nullable Shape shape,
+				JsonElement[] values)
+		{
+			this.shape= shape;
+			this.values= values;
+		}
+
+		/**
+		 * getShape
+		 *
+		 * @return						Shape, or null if the object ran past the shape limits
+		 */
+		@Nullable Shape getShape() {
+			return shape;
+		}
+
+		/**
+		 * getValue
+		 *
+		 * @param slot					Slot in the shape
+		 *
+		 * @return						Member in the slot
+		 */
+		@Nullable JsonElement getValue(int slot) {
+			return values[slot];
+		}
+	}
+
+	// Objects that ran past the shape limits
+	private static final Layout UNSHAPED= new Layout(null, new JsonElement[0]);
+
+	/**
+	 * Collector
+	 *
+	 * Layouts gathered while parsing.  The object finished last - the root, once parsing is
+	 * done - is kept out of the map, so a flat document never allocates one.
+	 */
+	private static final class Collector {
+		private @Nullable JsonObject lastObject;
+		private @Nullable Layout lastLayout;
+		private @Nullable Map<JsonObject, Layout> earlier;
+
+		private void add(
+				@NonNull JsonObject object,
+				@NonNull Layout layout)
+		{
+			JsonObject previous= lastObject;
+			if (previous != null) {
+				Map<JsonObject, Layout> map= earlier;
+				if (map == null) {
+					map= new IdentityHashMap<>();
+					earlier= map;
+				}
+				map.put(previous, lastLayout);
+			}
+
+			lastObject= object;
+			lastLayout= layout;
+		}
+	}
+
+	private final @NonNull JsonElement root;
+
+	// Filled in while parsing and only read after that
+	private final @Nullable JsonObject lastObject;
+	private final @Nullable Layout lastLayout;
+	private final @Nullable Map<JsonObject, Layout> layouts;
+
+	private JsonDocument(
+			@NonNull JsonElement root,
+			@NonNull Collector collector)
+	{
+		this.root= root;
+		this.lastObject= collector.lastObject;
+		this.lastLayout= collector.lastLayout;
+		this.layouts= collector.earlier;
+	}
+
+	/**
+	 * Parse
+	 *
+	 * Parse JSON text into a document, accepting the same input as JsonParser.parseReader.
+	 * Empty input gives a document whose root is JsonNull.
+	 *
+	 * @param reader					Source of JSON text
+	 *
+	 * @return							Parsed document
+	 *
+	 * @throws JsonParseException		Input is not valid JSON, or can't be read
+	 */
+	static @NonNull JsonDocument Parse(
+			@NonNull Reader reader) throws JsonParseException
+	{
+		Collector layouts= new Collector();
+
+		JsonReader jsonReader= new JsonReader(reader);
+		jsonReader.setLenient(true);
+
+		try {
+			try {
+				jsonReader.peek();
+			} catch (EOFException emptyException) {
+				return new JsonDocument(JsonNull.INSTANCE, layouts);
+			}
+
+			JsonElement root= read(jsonReader, layouts);
+			if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+				throw new JsonSyntaxException("Did not consume the entire document.");
+			}
+
+			return new JsonDocument(root, layouts);
+		} catch (MalformedJsonException | EOFException | NumberFormatException syntaxException) {
+			throw new JsonSyntaxException(syntaxException);
+		} catch (IOException ioException) {
+			throw new JsonIOException(ioException);
+		} catch (StackOverflowError | OutOfMemoryError e) {
+			throw new JsonParseException("Failed parsing JSON source to Json", e);
+		}
+	}
+
+	/**
+	 * Built
+	 *
+	 * Create a document for a tree the library built some other way, which gets its layouts
+	 * on first use.
+	 *
+	 * @param root						Root of tree
+	 *
+	 * @return							Document
+	 */
+	static @NonNull JsonDocument Built(
+			@NonNull JsonElement root)
+	{
+		return new JsonDocument(root, new Collector());
+	}
+
+	private static @NonNull JsonElement read(
+			@NonNull JsonReader reader,
+			@NonNull Collector layouts) throws IOException
+	{
+		switch (reader.peek()) {
+		case BEGIN_OBJECT:
+			return readObject(reader, layouts);
+
+		case BEGIN_ARRAY: {
+			JsonArray array= new JsonArray();
+
+			reader.beginArray();
+			while (reader.hasNext()) {
+				array.add(read(reader, layouts));
+			}
+			reader.endArray();
+
+			return array;
+		}
+
+		case STRING:
+			return new JsonPrimitive(reader.nextString());
+
+		case BOOLEAN:
+			return new JsonPrimitive(reader.nextBoolean());
+
+		case NULL:
+			reader.nextNull();
+			return JsonNull.INSTANCE;
+
+		default:
+			// Let GSON make numbers, so they keep the same lazily parsed form as elsewhere
+			@SuppressWarnings("null")
+			@NonNull JsonElement number= JsonParser.parseReader(reader);
+			return number;
+		}
+	}
+
+	private static @NonNull JsonObject readObject(
+			@NonNull JsonReader reader,
+			@NonNull Collector layouts) throws IOException
+	{
+		JsonObject object= new JsonObject();
+
+		Shape shape= Shape.root();
+		JsonElement[] values= new JsonElement[8];
+		int count= 0;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name= reader.nextName();
+			JsonElement value= read(reader, layouts);
+
+			object.add(name, value);
+
+			if (shape != null) {
+				// A repeated name replaces the earlier member, which leaves a hole in the shape
+				shape= (object.size() == count) ? null : shape.with(name);
+				if (shape != null) {
+					if (count == values.length) {
+						values= Arrays.copyOf(values, count * 2);
+					}
+					values[count++]= value;
+				}
+			}
+		}
+		reader.endObject();
+
+		layouts.add(object, (shape == null) ? UNSHAPED : new Layout(shape, values));
+
+		return object;
+	}
+
+	/**
+	 * getRoot
+	 *
+	 * @return							Root of the tree
+	 */
+	@NonNull JsonElement getRoot() {
+		return root;
+	}
+
+	/**
+	 * layoutOf
+	 *
+	 * Return the layout of an object in the tree, laying it out now if parsing didn't.
+	 *
+	 * @param object					Object in the tree
+	 *
+	 * @return							Layout of the object
+	 */
+	@NonNull Layout layoutOf(
+			@NonNull JsonObject object)
+	{
+		if (object == lastObject) {
+			@SuppressWarnings("null")
+			@NonNull Layout rval= lastLayout;
+			return rval;
+		}
+		if (layouts != null) {
+			Layout rval= layouts.get(object);
+			if (rval != null) {
+				return rval;
+			}
+		}
+
+		Shape shape= Shape.root();
+		JsonElement[] values= new JsonElement[object.size()];
+
+		int slot= 0;
+		for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+			@SuppressWarnings("null")
+			@NonNull String name= entry.getKey();
+
+			shape= shape.with(name);
+			if (shape == null) {
+				return UNSHAPED;
+			}
+
+			values[slot++]= entry.getValue();
+		}
+
+		return new Layout(shape, values);
+	}
+}
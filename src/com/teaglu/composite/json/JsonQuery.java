@@ -0,0 +1,698 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.teaglu.composite.Composite;
+import com.teaglu.composite.convert.DecodedNumber;
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.WrongTypeException;
+
+/**
+ * JsonQuery
+ * 
+ * A query over an array of objects in a JSON document, evaluated while the document is read
+ * so that the full tree is never built.  Queries look like this:
+ * 
+ *     select orders[*] where status == 'OPEN' and total > 100 project id, total
+ * 
+ * The select clause names the array to scan, using dotted member names from the root, or
+ * just [*] if the document itself is an array.  The optional where clause compares members
+ * of each record against string, number, boolean, or null literals using ==, !=, <, <=, >, or
+ * >=, combined with and / or where and binds tighter.  The optional project clause lists the
+ * members to keep.  Member names in both clauses may be dotted paths into nested objects.
+ * 
+ * Only the members a query needs are buffered - everything else is skipped at the token
+ * level - and as soon as the members seen so far decide that a record can't match, the rest
+ * of that record is skipped as well.  Reading stops once the selected array ends.
+ * 
+ * Comparing values of different types is false for everything except !=.  A missing member
+ * compares as null.
+ * 
+ * Each match is handed to a Handler as a Composite whose error path includes the array and
+ * index of the record, such as orders[17].total.
+ */
+public final class JsonQuery {
+	/**
+	 * Handler
+	 * 
+	 * Receives each record matching a query.
+	 */
+	@FunctionalInterface
+	public interface Handler {
+		/**
+		 * handle
+		 * 
+		 * Handle a matching record.  An exception thrown here stops the query.
+		 *
+		 * @param result					Projected record
+		 * 
+		 * @throws SchemaException			Record is not valid for the handler
+		 */
+		public void handle(
+				@NonNull Composite result) throws SchemaException;
+	}
+	
+	private enum Operator {
+		EQ, NE, LT, LE, GT, GE
+	}
+	
+	// Results of evaluating a predicate against part of a record
+	private static final int FALSE= 0;
+	private static final int TRUE= 1;
+	private static final int UNKNOWN= 2;
+	
+	private static final class Term {
+		private final @NonNull String[] field;
+		private final @NonNull Operator operator;
+		private final @Nullable JsonPrimitive literal;
+		private final @Nullable DecodedNumber number;
+		private final int slot;
+		
+		private Term(
+				@NonNull String[] field,
+				@NonNull Operator operator,
+				@Nullable JsonPrimitive literal,
+				int slot)
+		{
+			this.field= field;
+			this.operator= operator;
+			this.literal= literal;
+			this.slot= slot;
+			
+			if ((literal != null) && literal.isNumber()) {
+				@SuppressWarnings("null")
+				@NonNull Number value= literal.getAsNumber();
+				number= DecodedNumber.of(value);
+			} else {
+				number= null;
+			}
+		}
+	}
+	
+	private final @NonNull String text;
+	
+	// Member names leading to the selected array, and the path text used in errors
+	private final @NonNull String[] source;
+	private final @NonNull String sourceText;
+	
+	// Where clause as a list of alternatives, each a list of terms that must all hold
+	private final @NonNull Term[][] alternatives;
+	
+	// Projected member paths, or null to keep whole records
+	private final @NonNull String[] @Nullable [] projections;
+	
+	// Top-level members the query needs, by slot
+	private final @NonNull Map<String, Integer> slots;
+	private final int slotCount;
+	
+	private JsonQuery(
+			@NonNull String text,
+			@NonNull String[] source,
+			@NonNull Term[][] alternatives,
+			@NonNull String[] @Nullable [] projections,
+			@NonNull Map<String, Integer> slots)
+	{
+		this.text= text;
+		this.source= source;
+		this.alternatives= alternatives;
+		this.projections= projections;
+		this.slots= slots;
+		this.slotCount= slots.size();
+		
+		sourceText= String.join(".", source);
+	}
+	
+	/**
+	 * Compile
+	 * 
+	 * Compile a query.  Throws IllegalArgumentException if the query is not valid.
+	 *
+	 * @param text						Query text
+	 * 
+	 * @return							Compiled query
+	 */
+	public static @NonNull JsonQuery Compile(
+			@NonNull String text)
+	{
+		return new Compiler(text).compile();
+	}
+	
+	/**
+	 * execute
+	 * 
+	 * Run the query over a JSON document, calling the handler for each matching record.
+	 *
+	 * @param input						JSON input, which is not closed
+	 * @param timezone					Timezone for interpretation of results
+	 * @param handler					Handler for matching records
+	 * 
+	 * @throws ParseException			Input is not valid JSON or could not be read
+	 * @throws WrongTypeException		Selected array or a record in it is the wrong type
+	 * @throws SchemaException			Handler rejected a record
+	 */
+	public void execute(
+			@NonNull Reader input,
+			@NonNull TimeZone timezone,
+			@NonNull Handler handler) throws SchemaException
+	{
+		JsonReader json= new JsonReader(input);
+		try {
+			if (!seekSource(json)) {
+				return;
+			}
+			
+			json.beginArray();
+			for (int index= 0; json.hasNext(); index++) {
+				String recordPath= sourceText + "[" + index + "]";
+				
+				if (json.peek() != JsonToken.BEGIN_OBJECT) {
+					throw new WrongTypeException(recordPath, "object");
+				}
+				
+				JsonObject result= readRecord(json);
+				if (result != null) {
+					handler.handle(new JsonCompositeImpl(
+							result, timezone, recordPath, null, JsonDocument.Built(result)));
+				}
+			}
+			
+			// Nothing after the selected array matters, so stop reading here
+		} catch (IOException | IllegalStateException | JsonParseException e) {
+			throw new ParseException("Error reading JSON input for query " + text, e);
+		}
+	}
+	
+	/**
+	 * execute
+	 * 
+	 * Run the query over a JSON document using UTC for interpretation of results.
+	 *
+	 * @param input						JSON input, which is not closed
+	 * @param handler					Handler for matching records
+	 * 
+	 * @throws ParseException			Input is not valid JSON or could not be read
+	 * @throws WrongTypeException		Selected array or a record in it is the wrong type
+	 * @throws SchemaException			Handler rejected a record
+	 */
+	public void execute(
+			@NonNull Reader input,
+			@NonNull Handler handler) throws SchemaException
+	{
+		@SuppressWarnings("null")
+		@NonNull TimeZone utc= TimeZone.getTimeZone("UTC");
+		
+		execute(input, utc, handler);
+	}
+	
+	/**
+	 * seekSource
+	 * 
+	 * Position the reader at the start of the selected array, returning false if the array
+	 * is missing or null.
+	 */
+	private boolean seekSource(
+			@NonNull JsonReader json) throws IOException, WrongTypeException
+	{
+		for (int i= 0; i < source.length; i++) {
+			if (json.peek() != JsonToken.BEGIN_OBJECT) {
+				throw new WrongTypeException(
+						(i == 0) ? "root" : String.join(".", List.of(source).subList(0, i)),
+						"object");
+			}
+			
+			json.beginObject();
+			
+			boolean found= false;
+			while (!found && json.hasNext()) {
+				if (json.nextName().equals(source[i])) {
+					found= true;
+				} else {
+					json.skipValue();
+				}
+			}
+			
+			if (!found || (json.peek() == JsonToken.NULL)) {
+				return false;
+			}
+		}
+		
+		if (json.peek() != JsonToken.BEGIN_ARRAY) {
+			throw new WrongTypeException((source.length == 0) ? "root" : sourceText, "array");
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * readRecord
+	 * 
+	 * Read one record, returning its projection if it matches or null if it doesn't.
+	 */
+	private @Nullable JsonObject readRecord(
+			@NonNull JsonReader json) throws IOException
+	{
+		JsonElement[] values= new JsonElement[slotCount];
+		boolean[] seen= new boolean[slotCount];
+		JsonObject whole= (projections == null) ? new JsonObject() : null;
+		
+		json.beginObject();
+		while (json.hasNext()) {
+			String name= json.nextName();
+			
+			Integer slot= slots.get(name);
+			if (slot != null) {
+				JsonElement value= JsonParser.parseReader(json);
+				
+				values[slot]= value;
+				seen[slot]= true;
+				if (whole != null) {
+					whole.add(name, value);
+				}
+				
+				if (evaluate(values, seen) == FALSE) {
+					// Decided without the rest of the record
+					while (json.hasNext()) {
+						json.nextName();
+						json.skipValue();
+					}
+					json.endObject();
+					
+					return null;
+				}
+			} else if (whole != null) {
+				whole.add(name, JsonParser.parseReader(json));
+			} else {
+				json.skipValue();
+			}
+		}
+		json.endObject();
+		
+		// Anything not seen by now is missing
+		for (int i= 0; i < slotCount; i++) {
+			seen[i]= true;
+		}
+		if (evaluate(values, seen) != TRUE) {
+			return null;
+		}
+		
+		if (whole != null) {
+			return whole;
+		}
+		
+		JsonObject rval= new JsonObject();
+		for (String[] projection : projections) {
+			JsonElement value= resolve(values[slots.get(projection[0])], projection);
+			if (value != null) {
+				JsonObject parent= rval;
+				for (int i= 0; i < projection.length - 1; i++) {
+					JsonElement child= parent.get(projection[i]);
+					if (!(child instanceof JsonObject)) {
+						child= new JsonObject();
+						parent.add(projection[i], child);
+					}
+					parent= (JsonObject)child;
+				}
+				parent.add(projection[projection.length - 1], value);
+			}
+		}
+		
+		return rval;
+	}
+	
+	private static @Nullable JsonElement resolve(
+			@Nullable JsonElement top,
+			@NonNull String[] field)
+	{
+		JsonElement rval= top;
+		for (int i= 1; (rval != null) && (i < field.length); i++) {
+			rval= rval.isJsonObject() ? rval.getAsJsonObject().get(field[i]) : null;
+		}
+		
+		return rval;
+	}
+	
+	private int evaluate(
+			@Nullable JsonElement[] values,
+			boolean[] seen)
+	{
+		if (alternatives.length == 0) {
+			return TRUE;
+		}
+		
+		int rval= FALSE;
+		for (Term[] terms : alternatives) {
+			int all= TRUE;
+			for (Term term : terms) {
+				int result= seen[term.slot] ? test(term, resolve(values[term.slot], term.field)) : UNKNOWN;
+				if (result == FALSE) {
+					all= FALSE;
+					break;
+				} else if (result == UNKNOWN) {
+					all= UNKNOWN;
+				}
+			}
+			
+			if (all == TRUE) {
+				return TRUE;
+			} else if (all == UNKNOWN) {
+				rval= UNKNOWN;
+			}
+		}
+		
+		return rval;
+	}
+	
+	private static int test(
+			@NonNull Term term,
+			@Nullable JsonElement value)
+	{
+		boolean isNull= (value == null) || value.isJsonNull();
+		JsonPrimitive literal= term.literal;
+		
+		int compare;
+		if (literal == null || isNull) {
+			if (term.operator == Operator.EQ) {
+				return ((literal == null) && isNull) ? TRUE : FALSE;
+			} else if (term.operator == Operator.NE) {
+				return ((literal == null) && isNull) ? FALSE : TRUE;
+			} else {
+				return FALSE;
+			}
+		} else if (!value.isJsonPrimitive()) {
+			return (term.operator == Operator.NE) ? TRUE : FALSE;
+		} else {
+			JsonPrimitive primitive= value.getAsJsonPrimitive();
+			
+			DecodedNumber number= term.number;
+			if ((number != null) && primitive.isNumber()) {
+				@SuppressWarnings("null")
+				@NonNull Number valueNumber= primitive.getAsNumber();
+				
+				DecodedNumber decoded;
+				try {
+					decoded= DecodedNumber.of(valueNumber);
+				} catch (NumberFormatException e) {
+					return (term.operator == Operator.NE) ? TRUE : FALSE;
+				}
+				
+				if (decoded.isExactLong() && number.isExactLong()) {
+					compare= Long.compare(decoded.longValue(), number.longValue());
+				} else {
+					BigDecimal left= decoded.toBigDecimal();
+					compare= left.compareTo(number.toBigDecimal());
+				}
+			} else if (literal.isString() && primitive.isString()) {
+				compare= primitive.getAsString().compareTo(literal.getAsString());
+			} else if (literal.isBoolean() && primitive.isBoolean()) {
+				if ((term.operator != Operator.EQ) && (term.operator != Operator.NE)) {
+					return FALSE;
+				}
+				compare= (primitive.getAsBoolean() == literal.getAsBoolean()) ? 0 : 1;
+			} else {
+				return (term.operator == Operator.NE) ? TRUE : FALSE;
+			}
+		}
+		
+		boolean rval;
+		switch (term.operator) {
+		case EQ:
+			rval= (compare == 0);
+			break;
+		case NE:
+			rval= (compare != 0);
+			break;
+		case LT:
+			rval= (compare < 0);
+			break;
+		case LE:
+			rval= (compare <= 0);
+			break;
+		case GT:
+			rval= (compare > 0);
+			break;
+		case GE:
+			rval= (compare >= 0);
+			break;
+		default:
+			throw new RuntimeException("Unhandled operator " + term.operator);
+		}
+		
+		return rval ? TRUE : FALSE;
+	}
+	
+	@Override
+	public @NonNull String toString() {
+		return text;
+	}
+	
+	/**
+	 * Compiler
+	 * 
+	 * Recursive-descent parser for the query text.
+	 */
+	private static final class Compiler {
+		private final @NonNull String text;
+		private int pos;
+		
+		private final @NonNull Map<String, Integer> slots= new HashMap<>();
+		
+		private Compiler(@NonNull String text) {
+			this.text= text;
+		}
+		
+		private @NonNull IllegalArgumentException error(@NonNull String message) {
+			return new IllegalArgumentException(message + " at position " + pos + " in query " + text);
+		}
+		
+		private void skipSpace() {
+			while ((pos < text.length()) && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+		
+		private static boolean isNameChar(char c) {
+			return Character.isLetterOrDigit(c) || (c == '_') || (c == '-') || (c == '$');
+		}
+		
+		private @Nullable String peekWord() {
+			skipSpace();
+			int end= pos;
+			while ((end < text.length()) && isNameChar(text.charAt(end))) {
+				end++;
+			}
+			
+			return (end == pos) ? null : text.substring(pos, end);
+		}
+		
+		private boolean acceptKeyword(@NonNull String keyword) {
+			String word= peekWord();
+			if ((word != null) && word.equalsIgnoreCase(keyword)) {
+				pos+= word.length();
+				return true;
+			}
+			
+			return false;
+		}
+		
+		private boolean accept(@NonNull String symbol) {
+			skipSpace();
+			if (text.startsWith(symbol, pos)) {
+				pos+= symbol.length();
+				return true;
+			}
+			
+			return false;
+		}
+		
+		private @NonNull String name() {
+			String word= peekWord();
+			if (word == null) {
+				throw error("Expected a member name");
+			}
+			
+			pos+= word.length();
+			return word;
+		}
+		
+		private @NonNull String[] field() {
+			List<String> parts= new ArrayList<>();
+			parts.add(name());
+			while (accept(".")) {
+				parts.add(name());
+			}
+			
+			String[] rval= parts.toArray(new String[parts.size()]);
+			slots.putIfAbsent(rval[0], slots.size());
+			
+			return rval;
+		}
+		
+		private @NonNull JsonQuery compile() {
+			if (!acceptKeyword("select")) {
+				throw error("Expected select");
+			}
+			
+			List<String> source= new ArrayList<>();
+			if (!accept("[")) {
+				source.add(name());
+				while (accept(".")) {
+					source.add(name());
+				}
+				if (!accept("[")) {
+					throw error("Expected [*]");
+				}
+			}
+			if (!accept("*") || !accept("]")) {
+				throw error("Expected [*]");
+			}
+			
+			List<Term[]> alternatives= new ArrayList<>();
+			if (acceptKeyword("where")) {
+				do {
+					List<Term> terms= new ArrayList<>();
+					do {
+						terms.add(term());
+					} while (acceptKeyword("and"));
+					
+					alternatives.add(terms.toArray(new Term[terms.size()]));
+				} while (acceptKeyword("or"));
+			}
+			
+			List<String[]> projections= null;
+			if (acceptKeyword("project")) {
+				projections= new ArrayList<>();
+				do {
+					projections.add(field());
+				} while (accept(","));
+			}
+			
+			skipSpace();
+			if (pos != text.length()) {
+				throw error("Unexpected text");
+			}
+			
+			@SuppressWarnings("null")
+			@NonNull String[] sourceArray= source.toArray(new String[source.size()]);
+			
+			@SuppressWarnings("null")
+			@NonNull Term[][] alternativeArray= alternatives.toArray(new Term[alternatives.size()][]);
+			
+			return new JsonQuery(
+					text,
+					sourceArray,
+					alternativeArray,
+					(projections == null) ? null : projections.toArray(new String[projections.size()][]),
+					slots);
+		}
+		
+		private @NonNull Term term() {
+			String[] field= field();
+			
+			Operator operator;
+			if (accept("==")) {
+				operator= Operator.EQ;
+			} else if (accept("!=")) {
+				operator= Operator.NE;
+			} else if (accept("<=")) {
+				operator= Operator.LE;
+			} else if (accept(">=")) {
+				operator= Operator.GE;
+			} else if (accept("<")) {
+				operator= Operator.LT;
+			} else if (accept(">")) {
+				operator= Operator.GT;
+			} else {
+				throw error("Expected a comparison operator");
+			}
+			
+			return new Term(field, operator, literal(), slots.get(field[0]));
+		}
+		
+		private @Nullable JsonPrimitive literal() {
+			skipSpace();
+			if (accept("'")) {
+				StringBuilder value= new StringBuilder();
+				while (true) {
+					if (pos >= text.length()) {
+						throw error("Unterminated string");
+					}
+					
+					char c= text.charAt(pos++);
+					if (c == '\'') {
+						if ((pos < text.length()) && (text.charAt(pos) == '\'')) {
+							// Doubled quote is a literal quote
+							value.append(c);
+							pos++;
+						} else {
+							break;
+						}
+					} else {
+						value.append(c);
+					}
+				}
+				
+				return new JsonPrimitive(value.toString());
+			}
+			
+			if (acceptKeyword("true")) {
+				return new JsonPrimitive(Boolean.TRUE);
+			} else if (acceptKeyword("false")) {
+				return new JsonPrimitive(Boolean.FALSE);
+			} else if (acceptKeyword("null")) {
+				return null;
+			}
+			
+			int start= pos;
+			while ((pos < text.length()) && ("+-.eE".indexOf(text.charAt(pos)) >= 0 ||
+					Character.isDigit(text.charAt(pos))))
+			{
+				pos++;
+			}
+			if (start == pos) {
+				throw error("Expected a literal");
+			}
+			
+			try {
+				return new JsonPrimitive(new BigDecimal(text.substring(start, pos)));
+			} catch (NumberFormatException e) {
+				pos= start;
+				throw error("Invalid number");
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+package com.teaglu.composite.map;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import com.google.gson.JsonObject;
+import com.teaglu.composite.CompositeWriter;
+import com.teaglu.composite.convert.TreeConverter;
+import com.teaglu.composite.convert.TreeWriter;
+import com.teaglu.composite.exception.UnsupportedSerializationException;
+import com.teaglu.composite.json.JsonCompositeWriter;
+
+/**
+ * JsonMapSerializer
+ * 
+ * A serializer for map trees producing JSON, for composites that were read from some other
+ * format but need to be sent on as JSON.  It supports three representations:
+ * 
+ * String - JSON text
+ * byte[] - JSON text encoded as UTF-8, written directly from the tree
+ * JsonObject - a GSON tree built directly from the map tree
+ * 
+ * None of them go through an intermediate string and a re-parse.  Since a serializer doesn't
+ * know the timezone of the composite, any Timestamp or Date in the tree is written in UTC.
+ */
+public final class JsonMapSerializer implements MapSerializer {
+	private static final @NonNull TimeZone utc;
+	
+	static {
+		TimeZone tmp= TimeZone.getTimeZone("UTC");
+		if (tmp == null) {
+			throw new RuntimeException("Unable to resolve UTC for serialization");
+		}
+		
+		utc= tmp;
+	}
+	
+	@Override
+	public <Representation> @NonNull Representation serialize(
+			@NonNull Map<String, Object> tree,
+			@NonNull Class<? extends Representation> representationClass)
+	{
+		Object value= null;
+		
+		if (representationClass.isAssignableFrom(String.class)) {
+			value= new String(toBytes(tree), StandardCharsets.UTF_8);
+		} else if (representationClass.isAssignableFrom(byte[].class)) {
+			value= toBytes(tree);
+		} else if (representationClass.isAssignableFrom(JsonObject.class)) {
+			value= TreeConverter.toJsonObject(tree);
+		} else {
+			throw new UnsupportedSerializationException(representationClass);
+		}
+		
+		@SuppressWarnings("unchecked")
+		Representation rval= (Representation)value;
+		
+		return rval;
+	}
+	
+	private static byte @NonNull [] toBytes(
+			@NonNull Map<String, Object> tree)
+	{
+		ByteArrayOutputStream stream= new ByteArrayOutputStream();
+		try (CompositeWriter writer= new JsonCompositeWriter(stream, utc)) {
+			TreeWriter.writeValue(writer, tree);
+		} catch (IOException e) {
+			// A ByteArrayOutputStream doesn't throw, so this could only be the writer failing to
+			// close.  A value JSON can't hold, like NaN, is an IllegalArgumentException instead
+			// and passes through as it is.
+			throw new RuntimeException("Unable to write map tree as JSON", e);
+		}
+		
+		@SuppressWarnings("null")
+		byte @NonNull [] rval= stream.toByteArray();
+		return rval;
+	}
+}
@@ -19,10 +19,14 @@ package com.teaglu.composite.map;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.ConversionCache;
+import com.teaglu.composite.cache.OwnedTree;
 import com.teaglu.composite.exception.WrongTypeException;
 
 /**
@@ -57,7 +61,23 @@ public final class MapCompositeArrayImpl implements Iterable<@NonNull Composite>
 			Map<String, Object> map= (Map<String, Object>)genericMap;
 
 			int position= index++;
-			return new MapCompositeImpl(map, timezone, serializer, path + "[" + position + "]");
+			
+			// Reuse the wrapper from an earlier pass as long as the slot still holds the
+			// same map - the list could have been modified underneath us.
+			if (position < elements.length()) {
+				MapCompositeImpl cached= elements.get(position);
+				if ((cached != null) && (cached.getMembers() == map)) {
+					return cached;
+				}
+			}
+			
+			MapCompositeImpl rval= new MapCompositeImpl(
+					map, timezone, serializer, path + "[" + position + "]", conversions, owner);
+			if (position < elements.length()) {
+				elements.set(position, rval);
+			}
+			
+			return rval;
 		}
 	}
 	
@@ -65,18 +85,36 @@ public final class MapCompositeArrayImpl implements Iterable<@NonNull Composite>
 	private @NonNull String path;
 	private @NonNull TimeZone timezone;
 	private @NonNull MapSerializer serializer;
+	private @Nullable ConversionCache conversions;
+	private @Nullable OwnedTree owner;
+	private @NonNull AtomicReferenceArray<MapCompositeImpl> elements;
 	
 	MapCompositeArrayImpl(
 			@NonNull String path,
 			@NonNull Iterable<?> iterable,
 			@NonNull TimeZone timezone,
-			@NonNull MapSerializer serializer) throws WrongTypeException
+			@NonNull MapSerializer serializer,
+			@Nullable ConversionCache conversions,
+			@Nullable OwnedTree owner) throws WrongTypeException
 	{
 		this.path= path;
-		
-		// Verify all the entries are objects.  We can't do that in the iterator because the
-		// iterator methods don't have any throw clauses.
-		
+		this.iterable= iterable;
+		this.elements= new AtomicReferenceArray<>(verify());
+		this.timezone= timezone;
+		this.serializer= serializer;
+		this.conversions= conversions;
+		this.owner= owner;
+	}
+	
+	/**
+	 * verify
+	 * 
+	 * Verify all the entries are objects and return how many there are.  We can't do that in
+	 * the iterator because the iterator methods don't have any throw clauses.  A view handed
+	 * out again from the child cache has to be checked again, since the list could have been
+	 * modified since.
+	 */
+	int verify() throws WrongTypeException {
 		int index= 0;
 		for (Object object : iterable) {
 			if (object == null) {
@@ -85,11 +123,10 @@ public final class MapCompositeArrayImpl implements Iterable<@NonNull Composite>
 			if (!(object instanceof Map)) {
 				throw new WrongTypeException(path + "[" + index + "]", "object");
 			}
+			index++;
 		}
 		
-		this.iterable= iterable;
-		this.timezone= timezone;
-		this.serializer= serializer;
+		return index;
 	}
 	
 	@Override
@@ -1,9 +1,17 @@
 package com.teaglu.composite.map;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -12,25 +20,70 @@ import java.util.TimeZone;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositeKey;
+import com.teaglu.composite.CompositePath;
+import com.teaglu.composite.ContentHash;
+import com.teaglu.composite.ConversionCache;
+import com.teaglu.composite.Format;
+import com.teaglu.composite.cache.ChildCache;
+import com.teaglu.composite.cache.OwnedTree;
+import com.teaglu.composite.cache.TreeHolder;
+import com.teaglu.composite.convert.ContentHasher;
+import com.teaglu.composite.convert.DateTimeParser;
+import com.teaglu.composite.convert.DecodedNumber;
+import com.teaglu.composite.convert.TreeWriter;
 import com.teaglu.composite.exception.FormatException;
 import com.teaglu.composite.exception.MissingValueException;
 import com.teaglu.composite.exception.WrongTypeException;
 
-public class MapCompositeImpl implements Composite {
+public class MapCompositeImpl implements Composite, TreeHolder {
 	private @NonNull String prefix;
 	private @NonNull Map<String, Object> members;
 	private @NonNull TimeZone timezone;
 	private @NonNull MapSerializer serializer;
+	private @Nullable ConversionCache conversions;
+	
+	// Wrappers handed out for sub-objects and object arrays, created on first use
+	private volatile @Nullable ChildCache children;
+	
+	// Set if the library built the tree, or null for a caller's tree
+	private final @Nullable OwnedTree owner;
+	
+	// Computed on first use for an owned tree - a race just computes the same hash twice
+	private volatile @Nullable ContentHash contentHash;
 	
 	public MapCompositeImpl(
 			@NonNull Map<String, Object> members,
 			@NonNull TimeZone timezone,
 			@NonNull MapSerializer serializer,
 			@Nullable String path)
+	{
+		this(members, timezone, serializer, path, null);
+	}
+	
+	public MapCompositeImpl(
+			@NonNull Map<String, Object> members,
+			@NonNull TimeZone timezone,
+			@NonNull MapSerializer serializer,
+			@Nullable String path,
+			@Nullable ConversionCache conversions)
+	{
+		this(members, timezone, serializer, path, conversions, null);
+	}
+	
+	public MapCompositeImpl(
+			@NonNull Map<String, Object> members,
+			@NonNull TimeZone timezone,
+			@NonNull MapSerializer serializer,
+			@Nullable String path,
+			@Nullable ConversionCache conversions,
+			@Nullable OwnedTree owner)
 	{
 		this.members= members;
+		this.owner= owner;
 		this.timezone= timezone;
 		this.serializer= serializer;
+		this.conversions= conversions;
 		if (path == null) {
 			this.prefix= "";
 		} else {
@@ -38,6 +91,22 @@ public class MapCompositeImpl implements Composite {
 		}
 	}
 	
+	@NonNull Map<String, Object> getMembers() {
+		return members;
+	}
+	
+	private @NonNull ChildCache getChildren() {
+		// Two threads racing here can each create a table and one set of entries gets
+		// dropped, which only costs a few extra allocations.
+		ChildCache rval= children;
+		if (rval == null) {
+			rval= new ChildCache();
+			children= rval;
+		}
+		
+		return rval;
+	}
+	
 	@Override
 	public int getRequiredInteger(
 			@NonNull String name) throws MissingValueException, WrongTypeException
@@ -73,6 +142,30 @@ public class MapCompositeImpl implements Composite {
 		return value;
 	}
 
+	@Override
+	public @NonNull BigDecimal getRequiredBigDecimal(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		BigDecimal value= getOptionalBigDecimal(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+		
+		return value;
+	}
+
+	@Override
+	public @NonNull BigInteger getRequiredBigInteger(
+			@NonNull String name) throws MissingValueException, WrongTypeException
+	{
+		BigInteger value= getOptionalBigInteger(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+		
+		return value;
+	}
+
 	@Override
 	public @NonNull String getRequiredString(
 			@NonNull String name) throws MissingValueException, WrongTypeException
@@ -121,6 +214,42 @@ public class MapCompositeImpl implements Composite {
 		return value;
 	}
 
+	@Override
+	public @NonNull Instant getRequiredInstant(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		Instant value= getOptionalInstant(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+		
+		return value;
+	}
+
+	@Override
+	public @NonNull OffsetDateTime getRequiredOffsetDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		OffsetDateTime value= getOptionalOffsetDateTime(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+		
+		return value;
+	}
+
+	@Override
+	public @NonNull LocalDateTime getRequiredLocalDateTime(
+			@NonNull String name) throws MissingValueException, WrongTypeException, FormatException
+	{
+		LocalDateTime value= getOptionalLocalDateTime(name);
+		if (value == null) {
+			throw new MissingValueException(prefix + name);
+		}
+		
+		return value;
+	}
+
 	@Override
 	public @NonNull Composite getRequiredObject(
 			@NonNull String name) throws MissingValueException, WrongTypeException
@@ -179,24 +308,13 @@ public class MapCompositeImpl implements Composite {
 		} else {
 			if (value instanceof Integer) {
 				return (Integer)value;
-			} else if (value instanceof Long) {
-				return (int)(long)(Long)value;
-			} else if (value instanceof Float) {
-				double d= (double)(Float)value;
-				int i= (int)Math.floor(d);
-				if (d != (double)i) {
-					throw new WrongTypeException(prefix + name, "integer");
-				}
-				
-				return i;
-			} else if (value instanceof Double) {
-				double d= (double)(Double)value;
-				int i= (int)Math.floor(d);
-				if (d != (double)i) {
+			} else if (value instanceof Number) {
+				DecodedNumber number= decode((Number)value, name, "integer");
+				if (!number.isExactInteger()) {
 					throw new WrongTypeException(prefix + name, "integer");
 				}
 				
-				return i;
+				return (int)number.longValue();
 			} else {
 				throw new WrongTypeException(prefix + name, "number");
 			}
@@ -211,31 +329,81 @@ public class MapCompositeImpl implements Composite {
 		if (value == null) {
 			return null;
 		} else {		
-			if (value instanceof Integer) {
-				return (long)(Integer)value;
-			} else if (value instanceof Long) {
-				return (long)(Long)value;
-			} else if (value instanceof Float) {
-				double d= (double)(Float)value;
-				long i= (int)Math.floor(d);
-				if (d != (double)i) {
+			if (value instanceof Long) {
+				return (Long)value;
+			} else if (value instanceof Number) {
+				DecodedNumber number= decode((Number)value, name, "integer");
+				if (!number.isExactLong()) {
 					throw new WrongTypeException(prefix + name, "integer");
 				}
 				
-				return i;
-			} else if (value instanceof Double) {
-				double d= (double)(Double)value;
-				long i= (int)Math.floor(d);
-				if (d != (double)i) {
+				return number.longValue();
+			} else {
+				throw new WrongTypeException(prefix + name, "number");
+			}
+		}
+	}
+
+	@Override
+	public BigDecimal getOptionalBigDecimal(
+			@NonNull String name) throws WrongTypeException
+	{
+		Object value= members.get(name);
+		if (value == null) {
+			return null;
+		} else {
+			if (value instanceof BigDecimal) {
+				return (BigDecimal)value;
+			} else if (value instanceof Number) {
+				try {
+					return decode((Number)value, name, "decimal").toBigDecimal();
+				} catch (NumberFormatException e) {
+					throw new WrongTypeException(prefix + name, "decimal");
+				}
+			} else {
+				throw new WrongTypeException(prefix + name, "number");
+			}
+		}
+	}
+
+	@Override
+	public BigInteger getOptionalBigInteger(
+			@NonNull String name) throws WrongTypeException
+	{
+		Object value= members.get(name);
+		if (value == null) {
+			return null;
+		} else {
+			if (value instanceof BigInteger) {
+				return (BigInteger)value;
+			} else if (value instanceof Number) {
+				try {
+					return decode((Number)value, name, "integer").toBigInteger();
+				} catch (ArithmeticException e) {
 					throw new WrongTypeException(prefix + name, "integer");
 				}
-				
-				return i;
 			} else {
-				throw new WrongTypeException(prefix, "number");
+				throw new WrongTypeException(prefix + name, "number");
 			}
 		}
 	}
+	
+	/**
+	 * decode
+	 * 
+	 * Decode a number from the tree once into its exact form.
+	 */
+	private @NonNull DecodedNumber decode(
+			@NonNull Number value,
+			@NonNull String name,
+			@NonNull String typeName) throws WrongTypeException
+	{
+		try {
+			return DecodedNumber.of(value);
+		} catch (NumberFormatException e) {
+			throw new WrongTypeException(prefix + name, typeName);
+		}
+	}
 
 	@Override
 	public Double getOptionalDouble(
@@ -253,6 +421,8 @@ public class MapCompositeImpl implements Composite {
 				return Double.valueOf((float)(Float)value);
 			} else if (value instanceof Double) {
 				return (Double)value;
+			} else if (value instanceof Number) {
+				return Double.valueOf(((Number)value).doubleValue());
 			} else {
 				throw new WrongTypeException(prefix + name, "number");
 			}
@@ -315,63 +485,107 @@ public class MapCompositeImpl implements Composite {
 		}
 	}
 
-	@Override
-	public LocalDate getOptionalLocalDate(
-			@NonNull String name) throws WrongTypeException, FormatException
+	/**
+	 * getOptionalTemporal
+	 * 
+	 * Common code for the date and time accessors.  Strings are parsed and remembered in the
+	 * conversion cache if there is one.  Integer numbers are taken as milliseconds since the
+	 * epoch for the types that represent a point in time, and Date objects put in the map by
+	 * the caller are converted using the timezone.
+	 */
+	private <T> @Nullable T getOptionalTemporal(
+			@NonNull String name,
+			@NonNull Class<T> type,
+			@NonNull String typeName) throws WrongTypeException, FormatException
 	{
 		Object value= members.get(name);
 		if (value == null) {
 			return null;
-		} else {
-			if (value instanceof String) {
+		}
+		if (type.isInstance(value)) {
+			return type.cast(value);
+		}
+		
+		if (value instanceof String) {
+			String string= (String)value;
+			
+			T rval= (conversions == null) ? null : conversions.get(type, string);
+			if (rval == null) {
 				try {
-					LocalDate rval= LocalDate.parse((String)value);
-					
-					if (rval == null) {
-						throw new RuntimeException(
-								"LocalDate parse returned null, which is disallowed by spec");
-					}
-					
-					return rval;
-				} catch (NumberFormatException e) {
+					rval= DateTimeParser.parse(string, type, timezone.toZoneId());
+				} catch (DateTimeException e) {
 					throw new FormatException("Unable to parse " +
-							prefix + name + " value '" + value + "' to a LocalDate");
+							prefix + name + " value '" + value + "' to a " + typeName);
 				}
+				
+				if (conversions != null) {
+					conversions.put(type, string, rval);
+				}
+			}
+			
+			return rval;
+		} else if (value instanceof Date) {
+			// java.sql.Date refuses toInstant(), so go through the millisecond value
+			Instant instant= (value instanceof Timestamp)
+					? ((Timestamp)value).toInstant()
+					: Instant.ofEpochMilli(((Date)value).getTime());
+			
+			if (type == LocalDate.class) {
+				return type.cast(LocalDate.ofInstant(instant, timezone.toZoneId()));
+			} else if (type == Instant.class) {
+				return type.cast(instant);
 			} else {
-				throw new WrongTypeException(prefix + name, "LocalDate");
+				return DateTimeParser.fromEpochMillis(
+						instant.toEpochMilli(), type, timezone.toZoneId());
 			}
+		} else if ((value instanceof Number) && (type != LocalDate.class)) {
+			DecodedNumber millis= decode((Number)value, name, typeName);
+			if (!millis.isExactLong()) {
+				throw new WrongTypeException(prefix + name, typeName);
+			}
+			
+			return DateTimeParser.fromEpochMillis(millis.longValue(), type, timezone.toZoneId());
+		} else {
+			throw new WrongTypeException(prefix + name, typeName);
 		}
 	}
 
+	@Override
+	public LocalDate getOptionalLocalDate(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return getOptionalTemporal(name, LocalDate.class, "LocalDate");
+	}
+
 	@Override
 	public Timestamp getOptionalTimestamp(
 			@NonNull String name) throws WrongTypeException, FormatException
 	{
-		Object value= members.get(name);
-		if (value == null) {
-			return null;
-		} else {
-			if (!(value instanceof String)) {
-				throw new WrongTypeException(prefix + name, "Timestamp");
-			}
-			
-			String string= (String)value;
-			
-			try {
-				int timePart= string.indexOf('T');
-				if (timePart != -1) {
-					OffsetDateTime odt= OffsetDateTime.parse(string);
-					return Timestamp.from(odt.toInstant());
-				} else {
-					// If we get a string without a time part, use 00:00:00 in timezone passed on creation
-					LocalDate lt= LocalDate.parse(string);
-					return Timestamp.from(lt.atStartOfDay(timezone.toZoneId()).toInstant());
-				}
-			} catch (NumberFormatException e) {
-				throw new FormatException("Unable to parse " +
-						prefix + name + " value '" + value + "' to a Timestamp");
-			}
-		}
+		// Timestamp is mutable, so the cache holds the instant
+		Instant instant= getOptionalTemporal(name, Instant.class, "Timestamp");
+		
+		return (instant == null) ? null : Timestamp.from(instant);
+	}
+	
+	@Override
+	public Instant getOptionalInstant(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return getOptionalTemporal(name, Instant.class, "Instant");
+	}
+	
+	@Override
+	public OffsetDateTime getOptionalOffsetDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return getOptionalTemporal(name, OffsetDateTime.class, "OffsetDateTime");
+	}
+	
+	@Override
+	public LocalDateTime getOptionalLocalDateTime(
+			@NonNull String name) throws WrongTypeException, FormatException
+	{
+		return getOptionalTemporal(name, LocalDateTime.class, "LocalDateTime");
 	}
 
 	@Override
@@ -389,11 +603,21 @@ public class MapCompositeImpl implements Composite {
 			@SuppressWarnings("unchecked")
 			Map<String, Object> mapValue= (Map<String, Object>)value;
 			
+			ChildCache cache= getChildren();
+			Composite cached= (Composite)cache.get(name, mapValue);
+			if (cached != null) {
+				return cached;
+			}
+			
 			try {
 				// Poke the map to make sure it uses string as a key
 				mapValue.get("test");
 				
-				return new MapCompositeImpl(mapValue, timezone, serializer, prefix + name);
+				Composite rval= new MapCompositeImpl(
+						mapValue, timezone, serializer, prefix + name, conversions, owner);
+				cache.put(name, mapValue, rval);
+				
+				return rval;
 			} catch (ClassCastException compareException) {
 				throw new WrongTypeException(prefix + name, "string map");
 			}
@@ -414,7 +638,17 @@ public class MapCompositeImpl implements Composite {
 			
 			Iterable<?> iterable= (Iterable<?>)value;
 			
-			return new MapCompositeArrayImpl(prefix + name, iterable, timezone, serializer);
+			ChildCache cache= getChildren();
+			MapCompositeArrayImpl rval= (MapCompositeArrayImpl)cache.get(name, iterable);
+			if (rval == null) {
+				rval= new MapCompositeArrayImpl(
+						prefix + name, iterable, timezone, serializer, conversions, owner);
+				cache.put(name, iterable, rval);
+			} else {
+				rval.verify();
+			}
+			
+			return rval;
 		}
 	}
 
@@ -478,22 +712,396 @@ public class MapCompositeImpl implements Composite {
 		}
 	}
 
+	/**
+	 * step
+	 * 
+	 * Follow one segment of a path from a node of the underlying tree, returning null if the
+	 * value isn't there.  The following segment decides whether the value has to be a list or
+	 * a map.  As with the array accessors, any Iterable counts as a list.
+	 */
+	@SuppressWarnings("unchecked")
+	private @Nullable Object step(
+			@NonNull Object node,
+			@NonNull CompositePath path,
+			int segment,
+			int count) throws WrongTypeException
+	{
+		Object next= null;
+		
+		String name= path.getName(segment);
+		if (name != null) {
+			next= ((Map<String, Object>)node).get(name);
+		} else {
+			int index= path.getIndex(segment);
+			if (node instanceof List) {
+				List<Object> list= (List<Object>)node;
+				if (index < list.size()) {
+					next= list.get(index);
+				}
+			} else {
+				int position= 0;
+				for (Object element : (Iterable<?>)node) {
+					if (position++ == index) {
+						next= element;
+						break;
+					}
+				}
+			}
+		}
+		
+		if (next == null) {
+			return null;
+		}
+		
+		if ((segment + 1 < count) && path.isIndex(segment + 1)) {
+			if (!(next instanceof Iterable<?>)) {
+				throw new WrongTypeException(prefix + path.getText(segment), "array");
+			}
+		} else if (!(next instanceof Map)) {
+			throw new WrongTypeException(prefix + path.getText(segment), "object");
+		}
+		
+		return next;
+	}
+	
+	/**
+	 * walkRequired
+	 * 
+	 * Follow the first count segments of a path and return the map they lead to, throwing
+	 * MissingValueException for the first step that isn't there.
+	 */
+	@SuppressWarnings("unchecked")
+	private @NonNull Map<String, Object> walkRequired(
+			@NonNull CompositePath path,
+			int count) throws MissingValueException, WrongTypeException
+	{
+		Object node= members;
+		for (int i= 0; i < count; i++) {
+			Object next= step(node, path, i, count);
+			if (next == null) {
+				throw new MissingValueException(prefix + path.getText(i));
+			}
+			
+			node= next;
+		}
+		
+		return (Map<String, Object>)node;
+	}
+	
+	/**
+	 * walkOptional
+	 * 
+	 * Follow the first count segments of a path and return the map they lead to, or null if
+	 * any step isn't there.
+	 */
+	@SuppressWarnings("unchecked")
+	private @Nullable Map<String, Object> walkOptional(
+			@NonNull CompositePath path,
+			int count) throws WrongTypeException
+	{
+		Object node= members;
+		for (int i= 0; i < count; i++) {
+			Object next= step(node, path, i, count);
+			if (next == null) {
+				return null;
+			}
+			
+			node= next;
+		}
+		
+		return (Map<String, Object>)node;
+	}
+	
+	// A short-lived wrapper for an object found on a path, so that its values go through the
+	// normal conversion and error handling
+	private @NonNull Composite wrap(
+			@NonNull Map<String, Object> node,
+			@NonNull CompositePath path,
+			int segment)
+	{
+		return new MapCompositeImpl(
+				node, timezone, serializer, prefix + path.getText(segment), conversions, owner);
+	}
+	
+	private @NonNull Composite getRequiredParent(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		int depth= path.size() - 1;
+		if (depth == 0) {
+			return this;
+		}
+		
+		return wrap(walkRequired(path, depth), path, depth - 1);
+	}
+	
+	private @Nullable Composite getOptionalParent(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		int depth= path.size() - 1;
+		if (depth == 0) {
+			return this;
+		}
+		
+		Map<String, Object> parent= walkOptional(path, depth);
+		return (parent == null) ? null : wrap(parent, path, depth - 1);
+	}
+
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredString(name);
+	}
+
+	@Override
+	public String getOptionalString(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalString(name);
+	}
+
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredInteger(name);
+	}
+
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalInteger(name);
+	}
+
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredLong(name);
+	}
+
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalLong(name);
+	}
+
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredDouble(name);
+	}
+
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalDouble(name);
+	}
+
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		String name= path.getLeafName();
+		return getRequiredParent(path).getRequiredBoolean(name);
+	}
+
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		String name= path.getLeafName();
+		Composite parent= getOptionalParent(path);
+		
+		return (parent == null) ? null : parent.getOptionalBoolean(name);
+	}
+
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositePath path) throws MissingValueException, WrongTypeException
+	{
+		int size= path.size();
+		if ((size == 1) && !path.isIndex(0)) {
+			return getRequiredObject(path.getLeafName());
+		}
+		
+		return wrap(walkRequired(path, size), path, size - 1);
+	}
+
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositePath path) throws WrongTypeException
+	{
+		int size= path.size();
+		if ((size == 1) && !path.isIndex(0)) {
+			return getOptionalObject(path.getLeafName());
+		}
+		
+		Map<String, Object> node= walkOptional(path, size);
+		return (node == null) ? null : wrap(node, path, size - 1);
+	}
+
+	@Override
+	public @NonNull String getRequiredString(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredString(key.getName());
+	}
+
+	@Override
+	public String getOptionalString(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalString(key.getName());
+	}
+
+	@Override
+	public int getRequiredInteger(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredInteger(key.getName());
+	}
+
+	@Override
+	public Integer getOptionalInteger(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalInteger(key.getName());
+	}
+
+	@Override
+	public long getRequiredLong(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredLong(key.getName());
+	}
+
+	@Override
+	public Long getOptionalLong(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalLong(key.getName());
+	}
+
+	@Override
+	public double getRequiredDouble(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredDouble(key.getName());
+	}
+
+	@Override
+	public Double getOptionalDouble(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalDouble(key.getName());
+	}
+
+	@Override
+	public boolean getRequiredBoolean(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredBoolean(key.getName());
+	}
+
+	@Override
+	public Boolean getOptionalBoolean(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalBoolean(key.getName());
+	}
+
+	@Override
+	public @NonNull Composite getRequiredObject(
+			@NonNull CompositeKey key) throws MissingValueException, WrongTypeException
+	{
+		return getRequiredObject(key.getName());
+	}
+
+	@Override
+	public Composite getOptionalObject(
+			@NonNull CompositeKey key) throws WrongTypeException
+	{
+		return getOptionalObject(key.getName());
+	}
+
 	@Override
 	public @NonNull Iterable<Entry<@NonNull String, @NonNull Composite>> getObjectMap(
 			) throws WrongTypeException
 	{
 		// TODO Auto-generated method stub
-		return new MapCompositeMapImpl(members, timezone, serializer, prefix);
+		return new MapCompositeMapImpl(members, timezone, serializer, prefix, conversions, owner);
 	}
 
 	public String toString() { 
 		return serializer.serialize(members, String.class);
 	}
 	
+	@Override
+	public @NonNull Object peekTree() {
+		return members;
+	}
+	
+	@Override
+	public @NonNull ContentHash contentHash() {
+		// A caller's tree can change between calls, so only an owned tree's hash is kept
+		if ((owner == null) || !owner.isOwned()) {
+			return ContentHasher.hash(members);
+		}
+		
+		ContentHash rval= contentHash;
+		if (rval == null) {
+			rval= ContentHasher.hash(members);
+			contentHash= rval;
+		}
+		
+		return rval;
+	}
+	
+	@Override
+	public void writeTo(
+			@NonNull OutputStream stream,
+			@NonNull Format format) throws IOException
+	{
+		TreeWriter.write(members, stream, format, timezone);
+	}
+	
 	@Override
 	public <Representation> @NonNull Representation serialize(
 			@NonNull Class<? extends Representation> representationClass)
 	{
+		if (representationClass == Map.class) {
+			// The tree itself, the same way the JSON implementation hands back its JsonObject,
+			// so the library no longer owns it
+			if (owner != null) {
+				owner.release();
+			}
+			
+			@SuppressWarnings("unchecked")
+			Representation rval= (Representation)members;
+			return rval;
+		}
+		
 		return serializer.serialize(members, representationClass);
 	}
 }
@@ -21,8 +21,11 @@ import java.util.Map;
 import java.util.TimeZone;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.ConversionCache;
+import com.teaglu.composite.cache.OwnedTree;
 import com.teaglu.composite.exception.WrongTypeException;
 
 /**
@@ -74,7 +77,8 @@ public final class MapCompositeMapImpl implements Iterable<Map.Entry<@NonNull St
 					@SuppressWarnings("unchecked")
 					Map<String, Object> map= (Map<String, Object>)value;
 					
-					return new MapCompositeImpl(map, timezone, serializer, prefix + name);
+					return new MapCompositeImpl(
+							map, timezone, serializer, prefix + name, conversions, owner);
 				}
 
 				@Override
@@ -89,17 +93,23 @@ public final class MapCompositeMapImpl implements Iterable<Map.Entry<@NonNull St
 	private @NonNull TimeZone timezone;
 	private @NonNull MapSerializer serializer;
 	private @NonNull String prefix;
+	private @Nullable ConversionCache conversions;
+	private @Nullable OwnedTree owner;
 	
 	MapCompositeMapImpl(
 			@NonNull Map<String, Object> members,
 			@NonNull TimeZone timezone,
 			@NonNull MapSerializer serializer,
-			@NonNull String prefix) throws WrongTypeException
+			@NonNull String prefix,
+			@Nullable ConversionCache conversions,
+			@Nullable OwnedTree owner) throws WrongTypeException
 	{
 		this.members= members;
 		this.timezone= timezone;
 		this.serializer= serializer;
 		this.prefix= prefix;
+		this.conversions= conversions;
+		this.owner= owner;
 		
 		// Pre-scan the entry set to make sure it's only objects, since we can only throw an
 		// unchecked exception from the iterator.
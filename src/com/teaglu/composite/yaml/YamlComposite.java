@@ -1,16 +1,26 @@
 package com.teaglu.composite.yaml;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.nio.channels.WritableByteChannel;
 import java.util.Map;
 import java.util.TimeZone;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.nodes.Tag;
 
+import com.google.gson.JsonObject;
 import com.teaglu.composite.Composite;
+import com.teaglu.composite.CompositeWriter;
+import com.teaglu.composite.ConversionCache;
+import com.teaglu.composite.cache.OwnedTree;
+import com.teaglu.composite.convert.TreeConverter;
 import com.teaglu.composite.exception.ParseException;
 import com.teaglu.composite.exception.UnsupportedSerializationException;
 import com.teaglu.composite.exception.WrongTypeException;
@@ -50,6 +60,11 @@ public class YamlComposite {
 				@SuppressWarnings("unchecked")
 				Representation rval= (Representation)value;
 				
+				return rval;
+			} else if (representationClass.isAssignableFrom(JsonObject.class)) {
+				@SuppressWarnings("unchecked")
+				Representation rval= (Representation)TreeConverter.toJsonObject(tree);
+				
 				return rval;
 			} else {
 				throw new UnsupportedSerializationException(representationClass);
@@ -57,17 +72,70 @@ public class YamlComposite {
 		}
 	}
 	
+	/**
+	 * Constructor
+	 * 
+	 * SnakeYAML turns anything that looks like a timestamp into a java.util.Date using UTC,
+	 * which loses the distinction between a date and a time and ignores the timezone the
+	 * composite was created with.  Leave them as strings so the composite parses them the
+	 * same way it does for JSON.
+	 */
+	private static class Constructor extends SafeConstructor {
+		private Constructor(@NonNull LoaderOptions options) {
+			super(options);
+			
+			this.yamlConstructors.put(Tag.TIMESTAMP, new ConstructYamlStr());
+		}
+	}
+	
 	private static class SerializerHolder {
 		private static final @NonNull Serializer serializer= new Serializer();
 	}
 	
+	/**
+	 * Create
+	 * 
+	 * Create a composite from a GSON object.  The object is converted to a map tree in a
+	 * single pass, keeping number types and nulls, so it can be written back out as YAML.
+	 *
+	 * @param object					GSON object
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite
+	 */
+	public static @NonNull Composite Create(
+			@NonNull JsonObject object,
+			@NonNull TimeZone timezone)
+	{
+		return new MapCompositeImpl(
+				TreeConverter.toMap(object), timezone, SerializerHolder.serializer, null, null,
+				new OwnedTree());
+	}
+	
+	/**
+	 * Create
+	 * 
+	 * Create a composite from a GSON object using the default timezone.
+	 *
+	 * @param object					GSON object
+	 * 
+	 * @return							New Composite
+	 */
+	public static @NonNull Composite Create(
+			@NonNull JsonObject object)
+	{
+		return Create(object, defaultTimezone);
+	}
+	
 	/**
 	 * Parse
 	 * 
-	 * Parse a text string as YAML and return a composite
+	 * Parse a text string as YAML and return a composite, remembering string conversions in
+	 * the supplied cache
 	 *
 	 * @param text						Text
 	 * @param timezone					Timezone for interpretation
+	 * @param conversions				Conversion cache for this document, or null for none
 	 * 
 	 * @return							New Composite
 	 * 
@@ -76,10 +144,11 @@ public class YamlComposite {
 	 */
 	public static @NonNull Composite Parse(
 			@NonNull String text,
-			@NonNull TimeZone timezone) throws WrongTypeException, ParseException
+			@NonNull TimeZone timezone,
+			@Nullable ConversionCache conversions) throws WrongTypeException, ParseException
 	{
 		LoaderOptions options= new LoaderOptions();
-		Yaml yaml= new Yaml(new SafeConstructor(options));
+		Yaml yaml= new Yaml(new Constructor(options));
 		Map<String, Object> tree= null;
 		try {
 			tree= yaml.load(text);
@@ -91,7 +160,28 @@ public class YamlComposite {
 			throw new ParseException("YAML parsing returned null");
 		}
 		
-		return new MapCompositeImpl(tree, timezone, SerializerHolder.serializer, null);
+		return new MapCompositeImpl(
+				tree, timezone, SerializerHolder.serializer, null, conversions, new OwnedTree());
+	}
+	
+	/**
+	 * Parse
+	 * 
+	 * Parse a text string as YAML and return a composite
+	 *
+	 * @param text						Text
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite
+	 * 
+	 * @throws WrongTypeException		Text is not a YAML object
+	 * @throws ParseException 			Unable to parse YAML
+	 */
+	public static @NonNull Composite Parse(
+			@NonNull String text,
+			@NonNull TimeZone timezone) throws WrongTypeException, ParseException
+	{
+		return Parse(text, timezone, null);
 	}
 	
 	/**
@@ -115,10 +205,12 @@ public class YamlComposite {
 	/**
 	 * Parse
 	 * 
-	 * Parse an input stream as YAML and return a composite
+	 * Parse an input stream as YAML and return a composite, remembering string conversions in
+	 * the supplied cache
 	 *
 	 * @param reader					Input stream reader
 	 * @param timezone					Timezone for interpretation
+	 * @param conversions				Conversion cache for this document, or null for none
 	 * 
 	 * @return							New Composite
 	 * 
@@ -127,10 +219,11 @@ public class YamlComposite {
 	 */
 	public static @NonNull Composite Parse(
 			@NonNull InputStreamReader reader,
-			@NonNull TimeZone timezone) throws WrongTypeException, ParseException
+			@NonNull TimeZone timezone,
+			@Nullable ConversionCache conversions) throws WrongTypeException, ParseException
 	{
 		LoaderOptions options= new LoaderOptions();
-		Yaml yaml= new Yaml(new SafeConstructor(options));
+		Yaml yaml= new Yaml(new Constructor(options));
 		Map<String, Object> tree= null;
 		try {
 			tree= yaml.load(reader);
@@ -142,7 +235,28 @@ public class YamlComposite {
 			throw new ParseException("YAML parsing returned null");
 		}
 		
-		return new MapCompositeImpl(tree, timezone, SerializerHolder.serializer, null);
+		return new MapCompositeImpl(
+				tree, timezone, SerializerHolder.serializer, null, conversions, new OwnedTree());
+	}
+	
+	/**
+	 * Parse
+	 * 
+	 * Parse an input stream as YAML and return a composite
+	 *
+	 * @param reader					Input stream reader
+	 * @param timezone					Timezone for interpretation
+	 * 
+	 * @return							New Composite
+	 * 
+	 * @throws WrongTypeException		Input is not a YAML object
+	 * @throws ParseException 			Unable to parse YAML
+	 */
+	public static @NonNull Composite Parse(
+			@NonNull InputStreamReader reader,
+			@NonNull TimeZone timezone) throws WrongTypeException, ParseException
+	{
+		return Parse(reader, timezone, null);
 	}
 	
 	/**
@@ -162,4 +276,77 @@ public class YamlComposite {
 	{
 		return Parse(reader, defaultTimezone);
 	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming YAML writer on an output stream, writing timestamps in the given
+	 * timezone.
+	 *
+	 * @param stream					Output stream, closed when the writer is closed
+	 * @param timezone					Timezone for timestamps
+	 * 
+	 * @return							New writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull OutputStream stream,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		return new YamlCompositeWriter(stream, timezone);
+	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming YAML writer on an output stream, writing timestamps in UTC.
+	 *
+	 * @param stream					Output stream, closed when the writer is closed
+	 * 
+	 * @return							New writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull OutputStream stream) throws IOException
+	{
+		return CreateWriter(stream, defaultTimezone);
+	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming YAML writer on a channel, writing timestamps in the given timezone.
+	 *
+	 * @param channel					Output channel, closed when the writer is closed
+	 * @param timezone					Timezone for timestamps
+	 * 
+	 * @return							New writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull WritableByteChannel channel,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		return new YamlCompositeWriter(channel, timezone);
+	}
+	
+	/**
+	 * CreateWriter
+	 * 
+	 * Create a streaming YAML writer on a channel, writing timestamps in UTC.
+	 *
+	 * @param channel					Output channel, closed when the writer is closed
+	 * 
+	 * @return							New writer
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public static @NonNull CompositeWriter CreateWriter(
+			@NonNull WritableByteChannel channel) throws IOException
+	{
+		return CreateWriter(channel, defaultTimezone);
+	}
 }
@@ -0,0 +1,371 @@
+/****************************************************************************
+ * Copyright 2022 Teaglu, LLC                                               *
+ *                                                                          *
+ * Licensed under the Apache License, Version 2.0 (the "License");          *
+ * you may not use this file except in compliance with the License.         *
+ * You may obtain a copy of the License at                                  *
+ *                                                                          *
+ *   http://www.apache.org/licenses/LICENSE-2.0                             *
+ *                                                                          *
+ * Unless required by applicable law or agreed to in writing, software      *
+ * distributed under the License is distributed on an "AS IS" BASIS,        *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *
+ * See the License for the specific language governing permissions and      *
+ * limitations under the License.                                           *
+ ****************************************************************************/
+
+
+package com.teaglu.composite.yaml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.TimeZone;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import com.teaglu.composite.CompositeWriter;
+import com.teaglu.composite.convert.WriterState;
+
+/**
+ * YamlCompositeWriter
+ * 
+ * Streaming YAML writer that feeds events straight to the SnakeYAML emitter, so no node tree
+ * or intermediate string is built.  The emitter only looks a few events ahead, so memory use
+ * doesn't grow with the size of the document.
+ * 
+ * Strings that would read back as another type - such as "true", "12", or a date - are quoted
+ * so that they stay strings.
+ */
+public final class YamlCompositeWriter implements CompositeWriter {
+	private static final @NonNull ImplicitTuple PLAIN= new ImplicitTuple(true, false);
+	private static final @NonNull ImplicitTuple QUOTED= new ImplicitTuple(false, true);
+	private static final @NonNull ImplicitTuple EITHER= new ImplicitTuple(true, true);
+	
+	private final @NonNull Writer writer;
+	private final @NonNull Emitter emitter;
+	private final @NonNull Resolver resolver= new Resolver();
+	private final @NonNull ZoneId zone;
+	
+	private final @NonNull WriterState state= new WriterState();
+	private boolean closed;
+	
+	/**
+	 * YamlCompositeWriter
+	 * 
+	 * Create a writer on an output stream.
+	 *
+	 * @param stream					Output stream
+	 * @param timezone					Timezone for writing timestamps
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public YamlCompositeWriter(
+			@NonNull OutputStream stream,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		this(new OutputStreamWriter(stream, StandardCharsets.UTF_8), timezone);
+	}
+	
+	/**
+	 * YamlCompositeWriter
+	 * 
+	 * Create a writer on a channel.
+	 *
+	 * @param channel					Output channel
+	 * @param timezone					Timezone for writing timestamps
+	 * 
+	 * @throws IOException				Error writing output
+	 */
+	public YamlCompositeWriter(
+			@NonNull WritableByteChannel channel,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		this(Channels.newWriter(channel, StandardCharsets.UTF_8), timezone);
+	}
+	
+	private YamlCompositeWriter(
+			@NonNull Writer output,
+			@NonNull TimeZone timezone) throws IOException
+	{
+		this.writer= new BufferedWriter(output);
+		this.zone= timezone.toZoneId();
+		
+		DumperOptions options= new DumperOptions();
+		options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+		options.setSplitLines(false);
+		
+		emitter= new Emitter(writer, options);
+		emitter.emit(new StreamStartEvent(null, null));
+	}
+	
+	private void emit(@NonNull Event event) throws IOException {
+		emitter.emit(event);
+	}
+	
+	private void beforeValue() throws IOException {
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+		if (!state.isStarted()) {
+			emit(new DocumentStartEvent(null, null, false, null, null));
+		}
+		state.beforeValue();
+	}
+	
+	private @NonNull CompositeWriter scalar(
+			@NonNull Tag tag,
+			@NonNull String value) throws IOException
+	{
+		beforeValue();
+		emit(new ScalarEvent(null, tag.getValue(), PLAIN, value, null, null,
+				DumperOptions.ScalarStyle.PLAIN));
+		return this;
+	}
+	
+	private void string(@NonNull String value) throws IOException {
+		// Leave the emitter free to pick a style, unless a plain scalar would change type
+		boolean plain= Tag.STR.equals(resolver.resolve(NodeId.scalar, value, true));
+		
+		emit(new ScalarEvent(null, Tag.STR.getValue(), plain ? EITHER : QUOTED, value,
+				null, null, DumperOptions.ScalarStyle.PLAIN));
+	}
+	
+	@Override
+	public @NonNull CompositeWriter beginObject() throws IOException {
+		beforeValue();
+		state.beginObject();
+		emit(new MappingStartEvent(null, null, true, null, null, DumperOptions.FlowStyle.BLOCK));
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter endObject() throws IOException {
+		state.endObject();
+		emit(new MappingEndEvent(null, null));
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter beginArray() throws IOException {
+		beforeValue();
+		state.beginArray();
+		emit(new SequenceStartEvent(null, null, true, null, null, DumperOptions.FlowStyle.BLOCK));
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter endArray() throws IOException {
+		state.endArray();
+		emit(new SequenceEndEvent(null, null));
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter name(
+			@NonNull String name) throws IOException
+	{
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+		state.beforeName();
+		string(name);
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable String value) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		beforeValue();
+		string(value);
+		return this;
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			long value) throws IOException
+	{
+		@SuppressWarnings("null")
+		@NonNull String text= Long.toString(value);
+		return scalar(Tag.INT, text);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			double value) throws IOException
+	{
+		String text;
+		if (Double.isNaN(value)) {
+			text= ".nan";
+		} else if (value == Double.POSITIVE_INFINITY) {
+			text= ".inf";
+		} else if (value == Double.NEGATIVE_INFINITY) {
+			text= "-.inf";
+		} else {
+			text= Double.toString(value);
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull String tmp= text;
+		return scalar(Tag.FLOAT, tmp);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			boolean value) throws IOException
+	{
+		return scalar(Tag.BOOL, value ? "true" : "false");
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable BigDecimal value) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		// A whole decimal like 1E+3 still has to read back as a float
+		@SuppressWarnings("null")
+		@NonNull String text= value.toString();
+		if ((text.indexOf('.') < 0) && (text.indexOf('E') < 0)) {
+			text= text + ".0";
+		}
+		
+		return scalar(Tag.FLOAT, text);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable BigInteger value) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull String text= value.toString();
+		return scalar(Tag.INT, text);
+	}
+	
+	private @NonNull CompositeWriter formatted(
+			@Nullable TemporalAccessor value,
+			@NonNull DateTimeFormatter formatter) throws IOException
+	{
+		if (value == null) {
+			return nullValue();
+		}
+		
+		@SuppressWarnings("null")
+		@NonNull String text= formatter.format(value);
+		return value(text);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable LocalDate value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_LOCAL_DATE);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable Timestamp value) throws IOException
+	{
+		return formatted(
+				(value == null) ? null : OffsetDateTime.ofInstant(value.toInstant(), zone),
+				DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable Instant value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_INSTANT);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable OffsetDateTime value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter value(
+			@Nullable LocalDateTime value) throws IOException
+	{
+		return formatted(value, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+	}
+	
+	@Override
+	public @NonNull CompositeWriter nullValue() throws IOException {
+		return scalar(Tag.NULL, "null");
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed= true;
+		
+		boolean complete= state.isComplete();
+		try {
+			if (complete) {
+				emit(new DocumentEndEvent(null, null, false));
+			}
+			if (complete || !state.isStarted()) {
+				emit(new StreamEndEvent(null, null));
+			}
+		} finally {
+			writer.close();
+		}
+		
+		if (!complete && state.isStarted()) {
+			throw new IOException("Incomplete YAML document");
+		}
+	}
+}
@@ -22,7 +22,9 @@ module com.teaglu.composite {
 	requires com.google.gson;
 	
 	exports com.teaglu.composite;
+	exports com.teaglu.composite.bind;
 	exports com.teaglu.composite.exception;
+	exports com.teaglu.composite.jdbc;
 	exports com.teaglu.composite.json;
 	exports com.teaglu.composite.yaml;
 	exports com.teaglu.composite.map;
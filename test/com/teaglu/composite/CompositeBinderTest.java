@@ -0,0 +1,124 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.bind.CompositeBinder;
+import com.teaglu.composite.bind.CompositeField;
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.UndefinedOptionException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class CompositeBinderTest {
+	public enum Status { OPEN, SHIPPED }
+	
+	public record Line(
+			String sku,
+			int quantity,
+			BigDecimal price,
+			@CompositeField(optional= true) Status status) {}
+	
+	public record Order(
+			long id,
+			Instant placed,
+			@CompositeField(name= "customer_name") String customer,
+			@CompositeField(optional= true) String note,
+			@CompositeField(optional= true) int priority,
+			List<Line> lines,
+			List<String> tags,
+			@CompositeField(optional= true) Status status,
+			@CompositeField(optional= true) List<Status> history) {}
+	
+	public static class Settings {
+		@CompositeField
+		private String host;
+		
+		@CompositeField(optional= true)
+		private int port= 8080;
+		
+		private String unbound= "unchanged";
+	}
+	
+	private static final String ORDER=
+			"{\"id\":12,\"placed\":\"2023-01-01T12:00:00Z\",\"customer_name\":\"Bob\"," +
+			"\"lines\":[{\"sku\":\"A1\",\"quantity\":2,\"price\":1.25}],\"tags\":[\"rush\"]}";
+	
+	@Test
+	public void testRecord() throws SchemaException {
+		Order order= CompositeBinder.Create(Order.class).bind(JsonComposite.Parse(ORDER));
+		
+		assertEquals(12L, order.id());
+		assertEquals(Instant.parse("2023-01-01T12:00:00Z"), order.placed());
+		assertEquals("Bob", order.customer());
+		assertNull(order.note());
+		assertEquals(0, order.priority());
+		assertEquals(List.of(new Line("A1", 2, new BigDecimal("1.25"), null)), order.lines());
+		assertEquals(List.of("rush"), order.tags());
+		assertNull(order.status());
+		assertNull(order.history());
+		
+		assertSame(CompositeBinder.Create(Order.class), CompositeBinder.Create(Order.class));
+	}
+	
+	@Test
+	public void testClass() throws SchemaException {
+		Settings settings= CompositeBinder.Create(Settings.class).bind(
+				YamlComposite.Parse("host: example.com\n"));
+		
+		assertEquals("example.com", settings.host);
+		assertEquals(8080, settings.port);
+		assertEquals("unchanged", settings.unbound);
+	}
+	
+	@Test
+	public void testErrors() throws SchemaException {
+		CompositeBinder<Order> binder= CompositeBinder.Create(Order.class);
+		
+		MissingValueException missing= assertThrows(MissingValueException.class,
+				() -> binder.bind(JsonComposite.Parse(ORDER.replace("\"quantity\":2,", ""))));
+		assertTrue(missing.getMessage().contains("lines[0].quantity"), missing.getMessage());
+		
+		assertThrows(WrongTypeException.class,
+				() -> binder.bind(JsonComposite.Parse(ORDER.replace("\"id\":12", "\"id\":1.5"))));
+		
+		assertThrows(IllegalArgumentException.class, () -> CompositeBinder.Create(String.class));
+	}
+	
+	@Test
+	public void testEnums() throws SchemaException {
+		CompositeBinder<Order> binder= CompositeBinder.Create(Order.class);
+		
+		Order order= binder.bind(JsonComposite.Parse(ORDER.replace(
+				"\"price\":1.25", "\"price\":1.25,\"status\":\"OPEN\"").replace(
+				"\"id\":12", "\"id\":12,\"status\":\"SHIPPED\",\"history\":[\"OPEN\",\"SHIPPED\"]")));
+		
+		assertEquals(Status.SHIPPED, order.status());
+		assertEquals(List.of(Status.OPEN, Status.SHIPPED), order.history());
+		assertEquals(Status.OPEN, order.lines().get(0).status());
+		
+		UndefinedOptionException undefined= assertThrows(UndefinedOptionException.class,
+				() -> binder.bind(JsonComposite.Parse(ORDER.replace(
+						"\"price\":1.25", "\"price\":1.25,\"status\":\"LOST\""))));
+		assertTrue(undefined.getMessage().contains("lines[0].status"), undefined.getMessage());
+		
+		undefined= assertThrows(UndefinedOptionException.class,
+				() -> binder.bind(JsonComposite.Parse(ORDER.replace(
+						"\"id\":12", "\"id\":12,\"history\":[\"OPEN\",\"LOST\"]")), "orders[3]"));
+		assertTrue(undefined.getMessage().contains("orders[3].history[1]"), undefined.getMessage());
+		
+		assertThrows(WrongTypeException.class,
+				() -> binder.bind(JsonComposite.Parse(ORDER.replace("\"id\":12", "\"id\":12,\"status\":1"))));
+	}
+}
@@ -0,0 +1,122 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.map.JsonMapSerializer;
+import com.teaglu.composite.map.MapCompositeImpl;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class CompositeDiffTest {
+	@Test
+	public void testIdentical() throws SchemaException {
+		Composite c= JsonComposite.Parse("{\"a\":1}");
+		assertTrue(CompositeDiff.between(c, c).isEmpty());
+		
+		assertTrue(CompositeDiff.between(
+				JsonComposite.Parse("{\"a\":1,\"b\":[1,2,{\"c\":null}]}"),
+				JsonComposite.Parse("{\"b\":[1.0,2,{\"c\":null}],\"a\":1}")).isEmpty());
+	}
+	
+	@Test
+	public void testPatch() throws SchemaException {
+		Composite before= JsonComposite.Parse(
+				"{\"name\":\"old\",\"gone\":true,\"child\":{\"x\":1,\"y\":2},\"list\":[1,2,3]," +
+				"\"short\":[1,2,3],\"a/b\":1,\"t~\":1,\"kind\":{\"x\":1}}");
+		Composite after= JsonComposite.Parse(
+				"{\"name\":\"new\",\"child\":{\"x\":1,\"y\":3,\"z\":4},\"list\":[1,2,3,4]," +
+				"\"short\":[1],\"a/b\":2,\"t~\":1,\"kind\":[1],\"added\":{\"q\":null}}");
+		
+		CompositeDiff diff= CompositeDiff.between(before, after);
+		assertEquals(JsonParser.parseString("[" +
+				"{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"new\"}," +
+				"{\"op\":\"remove\",\"path\":\"/gone\"}," +
+				"{\"op\":\"replace\",\"path\":\"/child/y\",\"value\":3}," +
+				"{\"op\":\"add\",\"path\":\"/child/z\",\"value\":4}," +
+				"{\"op\":\"add\",\"path\":\"/list/3\",\"value\":4}," +
+				"{\"op\":\"remove\",\"path\":\"/short/2\"}," +
+				"{\"op\":\"remove\",\"path\":\"/short/1\"}," +
+				"{\"op\":\"replace\",\"path\":\"/a~1b\",\"value\":2}," +
+				"{\"op\":\"replace\",\"path\":\"/kind\",\"value\":[1]}," +
+				"{\"op\":\"add\",\"path\":\"/added\",\"value\":{\"q\":null}}" +
+				"]"), diff.toJsonPatch());
+		
+		CompositeDiff.Change first= diff.getChanges().get(0);
+		assertEquals(CompositeDiff.Operation.REPLACE, first.getOperation());
+		assertEquals("/name", first.getPath());
+	}
+	
+	@Test
+	public void testAcrossBackends() throws SchemaException {
+		Composite json= JsonComposite.Parse(
+				"{\"name\":\"thing\",\"count\":3,\"date\":\"2023-01-01\",\"list\":[1,2]}");
+		Composite yaml= YamlComposite.Parse("name: thing\ncount: 3.0\ndate: 2023-01-01\nlist: [1, 2]\n");
+		assertTrue(CompositeDiff.between(json, yaml).isEmpty());
+		
+		Map<String, Object> tree= new TreeMap<>();
+		tree.put("name", "other");
+		tree.put("count", 3L);
+		tree.put("date", LocalDate.of(2023, 1, 1));
+		tree.put("list", List.of(1, 2, 3));
+		
+		Composite map= new MapCompositeImpl(tree, TimeZone.getTimeZone("UTC"), new JsonMapSerializer(), null);
+		// Changes follow the member order of the first document
+		assertEquals(JsonParser.parseString("[" +
+				"{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"other\"}," +
+				"{\"op\":\"add\",\"path\":\"/list/2\",\"value\":3}" +
+				"]"), CompositeDiff.between(yaml, map).toJsonPatch());
+	}
+	
+	@Test
+	public void testOwnershipKept() throws SchemaException {
+		Composite json= JsonComposite.Parse("{\"name\":\"thing\",\"count\":3}");
+		Composite yaml= YamlComposite.Parse("name: thing\ncount: 4\n");
+		
+		ContentHash jsonHash= json.contentHash();
+		ContentHash yamlHash= yaml.contentHash();
+		
+		// Reading the trees for a diff or an overlay doesn't hand them out to anyone
+		CompositeDiff.between(json, yaml);
+		OverlayComposite.Create(TimeZone.getTimeZone("UTC"), json, yaml).contentHash();
+		
+		assertSame(jsonHash, json.contentHash());
+		assertSame(yamlHash, yaml.contentHash());
+	}
+	
+	@Test
+	public void testSharedSubtrees() throws SchemaException {
+		JsonObject before= new JsonObject();
+		for (int i= 0; i < 1000; i++) {
+			JsonObject item= new JsonObject();
+			item.addProperty("id", i);
+			before.add("item" + i, item);
+		}
+		
+		// A copy sharing every subtree except one
+		JsonObject after= new JsonObject();
+		for (Map.Entry<String, JsonElement> entry : before.entrySet()) {
+			after.add(entry.getKey(), entry.getValue());
+		}
+		JsonObject changed= new JsonObject();
+		changed.addProperty("id", -1);
+		after.add("item500", changed);
+		
+		CompositeDiff diff= CompositeDiff.between(JsonComposite.Create(before), JsonComposite.Create(after));
+		assertEquals(1, diff.getChanges().size());
+		assertEquals("/item500/id", diff.getChanges().get(0).getPath());
+	}
+}
@@ -0,0 +1,171 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.teaglu.composite.convert.Shape;
+
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class CompositeKeyTest {
+	private static final CompositeKey NAME= CompositeKey.of("name");
+	private static final CompositeKey COUNT= CompositeKey.of("count");
+	private static final CompositeKey WEIGHT= CompositeKey.of("weight");
+	private static final CompositeKey ACTIVE= CompositeKey.of("active");
+	private static final CompositeKey CHILD= CompositeKey.of("child");
+	private static final CompositeKey MISSING= CompositeKey.of("missing");
+	
+	@Test
+	public void testOf() {
+		String name= new String("name");
+		
+		CompositeKey key= CompositeKey.of(name);
+		assertSame(NAME, key);
+		assertSame("name", key.getName());
+		assertEquals("name".hashCode(), key.hashCode());
+	}
+	
+	private static void testDocument(Composite c) throws SchemaException {
+		for (int i= 0; i < 3; i++) {
+			assertEquals("widget", c.getRequiredString(NAME));
+			assertEquals(12, c.getRequiredInteger(COUNT));
+			assertEquals(12L, c.getRequiredLong(COUNT));
+			assertEquals(2.5, c.getRequiredDouble(WEIGHT));
+			assertEquals(true, c.getRequiredBoolean(ACTIVE));
+			assertEquals("gear", c.getRequiredObject(CHILD).getRequiredString(NAME));
+		}
+		
+		assertNull(c.getOptionalString(MISSING));
+		assertNull(c.getOptionalLong(MISSING));
+		assertNull(c.getOptionalObject(MISSING));
+		
+		// Errors carry the same path the name versions would
+		Composite child= c.getRequiredObject(CHILD);
+		MissingValueException missing= assertThrows(MissingValueException.class,
+				() -> child.getRequiredLong(MISSING));
+		assertTrue(missing.getMessage().contains("child.missing"), missing.getMessage());
+		
+		WrongTypeException wrong= assertThrows(WrongTypeException.class,
+				() -> c.getRequiredInteger(NAME));
+		assertTrue(wrong.getMessage().contains("name"), wrong.getMessage());
+	}
+	
+	@Test
+	public void testJson() throws SchemaException {
+		testDocument(JsonComposite.Parse(
+				"{\"name\":\"widget\",\"count\":12,\"weight\":2.5,\"active\":true," +
+				"\"child\":{\"name\":\"gear\"}}"));
+	}
+	
+	@Test
+	public void testShapes() throws SchemaException {
+		CompositeKey id= CompositeKey.of("shapeId");
+		CompositeKey label= CompositeKey.of("shapeLabel");
+		
+		// More layouts than a key caches, including ones without the member
+		String[] documents= {
+			"{\"shapeId\":1,\"shapeLabel\":\"a\"}",
+			"{\"shapeLabel\":\"b\",\"shapeId\":2}",
+			"{\"shapeId\":3}",
+			"{\"extra\":true,\"shapeId\":4,\"shapeLabel\":\"d\"}",
+			"{\"shapeLabel\":\"e\",\"extra\":true,\"shapeId\":5}",
+			"{\"shapeId\":6,\"extra\":true,\"shapeLabel\":\"f\"}",
+		};
+		String[] labels= { "a", "b", null, "d", "e", "f" };
+		
+		for (int pass= 0; pass < 3; pass++) {
+			for (int i= 0; i < documents.length; i++) {
+				Composite c= JsonComposite.Parse(documents[i]);
+				assertEquals(i + 1, c.getRequiredLong(id));
+				assertEquals(labels[i], c.getOptionalString(label));
+			}
+		}
+	}
+	
+	@Test
+	public void testSlotReplacement() {
+		CompositeKey key= CompositeKey.of("replaced");
+		
+		Object[] shapes= new Object[6];
+		for (int i= 0; i < shapes.length; i++) {
+			shapes[i]= new Object();
+			key.setSlot(shapes[i], i);
+		}
+		
+		// The newest shapes push out the oldest
+		assertEquals(5, key.getSlot(shapes[5]));
+		assertEquals(2, key.getSlot(shapes[2]));
+		assertEquals(CompositeKey.NOT_CACHED, key.getSlot(shapes[0]));
+	}
+	
+	@Test
+	public void testShapeReset() {
+		// Dynamic member names fill the tree, which then starts over instead of giving up
+		for (int i= 0; i < 10000; i++) {
+			Shape.root().with("dynamic" + i);
+		}
+		
+		Shape shape= Shape.root().with("a");
+		assertNotNull(shape);
+		assertSame(shape, Shape.root().with("a"));
+		assertEquals(0, shape.slotOf("a"));
+	}
+	
+	@Test
+	public void testCallerTree() throws SchemaException {
+		CompositeKey a= CompositeKey.of("a");
+		
+		JsonObject object= new JsonObject();
+		object.addProperty("a", 1);
+		object.addProperty("b", 2);
+		
+		Composite c= JsonComposite.Create(object);
+		assertEquals(1, c.getRequiredInteger(a));
+		
+		// The caller can change its own tree, and keys have to see it the same as names
+		object.addProperty("a", 5);
+		assertEquals(c.getRequiredInteger("a"), c.getRequiredInteger(a));
+		
+		object.remove("a");
+		assertThrows(MissingValueException.class, () -> c.getRequiredInteger("a"));
+		assertThrows(MissingValueException.class, () -> c.getRequiredInteger(a));
+	}
+	
+	@Test
+	public void testReleasedTree() throws SchemaException {
+		CompositeKey a= CompositeKey.of("a");
+		
+		Composite c= JsonComposite.Parse("{\"a\":1,\"b\":{\"a\":2},\"a\":3}");
+		assertEquals(3, c.getRequiredInteger(a));
+		
+		Composite child= c.getRequiredObject("b");
+		assertEquals(2, child.getRequiredInteger(a));
+		
+		// Handing out the parsed tree gives up the layouts for the whole document
+		JsonObject object= c.serialize(JsonObject.class);
+		object.getAsJsonObject("b").addProperty("a", 7);
+		assertEquals(7, child.getRequiredInteger(a));
+	}
+	
+	@Test
+	public void testYaml() throws SchemaException {
+		testDocument(YamlComposite.Parse(
+				"name: widget\n" +
+				"count: 12\n" +
+				"weight: 2.5\n" +
+				"active: true\n" +
+				"child:\n" +
+				"  name: gear\n"));
+	}
+}
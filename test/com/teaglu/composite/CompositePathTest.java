@@ -0,0 +1,129 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.map.JsonMapSerializer;
+import com.teaglu.composite.map.MapCompositeImpl;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class CompositePathTest {
+	private static final CompositePath LATCH= CompositePath.Compile("car.doors[1].latch");
+	
+	@Test
+	public void testCompile() {
+		CompositePath path= CompositePath.Compile("grid[1][2].cell");
+		assertEquals(4, path.size());
+		assertEquals("grid", path.getName(0));
+		assertEquals(1, path.getIndex(1));
+		assertEquals(2, path.getIndex(2));
+		assertEquals("grid[1][2]", path.getText(2));
+		assertEquals("cell", path.getLeafName());
+		
+		assertSame(LATCH, CompositePath.Compile("car.doors[1].latch"));
+		
+		String[] invalid= { "", "a..b", "a.", "[0]", "a[", "a[x]", "a[-1]", "a[0]b", "a]" };
+		for (String text : invalid) {
+			assertThrows(IllegalArgumentException.class, () -> CompositePath.Compile(text), text);
+		}
+	}
+	
+	private static void testDocument(Composite c) throws SchemaException {
+		assertEquals("front", c.getRequiredString(LATCH));
+		assertEquals(4, c.getRequiredInteger(CompositePath.Compile("car.doors[1].hinges")));
+		assertEquals(4L, c.getRequiredLong(CompositePath.Compile("car.doors[1].hinges")));
+		assertEquals(1.5, c.getRequiredDouble(CompositePath.Compile("car.weight")));
+		assertEquals(true, c.getRequiredBoolean(CompositePath.Compile("car.doors[0].locked")));
+		assertEquals("car", c.getRequiredString(CompositePath.Compile("kind")));
+		
+		Composite door= c.getRequiredObject(CompositePath.Compile("car.doors[1]"));
+		assertEquals("front", door.getRequiredString("latch"));
+		
+		assertNull(c.getOptionalString(CompositePath.Compile("car.doors[5].latch")));
+		assertNull(c.getOptionalString(CompositePath.Compile("boat.doors[0].latch")));
+		assertNull(c.getOptionalObject(CompositePath.Compile("car.doors[5]")));
+		
+		// Errors carry the same path the chained calls would
+		MissingValueException missing= assertThrows(MissingValueException.class,
+				() -> c.getRequiredString(CompositePath.Compile("car.doors[0].latch")));
+		assertTrue(missing.getMessage().contains("car.doors[0].latch"), missing.getMessage());
+		
+		missing= assertThrows(MissingValueException.class,
+				() -> c.getRequiredString(CompositePath.Compile("car.doors[5].latch")));
+		assertTrue(missing.getMessage().contains("car.doors[5]"), missing.getMessage());
+		
+		WrongTypeException wrong= assertThrows(WrongTypeException.class,
+				() -> c.getRequiredString(CompositePath.Compile("car.weight.latch")));
+		assertTrue(wrong.getMessage().contains("car.weight"), wrong.getMessage());
+		
+		wrong= assertThrows(WrongTypeException.class,
+				() -> c.getRequiredString(CompositePath.Compile("car[0].latch")));
+		assertTrue(wrong.getMessage().contains("car "), wrong.getMessage());
+		
+		wrong= assertThrows(WrongTypeException.class,
+				() -> c.getRequiredInteger(LATCH));
+		assertTrue(wrong.getMessage().contains("car.doors[1].latch"), wrong.getMessage());
+		
+		// Paths from a child composite include the child's own path
+		Composite car= c.getRequiredObject("car");
+		missing= assertThrows(MissingValueException.class,
+				() -> car.getRequiredString(CompositePath.Compile("doors[0].latch")));
+		assertTrue(missing.getMessage().contains("car.doors[0].latch"), missing.getMessage());
+	}
+	
+	@Test
+	public void testJson() throws SchemaException {
+		testDocument(JsonComposite.Parse(
+				"{\"kind\":\"car\",\"car\":{\"weight\":1.5,\"doors\":[" +
+				"{\"locked\":true},{\"latch\":\"front\",\"hinges\":4}]}}"));
+	}
+	
+	@Test
+	public void testYaml() throws SchemaException {
+		testDocument(YamlComposite.Parse(
+				"kind: car\n" +
+				"car:\n" +
+				"  weight: 1.5\n" +
+				"  doors:\n" +
+				"    - locked: true\n" +
+				"    - latch: front\n" +
+				"      hinges: 4\n"));
+	}
+	
+	@Test
+	public void testMapIterable() throws SchemaException {
+		// Arrays in a map tree built by hand can be any Iterable, not just a List
+		Map<String, Object> locked= new HashMap<>();
+		locked.put("locked", true);
+		
+		Map<String, Object> front= new HashMap<>();
+		front.put("latch", "front");
+		front.put("hinges", 4);
+		
+		Map<String, Object> car= new HashMap<>();
+		car.put("weight", 1.5);
+		car.put("doors", new ArrayDeque<>(List.of(locked, front)));
+		
+		Map<String, Object> tree= new HashMap<>();
+		tree.put("kind", "car");
+		tree.put("car", car);
+		
+		TimeZone utc= TimeZone.getTimeZone("UTC");
+		testDocument(new MapCompositeImpl(tree, utc, new JsonMapSerializer(), null));
+	}
+}
@@ -0,0 +1,131 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class CompositeSourceTest {
+	@TempDir
+	Path directory;
+	
+	@Test
+	public void testReload() throws IOException, SchemaException, InterruptedException {
+		Path file= directory.resolve("config.yaml");
+		Files.writeString(file, "name: first\nport: 80\n", StandardCharsets.UTF_8);
+		
+		BlockingQueue<CompositeDiff> changes= new LinkedBlockingQueue<>();
+		BlockingQueue<Exception> failures= new LinkedBlockingQueue<>();
+		
+		try (CompositeSource source= CompositeSource.Create(
+				file, Format.YAML, TimeZone.getTimeZone("UTC"), 50))
+		{
+			source.addListener(new CompositeSource.Listener() {
+				@Override
+				public void changed(
+						@NonNull Composite previous,
+						@NonNull Composite current,
+						@NonNull CompositeDiff diff)
+				{
+					changes.add(diff);
+				}
+				
+				@Override
+				public void failed(
+						@NonNull Path path,
+						@NonNull Exception cause)
+				{
+					failures.add(cause);
+				}
+			});
+			
+			Composite first= source.get();
+			assertEquals("first", first.getRequiredString("name"));
+			
+			// Same content means no notification
+			assertFalse(source.reload());
+			
+			Files.writeString(file, "name: second\nport: 80\n", StandardCharsets.UTF_8);
+			CompositeDiff diff= changes.poll(10, TimeUnit.SECONDS);
+			assertEquals("/name", diff.getChanges().get(0).getPath());
+			assertEquals("second", source.get().getRequiredString("name"));
+			
+			// The old snapshot is untouched
+			assertEquals("first", first.getRequiredString("name"));
+			
+			// A broken file leaves the last good snapshot in place
+			Files.writeString(file, "name: [unclosed\n", StandardCharsets.UTF_8);
+			assertTrue(failures.poll(10, TimeUnit.SECONDS) != null);
+			assertEquals("second", source.get().getRequiredString("name"));
+		}
+	}
+	
+	@Test
+	public void testRuntimeFailure() throws IOException, SchemaException, InterruptedException {
+		Path file= directory.resolve("config.yaml");
+		Files.writeString(file, "name: first\n", StandardCharsets.UTF_8);
+		
+		BlockingQueue<Composite> changes= new LinkedBlockingQueue<>();
+		BlockingQueue<Exception> failures= new LinkedBlockingQueue<>();
+		
+		try (CompositeSource source= CompositeSource.Create(file, (path) -> {
+			String text= Files.readString(path, StandardCharsets.UTF_8);
+			if (text.contains("explode")) {
+				throw new IllegalStateException("Loader exploded");
+			}
+			
+			return YamlComposite.Parse(text);
+		}, 50))
+		{
+			// A listener that throws must not keep the others from hearing about changes
+			source.addListener((previous, current, diff) -> {
+				throw new IllegalStateException("Listener exploded");
+			});
+			source.addListener(new CompositeSource.Listener() {
+				@Override
+				public void changed(
+						@NonNull Composite previous,
+						@NonNull Composite current,
+						@NonNull CompositeDiff diff)
+				{
+					changes.add(current);
+				}
+				
+				@Override
+				public void failed(
+						@NonNull Path path,
+						@NonNull Exception cause)
+				{
+					failures.add(cause);
+				}
+			});
+			
+			Files.writeString(file, "name: explode\n", StandardCharsets.UTF_8);
+			Exception failure= failures.poll(10, TimeUnit.SECONDS);
+			assertInstanceOf(IllegalStateException.class, failure);
+			assertEquals("first", source.get().getRequiredString("name"));
+			
+			// The watcher survived and still picks up good content
+			Files.writeString(file, "name: second\n", StandardCharsets.UTF_8);
+			Composite current= changes.poll(10, TimeUnit.SECONDS);
+			assertEquals("second", current.getRequiredString("name"));
+			assertEquals("second", source.get().getRequiredString("name"));
+		}
+	}
+}
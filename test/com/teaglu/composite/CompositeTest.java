@@ -2,12 +2,24 @@ package com.teaglu.composite;
 
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
 
 import com.teaglu.composite.exception.MissingValueException;
 import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.yaml.YamlComposite;
 
 public class CompositeTest {
 	// Big enough not to find in an int
@@ -569,5 +581,152 @@ public class CompositeTest {
 			fail("Exception testing optional string list");
 		}
 	}
-
+	
+	public static void testChildReuse(Composite c) {
+		if (c == null) {
+			fail("Reference composite is null");
+			return;
+		}
+		
+		try {
+			Composite first= c.getRequiredObject("objectProperty");
+			Composite second= c.getRequiredObject("objectProperty");
+			if (first != second) {
+				fail("Sub-object wrapper was not reused");
+			}
+			
+			Iterable<@NonNull Composite> firstList= c.getRequiredObjectArray("objectListProperty");
+			Iterable<@NonNull Composite> secondList= c.getRequiredObjectArray("objectListProperty");
+			if (firstList != secondList) {
+				fail("Object array wrapper was not reused");
+			}
+			
+			Composite firstEntry= firstList.iterator().next();
+			Composite secondEntry= secondList.iterator().next();
+			if (firstEntry != secondEntry) {
+				fail("Object array entry wrapper was not reused");
+			}
+		} catch (SchemaException e) {
+			fail("Exception testing child reuse", e);
+		}
+	}
+	
+	public static void testDates(Composite c) {
+		if (c == null) {
+			fail("Reference composite is null");
+			return;
+		}
+		
+		try {
+			if (!c.getRequiredLocalDate("localDateProperty").equals(LocalDate.of(2023, 1, 1))) {
+				fail("Failed to retrieve local date");
+			}
+			
+			Instant expected= Instant.parse("2023-01-01T12:00:00Z");
+			if (!c.getRequiredTimestamp("timestampProperty").toInstant().equals(expected)) {
+				fail("Failed to retrieve timestamp");
+			}
+			if (!c.getRequiredInstant("timestampProperty").equals(expected)) {
+				fail("Failed to retrieve instant");
+			}
+			
+			OffsetDateTime odt= c.getRequiredOffsetDateTime("timestampProperty");
+			if (!odt.toInstant().equals(expected) || (odt.getOffset().getTotalSeconds() != 0)) {
+				fail("Failed to retrieve offset date time");
+			}
+		} catch (SchemaException e) {
+			fail("Exception retrieving dates", e);
+		}
+		
+		try {
+			c.getRequiredTimestamp("stringProperty");
+			fail("Failed to reject timestamp that isn't a date");
+		} catch (SchemaException e) {
+		}
+		
+		try {
+			if (c.getOptionalInstant("noexist") != null) {
+				fail("Found non-existant instant");
+			}
+		} catch (SchemaException e) {
+			fail("Exception retrieving non-existant optional instant");
+		}
+	}
+	
+	public static void testBigNumbers(Composite c) {
+		if (c == null) {
+			fail("Reference composite is null");
+			return;
+		}
+		
+		try {
+			if (!c.getRequiredBigInteger("longProperty2").equals(BigInteger.valueOf(TOO_LONG_FOR_INT))) {
+				fail("Failed to retrieve long as big integer");
+			}
+			if (c.getRequiredBigDecimal("longProperty2").compareTo(BigDecimal.valueOf(TOO_LONG_FOR_INT)) != 0) {
+				fail("Failed to retrieve long as big decimal");
+			}
+			if (c.getRequiredBigDecimal("doubleProperty2").compareTo(new BigDecimal("3.4")) != 0) {
+				fail("Failed to retrieve double as big decimal");
+			}
+			if (!c.getRequiredBigInteger("doubleProperty1").equals(BigInteger.valueOf(3))) {
+				fail("Failed to retrieve whole double as big integer");
+			}
+		} catch (SchemaException e) {
+			fail("Exception retrieving big numbers", e);
+		}
+		
+		try {
+			c.getRequiredInteger("longProperty2");
+			fail("Failed to reject long outside int range");
+		} catch (SchemaException e) {
+		}
+		
+		try {
+			c.getRequiredBigInteger("doubleProperty2");
+			fail("Failed to reject fraction as big integer");
+		} catch (SchemaException e) {
+		}
+		
+		try {
+			if (c.getOptionalBigDecimal("noexist") != null) {
+				fail("Found non-existant big decimal");
+			}
+		} catch (SchemaException e) {
+			fail("Exception retrieving non-existant optional big decimal");
+		}
+	}
+	
+	public static void testWriteTo(Composite c) {
+		if (c == null) {
+			fail("Reference composite is null");
+			return;
+		}
+		
+		for (Format format : Format.values()) {
+			ByteArrayOutputStream output= new ByteArrayOutputStream();
+			Composite copy= null;
+			try {
+				c.writeTo(output, format);
+				
+				if (format == Format.JSON) {
+					copy= JsonComposite.Parse(output.toString(StandardCharsets.UTF_8));
+				} else {
+					copy= YamlComposite.Parse(new InputStreamReader(
+							new ByteArrayInputStream(output.toByteArray()), StandardCharsets.UTF_8));
+				}
+			} catch (IOException | SchemaException e) {
+				fail("Exception writing " + format, e);
+			}
+			
+			testInteger(copy);
+			testLong(copy);
+			testString(copy);
+			testObjectList(copy);
+			testIntList(copy);
+			testStringList(copy);
+			testDates(copy);
+			testBigNumbers(copy);
+		}
+	}
 }
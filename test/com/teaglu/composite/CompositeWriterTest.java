@@ -0,0 +1,160 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.map.JsonMapSerializer;
+import com.teaglu.composite.map.MapCompositeImpl;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class CompositeWriterTest {
+	private static final TimeZone NEW_YORK= TimeZone.getTimeZone("America/New_York");
+	private static final Instant STAMP= Instant.parse("2023-01-01T12:00:00Z");
+	private static final String TEXT= "quote \" slash \\ tab \t newline \n bell \u0007 é € 😀";
+	
+	private static void writeDocument(CompositeWriter writer) throws IOException {
+		writer.beginObject()
+				.name("string").value(TEXT)
+				.name("looksTrue").value("true")
+				.name("looksNumber").value("12")
+				.name("int").value(3)
+				.name("long").value(Long.MIN_VALUE)
+				.name("double").value(3.25)
+				.name("bool").value(true)
+				.name("decimal").value(new BigDecimal("12.50"))
+				.name("big").value(new BigInteger("123456789012345678901234567890"))
+				.name("date").value(LocalDate.of(2023, 1, 1))
+				.name("timestamp").value(Timestamp.from(STAMP))
+				.name("instant").value(STAMP)
+				.name("offset").value(OffsetDateTime.parse("2023-01-01T12:00:00+05:30"))
+				.name("local").value(LocalDateTime.of(2023, 1, 1, 12, 0))
+				.name("missing").nullValue()
+				.name("child").beginObject()
+						.name("empty").beginArray().endArray()
+						.endObject()
+				.name("list").beginArray();
+		
+		for (int i= 0; i < 10000; i++) {
+			writer.beginObject().name("i").value(i).endObject();
+		}
+		
+		writer.endArray().endObject();
+		writer.close();
+	}
+	
+	private static void checkDocument(Composite c) throws SchemaException {
+		assertEquals(TEXT, c.getRequiredString("string"));
+		assertEquals("true", c.getRequiredString("looksTrue"));
+		assertEquals("12", c.getRequiredString("looksNumber"));
+		assertEquals(3, c.getRequiredInteger("int"));
+		assertEquals(Long.MIN_VALUE, c.getRequiredLong("long"));
+		assertEquals(3.25, c.getRequiredDouble("double"));
+		assertEquals(true, c.getRequiredBoolean("bool"));
+		assertEquals(0, new BigDecimal("12.5").compareTo(c.getRequiredBigDecimal("decimal")));
+		assertEquals(LocalDate.of(2023, 1, 1), c.getRequiredLocalDate("date"));
+		assertEquals(STAMP, c.getRequiredTimestamp("timestamp").toInstant());
+		assertEquals(STAMP, c.getRequiredInstant("instant"));
+		assertEquals(OffsetDateTime.parse("2023-01-01T12:00:00+05:30"), c.getRequiredOffsetDateTime("offset"));
+		assertEquals(LocalDateTime.of(2023, 1, 1, 12, 0), c.getRequiredLocalDateTime("local"));
+		assertNull(c.getOptionalString("missing"));
+		
+		int count= 0;
+		Iterator<Composite> it= c.getRequiredObjectArray("list").iterator();
+		while (it.hasNext()) {
+			assertEquals(count++, it.next().getRequiredInteger("i"));
+		}
+		assertEquals(10000, count);
+	}
+	
+	@Test
+	public void testJson() throws IOException, SchemaException {
+		ByteArrayOutputStream output= new ByteArrayOutputStream();
+		writeDocument(JsonComposite.CreateWriter(output, NEW_YORK));
+		
+		String json= output.toString(StandardCharsets.UTF_8);
+		assertEquals(true, json.contains("\"timestamp\":\"2023-01-01T07:00:00-05:00\""), json.substring(0, 400));
+		assertEquals(true, json.contains("\"big\":123456789012345678901234567890"));
+		
+		Composite c= JsonComposite.Parse(json, NEW_YORK);
+		checkDocument(c);
+		assertEquals(new BigInteger("123456789012345678901234567890"), c.getRequiredBigInteger("big"));
+	}
+	
+	@Test
+	public void testJsonChannel() throws IOException, SchemaException {
+		ByteArrayOutputStream output= new ByteArrayOutputStream();
+		writeDocument(JsonComposite.CreateWriter(Channels.newChannel(output), NEW_YORK));
+		
+		checkDocument(JsonComposite.Parse(output.toString(StandardCharsets.UTF_8), NEW_YORK));
+	}
+	
+	@Test
+	public void testYaml() throws IOException, SchemaException {
+		ByteArrayOutputStream output= new ByteArrayOutputStream();
+		writeDocument(YamlComposite.CreateWriter(output, NEW_YORK));
+		
+		checkDocument(YamlComposite.Parse(new InputStreamReader(
+				new ByteArrayInputStream(output.toByteArray()), StandardCharsets.UTF_8), NEW_YORK));
+	}
+	
+	@Test
+	public void testSqlDate() throws IOException, SchemaException {
+		java.sql.Date date= java.sql.Date.valueOf(LocalDate.of(2023, 1, 1));
+		
+		Map<String, Object> tree= new LinkedHashMap<>();
+		tree.put("d", date);
+		
+		Composite c= new MapCompositeImpl(tree, NEW_YORK, new JsonMapSerializer(), null);
+		for (Format format : Format.values()) {
+			ByteArrayOutputStream output= new ByteArrayOutputStream();
+			c.writeTo(output, format);
+			
+			Composite copy= (format == Format.JSON)
+					? JsonComposite.Parse(output.toString(StandardCharsets.UTF_8), NEW_YORK)
+					: YamlComposite.Parse(output.toString(StandardCharsets.UTF_8), NEW_YORK);
+			
+			assertEquals(Instant.ofEpochMilli(date.getTime()), copy.getRequiredInstant("d"));
+		}
+	}
+	
+	@Test
+	public void testMisuse() throws IOException {
+		CompositeWriter json= JsonComposite.CreateWriter(new ByteArrayOutputStream());
+		json.beginObject();
+		assertThrows(IllegalStateException.class, () -> json.value(1));
+		json.name("a");
+		assertThrows(IllegalStateException.class, () -> json.name("b"));
+		assertThrows(IllegalStateException.class, () -> json.endObject());
+		assertThrows(IllegalStateException.class, () -> json.endArray());
+		assertThrows(IllegalArgumentException.class, () -> json.value(Double.NaN));
+		assertThrows(IOException.class, () -> json.close());
+		
+		CompositeWriter yaml= YamlComposite.CreateWriter(new ByteArrayOutputStream());
+		yaml.value("one");
+		assertThrows(IllegalStateException.class, () -> yaml.value("two"));
+		yaml.close();
+	}
+}
@@ -0,0 +1,133 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.map.JsonMapSerializer;
+import com.teaglu.composite.map.MapCompositeImpl;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class ContentHashTest {
+	private static final String JSON=
+			"{\"name\":\"caf\\u00e9\",\"count\":3,\"ratio\":0.5,\"date\":\"2023-01-01\"," +
+			"\"missing\":null,\"list\":[1,{\"b\":true,\"a\":\"x\"}]}";
+	
+	@Test
+	public void testBackendsAgree() throws SchemaException {
+		ContentHash json= JsonComposite.Parse(JSON).contentHash();
+		
+		// Different member order, number forms, and decomposed e + combining accent
+		ContentHash reordered= JsonComposite.Parse(
+				"{\"list\":[1.0,{\"a\":\"x\",\"b\":true}],\"missing\":null,\"date\":\"2023-01-01\"," +
+				"\"ratio\":5.0e-1,\"count\":3e0,\"name\":\"cafe\\u0301\"}").contentHash();
+		assertEquals(json, reordered);
+		
+		ContentHash yaml= YamlComposite.Parse(
+				"name: café\ncount: 3\nratio: 0.50\ndate: 2023-01-01\nmissing: ~\n" +
+				"list:\n  - 1\n  - {b: true, a: x}\n").contentHash();
+		assertEquals(json, yaml);
+		
+		Map<String, Object> tree= new LinkedHashMap<>();
+		tree.put("count", 3L);
+		tree.put("ratio", 0.5F);
+		tree.put("name", "café");
+		tree.put("date", LocalDate.of(2023, 1, 1));
+		tree.put("missing", null);
+		tree.put("list", List.of(new BigDecimal("1.00"), Map.of("a", "x", "b", true)));
+		
+		ContentHash map= new MapCompositeImpl(
+				tree, TimeZone.getTimeZone("UTC"), new JsonMapSerializer(), null).contentHash();
+		assertEquals(json, map);
+		
+		assertEquals(64, json.toString().length());
+		assertEquals(json.hashCode(), map.hashCode());
+	}
+	
+	@Test
+	public void testDifferences() throws SchemaException {
+		ContentHash base= JsonComposite.Parse("{\"a\":1}").contentHash();
+		
+		assertNotEquals(base, JsonComposite.Parse("{\"a\":\"1\"}").contentHash());
+		assertNotEquals(base, JsonComposite.Parse("{\"a\":1.5}").contentHash());
+		assertNotEquals(base, JsonComposite.Parse("{\"a\":[1]}").contentHash());
+		assertNotEquals(base, JsonComposite.Parse("{\"a\":1,\"b\":null}").contentHash());
+		assertNotEquals(base, JsonComposite.Parse("{\"b\":1}").contentHash());
+	}
+	
+	@Test
+	public void testMemoized() throws SchemaException {
+		Composite c= JsonComposite.Parse(JSON);
+		assertSame(c.contentHash(), c.contentHash());
+		
+		// A child hashes its own subtree
+		Composite parent= JsonComposite.Parse("{\"child\":{\"b\":true,\"a\":\"x\"}}");
+		assertEquals(JsonComposite.Parse("{\"a\":\"x\",\"b\":true}").contentHash(),
+				parent.getRequiredObject("child").contentHash());
+	}
+	
+	@Test
+	public void testSqlDate() throws SchemaException {
+		java.sql.Date date= java.sql.Date.valueOf(LocalDate.of(2023, 1, 1));
+		
+		Map<String, Object> tree= new LinkedHashMap<>();
+		tree.put("d", date);
+		
+		ContentHash map= new MapCompositeImpl(
+				tree, TimeZone.getTimeZone("UTC"), new JsonMapSerializer(), null).contentHash();
+		assertEquals(JsonComposite.Parse(
+				"{\"d\":\"" + Instant.ofEpochMilli(date.getTime()) + "\"}").contentHash(), map);
+	}
+	
+	@Test
+	public void testCallerTree() throws SchemaException {
+		JsonObject object= new JsonObject();
+		object.addProperty("a", 1);
+		
+		Composite json= JsonComposite.Create(object);
+		ContentHash before= json.contentHash();
+		object.addProperty("b", 2);
+		assertNotEquals(before, json.contentHash());
+		assertEquals(JsonComposite.Parse("{\"a\":1,\"b\":2}").contentHash(), json.contentHash());
+		
+		Map<String, Object> map= new LinkedHashMap<>();
+		map.put("a", 1L);
+		
+		Composite wrapped= new MapCompositeImpl(
+				map, TimeZone.getTimeZone("UTC"), new JsonMapSerializer(), null);
+		before= wrapped.contentHash();
+		map.put("b", 2L);
+		assertNotEquals(before, wrapped.contentHash());
+	}
+	
+	@Test
+	public void testReleasedTree() throws SchemaException {
+		Composite c= JsonComposite.Parse("{\"a\":1}");
+		ContentHash before= c.contentHash();
+		
+		JsonObject object= c.serialize(JsonObject.class);
+		object.addProperty("b", 2);
+		assertNotEquals(before, c.contentHash());
+		
+		Composite yaml= YamlComposite.Parse("a: 1\n");
+		before= yaml.contentHash();
+		
+		@SuppressWarnings("unchecked")
+		Map<String, Object> map= yaml.serialize(Map.class);
+		map.put("b", 2L);
+		assertNotEquals(before, yaml.contentHash());
+	}
+}
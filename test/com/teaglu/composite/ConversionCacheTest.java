@@ -0,0 +1,56 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+
+public class ConversionCacheTest {
+	@Test
+	public void testCacheSlots() {
+		ConversionCache cache= new ConversionCache(4);
+
+		assertNull(cache.get(Long.class, "12"));
+		cache.put(Long.class, "12", 12L);
+		assertEquals(12L, cache.get(Long.class, "12"));
+
+		// Same text converted to a different type is a separate entry
+		assertNull(cache.get(Integer.class, "12"));
+	}
+
+	@Test
+	public void testRepeatedReads() throws SchemaException {
+		ConversionCache cache= new ConversionCache();
+
+		TimeZone timezone= TimeZone.getTimeZone("America/New_York");
+		Composite c= JsonComposite.Parse(
+				"{\"date\":\"2023-01-01\",\"stamp\":\"2023-01-01T12:00:00Z\",\"count\":\"42\"," +
+				"\"child\":{\"date\":\"2023-01-01\"}}",
+				timezone, cache);
+
+		LocalDate date= c.getRequiredLocalDate("date");
+		assertSame(date, c.getRequiredLocalDate("date"));
+
+		// The child shares the document cache
+		assertSame(date, c.getRequiredObject("child").getRequiredLocalDate("date"));
+
+		// Timestamps are mutable, so each call still gets its own instance
+		Timestamp first= c.getRequiredTimestamp("stamp");
+		Timestamp second= c.getRequiredTimestamp("stamp");
+		assertNotSame(first, second);
+		assertEquals(Instant.parse("2023-01-01T12:00:00Z"), second.toInstant());
+
+		assertEquals(42L, c.getRequiredLong("count"));
+		assertEquals(42L, cache.get(Long.class, "42"));
+	}
+}
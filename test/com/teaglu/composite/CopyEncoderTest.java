@@ -0,0 +1,101 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.jdbc.CopyEncoder;
+import com.teaglu.composite.jdbc.CopyFormat;
+import com.teaglu.composite.json.JsonComposite;
+
+public class CopyEncoderTest {
+	@Test
+	public void testText() throws IOException, SchemaException {
+		ByteArrayOutputStream stream= new ByteArrayOutputStream();
+		try (CopyEncoder encoder= CopyEncoder.Create(stream, CopyFormat.TEXT)) {
+			encoder.beginRow(9)
+					.writeInteger(1)
+					.writeString("a\tb\\c\n\u00e9")
+					.writeNull()
+					.writeBoolean(true)
+					.writeComposite(JsonComposite.Parse("{\"k\":\"x\\ty\"}"))
+					.writeBytes(new byte[] { 0x01, (byte)0xAB })
+					.writeInstant(Instant.parse("2023-01-01T12:00:00Z"))
+					.writeDouble(1.5)
+					.writeLong(5000000000L)
+					.endRow();
+			
+			encoder.beginRow(2)
+					.writeComposite(null)
+					.writeString("")
+					.endRow();
+		}
+		
+		assertEquals(
+				"1\ta\\tb\\\\c\\n\u00e9\t\\N\tt\t{\"k\":\"x\\\\ty\"}\t\\\\x01ab\t" +
+				"2023-01-01T12:00:00Z\t1.5\t5000000000\n" +
+				"\\N\t\n",
+				new String(stream.toByteArray(), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testBinary() throws IOException, SchemaException {
+		ByteArrayOutputStream stream= new ByteArrayOutputStream();
+		try (CopyEncoder encoder= CopyEncoder.Create(stream, CopyFormat.BINARY)) {
+			encoder.beginRow(5)
+					.writeInteger(7)
+					.writeNull()
+					.writeComposite(JsonComposite.Parse("{\"a\":1}"))
+					.writeInstant(Instant.parse("2000-01-01T00:00:01.000002Z"))
+					.writeString("\u00e9")
+					.endRow();
+		}
+		
+		ByteArrayOutputStream expected= new ByteArrayOutputStream();
+		DataOutputStream data= new DataOutputStream(expected);
+		data.write("PGCOPY\n".getBytes(StandardCharsets.US_ASCII));
+		data.write(new byte[] { (byte)0xFF, '\r', '\n', 0 });
+		data.writeInt(0);
+		data.writeInt(0);
+		
+		data.writeShort(5);
+		data.writeInt(4);
+		data.writeInt(7);
+		data.writeInt(-1);
+		data.writeInt(8);
+		data.writeByte(1);
+		data.write("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+		data.writeInt(8);
+		data.writeLong(1000002L);
+		data.writeInt(2);
+		data.write(new byte[] { (byte)0xC3, (byte)0xA9 });
+		
+		data.writeShort(-1);
+		
+		assertArrayEquals(expected.toByteArray(), stream.toByteArray());
+	}
+	
+	@Test
+	public void testRowShape() throws IOException {
+		CopyEncoder encoder= CopyEncoder.Create(new ByteArrayOutputStream(), CopyFormat.TEXT);
+		
+		assertThrows(IllegalStateException.class, () -> encoder.writeInteger(1));
+		
+		encoder.beginRow(1).writeInteger(1);
+		assertThrows(IllegalStateException.class, () -> encoder.writeInteger(2));
+		encoder.endRow();
+		
+		encoder.beginRow(2).writeInteger(1);
+		assertThrows(IllegalStateException.class, () -> encoder.endRow());
+		assertThrows(IOException.class, () -> encoder.close());
+	}
+}
@@ -0,0 +1,84 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.convert.DateTimeParser;
+
+public class DateTimeParserTest {
+	private static final ZoneId NEW_YORK= ZoneId.of("America/New_York");
+	
+	@Test
+	public void testOffsetForms() {
+		String[] values= {
+				"2023-01-01T12:00:00Z",
+				"2023-01-01t12:00:00z",
+				"2023-07-15T23:59:59.123456789+05:30",
+				"2023-07-15T23:59:59.1-0800",
+				"2024-02-29T00:00:00.000+01",
+				"1969-12-31T23:59:59.999Z",
+				"0001-01-01T00:00:00Z",
+		};
+		
+		for (String value : values) {
+			String normalized= value.toUpperCase()
+					.replaceAll("([+-]\\d\\d)(\\d\\d)$", "$1:$2")
+					.replaceAll("([+-]\\d\\d)$", "$1:00");
+			
+			OffsetDateTime expected= OffsetDateTime.parse(normalized);
+			
+			assertEquals(expected.toInstant(), DateTimeParser.parseInstant(value, NEW_YORK), value);
+			assertEquals(expected, DateTimeParser.parseOffsetDateTime(value, NEW_YORK), value);
+		}
+	}
+	
+	@Test
+	public void testLocalForms() {
+		assertEquals(LocalDate.of(2024, 2, 29), DateTimeParser.parseLocalDate("2024-02-29"));
+		
+		// Date only is the start of the day in the zone
+		assertEquals(Instant.parse("2023-01-01T05:00:00Z"),
+				DateTimeParser.parseInstant("2023-01-01", NEW_YORK));
+		
+		// No offset is local time in the zone, including across DST
+		assertEquals(Instant.parse("2023-07-01T16:00:00Z"),
+				DateTimeParser.parseInstant("2023-07-01T12:00:00", NEW_YORK));
+		assertEquals(Instant.parse("2023-07-01T12:00:00Z"),
+				DateTimeParser.parseInstant("2023-07-01T12:00:00", ZoneOffset.UTC));
+		
+		// An offset is converted to the zone for a local date time
+		assertEquals(LocalDateTime.of(2023, 1, 1, 7, 0),
+				DateTimeParser.parseLocalDateTime("2023-01-01T12:00:00Z", NEW_YORK));
+	}
+	
+	@Test
+	public void testFallbackForms() {
+		// YAML allows a space separator, single digit hour, and a short offset
+		assertEquals(Instant.parse("2001-12-15T02:59:43.10Z"),
+				DateTimeParser.parseInstant("2001-12-14 21:59:43.10 -5", NEW_YORK));
+		assertEquals(Instant.parse("2001-12-15T02:59:43.10Z"),
+				DateTimeParser.parseInstant("2001-12-15 2:59:43.10", ZoneOffset.UTC));
+		
+		// Zone regions go through java.time
+		assertEquals(Instant.parse("2023-01-01T11:00:00Z"),
+				DateTimeParser.parseInstant("2023-01-01T12:00:00+01:00[Europe/Paris]", NEW_YORK));
+	}
+	
+	@Test
+	public void testInvalid() {
+		assertThrows(DateTimeException.class, () -> DateTimeParser.parseInstant("2023-02-29", NEW_YORK));
+		assertThrows(DateTimeException.class, () -> DateTimeParser.parseInstant("2023-01-01T25:00:00Z", NEW_YORK));
+		assertThrows(DateTimeException.class, () -> DateTimeParser.parseInstant("stuff", NEW_YORK));
+		assertThrows(DateTimeException.class, () -> DateTimeParser.parseLocalDate("2023-01-01T12:00:00Z"));
+	}
+}
@@ -0,0 +1,68 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParser;
+import com.teaglu.composite.convert.DecodedNumber;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+
+public class DecodedNumberTest {
+	@Test
+	public void testIntegers() {
+		DecodedNumber number= DecodedNumber.parse("-123456789012345678");
+		assertTrue(number.isExactLong());
+		assertFalse(number.isExactInteger());
+		assertEquals(-123456789012345678L, number.longValue());
+		
+		number= DecodedNumber.parse("9223372036854775807");
+		assertTrue(number.isExactLong());
+		assertEquals(Long.MAX_VALUE, number.longValue());
+		
+		number= DecodedNumber.parse("9223372036854775808");
+		assertFalse(number.isExactLong());
+		assertTrue(number.isWholeNumber());
+		assertEquals(new BigInteger("9223372036854775808"), number.toBigInteger());
+		
+		number= DecodedNumber.parse("3.000");
+		assertTrue(number.isExactInteger());
+		assertEquals(3L, number.longValue());
+		
+		number= DecodedNumber.parse("1.5e3");
+		assertTrue(number.isExactInteger());
+		assertEquals(1500L, number.longValue());
+	}
+	
+	@Test
+	public void testFractions() {
+		DecodedNumber number= DecodedNumber.parse("0.1");
+		assertFalse(number.isExactLong());
+		assertFalse(number.isWholeNumber());
+		assertEquals(0.1, number.doubleValue());
+		assertEquals(new BigDecimal("0.1"), number.toBigDecimal());
+		assertThrows(ArithmeticException.class, () -> number.toBigInteger());
+		
+		assertEquals(new BigDecimal("3.4"), DecodedNumber.of(3.4F).toBigDecimal());
+		assertThrows(NumberFormatException.class, () -> DecodedNumber.parse("1.2.3"));
+		assertThrows(NumberFormatException.class, () -> DecodedNumber.of(Double.NaN).toBigDecimal());
+	}
+	
+	@Test
+	public void testPrecision() throws SchemaException {
+		// 2^53 + 1 can't be represented as a double, so it used to compare equal to 2^53
+		Composite c= JsonComposite.Create(
+				JsonParser.parseString("{\"big\":9007199254740993,\"fraction\":9007199254740993.5}"));
+		
+		assertEquals(9007199254740993L, c.getRequiredLong("big"));
+		assertEquals(new BigDecimal("9007199254740993.5"), c.getRequiredBigDecimal("fraction"));
+		assertThrows(SchemaException.class, () -> c.getRequiredLong("fraction"));
+	}
+}
@@ -0,0 +1,101 @@
+package com.teaglu.composite;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.List;
+
+final class FakeResultSet {
+	private FakeResultSet() {}
+	
+	/**
+	 * A result set over fixed rows, answering only the calls the composite code makes.  A timestamp
+	 * without a zone is held as a LocalDateTime and read through the passed calendar the way
+	 * the driver does.
+	 */
+	static ResultSet create(
+			String[] labels,
+			int[] types,
+			String[] typeNames,
+			Object[]... rows)
+	{
+		ResultSetMetaData metadata= (ResultSetMetaData)Proxy.newProxyInstance(
+				ResultSetMetaData.class.getClassLoader(),
+				new Class<?>[] { ResultSetMetaData.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getColumnCount": return labels.length;
+					case "getColumnLabel": return labels[(Integer)args[0] - 1];
+					case "getColumnType": return types[(Integer)args[0] - 1];
+					case "getColumnTypeName": return typeNames[(Integer)args[0] - 1];
+					default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		
+		int[] row= { -1 };
+		boolean[] wasNull= { false };
+		
+		return (ResultSet)Proxy.newProxyInstance(
+				ResultSet.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class },
+				(proxy, method, args) -> {
+					String name= method.getName();
+					switch (name) {
+					case "getMetaData": return metadata;
+					case "next": return ++row[0] < rows.length;
+					case "getRow": return (row[0] < rows.length) ? row[0] + 1 : 0;
+					case "wasNull": return wasNull[0];
+					case "findColumn": return List.of(labels).indexOf(args[0]) + 1;
+					default: break;
+					}
+					
+					if (row[0] < 0) {
+						throw new SQLException("No current row");
+					}
+					
+					Object value= rows[row[0]][(Integer)args[0] - 1];
+					wasNull[0]= (value == null);
+					
+					switch (name) {
+					case "getInt": return (value == null) ? 0 : ((Number)value).intValue();
+					case "getLong": return (value == null) ? 0L : ((Number)value).longValue();
+					case "getDouble": return (value == null) ? 0.0 : ((Number)value).doubleValue();
+					case "getBoolean": return (value != null) && (Boolean)value;
+					case "getBigDecimal": return value;
+					case "getString": return (value == null) ? null : value.toString();
+					case "getObject": return value;
+					case "getBinaryStream":
+						if (value == null) {
+							return null;
+						}
+						return new ByteArrayInputStream((value instanceof byte[])
+								? (byte[])value
+								: value.toString().getBytes(StandardCharsets.UTF_8));
+					case "getTimestamp":
+						if (value == null) {
+							return null;
+						}
+						Calendar calendar= (Calendar)args[1];
+						return Timestamp.from(((LocalDateTime)value)
+								.atZone(calendar.getTimeZone().toZoneId()).toInstant());
+					case "getArray":
+						if (value == null) {
+							return null;
+						}
+						return Proxy.newProxyInstance(
+								Array.class.getClassLoader(),
+								new Class<?>[] { Array.class },
+								(p, m, a) -> value);
+					default:
+						throw new UnsupportedOperationException(name);
+					}
+				});
+	}
+}
@@ -0,0 +1,85 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.jdbc.JsonColumnDecoder;
+
+public class JsonColumnDecoderTest {
+	private static final TimeZone UTC= TimeZone.getTimeZone("UTC");
+	
+	private static ResultSet rows(Object[]... rows) {
+		return FakeResultSet.create(
+				new String[] { "id", "payload" },
+				new int[] { Types.INTEGER, Types.OTHER },
+				new String[] { "int4", "jsonb" },
+				rows);
+	}
+	
+	@Test
+	public void testRowOrder() throws SchemaException, SQLException {
+		int count= 1000;
+		Object[][] data= new Object[count][];
+		for (int i= 0; i < count; i++) {
+			data[i]= new Object[] { i, (i % 100 == 7) ? null : "{\"n\":" + i + "}" };
+		}
+		
+		ExecutorService executor= Executors.newFixedThreadPool(4);
+		try (JsonColumnDecoder<Integer> decoder= JsonColumnDecoder.Create(
+				rows(data), 2, resultSet -> resultSet.getInt(1), UTC, executor, 8))
+		{
+			for (int i= 0; i < count; i++) {
+				assertTrue(decoder.next());
+				assertEquals(i, decoder.getValue());
+				
+				Composite composite= decoder.getComposite();
+				if (i % 100 == 7) {
+					assertNull(composite);
+				} else {
+					assertEquals(i, composite.getRequiredInteger("n"));
+				}
+			}
+			
+			assertFalse(decoder.next());
+			assertNull(decoder.getComposite());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testParseError() throws SchemaException, SQLException {
+		try (JsonColumnDecoder<Void> decoder= JsonColumnDecoder.Create(rows(
+				new Object[] { 1, "{\"n\":1}" },
+				new Object[] { 2, "null" },
+				new Object[] { 3, "{\"n\":" },
+				new Object[] { 4, "{\"n\":4}" }), 2, UTC))
+		{
+			assertTrue(decoder.next());
+			assertEquals(1, decoder.getComposite().getRequiredInteger("n"));
+			assertTrue(decoder.next());
+			assertNull(decoder.getComposite());
+			
+			// The error belongs to the row it came from
+			assertThrows(ParseException.class, () -> decoder.next());
+			
+			assertTrue(decoder.next());
+			assertEquals(4, decoder.getComposite().getRequiredInteger("n"));
+			assertFalse(decoder.next());
+		}
+	}
+}
@@ -1,11 +1,15 @@
 package com.teaglu.composite;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 import java.util.TimeZone;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.WrongTypeException;
 import com.teaglu.composite.json.JsonCompositeImpl;
 
 public class JsonInterfaceTest extends CompositeTest {
@@ -90,4 +94,40 @@ public class JsonInterfaceTest extends CompositeTest {
 	public void testStringList() {
 		testStringList(reference);
 	}
+	
+	@Test
+	public void testChildReuse() {
+		testChildReuse(reference);
+	}
+	
+	@Test
+	public void testDates() {
+		testDates(reference);
+	}
+	
+	@Test
+	public void testBigNumbers() {
+		testBigNumbers(reference);
+	}
+	
+	@Test
+	public void testWriteTo() {
+		testWriteTo(reference);
+	}
+	
+	@Test
+	public void testModifiedArray() throws SchemaException {
+		JsonArray list= new JsonArray();
+		list.add(new JsonObject());
+		
+		JsonObject object= new JsonObject();
+		object.add("list", list);
+		
+		Composite c= new JsonCompositeImpl(object, TimeZone.getTimeZone("UTC"), null);
+		c.getRequiredObjectArray("list");
+		
+		// The cached view has to notice the array no longer holds only objects
+		list.add(3);
+		assertThrows(WrongTypeException.class, () -> c.getRequiredObjectArray("list"));
+	}
 }
@@ -0,0 +1,95 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.UnsupportedSerializationException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.map.JsonMapSerializer;
+import com.teaglu.composite.map.MapCompositeImpl;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class JsonMapSerializerTest {
+	private static Composite createComposite() {
+		Map<String, Object> tree= new LinkedHashMap<>();
+		tree.put("name", "café \"quoted\"");
+		tree.put("count", 3);
+		tree.put("ratio", 3.4F);
+		tree.put("big", new BigInteger("123456789012345678901234567890"));
+		tree.put("date", LocalDate.of(2023, 1, 1));
+		tree.put("missing", null);
+		
+		List<Object> items= new ArrayList<>();
+		items.add(Map.of("id", 1L));
+		items.add(Map.of("id", 2L));
+		tree.put("items", items);
+		
+		return new MapCompositeImpl(tree, TimeZone.getTimeZone("UTC"), new JsonMapSerializer(), null);
+	}
+	
+	private static void check(Composite c) throws SchemaException {
+		assertEquals("café \"quoted\"", c.getRequiredString("name"));
+		assertEquals(3, c.getRequiredInteger("count"));
+		assertEquals(3.4, c.getRequiredDouble("ratio"));
+		assertEquals(new BigInteger("123456789012345678901234567890"), c.getRequiredBigInteger("big"));
+		assertEquals(LocalDate.of(2023, 1, 1), c.getRequiredLocalDate("date"));
+		
+		long expected= 1;
+		for (Composite item : c.getRequiredObjectArray("items")) {
+			assertEquals(expected++, item.getRequiredLong("id"));
+		}
+		assertEquals(3, expected);
+	}
+	
+	@Test
+	public void testString() throws SchemaException {
+		Composite c= createComposite();
+		
+		String text= c.serialize(String.class);
+		assertEquals(text, c.toString());
+		check(JsonComposite.Parse(text));
+	}
+	
+	@Test
+	public void testBytes() throws SchemaException {
+		byte[] bytes= createComposite().serialize(byte[].class);
+		check(JsonComposite.Parse(new String(bytes, StandardCharsets.UTF_8)));
+	}
+	
+	@Test
+	public void testJsonObject() throws SchemaException {
+		JsonObject object= createComposite().serialize(JsonObject.class);
+		assertEquals(true, object.get("missing").isJsonNull());
+		check(JsonComposite.Create(object));
+	}
+	
+	@Test
+	public void testYamlJsonObject() throws SchemaException {
+		Composite yaml= YamlComposite.Parse("name: thing\ncount: 12\nflag: 'true'\nlist: [1, 2]\n");
+		
+		JsonObject object= yaml.serialize(JsonObject.class);
+		assertEquals("thing", object.get("name").getAsString());
+		assertEquals(12, object.get("count").getAsInt());
+		assertEquals("true", object.get("flag").getAsString());
+		assertEquals(2, object.getAsJsonArray("list").size());
+	}
+	
+	@Test
+	public void testUnsupported() {
+		assertThrows(UnsupportedSerializationException.class,
+				() -> createComposite().serialize(Integer.class));
+	}
+}
@@ -0,0 +1,127 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonQuery;
+
+public class JsonQueryTest {
+	private static final String ORDERS=
+			"{\"header\":{\"count\":4},\"data\":{\"orders\":[" +
+			"{\"id\":1,\"status\":\"OPEN\",\"total\":250.5,\"lines\":[{\"sku\":\"A\"}]," +
+			"\"customer\":{\"name\":\"Bob\",\"vip\":true}}," +
+			"{\"id\":2,\"status\":\"CLOSED\",\"total\":900,\"customer\":{\"name\":\"Sue\"}}," +
+			"{\"total\":50,\"id\":3,\"status\":\"OPEN\"}," +
+			"{\"id\":9223372036854775807,\"status\":\"OPEN\",\"total\":100,\"note\":null}" +
+			"]},\"trailer\":[1,2,3]}";
+	
+	private static List<Composite> run(String query, String json) throws SchemaException {
+		List<Composite> rval= new ArrayList<>();
+		JsonQuery.Compile(query).execute(new StringReader(json), rval::add);
+		
+		return rval;
+	}
+	
+	private static List<Long> ids(List<Composite> results) throws SchemaException {
+		List<Long> rval= new ArrayList<>();
+		for (Composite result : results) {
+			rval.add(result.getRequiredLong("id"));
+		}
+		
+		return rval;
+	}
+	
+	@Test
+	public void testFilters() throws SchemaException {
+		assertEquals(List.of(1L, 3L, 9223372036854775807L),
+				ids(run("select data.orders[*] where status == 'OPEN'", ORDERS)));
+		assertEquals(List.of(1L),
+				ids(run("select data.orders[*] where status == 'OPEN' and total > 100", ORDERS)));
+		assertEquals(List.of(1L, 2L, 9223372036854775807L),
+				ids(run("SELECT data.orders[*] WHERE total >= 100 OR status != 'OPEN'", ORDERS)));
+		assertEquals(List.of(9223372036854775807L),
+				ids(run("select data.orders[*] where id > 9223372036854775806", ORDERS)));
+		assertEquals(List.of(1L),
+				ids(run("select data.orders[*] where customer.vip == true", ORDERS)));
+		assertEquals(List.of(2L, 3L, 9223372036854775807L),
+				ids(run("select data.orders[*] where customer.vip != true", ORDERS)));
+		assertEquals(List.of(3L, 9223372036854775807L),
+				ids(run("select data.orders[*] where customer == null and note == null", ORDERS)));
+		assertEquals(List.of(1L),
+				ids(run("select data.orders[*] where total == 2.505e2", ORDERS)));
+		assertEquals(List.of(),
+				ids(run("select data.orders[*] where status > 5", ORDERS)));
+		assertEquals(List.of(),
+				ids(run("select data.missing[*] where status == 'OPEN'", ORDERS)));
+		assertEquals(List.of(1L, 2L),
+				ids(run("select [*] where id < 3", "[{\"id\":1},{\"id\":2},{\"id\":3}]")));
+	}
+	
+	@Test
+	public void testProjection() throws SchemaException {
+		List<Composite> results= run(
+				"select data.orders[*] where status == 'OPEN' project id, customer.name", ORDERS);
+		
+		assertEquals(3, results.size());
+		
+		Composite first= results.get(0);
+		assertEquals(1L, first.getRequiredLong("id"));
+		assertEquals("Bob", first.getRequiredObject("customer").getRequiredString("name"));
+		assertNull(first.getRequiredObject("customer").getOptionalBoolean("vip"));
+		assertNull(first.getOptionalString("status"));
+		assertNull(first.getOptionalObjectArray("lines"));
+		
+		// Errors from a result carry the position of the record in the document
+		MissingValueException missing= assertThrows(MissingValueException.class,
+				() -> results.get(1).getRequiredObject("customer"));
+		assertTrue(missing.getMessage().contains("data.orders[2].customer"), missing.getMessage());
+		
+		// Without a projection the whole record is kept
+		Composite whole= run("select data.orders[*] where id == 1", ORDERS).get(0);
+		assertEquals("A", whole.getRequiredObjectArray("lines").iterator().next().getRequiredString("sku"));
+	}
+	
+	@Test
+	public void testErrors() {
+		String[] invalid= {
+				"orders[*]",
+				"select orders",
+				"select orders[*] where",
+				"select orders[*] where status = 'OPEN'",
+				"select orders[*] where status == 'OPEN",
+				"select orders[*] project",
+				"select orders[*] extra",
+		};
+		for (String query : invalid) {
+			assertThrows(IllegalArgumentException.class, () -> JsonQuery.Compile(query), query);
+		}
+		
+		assertThrows(WrongTypeException.class,
+				() -> run("select header[*]", ORDERS));
+		assertThrows(WrongTypeException.class,
+				() -> run("select trailer[*]", ORDERS));
+		assertThrows(ParseException.class,
+				() -> run("select data.orders[*]", "{\"data\":{\"orders\":[{\"id\":1,]}}"));
+	}
+	
+	@Test
+	public void testStopsAfterArray() throws SchemaException {
+		// The document is broken after the selected array, which is never read
+		List<Composite> results= run("select orders[*]", "{\"orders\":[{\"id\":1}], garbage");
+		assertEquals(1, results.size());
+		assertFalse(results.isEmpty());
+	}
+}
@@ -0,0 +1,73 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.PGobject;
+
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.jdbc.JsonbProjection;
+
+public class JsonbProjectionTest {
+	@Test
+	public void testExpression() {
+		JsonbProjection projection= JsonbProjection.Create("document",
+				"name", "db.host", "db.port", "items[1].sku", "db.host");
+		
+		assertEquals(
+				"CASE WHEN jsonb_typeof(document)='object' THEN jsonb_build_object(" +
+					"'name',(document->'name')," +
+					"'db',CASE WHEN jsonb_typeof((document->'db'))='object' THEN jsonb_build_object(" +
+						"'host',(document#>'{\"db\",\"host\"}')," +
+						"'port',(document#>'{\"db\",\"port\"}')" +
+					") ELSE (document->'db') END," +
+					"'items',(document->'items')" +
+				") ELSE document END",
+				projection.getExpression());
+		
+		// A shorter path takes the whole value, whichever order the paths come in
+		assertEquals(
+				JsonbProjection.Create("d", "a").getExpression().replace("a", "_"),
+				JsonbProjection.Create("d", "a.b", "a").getExpression().replace("a", "_"));
+	}
+	
+	@Test
+	public void testQuoting() {
+		assertEquals(
+				"CASE WHEN jsonb_typeof(d)='object' THEN jsonb_build_object(" +
+					"'it''s',CASE WHEN jsonb_typeof((d->'it''s'))='object' THEN jsonb_build_object(" +
+						"'say \"hi\"',(d#>'{\"it''s\",\"say \\\"hi\\\"\"}')" +
+					") ELSE (d->'it''s') END" +
+				") ELSE d END",
+				JsonbProjection.Create("d", CompositePath.Compile("it's.say \"hi\"")).getExpression());
+	}
+	
+	@Test
+	public void testWideObject() {
+		String[] paths= new String[60];
+		for (int i= 0; i < paths.length; i++) {
+			paths[i]= "m" + i;
+		}
+		
+		String sql= JsonbProjection.Create("d", paths).getExpression();
+		assertTrue(sql.contains("'m49',(d->'m49'))||jsonb_build_object('m50',(d->'m50')"));
+	}
+	
+	@Test
+	public void testRead() throws SchemaException, SQLException {
+		JsonbProjection projection= JsonbProjection.Create("d", "a.b");
+		
+		PGobject value= new PGobject();
+		value.setType("jsonb");
+		value.setValue("{\"a\":{\"b\":null}}");
+		
+		Composite composite= projection.read(value, TimeZone.getTimeZone("UTC"));
+		assertNull(composite.getOptionalString(CompositePath.Compile("a.b")));
+		assertNull(projection.read(null, TimeZone.getTimeZone("UTC")));
+	}
+}
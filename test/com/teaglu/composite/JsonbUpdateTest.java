@@ -0,0 +1,61 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.PGobject;
+
+import com.google.gson.JsonParser;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.jdbc.JsonbUpdate;
+import com.teaglu.composite.json.JsonComposite;
+
+public class JsonbUpdateTest {
+	private static Object json(String text) {
+		return JsonParser.parseString(text);
+	}
+	
+	@Test
+	public void testChanges() throws SchemaException, SQLException {
+		Composite before= JsonComposite.Parse(
+				"{\"name\":\"old\",\"gone\":1,\"child\":{\"x\":1,\"a/b\":{\"q\\\"\":1}}," +
+				"\"list\":[1,2,3],\"same\":{\"big\":[1,2,3]}}");
+		Composite after= JsonComposite.Parse(
+				"{\"name\":\"new\",\"child\":{\"x\":2,\"a/b\":{\"q\\\"\":2}}," +
+				"\"list\":[1,2],\"same\":{\"big\":[1,2,3]},\"added\":{\"z\":true}}");
+		
+		JsonbUpdate update= JsonbUpdate.Create("document", before, after);
+		
+		assertEquals(
+				"(jsonb_set(jsonb_set(((document || ?) #- ?::text[]), ?::text[], ?, true)," +
+				" ?::text[], ?, true) #- ?::text[])",
+				update.getExpression());
+		
+		List<Object> parameters= update.getParameters();
+		assertEquals(7, parameters.size());
+		
+		PGobject merge= (PGobject)parameters.get(0);
+		assertEquals("jsonb", merge.getType());
+		assertEquals(json("{\"name\":\"new\",\"added\":{\"z\":true}}"), json(merge.getValue()));
+		
+		assertEquals("{\"gone\"}", parameters.get(1));
+		assertEquals("{\"child\",\"x\"}", parameters.get(2));
+		assertEquals(json("2"), json(((PGobject)parameters.get(3)).getValue()));
+		assertEquals("{\"child\",\"a/b\",\"q\\\"\"}", parameters.get(4));
+		assertEquals(json("2"), json(((PGobject)parameters.get(5)).getValue()));
+		assertEquals("{\"list\",\"2\"}", parameters.get(6));
+	}
+	
+	@Test
+	public void testNoChanges() throws SchemaException, SQLException {
+		Composite c= JsonComposite.Parse("{\"a\":1}");
+		
+		JsonbUpdate update= JsonbUpdate.Create("document", c, JsonComposite.Parse("{\"a\":1.0}"));
+		assertTrue(update.isEmpty());
+		assertEquals("document", update.getExpression());
+	}
+}
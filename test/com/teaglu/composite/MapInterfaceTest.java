@@ -1,5 +1,7 @@
 package com.teaglu.composite;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +12,8 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.WrongTypeException;
 import com.teaglu.composite.map.MapCompositeImpl;
 import com.teaglu.composite.map.MapSerializer;
 
@@ -103,4 +107,41 @@ public class MapInterfaceTest extends CompositeTest {
 	public void testStringList() {
 		testStringList(reference);
 	}
+	
+	@Test
+	public void testChildReuse() {
+		testChildReuse(reference);
+	}
+	
+	@Test
+	public void testDates() {
+		testDates(reference);
+	}
+	
+	@Test
+	public void testBigNumbers() {
+		testBigNumbers(reference);
+	}
+	
+	@Test
+	public void testWriteTo() {
+		testWriteTo(reference);
+	}
+	
+	@Test
+	public void testModifiedArray() throws SchemaException {
+		List<Object> list= new ArrayList<>();
+		list.add(new TreeMap<String, Object>());
+		
+		Map<String, Object> test= new TreeMap<>();
+		test.put("list", list);
+		
+		Composite c= new MapCompositeImpl(
+				test, TimeZone.getTimeZone("UTC"), new DummySerializer(), null);
+		c.getRequiredObjectArray("list");
+		
+		// The cached view has to notice the list no longer holds only maps
+		list.add("stuff");
+		assertThrows(WrongTypeException.class, () -> c.getRequiredObjectArray("list"));
+	}
 }
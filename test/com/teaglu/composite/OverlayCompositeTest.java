@@ -0,0 +1,147 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParser;
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.map.JsonMapSerializer;
+import com.teaglu.composite.map.MapCompositeImpl;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class OverlayCompositeTest {
+	private static final TimeZone UTC= TimeZone.getTimeZone("UTC");
+	
+	private static Composite layered() throws SchemaException {
+		Composite defaults= JsonComposite.Parse(
+				"{\"name\":\"app\",\"debug\":false,\"db\":{\"host\":\"localhost\",\"port\":5432," +
+				"\"pool\":{\"min\":1,\"max\":5}},\"servers\":[{\"name\":\"a\"},{\"name\":\"b\"}]," +
+				"\"cache\":{\"size\":10},\"timeout\":30}");
+		
+		Composite environment= YamlComposite.Parse(
+				"db:\n  host: db.prod\n  pool:\n    max: 50\nservers:\n  - name: prod\n" +
+				"cache: disabled\ntimeout: null\n", UTC);
+		
+		Map<String, Object> overrides= new LinkedHashMap<>();
+		Map<String, Object> db= new LinkedHashMap<>();
+		db.put("port", 6432);
+		overrides.put("db", db);
+		overrides.put("debug", true);
+		
+		return OverlayComposite.Create(UTC, defaults, environment,
+				new MapCompositeImpl(overrides, UTC, new JsonMapSerializer(), null));
+	}
+	
+	@Test
+	public void testScalars() throws SchemaException {
+		Composite c= layered();
+		
+		assertEquals("app", c.getRequiredString("name"));
+		assertTrue(c.getRequiredBoolean("debug"));
+		assertEquals(30, c.getRequiredInteger("timeout"));
+		assertEquals("disabled", c.getRequiredString("cache"));
+		
+		assertNull(c.getOptionalString("missing"));
+		assertThrows(MissingValueException.class, () -> c.getRequiredString("missing"));
+		assertThrows(WrongTypeException.class, () -> c.getRequiredInteger("name"));
+	}
+	
+	@Test
+	public void testDeepMerge() throws SchemaException {
+		Composite c= layered();
+		
+		Composite db= c.getRequiredObject("db");
+		assertEquals("db.prod", db.getRequiredString("host"));
+		assertEquals(6432, db.getRequiredInteger("port"));
+		assertEquals(1, db.getRequiredObject("pool").getRequiredInteger("min"));
+		assertEquals(50, db.getRequiredObject("pool").getRequiredInteger("max"));
+		
+		// Resolutions are remembered
+		assertSame(db, c.getRequiredObject("db"));
+		
+		// A scalar in an upper layer hides an object below it
+		assertThrows(WrongTypeException.class, () -> c.getRequiredObject("cache"));
+		
+		// Arrays are not merged
+		List<String> names= new ArrayList<>();
+		for (Composite server : c.getRequiredObjectArray("servers")) {
+			names.add(server.getRequiredString("name"));
+		}
+		assertEquals(List.of("prod"), names);
+		
+		MissingValueException e= assertThrows(MissingValueException.class,
+				() -> c.getRequiredObject("db").getRequiredString("user"));
+		assertTrue(e.getMessage().contains("db.user"));
+	}
+	
+	@Test
+	public void testPaths() throws SchemaException {
+		Composite c= layered();
+		
+		assertEquals("db.prod", c.getRequiredString(CompositePath.Compile("db.host")));
+		assertEquals(1, c.getRequiredInteger(CompositePath.Compile("db.pool.min")));
+		assertEquals(50, c.getRequiredInteger(CompositePath.Compile("db.pool.max")));
+		assertEquals("prod", c.getRequiredString(CompositePath.Compile("servers[0].name")));
+		
+		assertNull(c.getOptionalString(CompositePath.Compile("db.user")));
+		assertNull(c.getOptionalString(CompositePath.Compile("queue.name")));
+		assertNull(c.getOptionalString(CompositePath.Compile("servers[3].name")));
+		assertThrows(MissingValueException.class,
+				() -> c.getRequiredString(CompositePath.Compile("queue.name")));
+	}
+	
+	@Test
+	public void testObjectMap() throws SchemaException {
+		Composite base= JsonComposite.Parse("{\"a\":{\"x\":1},\"b\":{\"x\":2}}");
+		Composite top= JsonComposite.Parse("{\"b\":{\"y\":3},\"c\":{\"x\":4}}");
+		
+		Map<String, Composite> members= new LinkedHashMap<>();
+		for (Map.Entry<String, Composite> entry : OverlayComposite.Create(UTC, base, top).getObjectMap()) {
+			members.put(entry.getKey(), entry.getValue());
+		}
+		
+		assertEquals(List.of("a", "b", "c"), new ArrayList<>(members.keySet()));
+		assertEquals(2, members.get("b").getRequiredInteger("x"));
+		assertEquals(3, members.get("b").getRequiredInteger("y"));
+		
+		assertThrows(WrongTypeException.class, () -> layered().getObjectMap());
+	}
+	
+	@Test
+	public void testMergedContent() throws Exception {
+		Composite c= layered();
+		Composite expected= JsonComposite.Parse(
+				"{\"name\":\"app\",\"debug\":true,\"db\":{\"host\":\"db.prod\",\"port\":6432," +
+				"\"pool\":{\"min\":1,\"max\":50}},\"servers\":[{\"name\":\"prod\"}]," +
+				"\"cache\":\"disabled\",\"timeout\":30}");
+		
+		assertEquals(expected.contentHash(), c.contentHash());
+		assertTrue(CompositeDiff.between(expected, c).isEmpty());
+		
+		ByteArrayOutputStream stream= new ByteArrayOutputStream();
+		c.writeTo(stream, Format.JSON);
+		assertEquals(
+				JsonParser.parseString(expected.serialize(com.google.gson.JsonObject.class).toString()),
+				JsonParser.parseString(new String(stream.toByteArray(), StandardCharsets.UTF_8)));
+		
+		assertFalse(CompositeDiff.between(expected, OverlayComposite.Create(UTC, expected, c,
+				JsonComposite.Parse("{\"timeout\":31}"))).isEmpty());
+	}
+}
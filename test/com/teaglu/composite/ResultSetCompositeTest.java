@@ -0,0 +1,183 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.teaglu.composite.exception.MissingValueException;
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.exception.SourceException;
+import com.teaglu.composite.exception.WrongTypeException;
+import com.teaglu.composite.jdbc.ResultSetComposite;
+import com.teaglu.composite.json.JsonComposite;
+
+public class ResultSetCompositeTest {
+	private static final TimeZone NEW_YORK= TimeZone.getTimeZone("America/New_York");
+	
+	private static final String[] LABELS= {
+			"id", "big", "price", "active", "name", "born", "created", "payload", "tags" };
+	private static final int[] TYPES= {
+			Types.INTEGER, Types.BIGINT, Types.NUMERIC, Types.BIT, Types.VARCHAR, Types.DATE,
+			Types.TIMESTAMP, Types.OTHER, Types.ARRAY };
+	private static final String[] TYPE_NAMES= {
+			"int4", "int8", "numeric", "bool", "varchar", "date", "timestamp", "jsonb", "_text" };
+	
+	private static ResultSet fakeResultSet(Object[]... rows) {
+		return FakeResultSet.create(LABELS, TYPES, TYPE_NAMES, rows);
+	}
+	
+	@Test
+	public void testRows() throws SchemaException, SQLException {
+		ResultSet resultSet= fakeResultSet(
+				new Object[] { 1, 5000000000L, new BigDecimal("12.50"), true, "first",
+						LocalDate.of(1990, 5, 1), LocalDateTime.of(2023, 1, 1, 12, 0),
+						"{\"color\":\"red\",\"items\":[{\"sku\":\"a1\"},{\"sku\":\"b2\"}]}",
+						new String[] { "x", "y" } },
+				new Object[] { 2, null, new BigDecimal("3"), null, null,
+						null, null, null, null });
+		
+		Composite row= ResultSetComposite.Create(resultSet, NEW_YORK);
+		
+		assertTrue(resultSet.next());
+		assertEquals(1, row.getRequiredInteger("id"));
+		assertEquals(5000000000L, row.getRequiredLong("big"));
+		assertThrows(WrongTypeException.class, () -> row.getRequiredInteger("big"));
+		assertEquals(new BigDecimal("12.50"), row.getRequiredBigDecimal("price"));
+		assertThrows(WrongTypeException.class, () -> row.getRequiredInteger("price"));
+		assertTrue(row.getRequiredBoolean("active"));
+		assertEquals("first", row.getRequiredString("name"));
+		assertThrows(WrongTypeException.class, () -> row.getRequiredString("id"));
+		assertEquals(LocalDate.of(1990, 5, 1), row.getRequiredLocalDate("born"));
+		assertEquals(Instant.parse("2023-01-01T17:00:00Z"), row.getRequiredInstant("created"));
+		assertEquals(LocalDateTime.of(2023, 1, 1, 12, 0), row.getRequiredLocalDateTime("created"));
+		
+		List<String> tags= new ArrayList<>();
+		row.getRequiredStringArray("tags").forEach(tags::add);
+		assertEquals(List.of("x", "y"), tags);
+		
+		Composite payload= row.getRequiredObject("payload");
+		assertEquals("red", payload.getRequiredString("color"));
+		assertSame(payload, row.getRequiredObject("payload"));
+		assertEquals("b2", row.getRequiredString(CompositePath.Compile("payload.items[1].sku")));
+		assertNull(row.getOptionalString(CompositePath.Compile("payload.size")));
+		assertThrows(WrongTypeException.class,
+				() -> row.getRequiredString(CompositePath.Compile("name.first")));
+		
+		assertNull(row.getOptionalString("unknown"));
+		assertThrows(MissingValueException.class, () -> row.getRequiredString("unknown"));
+		
+		assertEquals(JsonComposite.Parse(
+				"{\"id\":1,\"big\":5000000000,\"price\":12.5,\"active\":true,\"name\":\"first\"," +
+				"\"born\":\"1990-05-01\",\"created\":\"2023-01-01T12:00:00\"," +
+				"\"payload\":{\"color\":\"red\",\"items\":[{\"sku\":\"a1\"},{\"sku\":\"b2\"}]}," +
+				"\"tags\":[\"x\",\"y\"]}").contentHash(), row.contentHash());
+		
+		// The same view follows the result set to the next row
+		assertTrue(resultSet.next());
+		assertEquals(2, row.getRequiredInteger("id"));
+		assertEquals(3, row.getRequiredInteger("price"));
+		assertNull(row.getOptionalLong("big"));
+		assertNull(row.getOptionalBoolean("active"));
+		assertNull(row.getOptionalTimestamp("created"));
+		assertNull(row.getOptionalObject("payload"));
+		assertNull(row.getOptionalStringArray("tags"));
+		assertThrows(MissingValueException.class, () -> row.getRequiredObject("payload"));
+		
+		Map<?, ?> map= row.serialize(Map.class);
+		assertTrue(map.containsKey("payload"));
+		assertNull(map.get("payload"));
+		
+		assertFalse(resultSet.next());
+	}
+	
+	@Test
+	public void testParseStreamed() throws SchemaException, SQLException {
+		byte[] binary= "\u0001{\"color\":\"blue\"}".getBytes(StandardCharsets.UTF_8);
+		
+		ResultSet resultSet= fakeResultSet(
+				new Object[] { 1, null, null, null, null, null, null,
+						"{\"color\":\"red\",\"note\":\"caf\u00e9\"}", null },
+				new Object[] { 2, null, null, null, null, null, null, binary, null },
+				new Object[] { 3, null, null, null, null, null, null, "null", null },
+				new Object[] { 4, null, null, null, null, null, null, null, null },
+				new Object[] { 5, null, null, null, null, null, null, "{\"color\":", null });
+		
+		assertTrue(resultSet.next());
+		Composite first= JsonComposite.Parse(resultSet, "payload", NEW_YORK);
+		assertEquals("red", first.getRequiredString("color"));
+		assertEquals("caf\u00e9", first.getRequiredString("note"));
+		
+		// Binary jsonb starts with a version byte
+		assertTrue(resultSet.next());
+		assertEquals("blue", JsonComposite.Parse(resultSet, 8).getRequiredString("color"));
+		
+		assertTrue(resultSet.next());
+		assertNull(JsonComposite.Parse(resultSet, 8));
+		assertTrue(resultSet.next());
+		assertNull(JsonComposite.Parse(resultSet, 8));
+		
+		assertTrue(resultSet.next());
+		assertThrows(ParseException.class, () -> JsonComposite.Parse(resultSet, 8));
+	}
+	
+	@Test
+	public void testJsonColumn() throws SchemaException, SQLException {
+		String payload= "{\"color\":\"red\"}";
+		
+		ResultSet resultSet= fakeResultSet(
+				new Object[] { 1, null, null, null, null, null, null, payload, null },
+				new Object[] { 2, null, null, null, null, null, null, payload, null },
+				new Object[] { 3, null, null, null, null, null, null, "[1,2]", null },
+				new Object[] { 4, null, null, null, null, null, null, "{\"color\":", null });
+		
+		Composite row= ResultSetComposite.Create(resultSet, NEW_YORK);
+		
+		// The parse is kept for the row, and a new row parses again even with the same text
+		assertTrue(resultSet.next());
+		Composite first= row.getRequiredObject("payload");
+		assertSame(first, row.getRequiredObject("payload"));
+		
+		assertTrue(resultSet.next());
+		Composite second= row.getRequiredObject("payload");
+		assertNotSame(first, second);
+		assertEquals("red", second.getRequiredString("color"));
+		
+		// A column holding something other than an object is still read by the column label
+		assertTrue(resultSet.next());
+		List<Integer> values= new ArrayList<>();
+		row.getRequiredIntegerArray("payload").forEach(values::add);
+		assertEquals(List.of(1, 2), values);
+		assertThrows(WrongTypeException.class, () -> row.getRequiredObject("payload"));
+		
+		assertTrue(resultSet.next());
+		assertThrows(WrongTypeException.class, () -> row.getOptionalObject("payload"));
+	}
+	
+	@Test
+	public void testDriverFailure() throws SQLException {
+		Composite row= ResultSetComposite.Create(fakeResultSet(), NEW_YORK);
+		
+		// Reading before next() fails in the driver, which isn't a schema problem
+		assertThrows(SourceException.class, () -> row.getOptionalString("name"));
+	}
+}
@@ -0,0 +1,120 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.exception.ParseException;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class TranscoderTest {
+	private static String transcode(
+			String input,
+			Format inputFormat,
+			Format outputFormat) throws IOException, ParseException
+	{
+		ByteArrayOutputStream output= new ByteArrayOutputStream();
+		Transcoder.Transcode(new StringReader(input), inputFormat, output, outputFormat);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+	
+	@Test
+	public void testYamlToJson() throws IOException, SchemaException {
+		String yaml=
+				"name: thing\n" +
+				"quoted: 'true'\n" +
+				"flag: yes\n" +
+				"hex: 0x1F\n" +
+				"grouped: 1_000\n" +
+				"big: 123456789012345678901234567890\n" +
+				"pi: 3.14159265358979323846\n" +
+				"nothing: ~\n" +
+				"date: 2023-01-01\n" +
+				"tagged: !!str 12\n" +
+				"list:\n" +
+				"  - a: 1\n" +
+				"  - []\n" +
+				"  - {}\n";
+		
+		String json= transcode(yaml, Format.YAML, Format.JSON);
+		JsonObject object= JsonParser.parseString(json).getAsJsonObject();
+		
+		assertEquals("thing", object.get("name").getAsString());
+		assertEquals(true, object.get("quoted").getAsJsonPrimitive().isString());
+		assertEquals(true, object.get("flag").getAsBoolean());
+		assertEquals(31, object.get("hex").getAsInt());
+		assertEquals(1000, object.get("grouped").getAsInt());
+		assertEquals(new BigInteger("123456789012345678901234567890"), object.get("big").getAsBigInteger());
+		assertEquals(new BigDecimal("3.14159265358979323846"), object.get("pi").getAsBigDecimal());
+		assertEquals(true, object.get("nothing").isJsonNull());
+		assertEquals("12", object.get("tagged").getAsString());
+		assertEquals(true, object.get("tagged").getAsJsonPrimitive().isString());
+		assertEquals(3, object.getAsJsonArray("list").size());
+		
+		Composite c= JsonComposite.Parse(json);
+		assertEquals(LocalDate.of(2023, 1, 1), c.getRequiredLocalDate("date"));
+	}
+	
+	@Test
+	public void testJsonToYaml() throws IOException, SchemaException {
+		String json= "{\"name\":\"thing\",\"quoted\":\"true\",\"number\":\"12\",\"count\":12," +
+				"\"big\":123456789012345678901234567890,\"whole\":3.0,\"pi\":3.14159265358979323846," +
+				"\"nothing\":null,\"date\":\"2023-01-01\",\"list\":[{\"a\":1},{}],\"empty\":[]}";
+		
+		String yaml= transcode(json, Format.JSON, Format.YAML);
+		Composite c= YamlComposite.Parse(new InputStreamReader(
+				new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+		
+		assertEquals("thing", c.getRequiredString("name"));
+		assertEquals("true", c.getRequiredString("quoted"));
+		assertEquals("12", c.getRequiredString("number"));
+		assertEquals(12, c.getRequiredInteger("count"));
+		assertEquals(new BigInteger("123456789012345678901234567890"), c.getRequiredBigInteger("big"));
+		assertEquals(3.14159265358979323846, c.getRequiredDouble("pi"));
+		assertNull(c.getOptionalString("nothing"));
+		assertEquals(LocalDate.of(2023, 1, 1), c.getRequiredLocalDate("date"));
+		
+		Iterator<Composite> list= c.getRequiredObjectArray("list").iterator();
+		assertEquals(1, list.next().getRequiredInteger("a"));
+		
+		// SnakeYAML loads floats as doubles, but the text keeps every digit
+		JsonObject back= JsonParser.parseString(transcode(yaml, Format.YAML, Format.JSON))
+				.getAsJsonObject();
+		assertEquals(new BigDecimal("3.14159265358979323846"), back.get("pi").getAsBigDecimal());
+		assertEquals(new BigDecimal("3.0"), back.get("whole").getAsBigDecimal());
+		assertEquals(12, back.get("count").getAsInt());
+	}
+	
+	@Test
+	public void testRejected() {
+		assertThrows(ParseException.class,
+				() -> transcode("a: &x 1\nb: *x\n", Format.YAML, Format.JSON));
+		assertThrows(ParseException.class,
+				() -> transcode("a: 1\n---\nb: 2\n", Format.YAML, Format.JSON));
+		assertThrows(ParseException.class,
+				() -> transcode("? [a, b]\n: c\n", Format.YAML, Format.JSON));
+		assertThrows(ParseException.class,
+				() -> transcode("a: [1, 2\n", Format.YAML, Format.JSON));
+		assertThrows(ParseException.class,
+				() -> transcode("{\"a\":1", Format.JSON, Format.YAML));
+		assertThrows(ParseException.class,
+				() -> transcode("{\"a\":1} {}", Format.JSON, Format.YAML));
+	}
+}
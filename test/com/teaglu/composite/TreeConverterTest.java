@@ -0,0 +1,152 @@
+package com.teaglu.composite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.teaglu.composite.convert.TreeConverter;
+import com.teaglu.composite.exception.SchemaException;
+import com.teaglu.composite.json.JsonComposite;
+import com.teaglu.composite.map.JsonMapSerializer;
+import com.teaglu.composite.map.MapCompositeImpl;
+import com.teaglu.composite.yaml.YamlComposite;
+
+public class TreeConverterTest {
+	private static final int DEPTH= 100_000;
+	
+	@Test
+	public void testJsonToMap() {
+		JsonObject object= JsonParser.parseString(
+				"{\"int\":3,\"long\":4294967297,\"big\":123456789012345678901234567890," +
+				"\"double\":3.25,\"precise\":0.12345678901234567890,\"whole\":3.0,\"exponent\":1e2," +
+				"\"missing\":null,\"date\":\"2023-01-01\",\"list\":[1,\"two\",null,{\"a\":true}]}")
+				.getAsJsonObject();
+		
+		Map<String, Object> map= TreeConverter.toMap(object);
+		assertEquals(Integer.valueOf(3), map.get("int"));
+		assertEquals(Long.valueOf(4294967297L), map.get("long"));
+		assertEquals(new BigInteger("123456789012345678901234567890"), map.get("big"));
+		assertEquals(Double.valueOf(3.25), map.get("double"));
+		assertEquals(new BigDecimal("0.12345678901234567890"), map.get("precise"));
+		assertEquals(Double.valueOf(3.0), map.get("whole"));
+		assertEquals(Double.valueOf(100.0), map.get("exponent"));
+		assertTrue(map.containsKey("missing"));
+		assertNull(map.get("missing"));
+		assertEquals("2023-01-01", map.get("date"));
+		
+		List<?> list= (List<?>)map.get("list");
+		assertEquals(4, list.size());
+		assertEquals("two", list.get(1));
+		assertNull(list.get(2));
+		assertEquals(Boolean.TRUE, ((Map<?, ?>)list.get(3)).get("a"));
+		
+		// Member order is kept
+		assertEquals(List.of("int", "long", "big", "double", "precise", "whole", "exponent",
+				"missing", "date", "list"), new ArrayList<>(map.keySet()));
+	}
+	
+	@Test
+	public void testMapToJson() throws SchemaException {
+		Map<String, Object> tree= new LinkedHashMap<>();
+		tree.put("int", 3);
+		tree.put("float", 3.4F);
+		tree.put("big", new BigDecimal("12345678901234567890.123"));
+		tree.put("date", LocalDate.of(2023, 1, 1));
+		tree.put("missing", null);
+		tree.put("list", List.of(1L, Map.of("a", "b")));
+		
+		JsonObject object= TreeConverter.toJsonObject(tree);
+		assertEquals(3, object.get("int").getAsInt());
+		assertEquals("3.4", object.get("float").getAsString());
+		assertEquals(new BigDecimal("12345678901234567890.123"), object.get("big").getAsBigDecimal());
+		assertEquals("2023-01-01", object.get("date").getAsString());
+		assertTrue(object.get("missing").isJsonNull());
+		
+		JsonArray list= object.getAsJsonArray("list");
+		assertEquals(1L, list.get(0).getAsLong());
+		assertEquals("b", list.get(1).getAsJsonObject().get("a").getAsString());
+		
+		Composite c= JsonComposite.Create(tree);
+		assertEquals(LocalDate.of(2023, 1, 1), c.getRequiredLocalDate("date"));
+		assertEquals(3.4, c.getRequiredDouble("float"));
+	}
+	
+	@Test
+	public void testSqlDate() throws SchemaException {
+		java.sql.Date date= java.sql.Date.valueOf(LocalDate.of(2023, 1, 1));
+		Instant instant= Instant.ofEpochMilli(date.getTime());
+		
+		Map<String, Object> tree= new LinkedHashMap<>();
+		tree.put("d", date);
+		tree.put("t", Timestamp.from(Instant.parse("2023-01-01T12:00:00.123456Z")));
+		
+		JsonObject object= TreeConverter.toJsonObject(tree);
+		assertEquals(instant.toString(), object.get("d").getAsString());
+		assertEquals("2023-01-01T12:00:00.123456Z", object.get("t").getAsString());
+		
+		assertEquals(instant, JsonComposite.Create(tree).getRequiredInstant("d"));
+		
+		String json= new MapCompositeImpl(
+				tree, TimeZone.getTimeZone("UTC"), new JsonMapSerializer(), null).serialize(String.class);
+		assertEquals(instant, JsonComposite.Parse(json).getRequiredInstant("d"));
+	}
+	
+	@Test
+	public void testYamlRoundTrip() throws SchemaException {
+		Composite yaml= YamlComposite.Parse("name: thing\ncount: 12\nlist:\n  - a: 1\n");
+		
+		Composite json= JsonComposite.Create(yaml.serialize(JsonObject.class));
+		assertEquals("thing", json.getRequiredString("name"));
+		
+		Composite back= YamlComposite.Create(json.serialize(JsonObject.class));
+		assertEquals(12, back.getRequiredInteger("count"));
+		
+		Map<?, ?> map= json.serialize(Map.class);
+		assertEquals(Integer.valueOf(12), map.get("count"));
+		
+		// A JSON decimal stays a decimal in YAML even when its value is whole
+		Composite decimal= YamlComposite.Create(JsonComposite.Parse(
+				"{\"a\":1.0,\"b\":1e2}").serialize(JsonObject.class));
+		
+		String text= decimal.serialize(String.class);
+		assertTrue(text.contains("a: 1.0"), text);
+		assertTrue(text.contains("b: 100.0"), text);
+	}
+	
+	@Test
+	public void testDeepNesting() {
+		Map<String, Object> root= new LinkedHashMap<>();
+		Map<String, Object> node= root;
+		for (int i= 0; i < DEPTH; i++) {
+			Map<String, Object> child= new LinkedHashMap<>();
+			node.put("child", List.of(child));
+			node= child;
+		}
+		node.put("leaf", true);
+		
+		JsonObject object= TreeConverter.toJsonObject(root);
+		Map<String, Object> back= TreeConverter.toMap(object);
+		
+		Map<?, ?> walk= back;
+		for (int i= 0; i < DEPTH; i++) {
+			walk= (Map<?, ?>)((List<?>)walk.get("child")).get(0);
+		}
+		assertEquals(Boolean.TRUE, walk.get("leaf"));
+	}
+}
@@ -87,4 +87,24 @@ public class YamlInterfaceTest extends CompositeTest {
 	public void testStringList() {
 		testStringList(reference);
 	}
+	
+	@Test
+	public void testChildReuse() {
+		testChildReuse(reference);
+	}
+	
+	@Test
+	public void testDates() {
+		testDates(reference);
+	}
+	
+	@Test
+	public void testBigNumbers() {
+		testBigNumbers(reference);
+	}
+	
+	@Test
+	public void testWriteTo() {
+		testWriteTo(reference);
+	}
 }
@@ -22,6 +22,7 @@ module com.teaglu.composite {
 	requires org.yaml.snakeyaml;
 	
 	exports com.teaglu.composite;
+	exports com.teaglu.composite.bind;
 	exports com.teaglu.composite.exception;
 	exports com.teaglu.composite.json;
 	exports com.teaglu.composite.yaml;